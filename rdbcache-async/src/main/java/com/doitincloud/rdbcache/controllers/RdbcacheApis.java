@@ -0,0 +1,93 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.controllers;
+
+import com.doitincloud.rdbcache.configs.AppCtx;
+
+import com.doitincloud.rdbcache.controllers.supports.Request;
+import com.doitincloud.rdbcache.models.KvIdType;
+
+import com.doitincloud.rdbcache.supports.TaskPools;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+
+import javax.annotation.PostConstruct;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Same routes as the blocking api. Each handler returns a CompletableFuture, the request thread
+ * parses the request and hands the redis and database work to the bounded api pool, and keep-alive
+ * connections wait without a thread. get of a key whose key info and data are in the local cache
+ * is answered on the request thread, it does no I/O.
+ */
+@RestController
+public class RdbcacheApis extends AbstractRdbcacheApis<CompletableFuture<ResponseEntity<?>>> {
+
+    @PostConstruct
+    public void init() {
+    }
+
+    @EventListener
+    public void handleEvent(ContextRefreshedEvent event) {
+    }
+
+    @EventListener
+    public void handleApplicationReadyEvent(ApplicationReadyEvent event) {
+    }
+
+    // runs the work on the api pool, its exceptions complete the future and are
+    // resolved to http statuses as they are for the blocking api
+    //
+    @Override
+    protected CompletableFuture<ResponseEntity<?>> handle(Supplier<ResponseEntity<?>> work) {
+        CompletableFuture<ResponseEntity<?>> future = new CompletableFuture<>();
+        TaskPools.getApiPool().execute(() -> {
+            try {
+                future.complete(work.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    protected CompletableFuture<ResponseEntity<?>> handleGet(String key, Request parsed,
+                                                             Supplier<ResponseEntity<?>> work) {
+        if (isLocalHit(key, parsed)) {
+            // a key evicted in between is rare enough to finish on this thread
+            return CompletableFuture.completedFuture(work.get());
+        }
+        return handle(work);
+    }
+
+    // plain get of a key whose key info and data are both in the local cache
+    //
+    private boolean isLocalHit(String key, Request parsed) {
+        if (key.equals("*") || parsed.hasOptions()) {
+            return false;
+        }
+        KvIdType idType = new KvIdType(key, "data");
+        return AppCtx.getCacheOps().getKeyInfo(idType) != null && AppCtx.getCacheOps().getData(idType) != null;
+    }
+}
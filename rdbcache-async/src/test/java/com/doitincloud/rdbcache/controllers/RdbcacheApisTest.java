@@ -0,0 +1,213 @@
+package com.doitincloud.rdbcache.controllers;
+
+import com.google.common.io.CharStreams;
+import com.doitincloud.rdbcache.configs.*;
+import com.doitincloud.commons.Utils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(secure = false)
+@ContextConfiguration(classes = {Configurations.class, PropCfg.class})
+public class RdbcacheApisTest {
+
+    private MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new RdbcacheApis()).build();
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setup() {
+
+        // allow time to synchronize data
+        try {
+            Thread.sleep(250);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("test-data.sql");
+            assertNotNull(inputStream);
+            String sql = null;
+            try (final Reader reader = new InputStreamReader(inputStream)) {
+                sql = CharStreams.toString(reader);
+            }
+            assertNotNull(sql);
+
+            jdbcTemplate.execute(sql);
+
+            AppCtx.getCacheOps().removeAllKeyAndData();
+            MockRedis.getData().clear();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e.getCause().getMessage());
+        }
+    }
+
+    // handlers return a future, the response is written on the async dispatch
+    //
+    private MockHttpServletResponse perform(RequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            result.getAsyncResult(10000L);
+            result = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andReturn();
+        }
+        return result.getResponse();
+    }
+
+    @Test
+    public void get_get1() {
+
+        try {
+            MockHttpServletResponse response = perform(MockMvcRequestBuilders.
+                    get("/rdbcache/v1/get/*/user_table?id=2").
+                    accept(MediaType.APPLICATION_JSON));
+
+            assertEquals(200, response.getStatus());
+
+            Map<String, Object> map = Utils.toMap(response.getContentAsString());
+
+            assertTrue(map.containsKey("timestamp"));
+            assertTrue(map.containsKey("key"));
+            assertTrue(map.containsKey("trace_id"));
+
+            Map<String, Object> data = (Map<String, Object>) map.get("data");
+            assertEquals("2", data.get("id").toString());
+            assertEquals("kevin@example.com", data.get("email").toString());
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("caught an exception");
+        }
+    }
+
+    @Test
+    public void get_get2() {
+
+        try {
+            MockHttpServletResponse response = perform(MockMvcRequestBuilders.
+                    get("/rdbcache/v1/get/*/user_table?id=100").
+                    accept(MediaType.APPLICATION_JSON));
+
+            assertEquals(404, response.getStatus());
+
+            response = perform(MockMvcRequestBuilders.
+                    get("/rdbcache/v1/get/any_hash_key_not_existed").
+                    accept(MediaType.APPLICATION_JSON));
+
+            assertEquals(404, response.getStatus());
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("caught an exception");
+        }
+    }
+
+    @Test
+    public void set_get1() {
+
+        try {
+            MockHttpServletResponse response = perform(MockMvcRequestBuilders.
+                    get("/rdbcache/v1/set/test_hash_key/test_value").
+                    accept(MediaType.APPLICATION_JSON));
+
+            assertEquals(200, response.getStatus());
+            Map<String, Object> map = Utils.toMap(response.getContentAsString());
+            assertEquals("test_hash_key", map.get("key"));
+
+            // the second get is answered from the local cache on the request thread
+            for (int i = 0; i < 2; i++) {
+                response = perform(MockMvcRequestBuilders.
+                        get("/rdbcache/v1/get/test_hash_key").
+                        accept(MediaType.APPLICATION_JSON));
+
+                assertEquals(200, response.getStatus());
+                map = Utils.toMap(response.getContentAsString());
+                assertEquals("test_value", map.get("data"));
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("caught an exception");
+        }
+    }
+
+    @Test
+    public void pull_post1() {
+
+        try {
+            MockHttpServletResponse response = perform(MockMvcRequestBuilders.
+                    get("/rdbcache/v1/select/user_table?limit=3").
+                    accept(MediaType.APPLICATION_JSON));
+
+            assertEquals(200, response.getStatus());
+            Map<String, Object> map = Utils.toMap(response.getContentAsString());
+            Map<String, Object> data1 = (Map<String, Object>) map.get("data");
+            assertNotNull(data1);
+            assertTrue(data1.size() > 1);
+
+            response = perform(MockMvcRequestBuilders.
+                    post("/rdbcache/v1/pull/user_table").
+                    contentType(MediaType.APPLICATION_JSON).content(Utils.toJsonMap(data1.keySet())).
+                    accept(MediaType.APPLICATION_JSON));
+
+            assertEquals(200, response.getStatus());
+            map = Utils.toMap(response.getContentAsString());
+            Map<String, Object> data2 = (Map<String, Object>) map.get("data");
+            assertEquals(data1, data2);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("caught an exception");
+        }
+    }
+
+    @Test
+    public void taskpools_get1() {
+
+        try {
+            perform(MockMvcRequestBuilders.
+                    get("/rdbcache/v1/get/*/user_table?id=1").
+                    accept(MediaType.APPLICATION_JSON));
+
+            MockHttpServletResponse response = perform(MockMvcRequestBuilders.
+                    get("/rdbcache/v1/task-pools").
+                    accept(MediaType.APPLICATION_JSON));
+
+            assertEquals(200, response.getStatus());
+            Map<String, Object> map = Utils.toMap(response.getContentAsString());
+            Map<String, Object> data = (Map<String, Object>) map.get("data");
+            assertTrue(data.containsKey("api"));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("caught an exception");
+        }
+    }
+}
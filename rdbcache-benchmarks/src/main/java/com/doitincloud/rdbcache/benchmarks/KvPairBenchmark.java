@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.doitincloud.rdbcache.benchmarks;
+
+import com.doitincloud.rdbcache.models.KvPair;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KvPairBenchmark {
+
+    @Param({"4", "32"})
+    public int fieldCount;
+
+    private KvPair pair;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        for (int i = 0; i < fieldCount; i++) {
+            data.put("field_" + i, "value of field " + i);
+        }
+        pair = new KvPair("my-key", "data", data);
+    }
+
+    @Benchmark
+    public Map<String, Object> getDataClone() {
+        return pair.getDataClone();
+    }
+}
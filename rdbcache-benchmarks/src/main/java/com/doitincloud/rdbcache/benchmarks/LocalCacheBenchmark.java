@@ -0,0 +1,87 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.doitincloud.rdbcache.benchmarks;
+
+import com.doitincloud.commons.LocalCache;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocalCacheBenchmark {
+
+    @Param({"1024", "8192"})
+    public int keyCount;
+
+    private LocalCache localCache;
+
+    private String[] keys;
+
+    private Map<String, Object> value;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+    }
+
+    @Setup
+    public void setup() {
+        // the cache without its recycle thread, so only get and put are measured
+        localCache = new LocalCache() {
+            {
+                initializeCache();
+            }
+        };
+
+        value = new LinkedHashMap<>();
+        value.put("id", 1);
+        value.put("name", "Kevin B.");
+        value.put("email", "kevin@example.com");
+
+        keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "data::key-" + i;
+            localCache.put(keys[i], value);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> get(Cursor cursor) {
+        return localCache.get(keys[cursor.index++ % keyCount]);
+    }
+
+    // all threads read the same key, reads should not serialize on it
+    @Benchmark
+    @Threads(4)
+    public Map<String, Object> getHotKey() {
+        return localCache.get(keys[0]);
+    }
+
+    @Benchmark
+    public void put(Cursor cursor) {
+        localCache.put(keys[cursor.index++ % keyCount], value);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.doitincloud.rdbcache.benchmarks;
+
+import com.doitincloud.commons.Utils;
+import com.doitincloud.rdbcache.configs.AppCtx;
+import com.doitincloud.rdbcache.models.KeyInfo;
+import com.doitincloud.rdbcache.models.KvPair;
+import com.doitincloud.rdbcache.queries.Parser;
+import com.doitincloud.rdbcache.queries.QueryInfo;
+import com.doitincloud.rdbcache.services.DbaseOps;
+import com.doitincloud.rdbcache.supports.Context;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+
+    private Context context;
+
+    private KvPair pair;
+
+    private KeyInfo stdKeyInfo;
+
+    private KeyInfo queryKeyInfo;
+
+    @Setup
+    public void setup() {
+        AppCtx.setDbaseOps(new DbaseOps());
+
+        context = new Context(false, "benchmark");
+
+        pair = new KvPair("*", "data", Utils.toMap("{\"id\" : 12467, \"email\" : \"kevin@example.com\", " +
+                "\"name\" : \"Kevin B.\", \"dob\" : \"1980-07-21\"}"));
+
+        Map<String, Object> columns = Utils.toMap("{" +
+                "\"id\": {\"type\": \"int(11)\", \"nullable\": false, \"default\": \"auto_increment\"}, " +
+                "\"email\": {\"type\": \"varchar(255)\", \"nullable\": true, \"default\": null}, " +
+                "\"name\": {\"type\": \"varchar(32)\", \"nullable\": true, \"default\": null}, " +
+                "\"dob\": {\"type\": \"date\", \"nullable\": true, \"default\": null}}");
+
+        stdKeyInfo = new KeyInfo();
+        stdKeyInfo.setExpire("100");
+        stdKeyInfo.setTable("user_table");
+        stdKeyInfo.setColumns(columns);
+        stdKeyInfo.setPrimaryIndexes(Arrays.asList("id"));
+        stdKeyInfo.setClause("");
+
+        queryKeyInfo = new KeyInfo();
+        queryKeyInfo.setExpire("100");
+        queryKeyInfo.setTable("user_table");
+        String json = "{\"table\":\"user_table\",\"conditions\":{\"id\":{\">\":[\"1\"],\"<\":[\"100\"]}," +
+                "\"name\":{\"=\":[\"Kevin B.\",\"Sam W.\"]}},\"limit\":2}";
+        queryKeyInfo.setQuery(Utils.toPojo(Utils.toMap(json), QueryInfo.class));
+    }
+
+    @Benchmark
+    public boolean prepareStandardClauseParams() {
+        return Parser.prepareStandardClauseParams(context, pair, stdKeyInfo);
+    }
+
+    @Benchmark
+    public boolean prepareQueryClauseParams() {
+        return Parser.prepareQueryClauseParams(context, pair, queryKeyInfo);
+    }
+}
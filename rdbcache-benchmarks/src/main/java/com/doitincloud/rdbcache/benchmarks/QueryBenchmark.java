@@ -0,0 +1,78 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.doitincloud.rdbcache.benchmarks;
+
+import com.doitincloud.rdbcache.configs.PropCfg;
+import com.doitincloud.rdbcache.queries.SqlCache;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// sql building of the Query builders, sqlCacheSize 0 builds the statement text on every call
+//
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    @Param({"0", "1024"})
+    public int sqlCacheSize;
+
+    private List<String> fields;
+
+    private List<String> indexes;
+
+    @Setup
+    public void setup() {
+        new PropCfg().setSqlCacheSize(sqlCacheSize);
+        SqlCache.clear();
+
+        fields = new ArrayList<>(Arrays.asList("name", "email", "dob", "id"));
+        Collections.sort(fields);
+
+        indexes = Arrays.asList("id");
+    }
+
+    @Benchmark
+    public String selectSql() {
+        return SqlCache.getSelectSql("user_table", "id = ?", 1);
+    }
+
+    @Benchmark
+    public String multiSelectSql() {
+        return SqlCache.getMultiSelectSql("user_table", indexes, 64);
+    }
+
+    @Benchmark
+    public String insertSql() {
+        return SqlCache.getInsertSql("user_table", fields);
+    }
+
+    @Benchmark
+    public String updateSql() {
+        return SqlCache.getUpdateSql("user_table", fields, "id = ?");
+    }
+}
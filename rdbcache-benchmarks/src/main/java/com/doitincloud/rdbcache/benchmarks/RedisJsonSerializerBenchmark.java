@@ -0,0 +1,69 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.doitincloud.rdbcache.benchmarks;
+
+import com.doitincloud.rdbcache.configs.RedisJsonSerializer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RedisJsonSerializerBenchmark {
+
+    @Param({"4", "32"})
+    public int fieldCount;
+
+    private RedisJsonSerializer serializer;
+
+    private Map<String, Object> data;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        serializer = new RedisJsonSerializer();
+        data = new LinkedHashMap<>();
+        for (int i = 0; i < fieldCount; i++) {
+            data.put("field_" + i, i % 2 == 0 ? "value of field " + i : i);
+        }
+        bytes = serializer.serialize(data);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(data);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(bytes);
+    }
+
+    @Benchmark
+    public Object roundTrip() {
+        return serializer.deserialize(serializer.serialize(data));
+    }
+}
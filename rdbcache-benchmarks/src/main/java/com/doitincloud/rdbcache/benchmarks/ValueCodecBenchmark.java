@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.benchmarks;
+
+import com.doitincloud.commons.ValueCodec;
+import com.doitincloud.commons.ValueCodecs;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValueCodecBenchmark {
+
+    @Param({"json", "binary"})
+    public String codecName;
+
+    private ValueCodec codec;
+
+    // field values of a typical row, as redis hash values are encoded one by one
+    private Object[] values;
+
+    private byte[][] encoded;
+
+    @Setup
+    public void setup() {
+        codec = ValueCodecs.forName(codecName);
+        values = new Object[] { 12345, 1234567890123L, "value of a field", 3.14159, true, null };
+        encoded = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = codec.encode(values[i]);
+        }
+    }
+
+    @Benchmark
+    public void encode(Blackhole blackhole) {
+        for (Object value: values) {
+            blackhole.consume(codec.encode(value));
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        for (byte[] bytes: encoded) {
+            blackhole.consume(ValueCodecs.decode(bytes));
+        }
+    }
+}
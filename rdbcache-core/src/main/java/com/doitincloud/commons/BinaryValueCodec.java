@@ -0,0 +1,168 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.commons;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact binary encoding for the scalar values of a row.
+ *
+ * The first byte is a type tag from 0xF8 to 0xFF. Those bytes never start a json document
+ * nor appear in utf-8 text, so a value can tell which codec wrote it. The rest is the payload:
+ *
+ *   NULL, FALSE, TRUE   no payload
+ *   INT                 1 to 8 bytes big endian two's complement, decodes to Integer or Long
+ *   DOUBLE              8 bytes of the IEEE 754 bits
+ *   STRING              utf-8 text
+ *   JSON                any other value (maps, lists, decimals, dates ...) encoded as json
+ *
+ * Decoding scalars needs no parser and allocates just the result. Types decode the same as
+ * from json, for example a Short decodes to Integer and a Float goes through json as Double.
+ */
+public class BinaryValueCodec implements ValueCodec {
+
+    static final byte NULL = (byte) 0xF8;
+
+    static final byte FALSE = (byte) 0xF9;
+
+    static final byte TRUE = (byte) 0xFA;
+
+    static final byte INT = (byte) 0xFB;
+
+    static final byte DOUBLE = (byte) 0xFC;
+
+    static final byte STRING = (byte) 0xFD;
+
+    static final byte JSON = (byte) 0xFE;
+
+    private static final byte[] bytesNull = { NULL };
+
+    private static final byte[] bytesFalse = { FALSE };
+
+    private static final byte[] bytesTrue = { TRUE };
+
+    private final JsonValueCodec jsonCodec = new JsonValueCodec();
+
+    static boolean isBinary(byte[] bytes) {
+        return bytes.length > 0 && (bytes[0] & 0xFF) >= 0xF8;
+    }
+
+    @Override
+    public String getName() {
+        return "binary";
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        if (value == null) {
+            return bytesNull;
+        }
+        if (value instanceof String) {
+            return tagged(STRING, ((String) value).getBytes(StandardCharsets.UTF_8));
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return encodeInt(((Number) value).longValue());
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? bytesTrue : bytesFalse;
+        }
+        if (value instanceof Double) {
+            long bits = Double.doubleToLongBits((Double) value);
+            byte[] bytes = new byte[9];
+            bytes[0] = DOUBLE;
+            for (int i = 8; i > 0; i--) {
+                bytes[i] = (byte) bits;
+                bits >>>= 8;
+            }
+            return bytes;
+        }
+        return tagged(JSON, jsonCodec.encode(value));
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (!isBinary(bytes)) {
+            throw new RuntimeException("not binary encoded value");
+        }
+        switch (bytes[0]) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case INT: {
+                long value = bytes[1];
+                for (int i = 2; i < bytes.length; i++) {
+                    value = (value << 8) | (bytes[i] & 0xFF);
+                }
+                if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                    return (int) value;
+                }
+                return value;
+            }
+            case DOUBLE: {
+                long bits = 0L;
+                for (int i = 1; i < 9; i++) {
+                    bits = (bits << 8) | (bytes[i] & 0xFF);
+                }
+                return Double.longBitsToDouble(bits);
+            }
+            case STRING:
+                return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+            case JSON:
+                return jsonCodec.decode(Arrays.copyOfRange(bytes, 1, bytes.length));
+            default:
+                throw new RuntimeException("unknown value tag " + (bytes[0] & 0xFF));
+        }
+    }
+
+    @Override
+    public boolean canDecode(byte[] bytes) {
+        return bytes != null && isBinary(bytes);
+    }
+
+    private static byte[] encodeInt(long value) {
+        int size = 8;
+        // drop leading bytes that only repeat the sign
+        while (size > 1) {
+            long top = value >> ((size - 1) * 8 - 1);
+            if (top != 0L && top != -1L) {
+                break;
+            }
+            size--;
+        }
+        byte[] bytes = new byte[size + 1];
+        bytes[0] = INT;
+        for (int i = size; i > 0; i--) {
+            bytes[i] = (byte) value;
+            value >>= 8;
+        }
+        return bytes;
+    }
+
+    private static byte[] tagged(byte tag, byte[] payload) {
+        byte[] bytes = new byte[payload.length + 1];
+        bytes[0] = tag;
+        System.arraycopy(payload, 0, bytes, 1, payload.length);
+        return bytes;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.commons;
+
+import java.io.IOException;
+
+public class JsonValueCodec implements ValueCodec {
+
+    private static final byte[] bytesNull = "null".getBytes();
+
+    @Override
+    public String getName() {
+        return "json";
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        if (value == null) {
+            return bytesNull;
+        }
+        try {
+            return Utils.getObjectMapper().writeValueAsBytes(value);
+        } catch (IOException e) {
+            String msg = e.getMessage();
+            throw new RuntimeException(msg, e);
+        }
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return Utils.getObjectMapper().readValue(bytes, Object.class);
+        } catch (IOException e) {
+            String msg = e.getMessage();
+            throw new RuntimeException(msg, e);
+        }
+    }
+
+    @Override
+    public boolean canDecode(byte[] bytes) {
+        return bytes != null && !BinaryValueCodec.isBinary(bytes);
+    }
+}
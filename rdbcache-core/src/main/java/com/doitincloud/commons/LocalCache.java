@@ -17,16 +17,56 @@
 package com.doitincloud.commons;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * LocalCache, a size bounded in-process cache with W-TinyLFU eviction
+ *
+ * New entries enter a small LRU window (1% of max size). Entries leaving the window
+ * compete with the LRU entry of the main segmented LRU (probation 20%, protected 80%),
+ * the one with higher TinyLFU frequency stays. Eviction runs in O(1) on insert, so
+ * the number of evictable entries never exceeds maxCacheSize. Refreshable entries
+ * are not evictable, they expire and refresh on the recycle thread as before.
+ *
+ * Reads take no lock: hits are recorded in a striped ReadBuffer and replayed on the
+ * policy when a stripe fills up or on the next write.
+ *
+ * Refreshable entries load single flight: one caller runs the refreshable for a key,
+ * concurrent callers wait on its future, or get the stale value once it has expired.
+ * Past 3/4 of the time to live, a hit refreshes ahead on the refresh executor.
+ *
+ * With a value store, entries put by putOffHeap keep their map serialized outside of the heap,
+ * each read deserializes a new copy. Only the key and the slot stay on the heap.
+ */
 public class LocalCache extends Thread {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LocalCache.class);
 
+    private static final int UNTRACKED = 0;
+
+    private static final int WINDOW = 1;
+
+    private static final int PROBATION = 2;
+
+    private static final int PROTECTED = 3;
+
+    private static final AtomicReferenceFieldUpdater<Cached, Map> MAP_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(Cached.class, Map.class, "map");
+
+    private static final AtomicReferenceFieldUpdater<Cached, OffHeapStore.Slot> SLOT_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(Cached.class, OffHeapStore.Slot.class, "slot");
+
     private Long recycleSecs = 1800l;
 
     private Long maxCacheSize = 8192l;
@@ -35,6 +75,44 @@ public class LocalCache extends Thread {
 
     protected ConcurrentHashMap<String, Cached> cache = null;
 
+    // refreshable loads in flight, by key
+    //
+    private final ConcurrentHashMap<String, CompletableFuture<Map<String, Object>>> loading = new ConcurrentHashMap<>();
+
+    private Executor refreshExecutor = null;
+
+    private OffHeapStore valueStore = null;
+
+    // policy state below is guarded by policyLock
+    //
+    private final ReentrantLock policyLock = new ReentrantLock();
+
+    private FrequencySketch sketch = null;
+
+    private final ReadBuffer<Cached> readBuffer = new ReadBuffer<>();
+
+    private final AccessOrder window = new AccessOrder();
+
+    private final AccessOrder probation = new AccessOrder();
+
+    private final AccessOrder protect = new AccessOrder();
+
+    private long trackedSize = 0L;
+
+    private long windowMax;
+
+    private long protectedMax;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder admissionCount = new LongAdder();
+
+    private final LongAdder rejectionCount = new LongAdder();
+
     public Long getRecycleSecs() {
         return recycleSecs;
     }
@@ -49,6 +127,39 @@ public class LocalCache extends Thread {
 
     public void setMaxCacheSize(Long maxCacheSize) {
         this.maxCacheSize = maxCacheSize;
+        if (cache != null) {
+            policyLock.lock();
+            try {
+                configurePolicy();
+                evictEntries();
+            } finally {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    public Executor getRefreshExecutor() {
+        return refreshExecutor;
+    }
+
+    /**
+     * @param refreshExecutor Executor, runs refresh ahead off the request thread, a refresh it refuses
+     *                        by throwing is skipped, it must not run the refresh in the calling thread,
+     *                        without it refreshables only refresh on expiry and by the recycle thread
+     */
+    public void setRefreshExecutor(Executor refreshExecutor) {
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    public OffHeapStore getValueStore() {
+        return valueStore;
+    }
+
+    /**
+     * @param valueStore OffHeapStore, where putOffHeap keeps the maps, set it before use
+     */
+    public void setValueStore(OffHeapStore valueStore) {
+        this.valueStore = valueStore;
     }
 
     public Long getMaxSecsToLive() {
@@ -70,26 +181,76 @@ public class LocalCache extends Thread {
     protected void initializeCache() {
         int initCapacity = maxCacheSize.intValue();
         int concurrentLevel = (initCapacity / 256 < 32 ? 32 : initCapacity / 256);
-        cache = new ConcurrentHashMap<String, Cached>(initCapacity, 0.75f, concurrentLevel);
+        policyLock.lock();
+        try {
+            cache = new ConcurrentHashMap<String, Cached>(initCapacity, 0.75f, concurrentLevel);
+            configurePolicy();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void configurePolicy() {
+        long max = maxCacheSize < 1L ? 1L : maxCacheSize;
+        windowMax = Math.max(1L, max / 100);
+        protectedMax = (max - windowMax) * 4 / 5;
+        sketch = new FrequencySketch(max);
     }
 
     public void put(String key, Map<String, Object> map) {
-        cache.put(key, new Cached(map, maxSecsToLive));
+        putCached(key, new Cached(map, maxSecsToLive));
     }
 
     public void put(String key, Map<String, Object> map, long secsToLive) {
-        cache.put(key, new Cached(map, secsToLive > maxSecsToLive ? maxSecsToLive : secsToLive));
+        putCached(key, new Cached(map, secsToLive > maxSecsToLive ? maxSecsToLive : secsToLive));
     }
 
-    public Map<String, Object> put(String key, Long secsToLive, Refreshable refreshable) {
-        Map<String, Object> map = refresh(refreshable);
-        if (map == null) {
-            return null;
+    /**
+     * put the map into the value store, or on the heap if there is no value store or it is full
+     *
+     * @param key String
+     * @param map Map
+     * @param secsToLive long
+     */
+    public void putOffHeap(String key, Map<String, Object> map, long secsToLive) {
+        if (valueStore == null) {
+            put(key, map, secsToLive);
+            return;
         }
-        Cached cached = new Cached(map, secsToLive);
-        cached.refreshable = refreshable;
-        cache.put(key, cached);
-        return map;
+        OffHeapStore.Slot slot = valueStore.put(map);
+        if (slot == null) {
+            put(key, map, secsToLive);
+            return;
+        }
+        Cached cached = new Cached(null, secsToLive > maxSecsToLive ? maxSecsToLive : secsToLive);
+        cached.slot = slot;
+        putCached(key, cached);
+    }
+
+    /**
+     * load and cache a refreshable entry, single flight per key.
+     * If another caller has just loaded it, its unexpired value is returned.
+     *
+     * @param key String
+     * @param secsToLive Long
+     * @param refreshable Refreshable
+     * @return map, or null if the refreshable returns null
+     */
+    public Map<String, Object> put(String key, Long secsToLive, Refreshable refreshable) {
+        return await(loadOnce(key, () -> {
+            Cached current = cache.get(key);
+            if (current != null && current.isRefreshable() && !current.isTimeout()) {
+                return current.getMap();
+            }
+            Map<String, Object> map = refresh(refreshable);
+            if (map == null) {
+                return null;
+            }
+            Cached cached = new Cached(map, secsToLive);
+            cached.refreshable = refreshable;
+            putCached(key, cached);
+            return map;
+        }, null));
     }
 
     public Map<String, Object> update(String key, Map<String, Object> update) {
@@ -99,14 +260,17 @@ public class LocalCache extends Thread {
         }
         if (cached.isTimeout()) {
             if (!cached.isRefreshable()) {
-                cache.remove(key);
+                remove(key, cached);
                 return null;
             } else {
-                Map<String, Object> map = refresh(cached.refreshable);
-                cached.setMap(map);
+                Map<String, Object> map = refreshExpired(key, cached);
+                if (map == null) {
+                    return null;
+                }
                 return cached.updateMap(update);
             }
         } else {
+            onAccess(cached);
             Map<String, Object> map = cached.updateMap(update);
             return map;
         }
@@ -115,23 +279,31 @@ public class LocalCache extends Thread {
     public Map<String, Object> get(String key) {
         Cached cached = cache.get(key);
         if (cached == null) {
+            missCount.increment();
             return null;
         }
         if (cached.isTimeout()) {
             if (!cached.isRefreshable()) {
-                cache.remove(key);
+                remove(key, cached);
+                missCount.increment();
                 return null;
             } else {
-                Map<String, Object> map = refresh(cached.refreshable);
+                Map<String, Object> map = refreshExpired(key, cached);
                 if (map == null) {
-                    cache.remove(key);
+                    missCount.increment();
                     return null;
                 }
-                cached.setMap(map);
+                hitCount.increment();
                 return map;
             }
         } else {
-            return cached.getMap();
+            hitCount.increment();
+            onAccess(cached);
+            Map<String, Object> map = cached.getMap();
+            if (cached.isRefreshable() && cached.isAlmostTimeout()) {
+                refreshAhead(key, cached);
+            }
+            return map;
         }
     }
 
@@ -143,6 +315,92 @@ public class LocalCache extends Thread {
         return cached.getMap();
     }
 
+    // the first caller refreshes, the others keep using the stale value meanwhile
+    //
+    private Map<String, Object> refreshExpired(String key, Cached cached) {
+        if (loading.containsKey(key)) {
+            return cached.getMap();
+        }
+        return await(loadOnce(key, () -> reload(key, cached), null));
+    }
+
+    private void refreshAhead(String key, Cached cached) {
+        if (refreshExecutor == null || loading.containsKey(key)) {
+            return;
+        }
+        loadOnce(key, () -> reload(key, cached), cached::getMap);
+    }
+
+    private Map<String, Object> reload(String key, Cached cached) {
+        if (cache.get(key) != cached) {
+            // replaced or removed meanwhile
+            return getWithoutTimeout(key);
+        }
+        Map<String, Object> map = refresh(cached.refreshable);
+        if (map == null) {
+            remove(key, cached);
+            return null;
+        }
+        // renew first, a reader may see the old map once but never a fresh map marked expired
+        cached.renew();
+        cached.setMap(map);
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("refresh key: " + key);
+        }
+        return map;
+    }
+
+    // single flight: the first caller for a key starts the loader, later callers share its future.
+    // without skipped, the loader runs in the caller, with it, the loader runs on the refresh
+    // executor, and when the executor can't take it the load is skipped, the callers sharing it
+    // get what skipped supplies. the recycle thread or the refresh on expiry still cover it
+    //
+    private CompletableFuture<Map<String, Object>> loadOnce(String key, Supplier<Map<String, Object>> loader,
+                                                            Supplier<Map<String, Object>> skipped) {
+        CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> inflight = loading.putIfAbsent(key, future);
+        if (inflight != null) {
+            return inflight;
+        }
+        Runnable task = () -> {
+            try {
+                future.complete(loader.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                loading.remove(key, future);
+            }
+        };
+        if (skipped == null) {
+            task.run();
+            return future;
+        }
+        try {
+            refreshExecutor.execute(task);
+        } catch (RuntimeException e) {
+            if (!future.isDone()) {
+                loading.remove(key, future);
+                future.complete(skipped.get());
+            }
+        }
+        return future;
+    }
+
+    private Map<String, Object> await(CompletableFuture<Map<String, Object>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause.getMessage());
+        }
+    }
+
     private Map<String, Object> refresh(Refreshable refreshable) {
         try {
             return refreshable.call();
@@ -154,12 +412,12 @@ public class LocalCache extends Thread {
     }
 
     public boolean containsKey(String key) {
-        if (!cache.containsKey(key)) {
+        Cached cached = cache.get(key);
+        if (cached == null) {
             return false;
         }
-        Cached cached = cache.get(key);
         if (cached.isTimeout() && !cached.isRefreshable()) {
-            cache.remove(key);
+            remove(key, cached);
             return false;
         } else {
             return true;
@@ -167,7 +425,30 @@ public class LocalCache extends Thread {
     }
 
     public void remove(String key) {
-        cache.remove(key);
+        policyLock.lock();
+        try {
+            Cached cached = cache.remove(key);
+            if (cached != null) {
+                unlink(cached);
+                release(cached);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    // remove only if the key still maps to the given entry
+    //
+    private void remove(String key, Cached cached) {
+        policyLock.lock();
+        try {
+            if (cache.remove(key, cached)) {
+                unlink(cached);
+                release(cached);
+            }
+        } finally {
+            policyLock.unlock();
+        }
     }
 
     public Map<String, Object> listAll() {
@@ -184,18 +465,214 @@ public class LocalCache extends Thread {
     }
 
     public void removeAll() {
-        cache.clear();
+        policyLock.lock();
+        try {
+            drainReads();
+            for (Cached cached: cache.values()) {
+                release(cached);
+            }
+            cache.clear();
+            window.clear();
+            probation.clear();
+            protect.clear();
+            trackedSize = 0L;
+        } finally {
+            policyLock.unlock();
+        }
     }
 
-    private List<String> refreshKeys = new ArrayList<String>();
-    private List<String> timeoutKeys = new ArrayList<String>();
+    public long getHitCount() {
+        return hitCount.sum();
+    }
 
-    private SortedSet<KeyLastAccess> lastAccessSortedKeys = new TreeSet<>(new Comparator<KeyLastAccess>(){
-        @Override
-        public int compare(KeyLastAccess o1, KeyLastAccess o2) {
-            return (int) (o1.lastAccess - o2.lastAccess);
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public double getHitRatio() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0L ? 0.0 : (double) hits / total;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public long getAdmissionCount() {
+        return admissionCount.sum();
+    }
+
+    public long getRejectionCount() {
+        return rejectionCount.sum();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("size", cache == null ? 0 : cache.size());
+        map.put("max_size", maxCacheSize);
+        map.put("hits", getHitCount());
+        map.put("misses", getMissCount());
+        map.put("hit_ratio", getHitRatio());
+        map.put("evictions", getEvictionCount());
+        map.put("admissions", getAdmissionCount());
+        map.put("rejections", getRejectionCount());
+        if (valueStore != null) {
+            map.put("off_heap", valueStore.getMetrics());
+        }
+        return map;
+    }
+
+    private void putCached(String key, Cached cached) {
+        cached.key = key;
+        policyLock.lock();
+        try {
+            drainReads();
+            Cached old = cache.put(key, cached);
+            if (old != null) {
+                unlink(old);
+                release(old);
+            }
+            if (!cached.isRefreshable()) {
+                sketch.increment(key);
+                cached.segment = WINDOW;
+                window.addLast(cached);
+                trackedSize++;
+                evictEntries();
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    // records a hit without locking, the policy catches up when the buffer is drained
+    //
+    private void onAccess(Cached cached) {
+        if (cached.segment == UNTRACKED) {
+            return;
+        }
+        if (readBuffer.offer(cached) && policyLock.tryLock()) {
+            try {
+                drainReads();
+            } finally {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    private void drainReads() {
+        readBuffer.drainTo(this::applyAccess);
+    }
+
+    private void applyAccess(Cached cached) {
+        switch (cached.segment) {
+            case WINDOW:
+                sketch.increment(cached.key);
+                window.moveToLast(cached);
+                break;
+            case PROBATION:
+                sketch.increment(cached.key);
+                probation.remove(cached);
+                cached.segment = PROTECTED;
+                protect.addLast(cached);
+                if (protect.size > protectedMax) {
+                    Cached demoted = protect.peekFirst();
+                    protect.remove(demoted);
+                    demoted.segment = PROBATION;
+                    probation.addLast(demoted);
+                }
+                break;
+            case PROTECTED:
+                sketch.increment(cached.key);
+                protect.moveToLast(cached);
+                break;
+            default:
+                // removed or evicted after the read
+                break;
+        }
+    }
+
+    private void evictEntries() {
+
+        // entries leaving the window become admission candidates at the tail of probation
+        Cached candidate = null;
+        while (window.size > windowMax) {
+            Cached cached = window.peekFirst();
+            window.remove(cached);
+            cached.segment = PROBATION;
+            probation.addLast(cached);
+            if (candidate == null) {
+                candidate = cached;
+            }
         }
-    });
+
+        while (trackedSize > maxCacheSize) {
+            Cached victim = probation.peekFirst();
+            if (victim == null) {
+                victim = protect.peekFirst();
+                if (victim == null) {
+                    victim = window.peekFirst();
+                }
+                evict(victim);
+                continue;
+            }
+            if (candidate == null || candidate == victim) {
+                if (candidate == victim) {
+                    candidate = candidate.next;
+                }
+                evict(victim);
+                continue;
+            }
+            Cached next = candidate.next;
+            if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evict(victim);
+                admissionCount.increment();
+            } else {
+                evict(candidate);
+                rejectionCount.increment();
+            }
+            candidate = next;
+        }
+    }
+
+    private void evict(Cached cached) {
+        unlink(cached);
+        cache.remove(cached.key, cached);
+        release(cached);
+        evictionCount.increment();
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("evict key: " + cached.key);
+        }
+    }
+
+    private void unlink(Cached cached) {
+        switch (cached.segment) {
+            case WINDOW:
+                window.remove(cached);
+                break;
+            case PROBATION:
+                probation.remove(cached);
+                break;
+            case PROTECTED:
+                protect.remove(cached);
+                break;
+            default:
+                return;
+        }
+        cached.segment = UNTRACKED;
+        trackedSize--;
+    }
+
+    // frees the off heap value of an entry that has left the cache
+    //
+    private void release(Cached cached) {
+        if (cached.slot != null) {
+            valueStore.free(SLOT_UPDATER.getAndSet(cached, null));
+        }
+    }
+
+    private List<String> refreshKeys = new ArrayList<String>();
+    private List<String> timeoutKeys = new ArrayList<String>();
 
     private boolean isRunning = false;
 
@@ -228,7 +705,6 @@ public class LocalCache extends Thread {
 
                 timeoutKeys.clear();
                 refreshKeys.clear();
-                lastAccessSortedKeys.clear();
 
                 final AtomicInteger atomicInteger = new AtomicInteger(0);
                 cache.forEach(1, (key, cached) -> {
@@ -238,67 +714,50 @@ public class LocalCache extends Thread {
                         if (cached.isAlmostTimeout()) refreshKeys.add(key);
                     } else if (cached.isTimeout()) {
                         timeoutKeys.add(key);
-                    } else {
-                        lastAccessSortedKeys.add(new KeyLastAccess(key, cached.lastAccessAt));
                     }
                 });
 
-                int size = atomicInteger.intValue();
-                long almostMax = 3 * maxCacheSize / 4;
-
-                LOGGER.trace("recycle start -> cache size: " + size + ", max: " + maxCacheSize  + ", almostMax: " + almostMax);
+                if (LOGGER.isTraceEnabled()) {
+                    LOGGER.trace("recycle start -> cache size: " + atomicInteger.intValue() + ", max: " + maxCacheSize);
+                }
 
-                LOGGER.trace("timeoutKeys size: " + timeoutKeys.size());
+                if (LOGGER.isTraceEnabled()) {
+                    LOGGER.trace("timeoutKeys size: " + timeoutKeys.size());
+                }
 
                 for (String key: timeoutKeys) {
-                    size--;
                     if (key == null) continue;
-                    cache.remove(key);
-                    LOGGER.trace("timeout key: " + key);
+                    Cached cached = cache.get(key);
+                    if (cached == null || !cached.isTimeout()) continue;
+                    remove(key, cached);
+                    if (LOGGER.isTraceEnabled()) {
+                        LOGGER.trace("timeout key: " + key);
+                    }
                 }
                 timeoutKeys.clear();
 
-                LOGGER.trace("refreshKeys size: " + refreshKeys.size());
+                if (LOGGER.isTraceEnabled()) {
+                    LOGGER.trace("refreshKeys size: " + refreshKeys.size());
+                }
 
                 for (String key: refreshKeys) {
                     if (key == null) continue;
                     Cached cached = cache.get(key);
-                    if (cached == null) continue;
-                    Cached clone = cached.clone();
+                    if (cached == null || loading.containsKey(key)) continue;
                     try {
-                        Map<String, Object> map = clone.refreshable.call();
-                        clone.setMap(map);
-                        cache.put(key, clone);
-                        LOGGER.trace("refresh key: " + key);
+                        await(loadOnce(key, () -> reload(key, cached), null));
                     } catch (Exception e) {
-                        cache.remove(key);
-                        size--;
-                        String msg = e.getCause().getMessage();
-                        LOGGER.error(msg);
+                        remove(key);
+                        LOGGER.error(e.getMessage());
                         e.printStackTrace();
                     }
                 }
                 refreshKeys.clear();
 
-                if (size <= almostMax) {
-                    continue;
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("local cache metrics: " + getMetrics());
                 }
 
-                LOGGER.trace("reduce cache size");
-
-                LOGGER.trace("lastAccessSortedKeys size: " + lastAccessSortedKeys.size());
-
-                for (KeyLastAccess keyLastAccess: lastAccessSortedKeys) {
-                    size--;
-                    if (keyLastAccess == null || keyLastAccess.key == null) continue;
-                    cache.remove(keyLastAccess.key);
-                    LOGGER.trace("remove key (" + keyLastAccess.lastAccess + "): " + keyLastAccess.key);
-                    if (size <= almostMax) {
-                        break;
-                    }
-                }
-                lastAccessSortedKeys.clear();
-
             } catch (Exception e) {
                 String msg = e.getCause().getMessage();
                 LOGGER.error(msg);
@@ -309,58 +768,158 @@ public class LocalCache extends Thread {
         isRunning = false;
     }
 
-    class KeyLastAccess {
+    // intrusive doubly linked list in access order, head is the least recently used
+    //
+    static class AccessOrder {
 
-        String key;
-        long lastAccess;
+        Cached head;
+        Cached tail;
+        long size;
+
+        Cached peekFirst() {
+            return head;
+        }
+
+        void addLast(Cached cached) {
+            cached.prev = tail;
+            cached.next = null;
+            if (tail == null) {
+                head = cached;
+            } else {
+                tail.next = cached;
+            }
+            tail = cached;
+            size++;
+        }
+
+        void remove(Cached cached) {
+            if (cached.prev == null) {
+                head = cached.next;
+            } else {
+                cached.prev.next = cached.next;
+            }
+            if (cached.next == null) {
+                tail = cached.prev;
+            } else {
+                cached.next.prev = cached.prev;
+            }
+            cached.prev = null;
+            cached.next = null;
+            size--;
+        }
 
-        KeyLastAccess(String key, long lastAccess) {
-            this.key = key;
-            this.lastAccess = lastAccess;
+        void moveToLast(Cached cached) {
+            if (cached != tail) {
+                remove(cached);
+                addLast(cached);
+            }
+        }
+
+        void clear() {
+            Cached cached = head;
+            while (cached != null) {
+                Cached next = cached.next;
+                cached.prev = null;
+                cached.next = null;
+                cached.segment = UNTRACKED;
+                cached = next;
+            }
+            head = null;
+            tail = null;
+            size = 0L;
         }
     }
 
     class Cached implements Cloneable {
 
-        private Map<String, Object> map;
+        // replaced as a whole, never locked; updates copy on write
+        volatile Map<String, Object> map;
 
-        long createdAt;
+        // set instead of map when the value is in the value store, replaced as a whole like map
+        volatile OffHeapStore.Slot slot;
 
-        long timeToLive = 900000L;  // in millisecond, default 15 minutes
+        volatile long createdAt;
 
-        long lastAccessAt;
+        long timeToLive = 900000L;  // in millisecond, default 15 minutes
 
         Refreshable refreshable;
 
+        // below are guarded by the policy lock of the cache, segment is read without it as a hint
+        String key;
+        volatile int segment = UNTRACKED;
+        Cached prev;
+        Cached next;
+
         private Cached() {}
 
         Cached(Map<String, Object> map, long secsToLive) {
             createdAt = System.currentTimeMillis();
-            lastAccessAt = System.nanoTime();
             this.map = map;
             this.timeToLive = secsToLive * 1000;
         }
 
-        synchronized Map<String, Object> getMap() {
-            lastAccessAt = System.nanoTime();
-            return map;
+        Map<String, Object> getMap() {
+            while (true) {
+                OffHeapStore.Slot current = slot;
+                if (current == null) {
+                    return map;
+                }
+                Map<String, Object> value = valueStore.get(current);
+                if (value != null) {
+                    return value;
+                }
+                // freed by an update, read the new slot; or by a removal
+                if (slot == current) {
+                    return null;
+                }
+            }
         }
 
-        synchronized void setMap(Map<String, Object> map) {
-            lastAccessAt = System.nanoTime();
+        void setMap(Map<String, Object> map) {
             this.map = map;
+            if (slot != null) {
+                valueStore.free(SLOT_UPDATER.getAndSet(this, null));
+            }
         }
 
-        synchronized Map<String, Object> updateMap(Map<String, Object> update) {
-            lastAccessAt = System.nanoTime();
-            if (map == null) {
-                map = update;
-            } else {
-                for (Map.Entry<String, Object> entry: update.entrySet()) {
-                    map.put(entry.getKey(), entry.getValue());
+        Map<String, Object> updateMap(Map<String, Object> update) {
+            while (slot != null) {
+                OffHeapStore.Slot current = slot;
+                if (current == null) {
+                    break;
+                }
+                Map<String, Object> updated = valueStore.get(current);
+                if (updated == null) {
+                    if (slot == current) {
+                        return null;
+                    }
+                    continue;
+                }
+                updated.putAll(update);
+                OffHeapStore.Slot replacement = valueStore.put(updated);
+                if (replacement == null) {
+                    // store is full, move the value to the heap
+                    map = updated;
+                }
+                if (SLOT_UPDATER.compareAndSet(this, current, replacement)) {
+                    valueStore.free(current);
+                    return updated;
+                }
+                valueStore.free(replacement);
+            }
+            while (true) {
+                Map<String, Object> current = map;
+                Map<String, Object> updated;
+                if (current == null) {
+                    updated = update;
+                } else {
+                    updated = new LinkedHashMap<>(current);
+                    updated.putAll(update);
+                }
+                if (MAP_UPDATER.compareAndSet(this, current, updated)) {
+                    return updated;
                 }
             }
-            return map;
         }
 
         boolean isRefreshable() {
@@ -386,15 +945,16 @@ public class LocalCache extends Thread {
         }
 
         void renew() {
-            lastAccessAt = System.nanoTime();
             createdAt = System.currentTimeMillis();
         }
 
-        protected synchronized Cached clone() {
+        protected Cached clone() {
             Cached clone = new Cached();
-            if (map != null) {
-                clone.map = new LinkedHashMap<>(map);
+            Map<String, Object> current = map;
+            if (current != null) {
+                clone.map = new LinkedHashMap<>(current);
             }
+            clone.key = key;
             clone.createdAt = createdAt;
             clone.timeToLive = timeToLive;
             try {
@@ -0,0 +1,277 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.commons;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps serialized maps in direct buffers outside of the java heap.
+ *
+ * The buffers are allocated in chunks as needed, up to the capacity, the last chunk may be
+ * smaller than the others so that all of the capacity is usable. They are split into fixed size
+ * blocks. A value takes as many blocks as it needs, the on-heap index is the slot listing them.
+ * Freed blocks go back to a free list, so the store never needs compacting.
+ *
+ * Reads copy the bytes out under the read lock, a slot freed meanwhile reads as null.
+ */
+public class OffHeapStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapStore.class);
+
+    private static final TypeReference<LinkedHashMap<String, Object>> MAP_TYPE =
+            new TypeReference<LinkedHashMap<String, Object>>() {};
+
+    private static final int MAX_CHUNK_SIZE = 1 << 24;  // 16 MB
+
+    private final long capacity;
+
+    private final int blockSize;
+
+    private final int blocksPerChunk;
+
+    private final int maxBlocks;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+
+    // stack of free block numbers, guarded by the write lock
+    private int[] freeBlocks = new int[1024];
+
+    private int freeCount = 0;
+
+    private int usedBlocks = 0;
+
+    private int allocatedBlocks = 0;
+
+    private long storedBytes = 0L;
+
+    private long entries = 0L;
+
+    private final LongAdder overflowCount = new LongAdder();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param capacity long, max bytes of direct memory to allocate
+     * @param blockSize int, bytes per block, a value wastes less than one block
+     */
+    public OffHeapStore(long capacity, int blockSize) {
+        if (blockSize < 16 || capacity < blockSize) {
+            throw new IllegalArgumentException("invalid capacity " + capacity + " or block size " + blockSize);
+        }
+        int chunkSize = (int) Math.min(capacity, MAX_CHUNK_SIZE);
+        this.blockSize = blockSize;
+        this.blocksPerChunk = chunkSize / blockSize;
+        this.maxBlocks = (int) Math.min(capacity / blockSize, Integer.MAX_VALUE);
+        this.capacity = (long) maxBlocks * blockSize;
+    }
+
+    public OffHeapStore(long capacity) {
+        this(capacity, 128);
+    }
+
+    /**
+     * serialize the map into free blocks
+     *
+     * @param map Map
+     * @return the slot, or null when the map can't be serialized or the store is full
+     */
+    public Slot put(Map<String, Object> map) {
+        byte[] bytes;
+        try {
+            bytes = Utils.getObjectMapper().writeValueAsBytes(map);
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage());
+            overflowCount.increment();
+            return null;
+        }
+        int count = (bytes.length + blockSize - 1) / blockSize;
+        if (count == 0) count = 1;
+        lock.writeLock().lock();
+        try {
+            if (!reserve(count)) {
+                overflowCount.increment();
+                return null;
+            }
+            int[] blocks = new int[count];
+            for (int i = 0; i < count; i++) {
+                int block = freeBlocks[--freeCount];
+                blocks[i] = block;
+                int offset = i * blockSize;
+                ByteBuffer buffer = chunks.get(block / blocksPerChunk).duplicate();
+                // through Buffer, a jdk 9+ build links ByteBuffer.position, missing on jdk 8
+                ((Buffer) buffer).position((block % blocksPerChunk) * blockSize);
+                buffer.put(bytes, offset, Math.min(blockSize, bytes.length - offset));
+            }
+            usedBlocks += count;
+            storedBytes += bytes.length;
+            entries++;
+            return new Slot(blocks, bytes.length);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param slot Slot
+     * @return a new map deserialized from the slot, or null if the slot is freed
+     */
+    public Map<String, Object> get(Slot slot) {
+        byte[] bytes = new byte[slot.length];
+        lock.readLock().lock();
+        try {
+            if (slot.freed) {
+                return null;
+            }
+            for (int i = 0; i < slot.blocks.length; i++) {
+                int block = slot.blocks[i];
+                int offset = i * blockSize;
+                ByteBuffer buffer = chunks.get(block / blocksPerChunk).duplicate();
+                ((Buffer) buffer).position((block % blocksPerChunk) * blockSize);
+                buffer.get(bytes, offset, Math.min(blockSize, bytes.length - offset));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            return Utils.getObjectMapper().readValue(bytes, MAP_TYPE);
+        } catch (IOException e) {
+            String msg = e.getMessage();
+            LOGGER.error(msg);
+            throw new RuntimeException(msg);
+        }
+    }
+
+    public void free(Slot slot) {
+        if (slot == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (slot.freed) {
+                return;
+            }
+            slot.freed = true;
+            for (int block: slot.blocks) {
+                pushFree(block);
+            }
+            usedBlocks -= slot.blocks.length;
+            storedBytes -= slot.length;
+            entries--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getAllocatedBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) allocatedBlocks * blockSize;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getUsedBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) usedBlocks * blockSize;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            map.put("entries", entries);
+            map.put("capacity_bytes", capacity);
+            map.put("allocated_bytes", (long) allocatedBlocks * blockSize);
+            map.put("used_bytes", (long) usedBlocks * blockSize);
+            map.put("stored_bytes", storedBytes);
+            map.put("block_size", blockSize);
+            map.put("overflows", overflowCount.sum());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return map;
+    }
+
+    // make sure count blocks are on the free list, allocating chunks as needed,
+    // the last chunk only has the blocks left up to max blocks
+    //
+    private boolean reserve(int count) {
+        while (freeCount < count) {
+            if (allocatedBlocks >= maxBlocks) {
+                return false;
+            }
+            int allocated = allocatedBlocks;
+            int size = Math.min(blocksPerChunk, maxBlocks - allocated);
+            chunks.add(ByteBuffer.allocateDirect(size * blockSize));
+            for (int block = allocated + size - 1; block >= allocated; block--) {
+                pushFree(block);
+            }
+            allocatedBlocks += size;
+        }
+        return true;
+    }
+
+    private void pushFree(int block) {
+        if (freeCount == freeBlocks.length) {
+            int[] grown = new int[freeBlocks.length * 2];
+            System.arraycopy(freeBlocks, 0, grown, 0, freeCount);
+            freeBlocks = grown;
+        }
+        freeBlocks[freeCount++] = block;
+    }
+
+    public static class Slot {
+
+        private final int[] blocks;
+
+        private final int length;
+
+        // guarded by the lock of the store
+        private boolean freed = false;
+
+        private Slot(int[] blocks, int length) {
+            this.blocks = blocks;
+            this.length = length;
+        }
+
+        public int getLength() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.commons;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * ReadBuffer, striped lossy buffers of read events
+ *
+ * Readers record an access with one CAS on the stripe of their thread, so concurrent
+ * reads of the same key do not contend. When a stripe is full the event is dropped.
+ * The policy owner drains all stripes under its lock.
+ */
+class ReadBuffer<E> {
+
+    static final int STRIPE_SIZE = 16;
+
+    private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+
+    private static final int MAX_STRIPES = 64;
+
+    private final Stripe[] stripes;
+
+    private final int mask;
+
+    ReadBuffer() {
+        int count = Runtime.getRuntime().availableProcessors() * 4;
+        count = count >= MAX_STRIPES ? MAX_STRIPES : Integer.highestOneBit(count - 1) << 1;
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+        mask = count - 1;
+    }
+
+    /**
+     * @param e read event
+     * @return true when the stripe is half full or more, time to drain
+     */
+    boolean offer(E e) {
+        Stripe stripe = stripes[index()];
+        long writes = stripe.writes.get();
+        long size = writes - stripe.reads;
+        if (size >= STRIPE_SIZE) {
+            return true;
+        }
+        if (stripe.writes.compareAndSet(writes, writes + 1)) {
+            stripe.slots.lazySet((int) (writes & STRIPE_MASK), e);
+            size++;
+        }
+        return size >= STRIPE_SIZE / 2;
+    }
+
+    /**
+     * must be called by one thread at a time, i.e. under the policy lock
+     *
+     * @param consumer Consumer
+     */
+    void drainTo(Consumer<E> consumer) {
+        for (Stripe stripe: stripes) {
+            long reads = stripe.reads;
+            long writes = stripe.writes.get();
+            while (reads < writes) {
+                int index = (int) (reads & STRIPE_MASK);
+                E e = (E) stripe.slots.get(index);
+                if (e == null) {
+                    // claimed but not yet published
+                    break;
+                }
+                stripe.slots.lazySet(index, null);
+                reads++;
+                consumer.accept(e);
+            }
+            stripe.reads = reads;
+        }
+    }
+
+    private int index() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    static final class Stripe {
+
+        final AtomicLong writes = new AtomicLong();
+
+        volatile long reads;
+
+        final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<>(STRIPE_SIZE);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.commons;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A row as one blob: a messagepack map of field names to field values encoded by a value codec.
+ *
+ * The map is what the cmsgpack library of redis lua reads and writes, so a script can merge
+ * fields into a row without knowing the value encoding. Strings are written as fixstr, str16
+ * or str32, which every messagepack version reads; all string and bin formats are read back.
+ */
+public class RowBlob {
+
+    public static byte[] encode(Map<String, Object> row, ValueCodec codec) {
+        Buffer buffer = new Buffer(row.size() * 16 + 8);
+        int size = row.size();
+        if (size < 16) {
+            buffer.put(0x80 | size);
+        } else if (size < 0x10000) {
+            buffer.put(0xde);
+            buffer.putInt(size, 2);
+        } else {
+            buffer.put(0xdf);
+            buffer.putInt(size, 4);
+        }
+        for (Map.Entry<String, Object> entry: row.entrySet()) {
+            buffer.putString(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            buffer.putString(codec.encode(entry.getValue()));
+        }
+        return buffer.toBytes();
+    }
+
+    /**
+     * @param blob byte[]
+     * @return the row, values decoded by the codec that wrote them
+     */
+    public static Map<String, Object> decode(byte[] blob) {
+        Reader reader = new Reader(blob);
+        int size;
+        int head = reader.get();
+        if ((head & 0xf0) == 0x80) {
+            size = head & 0x0f;
+        } else if (head == 0xde) {
+            size = reader.getInt(2);
+        } else if (head == 0xdf) {
+            size = reader.getInt(4);
+        } else if (head == 0x90) {
+            // lua packs an empty table as an empty array
+            size = 0;
+        } else {
+            throw new RuntimeException("not a row blob, head " + head);
+        }
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            String field = new String(reader.getString(), StandardCharsets.UTF_8);
+            row.put(field, ValueCodecs.decode(reader.getString()));
+        }
+        return row;
+    }
+
+    private static class Buffer {
+
+        private byte[] bytes;
+
+        private int length = 0;
+
+        Buffer(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void put(int b) {
+            ensure(1);
+            bytes[length++] = (byte) b;
+        }
+
+        void putInt(int value, int size) {
+            ensure(size);
+            for (int i = size - 1; i >= 0; i--) {
+                bytes[length++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void putString(byte[] string) {
+            int size = string.length;
+            if (size < 32) {
+                put(0xa0 | size);
+            } else if (size < 0x10000) {
+                put(0xda);
+                putInt(size, 2);
+            } else {
+                put(0xdb);
+                putInt(size, 4);
+            }
+            ensure(size);
+            System.arraycopy(string, 0, bytes, length, size);
+            length += size;
+        }
+
+        byte[] toBytes() {
+            byte[] result = new byte[length];
+            System.arraycopy(bytes, 0, result, 0, length);
+            return result;
+        }
+
+        private void ensure(int more) {
+            if (length + more > bytes.length) {
+                byte[] grown = new byte[Math.max(bytes.length * 2, length + more)];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+        }
+    }
+
+    private static class Reader {
+
+        private final byte[] bytes;
+
+        private int position = 0;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int get() {
+            if (position >= bytes.length) {
+                throw new RuntimeException("truncated row blob");
+            }
+            return bytes[position++] & 0xff;
+        }
+
+        int getInt(int size) {
+            int value = 0;
+            for (int i = 0; i < size; i++) {
+                value = (value << 8) | get();
+            }
+            return value;
+        }
+
+        byte[] getString() {
+            int head = get();
+            int size;
+            if ((head & 0xe0) == 0xa0) {
+                size = head & 0x1f;
+            } else if (head == 0xd9 || head == 0xc4) {
+                size = getInt(1);
+            } else if (head == 0xda || head == 0xc5) {
+                size = getInt(2);
+            } else if (head == 0xdb || head == 0xc6) {
+                size = getInt(4);
+            } else {
+                throw new RuntimeException("not a string in row blob, head " + head);
+            }
+            if (size < 0 || position + size > bytes.length) {
+                throw new RuntimeException("truncated row blob");
+            }
+            byte[] string = new byte[size];
+            System.arraycopy(bytes, position, string, 0, size);
+            position += size;
+            return string;
+        }
+    }
+}
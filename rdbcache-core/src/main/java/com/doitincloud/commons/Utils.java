@@ -27,20 +27,9 @@ import org.apache.commons.lang3.RandomStringUtils;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class Utils {
 
-    private static ExecutorService executor;
-
-    public static ExecutorService getExcutorService() {
-        if (executor == null) {
-            executor = Executors.newCachedThreadPool();
-        }
-        return executor;
-    }
-
     private static ObjectMapper mapper;
 
     public static ObjectMapper getObjectMapper() {
@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.commons;
+
+/**
+ * Encodes a single cached value, such as a field of a row, to bytes and back.
+ *
+ * A value decodes to the same java types whichever codec encoded it, so the codec
+ * of a deployment can change while values written by the other one are still cached.
+ */
+public interface ValueCodec {
+
+    String getName();
+
+    byte[] encode(Object value);
+
+    Object decode(byte[] bytes);
+
+    /**
+     * @param bytes byte[]
+     * @return true if the bytes are in the format of this codec
+     */
+    boolean canDecode(byte[] bytes);
+}
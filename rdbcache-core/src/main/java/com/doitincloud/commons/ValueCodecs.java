@@ -0,0 +1,51 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.commons;
+
+/**
+ * The available value codecs, by name.
+ */
+public class ValueCodecs {
+
+    public static final ValueCodec JSON = new JsonValueCodec();
+
+    public static final ValueCodec BINARY = new BinaryValueCodec();
+
+    /**
+     * @param name String, json or binary
+     * @return the codec, json if the name is unknown
+     */
+    public static ValueCodec forName(String name) {
+        if (BINARY.getName().equalsIgnoreCase(name)) {
+            return BINARY;
+        }
+        return JSON;
+    }
+
+    /**
+     * decode bytes written by any of the codecs
+     *
+     * @param bytes byte[]
+     * @return the value
+     */
+    public static Object decode(byte[] bytes) {
+        if (BINARY.canDecode(bytes)) {
+            return BINARY.decode(bytes);
+        }
+        return JSON.decode(bytes);
+    }
+}
@@ -39,6 +39,8 @@ public class AppCtx {
 
     private static RedisOps redisOps;
 
+    private static WriteBehindOps writeBehindOps;
+
     private static DbaseRepo dbaseRepo;
 
     private static KeyInfoRepo keyInfoRepo;
@@ -123,6 +125,21 @@ public class AppCtx {
         AppCtx.redisOps = redisOps;
     }
 
+    public static WriteBehindOps getWriteBehindOps() {
+        if (ctx != null && writeBehindOps == null) {
+            try {
+                writeBehindOps = ctx.getBean(WriteBehindOps.class);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        return writeBehindOps;
+    }
+
+    public static void setWriteBehindOps(WriteBehindOps writeBehindOps) {
+        AppCtx.writeBehindOps = writeBehindOps;
+    }
+
     public static CacheOps getCacheOps() {
         if (ctx != null && cacheOps == null) {
             try {
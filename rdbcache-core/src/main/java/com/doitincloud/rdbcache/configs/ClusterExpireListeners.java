@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.configs;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keyspace events are published only on the node where the key lives, so against redis cluster
+ * the expired events are subscribed on every master, each through its own connection.
+ *
+ * Masters are looked up at start; after a failover the service needs a restart to pick up
+ * the promoted replicas.
+ */
+public class ClusterExpireListeners implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterExpireListeners.class);
+
+    private final RedisConnectionFactory clusterFactory;
+
+    private final MessageListenerAdapter listenerAdapter;
+
+    private final String pattern;
+
+    private final boolean enabled;
+
+    private final List<JedisConnectionFactory> factories = new ArrayList<>();
+
+    private final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+
+    private volatile boolean running = false;
+
+    public ClusterExpireListeners(RedisConnectionFactory clusterFactory, MessageListenerAdapter listenerAdapter,
+                                  String pattern, boolean enabled) {
+        this.clusterFactory = clusterFactory;
+        this.listenerAdapter = listenerAdapter;
+        this.pattern = pattern;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public synchronized void start() {
+
+        if (running || !enabled) {
+            return;
+        }
+
+        // the cluster always runs on jedis
+        JedisConnectionFactory jedisFactory = (JedisConnectionFactory) clusterFactory;
+        RedisClusterConnection connection = clusterFactory.getClusterConnection();
+        try {
+            for (RedisClusterNode node: connection.clusterGetNodes()) {
+                if (!node.isMaster()) {
+                    continue;
+                }
+                JedisConnectionFactory factory = new JedisConnectionFactory();
+                factory.setHostName(node.getHost());
+                factory.setPort(node.getPort());
+                factory.setPassword(jedisFactory.getPassword());
+                factory.setTimeout(jedisFactory.getTimeout());
+                factory.afterPropertiesSet();
+                factories.add(factory);
+
+                RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+                container.setConnectionFactory(factory);
+                container.addMessageListener(listenerAdapter, new PatternTopic(pattern));
+                container.afterPropertiesSet();
+                container.start();
+                containers.add(container);
+
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("subscribed " + pattern + " on " + node.getHost() + ":" + node.getPort());
+                }
+            }
+        } finally {
+            connection.close();
+        }
+
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        for (RedisMessageListenerContainer container: containers) {
+            try {
+                container.destroy();
+            } catch (Exception e) {
+                LOGGER.error(e.getMessage());
+            }
+        }
+        containers.clear();
+        for (JedisConnectionFactory factory: factories) {
+            factory.destroy();
+        }
+        factories.clear();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    public int size() {
+        return containers.size();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.configs;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.jedis.JedisClusterConnection;
+import org.springframework.data.redis.connection.jedis.JedisScriptReturnConverter;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultScriptExecutor;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Runs scripts on redis cluster as well, the cluster connection of spring data redis refuses
+ * EVAL. The script goes to the node owning the slot of its first key, all keys of a call must
+ * share that slot.
+ */
+public class ClusterScriptExecutor<K> extends DefaultScriptExecutor<K> {
+
+    public ClusterScriptExecutor(RedisTemplate<K, ?> template) {
+        super(template);
+    }
+
+    @Override
+    protected <T> T eval(RedisConnection connection, RedisScript<T> script, ReturnType returnType,
+                         int numKeys, byte[][] keysAndArgs, RedisSerializer<T> resultSerializer) {
+
+        if (!(connection instanceof JedisClusterConnection)) {
+            return super.eval(connection, script, returnType, numKeys, keysAndArgs, resultSerializer);
+        }
+
+        JedisCluster cluster = ((JedisClusterConnection) connection).getNativeConnection();
+        Object result;
+        try {
+            result = cluster.evalsha(script.getSha1().getBytes(StandardCharsets.UTF_8), numKeys, keysAndArgs);
+        } catch (JedisNoScriptException e) {
+            result = cluster.eval(scriptBytes(script), numKeys, keysAndArgs);
+        }
+        if (script.getResultType() == null) {
+            return null;
+        }
+        return deserializeResult(resultSerializer, new JedisScriptReturnConverter(returnType).convert(result));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.configs;
+
+import com.lambdaworks.redis.LettuceFutures;
+import com.lambdaworks.redis.RedisFuture;
+import com.lambdaworks.redis.cluster.api.async.RedisClusterAsyncCommands;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Access to the native async commands of the shared lettuce connection.
+ *
+ * All callers multiplex over the one connection, commands are sent as they are issued and
+ * replies complete the futures on the lettuce event loop. The connection is looked up from the
+ * factory on each getCommands, so that a connection the factory resets or reconnects is used,
+ * callers fetch the commands once per operation.
+ */
+public class LettuceAsync {
+
+    private final Supplier<RedisClusterAsyncCommands<byte[], byte[]>> commands;
+
+    private final long timeout;
+
+    LettuceAsync(RedisClusterAsyncCommands<byte[], byte[]> commands, long timeout) {
+        this(() -> commands, timeout);
+    }
+
+    LettuceAsync(Supplier<RedisClusterAsyncCommands<byte[], byte[]>> commands, long timeout) {
+        this.commands = commands;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param factory RedisConnectionFactory
+     * @return LettuceAsync, or null if the factory is not a lettuce one sharing its connection
+     */
+    public static LettuceAsync from(RedisConnectionFactory factory) {
+        if (!(factory instanceof LettuceConnectionFactory)) {
+            return null;
+        }
+        LettuceConnectionFactory lettuceFactory = (LettuceConnectionFactory) factory;
+        if (!lettuceFactory.getShareNativeConnection()) {
+            return null;
+        }
+        return new LettuceAsync(() -> nativeCommands(lettuceFactory), lettuceFactory.getTimeout());
+    }
+
+    private static RedisClusterAsyncCommands<byte[], byte[]> nativeCommands(LettuceConnectionFactory factory) {
+        RedisConnection connection = factory.getConnection();
+        try {
+            // closing the wrapper leaves the shared connection open
+            return ((LettuceConnection) connection).getNativeConnection();
+        } finally {
+            connection.close();
+        }
+    }
+
+    public RedisClusterAsyncCommands<byte[], byte[]> getCommands() {
+        return commands.get();
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public <T> T await(RedisFuture<T> future) {
+        return LettuceFutures.awaitOrCancel(future, timeout, TimeUnit.MILLISECONDS);
+    }
+
+    public void awaitAll(List<? extends RedisFuture<?>> futures) {
+        for (RedisFuture<?> future: futures) {
+            await(future);
+        }
+    }
+
+    public static byte[] toBytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static String toString(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
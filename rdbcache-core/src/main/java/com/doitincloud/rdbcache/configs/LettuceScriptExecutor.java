@@ -0,0 +1,144 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.configs;
+
+import com.lambdaworks.redis.ScriptOutputType;
+import com.lambdaworks.redis.cluster.api.async.RedisClusterAsyncCommands;
+
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.lettuce.LettuceConverters;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultScriptExecutor;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs scripts with the async EVALSHA of lettuce, falling back to EVAL on NOSCRIPT.
+ *
+ * execute blocks for the reply as any ScriptExecutor does, executeAsync returns as soon as
+ * the command is written.
+ */
+public class LettuceScriptExecutor<K> extends DefaultScriptExecutor<K> {
+
+    private final RedisTemplate<K, ?> template;
+
+    private final LettuceAsync lettuce;
+
+    public LettuceScriptExecutor(RedisTemplate<K, ?> template, LettuceAsync lettuce) {
+        super(template);
+        this.template = template;
+        this.lettuce = lettuce;
+    }
+
+    public <T> CompletableFuture<T> executeAsync(RedisScript<T> script, List<K> keys, Object... args) {
+        RedisSerializer valueSerializer = template.getValueSerializer();
+        ReturnType returnType = ReturnType.fromJavaType(script.getResultType());
+        return evalAsync(script, returnType, keys.size(), keysAndArgs(valueSerializer, keys, args),
+                (RedisSerializer<T>) valueSerializer);
+    }
+
+    @Override
+    protected <T> T eval(RedisConnection connection, RedisScript<T> script, ReturnType returnType,
+                         int numKeys, byte[][] keysAndArgs, RedisSerializer<T> resultSerializer) {
+        try {
+            return evalAsync(script, returnType, numKeys, keysAndArgs, resultSerializer)
+                    .get(lettuce.getTimeout(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new RedisSystemException(cause.getMessage(), cause);
+        } catch (TimeoutException | InterruptedException e) {
+            throw new RedisSystemException("script timed out: " + script.getSha1(), e);
+        }
+    }
+
+    private <T> CompletableFuture<T> evalAsync(RedisScript<T> script, ReturnType returnType, int numKeys,
+                                               byte[][] keysAndArgs, RedisSerializer<T> resultSerializer) {
+
+        RedisClusterAsyncCommands<byte[], byte[]> commands = lettuce.getCommands();
+        ScriptOutputType outputType = LettuceConverters.toScriptOutputType(returnType);
+        byte[][] keys = Arrays.copyOfRange(keysAndArgs, 0, numKeys);
+        byte[][] args = Arrays.copyOfRange(keysAndArgs, numKeys, keysAndArgs.length);
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        commands.<Object>evalsha(script.getSha1(), outputType, keys, args).whenComplete((result, e) -> {
+            if (e == null) {
+                complete(future, script, result, resultSerializer);
+            } else if (isNoScript(e)) {
+                commands.<Object>eval(script.getScriptAsString(), outputType, keys, args).whenComplete((result2, e2) -> {
+                    if (e2 == null) {
+                        complete(future, script, result2, resultSerializer);
+                    } else {
+                        future.completeExceptionally(e2);
+                    }
+                });
+            } else {
+                future.completeExceptionally(e);
+            }
+        });
+
+        return future;
+    }
+
+    private <T> void complete(CompletableFuture<T> future, RedisScript<T> script, Object result,
+                              RedisSerializer<T> resultSerializer) {
+        try {
+            if (script.getResultType() == null) {
+                future.complete(null);
+            } else {
+                future.complete(deserializeResult(resultSerializer, toBytes(result)));
+            }
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    // status replies come back as strings from lettuce, spring serializers expect bytes
+    //
+    private static Object toBytes(Object result) {
+        if (result instanceof String) {
+            return ((String) result).getBytes(StandardCharsets.UTF_8);
+        }
+        if (result instanceof List) {
+            List<Object> list = new ArrayList<>();
+            for (Object item: (List<Object>) result) {
+                list.add(toBytes(item));
+            }
+            return list;
+        }
+        return result;
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e.getMessage() != null && e.getMessage().startsWith("NOSCRIPT");
+    }
+}
@@ -53,6 +53,60 @@ public class PropCfg {
 
     private static Long dataMaxCacheTLL = 60L;
 
+    private static Boolean enableRedisPipeline = true;
+
+    private static Integer redisPoolSize = 16;
+
+    private static Integer dbasePoolSize = 16;
+
+    private static Integer expirePoolSize = 4;
+
+    private static Integer poolQueueSize = 10000;
+
+    private static Integer poolSpillSize = 100000;
+
+    private static String poolFullPolicy = "caller_runs";
+
+    private static Boolean enableVirtualThreads = false;
+
+    private static Integer virtualPoolSize = 1024;
+
+    private static Boolean enableWriteBehind = false;
+
+    private static Long writeBehindFlushMs = 1000L;
+
+    private static Integer writeBehindBatchSize = 500;
+
+    private static Integer sqlCacheSize = 1024;
+
+    private static Double accessLogSampleRate = 0.01;
+
+    private static Long dataOffHeapMb = 0L;
+
+    private static String valueCodec = "json";
+
+    private static String blobTables = "";
+
+    private static String redisClusterNodes = "";
+
+    private static String redisClient = "jedis";
+
+    private static Integer apiPoolSize = 64;
+
+    private static Boolean enableStreamResponse = false;
+
+    private static Integer streamChunkSize = 256;
+
+    private static Integer selectFetchSize = 256;
+
+    private static Integer selectPageSize = 1024;
+
+    private static Integer writeBehindMaxRetries = 3;
+
+    private static Integer writeBehindMaxPending = 10000;
+
+    private static Boolean enableMysqlRowStreaming = false;
+
     private static String datasourceUrl;
 
     @Bean
@@ -204,6 +258,249 @@ public class PropCfg {
         return dataMaxCacheTLL;
     }
 
+    @Value("${rdbcache.enable_redis_pipeline:true}")
+    public void setEnableRedisPipeline(Boolean enable) {
+        enableRedisPipeline = enable;
+    }
+
+    public static Boolean getEnableRedisPipeline() {
+        return enableRedisPipeline;
+    }
+
+    @Value("${rdbcache.redis_pool_size:16}")
+    public void setRedisPoolSize(Integer value) {
+        redisPoolSize = value;
+    }
+
+    public static Integer getRedisPoolSize() {
+        return redisPoolSize;
+    }
+
+    @Value("${rdbcache.dbase_pool_size:16}")
+    public void setDbasePoolSize(Integer value) {
+        dbasePoolSize = value;
+    }
+
+    public static Integer getDbasePoolSize() {
+        return dbasePoolSize;
+    }
+
+    @Value("${rdbcache.expire_pool_size:4}")
+    public void setExpirePoolSize(Integer value) {
+        expirePoolSize = value;
+    }
+
+    public static Integer getExpirePoolSize() {
+        return expirePoolSize;
+    }
+
+    @Value("${rdbcache.pool_queue_size:10000}")
+    public void setPoolQueueSize(Integer value) {
+        poolQueueSize = value;
+    }
+
+    public static Integer getPoolQueueSize() {
+        return poolQueueSize;
+    }
+
+    @Value("${rdbcache.pool_spill_size:100000}")
+    public void setPoolSpillSize(Integer value) {
+        poolSpillSize = value;
+    }
+
+    public static Integer getPoolSpillSize() {
+        return poolSpillSize;
+    }
+
+    @Value("${rdbcache.pool_full_policy:caller_runs}")
+    public void setPoolFullPolicy(String value) {
+        poolFullPolicy = value;
+    }
+
+    public static String getPoolFullPolicy() {
+        return poolFullPolicy;
+    }
+
+    @Value("${rdbcache.enable_virtual_threads:false}")
+    public void setEnableVirtualThreads(Boolean value) {
+        enableVirtualThreads = value;
+    }
+
+    public static Boolean getEnableVirtualThreads() {
+        return enableVirtualThreads;
+    }
+
+    @Value("${rdbcache.virtual_pool_size:1024}")
+    public void setVirtualPoolSize(Integer value) {
+        virtualPoolSize = value;
+    }
+
+    public static Integer getVirtualPoolSize() {
+        return virtualPoolSize;
+    }
+
+    @Value("${rdbcache.enable_write_behind:false}")
+    public void setEnableWriteBehind(Boolean value) {
+        enableWriteBehind = value;
+    }
+
+    public static Boolean getEnableWriteBehind() {
+        return enableWriteBehind;
+    }
+
+    @Value("${rdbcache.write_behind_flush_ms:1000}")
+    public void setWriteBehindFlushMs(Long value) {
+        writeBehindFlushMs = value;
+    }
+
+    public static Long getWriteBehindFlushMs() {
+        return writeBehindFlushMs;
+    }
+
+    @Value("${rdbcache.write_behind_batch_size:500}")
+    public void setWriteBehindBatchSize(Integer value) {
+        writeBehindBatchSize = value;
+    }
+
+    public static Integer getWriteBehindBatchSize() {
+        return writeBehindBatchSize;
+    }
+
+    @Value("${rdbcache.sql_cache_size:1024}")
+    public void setSqlCacheSize(Integer value) {
+        sqlCacheSize = value;
+    }
+
+    public static Integer getSqlCacheSize() {
+        return sqlCacheSize;
+    }
+
+    @Value("${rdbcache.access_log_sample_rate:0.01}")
+    public void setAccessLogSampleRate(Double value) {
+        accessLogSampleRate = value;
+    }
+
+    public static Double getAccessLogSampleRate() {
+        return accessLogSampleRate;
+    }
+
+    @Value("${rdbcache.data_off_heap_mb:0}")
+    public void setDataOffHeapMb(Long value) {
+        dataOffHeapMb = value;
+    }
+
+    public static Long getDataOffHeapMb() {
+        return dataOffHeapMb;
+    }
+
+    @Value("${rdbcache.value_codec:json}")
+    public void setValueCodec(String value) {
+        valueCodec = value;
+    }
+
+    public static String getValueCodec() {
+        return valueCodec;
+    }
+
+    @Value("${rdbcache.blob_tables:}")
+    public void setBlobTables(String value) {
+        blobTables = value;
+    }
+
+    public static String getBlobTables() {
+        return blobTables;
+    }
+
+    @Value("${rdbcache.redis_cluster_nodes:}")
+    public void setRedisClusterNodes(String value) {
+        redisClusterNodes = value;
+    }
+
+    public static String getRedisClusterNodes() {
+        return redisClusterNodes;
+    }
+
+    @Value("${rdbcache.redis_client:jedis}")
+    public void setRedisClient(String value) {
+        redisClient = value;
+    }
+
+    public static String getRedisClient() {
+        return redisClient;
+    }
+
+    @Value("${rdbcache.api_pool_size:64}")
+    public void setApiPoolSize(Integer value) {
+        apiPoolSize = value;
+    }
+
+    public static Integer getApiPoolSize() {
+        return apiPoolSize;
+    }
+
+    @Value("${rdbcache.enable_stream_response:false}")
+    public void setEnableStreamResponse(Boolean value) {
+        enableStreamResponse = value;
+    }
+
+    public static Boolean getEnableStreamResponse() {
+        return enableStreamResponse;
+    }
+
+    @Value("${rdbcache.stream_chunk_size:256}")
+    public void setStreamChunkSize(Integer value) {
+        streamChunkSize = value;
+    }
+
+    public static Integer getStreamChunkSize() {
+        return streamChunkSize;
+    }
+
+    @Value("${rdbcache.select_fetch_size:256}")
+    public void setSelectFetchSize(Integer value) {
+        selectFetchSize = value;
+    }
+
+    public static Integer getSelectFetchSize() {
+        return selectFetchSize;
+    }
+
+    @Value("${rdbcache.select_page_size:1024}")
+    public void setSelectPageSize(Integer value) {
+        selectPageSize = value;
+    }
+
+    public static Integer getSelectPageSize() {
+        return selectPageSize;
+    }
+
+    @Value("${rdbcache.write_behind_max_retries:3}")
+    public void setWriteBehindMaxRetries(Integer value) {
+        writeBehindMaxRetries = value;
+    }
+
+    public static Integer getWriteBehindMaxRetries() {
+        return writeBehindMaxRetries;
+    }
+
+    @Value("${rdbcache.write_behind_max_pending:10000}")
+    public void setWriteBehindMaxPending(Integer value) {
+        writeBehindMaxPending = value;
+    }
+
+    public static Integer getWriteBehindMaxPending() {
+        return writeBehindMaxPending;
+    }
+
+    @Value("${rdbcache.enable_mysql_row_streaming:false}")
+    public void setEnableMysqlRowStreaming(Boolean value) {
+        enableMysqlRowStreaming = value;
+    }
+
+    public static Boolean getEnableMysqlRowStreaming() {
+        return enableMysqlRowStreaming;
+    }
+
     @Value("${spring.datasource.url}")
     public void setDatasourceUrl(String url) {
         if (url != null && url.length() > 0) {
@@ -230,6 +527,33 @@ public class PropCfg {
           "\"cacheRecycleSecs\": \"" + cacheRecycleSecs.toString() + "\", " +
           "\"enableDbFallback\": \"" + enableDbFallback.toString() + "\", " +
           "\"dataMaxCacheTLL\": \"" + dataMaxCacheTLL.toString() + "\", "+
+          "\"enableRedisPipeline\": \"" + enableRedisPipeline.toString() + "\", "+
+          "\"redisPoolSize\": \"" + redisPoolSize.toString() + "\", " +
+          "\"dbasePoolSize\": \"" + dbasePoolSize.toString() + "\", " +
+          "\"expirePoolSize\": \"" + expirePoolSize.toString() + "\", " +
+          "\"poolQueueSize\": \"" + poolQueueSize.toString() + "\", " +
+          "\"poolSpillSize\": \"" + poolSpillSize.toString() + "\", " +
+          "\"poolFullPolicy\": \"" + poolFullPolicy + "\", " +
+          "\"enableVirtualThreads\": \"" + enableVirtualThreads.toString() + "\", " +
+          "\"virtualPoolSize\": \"" + virtualPoolSize.toString() + "\", " +
+          "\"enableWriteBehind\": \"" + enableWriteBehind.toString() + "\", " +
+          "\"writeBehindFlushMs\": \"" + writeBehindFlushMs.toString() + "\", " +
+          "\"writeBehindBatchSize\": \"" + writeBehindBatchSize.toString() + "\", " +
+          "\"sqlCacheSize\": \"" + sqlCacheSize.toString() + "\", " +
+          "\"accessLogSampleRate\": \"" + accessLogSampleRate.toString() + "\", " +
+          "\"dataOffHeapMb\": \"" + dataOffHeapMb.toString() + "\", " +
+          "\"valueCodec\": \"" + valueCodec + "\", " +
+          "\"blobTables\": \"" + blobTables + "\", " +
+          "\"redisClusterNodes\": \"" + redisClusterNodes + "\", " +
+          "\"redisClient\": \"" + redisClient + "\", " +
+          "\"apiPoolSize\": \"" + apiPoolSize.toString() + "\", " +
+          "\"enableStreamResponse\": \"" + enableStreamResponse.toString() + "\", " +
+          "\"streamChunkSize\": \"" + streamChunkSize.toString() + "\", " +
+          "\"selectFetchSize\": \"" + selectFetchSize.toString() + "\", " +
+          "\"selectPageSize\": \"" + selectPageSize.toString() + "\", " +
+          "\"writeBehindMaxRetries\": \"" + writeBehindMaxRetries.toString() + "\", " +
+          "\"writeBehindMaxPending\": \"" + writeBehindMaxPending.toString() + "\", " +
+          "\"enableMysqlRowStreaming\": \"" + enableMysqlRowStreaming.toString() + "\", " +
           "\"datasourceUrl\": \"" + datasourceUrl + "\"" +
            "}";
     }
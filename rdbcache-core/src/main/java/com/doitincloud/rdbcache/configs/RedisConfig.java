@@ -19,11 +19,14 @@ package com.doitincloud.rdbcache.configs;
 import com.doitincloud.rdbcache.models.KeyInfo;
 import com.doitincloud.rdbcache.services.ExpireOps;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.listener.PatternTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
@@ -31,11 +34,48 @@ import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RedisConfig {
 
-    @Bean(name = "jedisConnectionFactory")
-    public JedisConnectionFactory jedisConnectionFactory() {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisConfig.class);
+
+    private static final String EXPIRED_PATTERN = "__key*__:expired";
+
+    @Value("${rdbcache.redis_cluster_nodes:}")
+    private String clusterNodes;
+
+    @Value("${rdbcache.redis_client:jedis}")
+    private String redisClient;
+
+    private List<String> getClusterNodes() {
+        List<String> nodes = new ArrayList<>();
+        if (clusterNodes != null) {
+            for (String node: clusterNodes.split(",")) {
+                node = node.trim();
+                if (node.length() > 0) nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+
+    @Bean(name = "redisConnectionFactory")
+    public RedisConnectionFactory redisConnectionFactory() {
+        List<String> nodes = getClusterNodes();
+        if (nodes.size() > 0) {
+            if ("lettuce".equals(redisClient)) {
+                LOGGER.warn("lettuce client is for a single redis server, jedis is used for the cluster");
+            }
+            return new JedisConnectionFactory(new RedisClusterConfiguration(nodes));
+        }
+        if ("lettuce".equals(redisClient)) {
+            return new LettuceConnectionFactory();
+        }
         return new JedisConnectionFactory();
     }
 
@@ -49,7 +89,7 @@ public class RedisConfig {
 
         RedisKeyInfoTemplate template =  new RedisKeyInfoTemplate();
 
-        template.setConnectionFactory(jedisConnectionFactory());
+        template.setConnectionFactory(redisConnectionFactory());
 
         template.setKeySerializer(new StringRedisSerializer());
         template.setHashKeySerializer(new StringRedisSerializer());
@@ -62,8 +102,9 @@ public class RedisConfig {
     public StringRedisTemplate stringRedisTemplate() {
         StringRedisTemplate template = new StringRedisTemplate();
 
-        template.setConnectionFactory(jedisConnectionFactory());
-        template.setHashValueSerializer(new RedisJsonSerializer());
+        template.setConnectionFactory(redisConnectionFactory());
+        template.setHashValueSerializer(new RedisValueSerializer());
+        template.setScriptExecutor(new ClusterScriptExecutor<>(template));
 
         return template;
     }
@@ -76,9 +117,19 @@ public class RedisConfig {
     @Bean
     RedisMessageListenerContainer container() {
         RedisMessageListenerContainer container = new RedisMessageListenerContainer();
-        container.setConnectionFactory(jedisConnectionFactory());
-        container.addMessageListener(listenerAdapter(), new PatternTopic("__key*__:expired"));
+        container.setConnectionFactory(redisConnectionFactory());
+        if (getClusterNodes().size() == 0) {
+            container.addMessageListener(listenerAdapter(), new PatternTopic(EXPIRED_PATTERN));
+        }
         return container;
     }
 
+    // a cluster node publishes keyspace events of its own keys only
+    //
+    @Bean
+    ClusterExpireListeners clusterExpireListeners() {
+        return new ClusterExpireListeners(redisConnectionFactory(), listenerAdapter(), EXPIRED_PATTERN,
+                getClusterNodes().size() > 0);
+    }
+
 }
@@ -0,0 +1,52 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.configs;
+
+import com.doitincloud.commons.ValueCodec;
+import com.doitincloud.commons.ValueCodecs;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Writes hash values with the codec selected by rdbcache.value_codec,
+ * reads values written by either codec.
+ */
+public class RedisValueSerializer implements RedisSerializer<Object> {
+
+    @Override
+    public byte[] serialize(Object o) throws SerializationException {
+        ValueCodec codec = ValueCodecs.forName(PropCfg.getValueCodec());
+        try {
+            return codec.encode(o);
+        } catch (RuntimeException e) {
+            throw new SerializationException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return ValueCodecs.decode(bytes);
+        } catch (RuntimeException e) {
+            throw new SerializationException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.doitincloud.rdbcache.configs;
+
+import com.doitincloud.rdbcache.supports.VirtualThreads;
+
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+
+// opt-in, let tomcat handle each request in its own virtual thread, a new one per request,
+// the real concurrency is bounded by redis and database connection pools
+//
+// with the jedis client a request blocked on redis pins its carrier thread, see VirtualThreads
+//
+@Configuration
+@ConditionalOnClass(TomcatEmbeddedServletContainerFactory.class)
+@ConditionalOnProperty(name = "rdbcache.enable_virtual_threads", havingValue = "true")
+public class VirtualThreadConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    public EmbeddedServletContainerCustomizer virtualThreadCustomizer() {
+
+        return container -> {
+
+            if (!(container instanceof TomcatEmbeddedServletContainerFactory)) {
+                return;
+            }
+
+            ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor(
+                    VirtualThreads.newThreadFactory("rdbcache-http-"));
+            if (executor == null) {
+                LOGGER.warn("virtual threads are not supported by this jvm, use platform threads for requests");
+                return;
+            }
+
+            ((TomcatEmbeddedServletContainerFactory) container).addConnectorCustomizers(connector -> {
+                ProtocolHandler handler = connector.getProtocolHandler();
+                if (handler instanceof AbstractProtocol) {
+                    ((AbstractProtocol) handler).setExecutor(executor);
+                    LOGGER.info("handle requests with virtual threads");
+                }
+            });
+        };
+    }
+}
@@ -0,0 +1,1294 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.controllers;
+
+import com.doitincloud.rdbcache.configs.AppCtx;
+import com.doitincloud.rdbcache.configs.PropCfg;
+
+import com.doitincloud.rdbcache.controllers.supports.Request;
+import com.doitincloud.rdbcache.controllers.supports.Response;
+import com.doitincloud.rdbcache.models.KeyInfo;
+import com.doitincloud.rdbcache.models.KvIdType;
+import com.doitincloud.rdbcache.models.KvPair;
+
+import com.doitincloud.rdbcache.exceptions.BadRequestException;
+import com.doitincloud.rdbcache.exceptions.NotFoundException;
+
+import com.doitincloud.rdbcache.queries.QueryInfo;
+import com.doitincloud.rdbcache.supports.AnyKey;
+import com.doitincloud.rdbcache.supports.Context;
+import com.doitincloud.rdbcache.supports.KvPairs;
+import com.doitincloud.rdbcache.supports.TaskPools;
+import org.springframework.http.ResponseEntity;
+//import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * The routes and the handlers of the api. A handler parses the servlet request on the request
+ * thread, and hands the redis and database work to handle, which a subclass implements to run
+ * it in line or to offload it.
+ *
+ * @param <R> what handle returns for the work, the response entity or a future of it
+ */
+public abstract class AbstractRdbcacheApis<R> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractRdbcacheApis.class);
+
+    /**
+     * runs the work of a handler, the work does not touch the servlet request
+     *
+     * @param work Supplier, does the redis and database work and returns the response entity
+     * @return R
+     */
+    protected abstract R handle(Supplier<ResponseEntity<?>> work);
+
+    /**
+     * runs the work of get_get, a subclass can answer a local cache hit differently
+     *
+     * @param key String, hash key
+     * @param parsed Request, the parsed servlet request
+     * @param work Supplier, does the redis and database work and returns the response entity
+     * @return R
+     */
+    protected R handleGet(String key, Request parsed, Supplier<ResponseEntity<?>> work) {
+        return handle(work);
+    }
+
+    /**
+     * get_get get single item
+     *
+     * To get data based on key and/or query string.
+     * Once data found, it returns immediately. It queries redis first, then database. 
+     *
+     * @param request HttpServletRequest
+     * @param key String, hash key
+     * @param opt1 String, can be expire or table or "sync" or "async"
+     * @param opt2 String, can be expire or table or "sync" or "async", but not otp1
+     * @param opt3 String, can be expire or table or "sync" or "async", but not otp1 and opt2
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('read')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/get/{key}",
+            "/rdbcache/v1/get/{key}/{opt1}",
+            "/rdbcache/v1/get/{key}/{opt1}/{opt2}",
+            "/rdbcache/v1/get/{key}/{opt1}/{opt2}/{opt3}"
+        }, method = RequestMethod.GET)
+    public R get_get(
+            HttpServletRequest request,
+            @PathVariable("key") String key,
+            @PathVariable Optional<String> opt1,
+            @PathVariable Optional<String> opt2,
+            @PathVariable Optional<String> opt3) {
+
+        Context context = new Context(true, "get_get");
+        KvPairs pairs = new KvPairs(key);
+        Request parsed = Request.parse(context, request, opt1, opt2, opt3);
+
+        return handleGet(key, parsed, () -> {
+
+            AnyKey anyKey = parsed.resolve(context, pairs);
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            if (key.equals("*")) {
+                if (AppCtx.getDbaseRepo().find(context, pairs, anyKey)) {
+
+                    AppCtx.getAsyncOps().doSaveToRedis(context, pairs, anyKey);
+
+                } else {
+
+                    throw new NotFoundException(context, "data not found");
+                }
+            } else {
+                if (!AppCtx.getRedisRepo().find(context, pairs, anyKey)) {
+
+                    if (AppCtx.getDbaseRepo().find(context, pairs, anyKey)) {
+
+                        AppCtx.getAsyncOps().doSaveToRedis(context, pairs, anyKey);
+
+                    } else {
+
+                        throw new NotFoundException(context, "data not found");
+                    }
+                }
+            }
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * set_get get single item
+     *
+     * To set a value to a key based on the key and/or query string.
+     * It returns immediately, and asynchronously saves to redis and database
+     *
+     * @param request HttpServletRequest
+     * @param key String, hash key
+     * @param value String, value
+     * @param opt1 String, can be expire or table or "sync" or "async"
+     * @param opt2 String, can be expire or table or "sync" or "async", but not otp1
+     * @param opt3 String, can be expire or table or "sync" or "async", but not otp1 and opt2
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('write')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/set/{key}/{value}",
+            "/rdbcache/v1/set/{key}/{value}/{opt1}",
+            "/rdbcache/v1/set/{key}/{value}/{opt1}/{opt2}",
+            "/rdbcache/v1/set/{key}/{value}/{opt1}/{opt2}/{opt3}"
+        }, method = RequestMethod.GET)
+    public R set_get(
+            HttpServletRequest request,
+            @PathVariable("key") String key,
+            @PathVariable("value") String value,
+            @PathVariable Optional<String> opt1,
+            @PathVariable Optional<String> opt2,
+            @PathVariable Optional<String> opt3) {
+
+        Context context = new Context(false, "set_get");
+        KvPairs pairs = new KvPairs(key, value);
+        Request parsed = Request.parse(context, request, opt1, opt2, opt3);
+
+        return handle(() -> {
+
+            AnyKey anyKey = parsed.resolve(context, pairs);
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            AppCtx.getAsyncOps().doSaveToRedisAndDbase(context, pairs, anyKey);
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * set_post post single item
+     *
+     * To set a value to a key based on the key and/or query string.
+     * It returns immediately, and asynchronously saves to redis and database
+     *
+     * @param request HttpServletRequest
+     * @param key String, hash key
+     * @param opt1 String, can be expire or table or "sync" or "async"
+     * @param opt2 String, can be expire or table or "sync" or "async", but not otp1
+     * @param opt3 String, can be expire or table or "sync" or "async", but not otp1 and opt2
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('write')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/set/{key}",
+            "/rdbcache/v1/set/{key}/{opt1}",
+            "/rdbcache/v1/set/{key}/{opt1}/{opt2}",
+            "/rdbcache/v1/set/{key}/{opt1}/{opt2}/{opt3}"
+        }, method = RequestMethod.POST)
+    public R set_post(
+            HttpServletRequest request,
+            @PathVariable("key") String key,
+            @PathVariable Optional<String> opt1,
+            @PathVariable Optional<String> opt2,
+            @PathVariable Optional<String> opt3,
+            @RequestBody String value) {
+
+        if (value == null || value.length() == 0) {
+            throw new BadRequestException("missing request body");
+        }
+
+        Context context = new Context(false, "set_post");
+        KvPairs pairs = new KvPairs(key, value);
+        Request parsed = Request.parse(context, request, opt1, opt2, opt3);
+
+        return handle(() -> {
+
+            AnyKey anyKey = parsed.resolve(context, pairs);
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            AppCtx.getAsyncOps().doSaveToRedisAndDbase(context, pairs, anyKey);
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * put_post post/put single item
+     *
+     * To update a key with partial data based on the key and/or query string.
+     * It returns immediately, and asynchronously updates to redis and database
+     *
+     * @param request HttpServletRequest
+     * @param key String, hash key
+     * @param opt1 String, can be expire or table or "sync" or "async"
+     * @param opt2 String, can be expire or table or "sync" or "async", but not otp1
+     * @param opt3 String, can be expire or table or "sync" or "async", but not otp1 and opt2
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('write')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/put/{key}",
+            "/rdbcache/v1/put/{key}/{opt1}",
+            "/rdbcache/v1/put/{key}/{opt1}/{opt2}",
+            "/rdbcache/v1/put/{key}/{opt1}/{opt2}/{opt3}"
+        }, method = {RequestMethod.POST, RequestMethod.PUT})
+    public R put_post(
+            HttpServletRequest request,
+            @PathVariable("key") String key,
+            @PathVariable Optional<String> opt1,
+            @PathVariable Optional<String> opt2,
+            @PathVariable Optional<String> opt3,
+            @RequestBody String value) {
+
+        if (value == null || value.length() == 0) {
+            throw new BadRequestException("missing request body");
+        }
+
+        Context context = new Context(false, "put_post");
+        KvPairs pairs = new KvPairs(key, value);
+        Request parsed = Request.parse(context, request, opt1, opt2, opt3);
+
+        return handle(() -> {
+
+            AnyKey anyKey = parsed.resolve(context, pairs);
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            KeyInfo keyInfo = anyKey.getKeyInfo();
+
+            if (key.equals("*") && keyInfo.getQuery() == null) {
+
+                AppCtx.getAsyncOps().doSaveToRedisAndDbase(context, pairs, anyKey);
+
+            } else {
+
+                AppCtx.getAsyncOps().doPutOperation(context, pairs, anyKey);
+            }
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * getset_get get single item
+     *
+     * To get current value of a key and update it to a new value based on the key and/or query string.
+     * It finds the current value and returns immediately, and asynchronously updates to redis and database
+     *
+     * @param request HttpServletRequest
+     * @param key String, hash key
+     * @param value String, value
+     * @param opt1 String, can be expire or table or "sync" or "async"
+     * @param opt2 String, can be expire or table or "sync" or "async", but not otp1
+     * @param opt3 String, can be expire or table or "sync" or "async", but not otp1 and opt2
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('write')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/getset/{key}/{value}",
+            "/rdbcache/v1/getset/{key}/{value}/{opt1}",
+            "/rdbcache/v1/getset/{key}/{value}/{opt1}/{opt2}",
+            "/rdbcache/v1/getset/{key}/{value}/{opt1}/{opt2}/{opt3}"
+        }, method = RequestMethod.GET)
+    public R getset_get(
+            HttpServletRequest request,
+            @PathVariable("key") String key,
+            @PathVariable("value") String value,
+            @PathVariable Optional<String> opt1,
+            @PathVariable Optional<String> opt2,
+            @PathVariable Optional<String> opt3) {
+
+        Context context = new Context(true, "getset_get");
+        KvPairs pairs = new KvPairs(key, value);
+        Request parsed = Request.parse(context, request, opt1, opt2, opt3);
+
+        return handle(() -> {
+
+            AnyKey anyKey = parsed.resolve(context, pairs);
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            KvPairs pairsClone = pairs.clone();
+            KvPair pair = pairs.getPair();
+
+            if (key.equals("*")) {
+
+                if (!AppCtx.getDbaseRepo().find(context, pairs, anyKey)) {
+                    pair.clearData();
+                }
+                AppCtx.getAsyncOps().doSaveToRedis(context, pairsClone, anyKey);
+
+            } else if (AppCtx.getRedisRepo().findAndSave(context, pairs, anyKey)) {
+
+                AppCtx.getAsyncOps().doSaveToDbase(context, pairsClone, anyKey);
+
+            } else {
+
+                if (!AppCtx.getDbaseRepo().find(context, pairs, anyKey)) {
+                    pair.clearData();
+                }
+                AppCtx.getAsyncOps().doSaveToDbase(context, pairsClone, anyKey);
+            }
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * getset_post post single item
+     *
+     * To get current value of a key and update it to a new value based on key and/or query string.
+     * It finds the current value and returns immediately, and asynchronously updates to redis and database
+     *
+     * @param request HttpServletRequest
+     * @param key String, hash key
+     * @param opt1 String, can be expire or table or "sync" or "async"
+     * @param opt2 String, can be expire or table or "sync" or "async", but not otp1
+     * @param opt3 String, can be expire or table or "sync" or "async", but not otp1 and opt2
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('write')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/getset/{key}",
+            "/rdbcache/v1/getset/{key}/{opt1}",
+            "/rdbcache/v1/getset/{key}/{opt1}/{opt2}",
+            "/rdbcache/v1/getset/{key}/{opt1}/{opt2}/{opt3}"
+        }, method = RequestMethod.POST)
+    public R getset_post(
+            HttpServletRequest request,
+            @PathVariable("key") String key,
+            @PathVariable Optional<String> opt1,
+            @PathVariable Optional<String> opt2,
+            @PathVariable Optional<String> opt3,
+            @RequestBody String value) {
+
+        if (value == null || value.length() == 0) {
+            throw new BadRequestException("missing request body");
+        }
+
+        Context context = new Context(true, "getset_post");
+        KvPairs pairs = new KvPairs(key, value);
+        Request parsed = Request.parse(context, request, opt1, opt2);
+
+        return handle(() -> {
+
+            AnyKey anyKey = parsed.resolve(context, pairs);
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            KvPairs pairsClone = pairs.clone();
+            KvPair pair = pairs.getPair();
+
+            if (key.equals("*")) {
+
+                if (!AppCtx.getDbaseRepo().find(context, pairs, anyKey)) {
+                    pair.clearData();
+                }
+
+                AppCtx.getAsyncOps().doSaveToRedisAndDbase(context, pairsClone, anyKey);
+
+            } else if (AppCtx.getRedisRepo().findAndSave(context, pairs, anyKey)) {
+
+                AppCtx.getAsyncOps().doSaveToDbase(context, pairsClone, anyKey);
+
+            } else {
+
+                if (!AppCtx.getDbaseRepo().find(context, pairs, anyKey)) {
+                    pair.clearData();
+                }
+
+                AppCtx.getAsyncOps().doSaveToDbase(context, pairsClone, anyKey);
+            }
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * pull_post post multiple items
+     *
+     * To pull one or more entries based on input keys. No * key. No query string.
+     * Once data found, it returns immediately. It queries redis first, then database. 
+     *
+     * @param request HttpServletRequest
+     * @param response HttpServletResponse
+     * @param opt1 String, can be expire or table or "sync" or "async"
+     * @param opt2 String, can be expire or table or "sync" or "async", but not otp1
+     * @param opt3 String, can be expire or table or "sync" or "async", but not otp1 and opt2
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('read')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/pull",
+            "/rdbcache/v1/pull/{opt1}",
+            "/rdbcache/v1/pull/{opt1}/{opt2}",
+            "/rdbcache/v1/pull/{opt1}/{opt2}/{opt3}"
+    }, method = RequestMethod.POST)
+    public R pull_post(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            @PathVariable Optional<String> opt1,
+            @PathVariable Optional<String> opt2,
+            @PathVariable Optional<String> opt3,
+            @RequestBody ArrayList<String> keys) {
+
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("query string is not supported");
+        }
+        if (keys == null || keys.size() == 0) {
+            throw new BadRequestException("missing keys");
+        }
+        if (keys.contains("*")) {
+            throw new BadRequestException("no * allowed as key");
+        }
+        if (request.getParameterMap().size() > 0) {
+            throw  new BadRequestException("query string is not supported");
+        }
+
+        Context context = new Context(true, true, "pull_post");
+        KvPairs pairs = new KvPairs(keys);
+        Request parsed = Request.parse(context, request, opt1, opt2, opt3);
+
+        return handle(() -> {
+
+            AnyKey anyKey = parsed.resolve(context, pairs);
+
+            if (anyKey.size() != pairs.size()) {
+                throw new NotFoundException("one or more keys not found");
+            }
+
+            for (int i = 0; i < anyKey.size(); i++) {
+                KvPair pair = pairs.get(i);
+                KeyInfo keyInfo = anyKey.get(i);
+                if (keyInfo.getIsNew()) {
+                    throw new NotFoundException("key not found for " + pair.getId());
+                }
+            }
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            if (PropCfg.getEnableStreamResponse()) {
+                return Response.stream(context, response, sink -> {
+                    while (pairs.size() > 0) {
+                        KvPairs chunkPairs = pairs.takeFirst(PropCfg.getStreamChunkSize());
+                        AnyKey chunkAnyKey = anyKey.takeFirst(chunkPairs.size());
+                        pull(context, chunkPairs, chunkAnyKey);
+                        sink.accept(chunkPairs, chunkAnyKey);
+                    }
+                });
+            }
+
+            pull(context, pairs, anyKey);
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * push_post post multiple items
+     *
+     * To update one or more entries based on input key and value map. No * key. No query string.
+     * It returns immediately, and asynchronously updates redis and database
+     *
+     * @param request HttpServletRequest
+     * @param opt1 String, can be expire or table or "sync" or "async"
+     * @param opt2 String, can be expire or table or "sync" or "async", but not otp1
+     * @param opt3 String, can be expire or table or "sync" or "async", but not otp1 and opt2
+     * @param map Map, a map of key and value pairs
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('write')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/push",
+            "/rdbcache/v1/push/{opt1}",
+            "/rdbcache/v1/push/{opt1}/{opt2}",
+            "/rdbcache/v1/push/{opt1}/{opt2}/{opt3}"
+    }, method = RequestMethod.POST)
+    public R push_post(
+            HttpServletRequest request,
+            @PathVariable Optional<String> opt1,
+            @PathVariable Optional<String> opt2,
+            @PathVariable Optional<String> opt3,
+            @RequestBody Map<String, Object> map) {
+
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("query string is not supported");
+        }
+        if (map == null || map.size() == 0) {
+            throw new BadRequestException("missing request body");
+        }
+        if (map.containsKey("*")) {
+            throw new BadRequestException("no * allowed as key");
+        }
+        if (request.getParameterMap().size() > 0) {
+            throw new BadRequestException("query string is not supported");
+        }
+
+        Context context = new Context(false, true, "push_post");
+        KvPairs pairs = new KvPairs(map);
+        Request parsed = Request.parse(context, request, opt1, opt2, opt3);
+
+        return handle(() -> {
+
+            AnyKey anyKey = parsed.resolve(context, pairs);
+
+            if (anyKey.size() != map.size()) {
+                throw new BadRequestException("one or more keys not found");
+            }
+
+            for (int i = 0; i < anyKey.size(); i++) {
+                KvPair pair = pairs.get(i);
+                KeyInfo keyInfo = anyKey.get(i);
+                if (keyInfo.getIsNew()) {
+                    throw new BadRequestException("key not found for " + pair.getId());
+                }
+            }
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            AppCtx.getAsyncOps().doPushOperations(context, pairs, anyKey);
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * delkey_get get/delete single item
+     *
+     * To delete a key from redis based on the input key. No query string.
+     * It returns immediately. It will not delete database entry.
+     *
+     * @param request HttpServletRequest
+     * @param key String, hash key
+     * @param opt1 String, can be "sync" or "async" and table
+     * @param opt2 String, can be "sync" or "async"  and table, but not the same as opt1
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('delete')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/delkey/{key}",
+            "/rdbcache/v1/delkey/{key}/{opt1}",
+            "/rdbcache/v1/delkey/{key}/{opt1}/{opt2}"
+    }, method = {RequestMethod.GET, RequestMethod.DELETE})
+    public R delkey_get(
+            HttpServletRequest request,
+            @PathVariable("key") String key,
+            @PathVariable Optional<String> opt1,
+            @PathVariable Optional<String> opt2) {
+
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("query string is not supported");
+        }
+        if (key.equals("*")) {
+            throw new BadRequestException("no * allowed as key");
+        }
+
+        Context context = new Context(false, "delkey_get");
+        KvPairs pairs = new KvPairs(key);
+        Request parsed = Request.parse(context, request, opt1, opt2);
+
+        return handle(() -> {
+
+            AnyKey anyKey = parsed.resolve(context, pairs);
+
+            if (anyKey.getKeyInfo().getIsNew()) {
+                throw new NotFoundException("key not found for " + key);
+            }
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            AppCtx.getAsyncOps().doDeleteFromRedis(context, pairs, anyKey);
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * delkey_post post multiple items
+     *
+     * To delete one or more keys from redis based on the input keys. No query string.
+     * It returns immediately. It will not delete database entry.
+     *
+     * @param request HttpServletRequest
+     * @param keys List, list of keys for returned entries
+     * @param opt1 String, can be "sync" or "async" and table
+     * @param opt2 String, can be "sync" or "async"  and table, but not the same as opt1
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('delete')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/delkey",
+            "/rdbcache/v1/delkey/{opt1}",
+            "/rdbcache/v1/delkey/{opt1}/{opt2}"
+    }, method = RequestMethod.POST)
+    public R delkey_post(
+            HttpServletRequest request,
+            @RequestBody List<String> keys,
+            @PathVariable Optional<String> opt1,
+            @PathVariable Optional<String> opt2) {
+
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("query string is not supported");
+        }
+        if (keys.contains("*")) {
+            throw new BadRequestException("no * allowed as key");
+        }
+
+        Context context = new Context(false, "delkey_post");
+        KvPairs pairs = new KvPairs(keys);
+        Request parsed = Request.parse(context, request, opt1, opt2);
+
+        return handle(() -> {
+
+            AnyKey anyKey = parsed.resolve(context, pairs);
+
+            if (anyKey.size() != keys.size()) {
+                context.logTraceMessage("one or more keys not found");
+            }
+
+            for (int i = 0; i < anyKey.size(); i++) {
+                KvPair pair = pairs.get(i);
+                KeyInfo keyInfo = anyKey.get(i);
+                if (keyInfo.getIsNew()) {
+                    context.logTraceMessage("key not found for " + pair.getId());
+                }
+            }
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            AppCtx.getAsyncOps().doDeleteFromRedis(context, pairs, anyKey);
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * delall_get get single item
+     *
+     * To delete a key from redis and database based on the input key. No query string.
+     * It returns immediately.
+     *
+     * @param request HttpServletRequest
+     * @param key String, hash key
+     * @param opt1 String, can be "sync" or "async" and table
+     * @param opt2 String, can be "sync" or "async"  and table, but not the same as opt1
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('delete')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/delall/{key}",
+            "/rdbcache/v1/delall/{key}/{opt1}",
+            "/rdbcache/v1/delall/{key}/{opt1}/{opt2}"
+    }, method = RequestMethod.GET)
+    public R delall_get(
+            HttpServletRequest request,
+            @PathVariable("key") String key,
+            @PathVariable Optional<String> opt1,
+            @PathVariable Optional<String> opt2) {
+
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("query string is not supported");
+        }
+        if (key.equals("*")) {
+            throw new BadRequestException("no * allowed as key");
+        }
+
+        Context context = new Context(false, "delall_get");
+        KvPairs pairs = new KvPairs(key);
+        Request parsed = Request.parse(context, request, opt1, opt2);
+
+        return handle(() -> {
+
+            AnyKey anyKey = parsed.resolve(context, pairs);
+
+            if (anyKey.getKeyInfo().getIsNew()) {
+                throw new NotFoundException("key not found for " + key);
+            }
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            AppCtx.getAsyncOps().doDeleteFromRedisAndDbase(context, pairs, anyKey);
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * delall_post post multple items
+     *
+     * To delete one or more keys from redis and database based on the input keys. No query string.
+     * It returns immediately.
+     *
+     * @param request HttpServletRequest
+     * @param keys List, list of keys for returned entries
+     * @param opt1 String, can be "sync" and table
+     * @param opt2 String, can be "sync" and table, but not the same as opt1
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('delete')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/delall",
+            "/rdbcache/v1/delall/{opt1}",
+            "/rdbcache/v1/delall/{opt1}/{opt2}"
+    }, method = RequestMethod.POST)
+    public R delall_post(
+            HttpServletRequest request,
+            @RequestBody List<String> keys,
+            @PathVariable Optional<String> opt1,
+            @PathVariable Optional<String> opt2) {
+
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("query string is not supported");
+        }
+        if (keys.contains("*")) {
+            throw new BadRequestException("no * allowed as key");
+        }
+
+        Context context = new Context(false, "delall_post");
+        KvPairs pairs = new KvPairs(keys);
+        Request parsed = Request.parse(context, request, opt1, opt2);
+
+        return handle(() -> {
+
+            AnyKey anyKey = parsed.resolve(context, pairs);
+
+            if (anyKey.size() != keys.size()) {
+                context.logTraceMessage("one or more keys not found");
+            }
+
+            for (int i = 0; i < anyKey.size(); i++) {
+                KvPair pair = pairs.get(i);
+                KeyInfo keyInfo = anyKey.get(i);
+                if (keyInfo.getIsNew()) {
+                    context.logTraceMessage("key not found for " + pair.getId());
+                }
+            }
+
+            AppCtx.getAsyncOps().doDeleteFromRedisAndDbase(context, pairs, anyKey);
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * select_get get multiple items
+     *
+     * To select one or more entries based on query string.
+     * It queries database and return immediately, and asynchronously saves the data to redis
+     *
+     * @param request HttpServletRequest
+     * @param response HttpServletResponse
+     * @param opt1 String, can be expire or table or "sync" or "async"
+     * @param opt2 String, can be expire or table or "sync" or "async", but not otp1
+     * @param opt3 String, can be expire or table or "sync" or "async", but not otp1 and opt2
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('read')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/select",
+            "/rdbcache/v1/select/{opt1}",
+            "/rdbcache/v1/select/{opt1}/{opt2}",
+            "/rdbcache/v1/select/{opt1}/{opt2}/{opt3}"
+        }, method = RequestMethod.GET)
+    public R select_get(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            @PathVariable Optional<String> opt1,
+            @PathVariable Optional<String> opt2,
+            @PathVariable Optional<String> opt3) {
+
+        if (request.getParameterMap().size() == 0) {
+            throw  new BadRequestException("query string is needed, try add ?limit=256 to url");
+        }
+
+        Context context = new Context(true, true, "select_get");
+        KvPairs pairs = new KvPairs();
+        Request parsed = Request.parse(context, request, opt1, opt2, opt3);
+
+        return handle(() -> {
+
+            AnyKey anyKey = parsed.resolve(context, pairs);
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            KeyInfo keyInfo = anyKey.getKeyInfo();
+            if (keyInfo.getQuery() == null && pairs.size() == 0) {
+                QueryInfo query = new QueryInfo(keyInfo.getTable());
+                query.setLimit(1024);
+                keyInfo.setQuery(query);
+                String msg = "no query string found, max rows limit is forced to 1024";
+                LOGGER.info(msg);
+                context.logTraceMessage(msg);
+            }
+
+            if (PropCfg.getEnableStreamResponse()) {
+                return Response.stream(context, response, sink -> {
+                    if (!AppCtx.getDbaseRepo().find(context, pairs, anyKey, (chunkPairs, chunkAnyKey) -> {
+                            AppCtx.getAsyncOps().doSaveToRedis(context, chunkPairs, chunkAnyKey);
+                            sink.accept(chunkPairs, chunkAnyKey);
+                        })) {
+                        LOGGER.debug("no record(s) found from database");
+                    }
+                });
+            }
+
+            if (!AppCtx.getDbaseRepo().find(context, pairs, anyKey)) {
+
+                LOGGER.debug("no record(s) found from database");
+
+            } else {
+
+                AppCtx.getAsyncOps().doSaveToRedis(context, pairs, anyKey);
+
+            }
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * select_post post multiple items
+     *
+     * To select one or more entries based on query string.
+     * It queries database and return immediately, and asynchronously saves the data to redis
+     *
+     * @param request HttpServletRequest
+     * @param response HttpServletResponse
+     * @param opt1 String, can be expire or table or "sync" or "async"
+     * @param opt2 String, can be expire or table or "sync" or "async", but not otp1
+     * @param opt3 String, can be expire or table or "sync" or "async", but not otp1 and opt2
+     * @param keys List, list of keys for returned entries
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('read')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/select",
+            "/rdbcache/v1/select/{opt1}",
+            "/rdbcache/v1/select/{opt1}/{opt2}",
+            "/rdbcache/v1/select/{opt1}/{opt2}/{opt3}"
+        }, method = RequestMethod.POST)
+    public R select_post(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            @PathVariable Optional<String> opt1,
+            @PathVariable Optional<String> opt2,
+            @PathVariable Optional<String> opt3,
+            @RequestBody ArrayList<String> keys) {
+
+        if (request.getParameterMap().size() == 0) {
+            throw  new BadRequestException("query string is needed");
+        }
+
+        Context context = new Context(true, true, "select_post");
+        KvPairs pairs = new KvPairs(keys);
+        Request parsed = Request.parse(context, request, opt1, opt2, opt3);
+
+        return handle(() -> {
+
+            AnyKey anyKey = parsed.resolve(context, pairs);
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            KeyInfo keyInfo = anyKey.getKeyInfo();
+            if (keyInfo.getQuery() == null && pairs.size() == 0) {
+                QueryInfo query = new QueryInfo(keyInfo.getTable());
+                query.setLimit(1024);
+                keyInfo.setQuery(query);
+                String msg = "no query string found, max rows limit is forced to 1024";
+                LOGGER.info(msg);
+                context.logTraceMessage(msg);
+            }
+
+            if (PropCfg.getEnableStreamResponse()) {
+                return Response.stream(context, response, sink -> {
+                    if (!AppCtx.getDbaseRepo().find(context, pairs, anyKey, (chunkPairs, chunkAnyKey) -> {
+                            AppCtx.getAsyncOps().doSaveToRedis(context, chunkPairs, chunkAnyKey);
+                            sink.accept(chunkPairs, chunkAnyKey);
+                        })) {
+                        LOGGER.debug("no record(s) found from database");
+                    }
+                });
+            }
+
+            if (!AppCtx.getDbaseRepo().find(context, pairs, anyKey)) {
+
+                LOGGER.debug("no record(s) found from database");
+
+            } else {
+
+                AppCtx.getAsyncOps().doSaveToRedis(context, pairs, anyKey);
+            }
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * save_post post multiple items
+     *
+     * To save one or more entries based on input list.
+     * It returns immediately, and asynchronously inserts into redis and database
+     *
+     * @param request HttpServletRequest
+     * @param opt1 String, can be expire or table or "sync" or "async"
+     * @param opt2 String, can be expire or table or "sync" or "async", but not otp1
+     * @param opt3 String, can be expire or table or "sync" or "async", but not otp1 and opt2
+     * @param list List, a list of map, than contains key and other fields
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('write')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/save",
+            "/rdbcache/v1/save/{opt1}",
+            "/rdbcache/v1/save/{opt1}/{opt2}",
+            "/rdbcache/v1/save/{opt1}/{opt2}/{opt3}"
+        }, method = RequestMethod.POST)
+    public R save_post(
+            HttpServletRequest request,
+            @PathVariable Optional<String> opt1,
+            @PathVariable Optional<String> opt2,
+            @PathVariable Optional<String> opt3,
+            @RequestBody List<Map<String, Object>> list){
+
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("query string is not supported");
+        }
+        if (list == null || list.size() == 0) {
+            throw new BadRequestException("missing request body");
+        }
+
+        Context context = new Context(false, true, "save_post");
+        KvPairs pairs = new KvPairs(list);
+        Request parsed = Request.parse(context, request, opt1, opt2);
+
+        return handle(() -> {
+
+            AnyKey anyKey = parsed.resolve(context, pairs);
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            AppCtx.getAsyncOps().doSaveAllToRedisAndSaveAllTodDbase(context, pairs, anyKey);
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * trace_get get single item
+     *
+     * get error messages by trace id
+     *
+     * @param request HttpServletRequest
+     * @param traceId the trace id return by API call
+     * @return R, the response entity as handle returns it
+     *
+     */
+    //@PreAuthorize("#oauth2.hasScope('read')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/trace/{traceId}"
+        }, method = RequestMethod.GET)
+    public R trace_get(
+            HttpServletRequest request,
+            @PathVariable("traceId") String traceId){
+
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("query string is not supported");
+        }
+        if (traceId.equals("*")) {
+            throw new BadRequestException("no * allowed as trace id");
+        }
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("no query string is allowed");
+        }
+
+        Context context = new Context(true, "trace_get");
+        KvPairs pairs = new KvPairs();
+        Request parsed = Request.parse(context, request);
+
+        return handle(() -> {
+
+            parsed.resolve(context, pairs);
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            KvPair pair = AppCtx.getKvPairRepo().findById(new KvIdType(traceId, "trace"));
+            if (pair != null) {
+                pairs.add(pair);
+            }
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * trace_post post multiple items
+     *
+     * get error messages by trace id list
+     *
+     * @param request HttpServletRequest
+     * @param traceIds List trace id list
+     * @return R, the response entity as handle returns it
+     */
+    //@PreAuthorize("#oauth2.hasScope('read')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/trace"
+        }, method = RequestMethod.POST)
+    public R trace_post(
+            HttpServletRequest request,
+            @RequestBody List<String> traceIds){
+
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("query string is not supported");
+        }
+        if (traceIds == null || traceIds.size() == 0) {
+            throw new BadRequestException("missing trace ids");
+        }
+        if (traceIds.contains("*")) {
+            throw new BadRequestException("no * allowed as trace id");
+        }
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("no query string is needed");
+        }
+
+        Context context = new Context(true, true, "trace_post");
+        KvPairs pairs = new KvPairs();
+        Request parsed = Request.parse(context, request);
+
+        return handle(() -> {
+
+            parsed.resolve(context, pairs);
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("pairs(" + pairs.size() +"): " + pairs.printKey());
+            }
+
+            for (String referenced_id: traceIds) {
+                KvPair pair = AppCtx.getKvPairRepo().findById(new KvIdType(referenced_id, "trace"));
+                if (pair != null) {
+                    pairs.add(pair);
+                } else {
+                    pairs.add(new KvPair(referenced_id));
+                }
+            }
+
+            return Response.send(context, pairs);
+        });
+    }
+
+    /**
+     * flushcache_get get operational to multiple items
+     *
+     * flush local cache
+     *
+     * @param request HttpServletRequest
+     * @param opt optional, all, table, key and data
+     * @return ResponseEntity
+     */
+    //@PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/flush-cache",
+            "/rdbcache/v1/flush-cache/{opt}"
+    }, method = RequestMethod.GET)
+    public ResponseEntity<?> flushcache_get(
+            HttpServletRequest request,
+            @PathVariable Optional<String> opt) {
+
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("query string is not supported");
+        }
+        Context context = new Context(false, "flushcache_get");
+        Request.process(context, request);
+
+        if (!opt.isPresent()) {
+            AppCtx.getCacheOps().removeAllKeyAndData();
+        } else {
+            String option = opt.get();
+            if (option.equals("all")) {
+                AppCtx.getCacheOps().removeAll();
+            } else if (option.equals("table")) {
+                AppCtx.getCacheOps().removeAllTables();
+            } else if (option.equals("key")) {
+                AppCtx.getCacheOps().removeAllKeyInfo(null);
+            } else if (option.equals("data")) {
+                AppCtx.getCacheOps().removeAllData(null);
+            } else if (option.equals("key-and-data")) {
+                AppCtx.getCacheOps().removeAllKeyAndData();
+            } else {
+                throw new BadRequestException("unknown option: " + option);
+            }
+        }
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("result", "DONE");
+
+        return Response.send(context, data);
+    }
+
+    /**
+     * taskpools_get get operational
+     *
+     * get queue depth, active threads and backpressure counters of the task pools
+     *
+     * @param request HttpServletRequest
+     * @return ResponseEntity
+     */
+    //@PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/task-pools"
+    }, method = RequestMethod.GET)
+    public ResponseEntity<?> taskpools_get(
+            HttpServletRequest request) {
+
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("query string is not supported");
+        }
+        Context context = new Context(false, "taskpools_get");
+        Request.process(context, request);
+
+        Map<String, Object> data = TaskPools.getMetrics();
+
+        return Response.send(context, data);
+    }
+
+    /**
+     * cachemetrics_get get operational
+     *
+     * get size, hit ratio, eviction and admission counters of the local cache
+     *
+     * @param request HttpServletRequest
+     * @return ResponseEntity
+     */
+    //@PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/cache-metrics"
+    }, method = RequestMethod.GET)
+    public ResponseEntity<?> cachemetrics_get(
+            HttpServletRequest request) {
+
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("query string is not supported");
+        }
+        Context context = new Context(false, "cachemetrics_get");
+        Request.process(context, request);
+
+        Map<String, Object> data = AppCtx.getCacheOps().getMetrics();
+
+        return Response.send(context, data);
+    }
+
+    // redis first, then database for the misses, found rows are saved back to redis
+    //
+    private void pull(Context context, KvPairs pairs, AnyKey anyKey) {
+
+        if (!AppCtx.getRedisRepo().find(context, pairs, anyKey)) {
+
+            // misses of the same table are looked up in one go, so that they share a select,
+            // misses of the default table are looked up one by one
+            //
+            Map<String, KvPairs> tablePairs = new LinkedHashMap<>();
+            Map<String, AnyKey> tableAnyKeys = new LinkedHashMap<>();
+
+            KvPairs dbPairs = new KvPairs();
+            AnyKey dbAnyKey = new AnyKey();
+
+            for (int i = 0; i < pairs.size(); i++) {
+
+                KvPair pair = pairs.get(i);
+                if (pair.hasContent()) {
+                    continue;
+                }
+
+                KeyInfo keyInfo = anyKey.get(i);
+                String table = keyInfo.getTable();
+
+                if (table == null) {
+                    if (AppCtx.getDbaseRepo().find(context, pair, keyInfo)) {
+                        dbPairs.add(pair);
+                        dbAnyKey.add(keyInfo);
+                    }
+                    continue;
+                }
+
+                KvPairs pairsNew = tablePairs.get(table);
+                if (pairsNew == null) {
+                    pairsNew = new KvPairs();
+                    tablePairs.put(table, pairsNew);
+                    tableAnyKeys.put(table, new AnyKey());
+                }
+                pairsNew.add(pair);
+                tableAnyKeys.get(table).add(keyInfo);
+            }
+
+            for (Map.Entry<String, KvPairs> entry: tablePairs.entrySet()) {
+
+                KvPairs pairsNew = entry.getValue();
+                AnyKey anyKeyNew = tableAnyKeys.get(entry.getKey());
+
+                AppCtx.getDbaseRepo().find(context, pairsNew, anyKeyNew);
+
+                for (int i = 0; i < pairsNew.size(); i++) {
+                    KvPair pair = pairsNew.get(i);
+                    if (pair.hasContent()) {
+                        dbPairs.add(pair);
+                        dbAnyKey.add(anyKeyNew.get(i));
+                    }
+                }
+            }
+
+            if (dbPairs.size() > 0) {
+                AppCtx.getAsyncOps().doSaveToRedis(context, dbPairs, dbAnyKey);
+            }
+        }
+    }
+}
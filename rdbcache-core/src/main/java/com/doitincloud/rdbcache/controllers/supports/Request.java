@@ -17,6 +17,7 @@
 package com.doitincloud.rdbcache.controllers.supports;
 
 import com.doitincloud.rdbcache.supports.AnyKey;
+import com.doitincloud.rdbcache.supports.AccessLog;
 import com.doitincloud.rdbcache.supports.Context;
 import com.doitincloud.rdbcache.supports.KvPairs;
 import com.doitincloud.rdbcache.configs.AppCtx;
@@ -32,6 +33,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Profile;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Pattern;
@@ -42,17 +44,49 @@ public class Request {
 
     private static Pattern expPattern = Pattern.compile("([0-9]+|-[0-9]+|\\+[0-9]+)(-sync)?$");
 
+    // what the processing needs from the servlet request, read on the request thread, so that
+    // the key info look up can go on off it
+    //
+    private Optional<String>[] opts;
+
+    private Map<String, String[]> params;
+
+    private Request(Optional<String>[] opts, Map<String, String[]> params) {
+        this.opts = opts;
+        this.params = params;
+    }
+
     public static AnyKey process(Context context, HttpServletRequest request) {
         return process(context, request, null);
     }
 
     public static AnyKey process(Context context, HttpServletRequest request, KvPairs pairs,
                                  Optional<String> ... opts) {
+        return parse(context, request, opts).resolve(context, pairs);
+    }
+
+    public static Request parse(Context context, HttpServletRequest request, Optional<String> ... opts) {
 
-        LOGGER.info("URI: "+ request.getRequestURI());
+        AccessLog.sample(context, request);
 
         if (PropCfg.getEnableMonitor()) context.enableMonitor(request);
 
+        return new Request(opts, new LinkedHashMap<>(request.getParameterMap()));
+    }
+
+    // true if there is any path option or query string
+    //
+    public boolean hasOptions() {
+        for (Optional<String> opt: opts) {
+            if (opt != null && opt.isPresent()) {
+                return true;
+            }
+        }
+        return params.size() > 0;
+    }
+
+    public AnyKey resolve(Context context, KvPairs pairs) {
+
         String[] options = {null, null}; // {expire, table}
 
         for (int i = 0; i < opts.length; i++) {
@@ -88,7 +122,7 @@ public class Request {
             }
         }
 
-        processOptions(context, request, keyInfo, options);
+        processOptions(context, params, keyInfo, options);
 
         if (pairs.size() == 0) {
             return anyKey;
@@ -126,11 +160,9 @@ public class Request {
         return anyKey;
     }
 
-    private static void processOptions(Context context, HttpServletRequest request,
+    private static void processOptions(Context context, Map<String, String[]> params,
                                             KeyInfo keyInfo, String[] options) {
 
-        Map<String, String[]> params = request.getParameterMap();
-
         if (keyInfo.getIsNew()) {
             if (options[1] != null) {
                 keyInfo.setTable(options[1]);
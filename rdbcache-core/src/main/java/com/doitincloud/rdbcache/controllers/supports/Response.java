@@ -0,0 +1,195 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.controllers.supports;
+
+import com.doitincloud.commons.Utils;
+import com.doitincloud.rdbcache.supports.AccessLog;
+import com.doitincloud.rdbcache.supports.Context;
+import com.doitincloud.rdbcache.supports.KvPairSink;
+import com.doitincloud.rdbcache.supports.KvPairs;
+import com.doitincloud.rdbcache.models.KvPair;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.DecimalFormat;
+import java.util.*;
+import java.util.function.Consumer;
+
+public class Response  {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Response.class);
+
+    private static DecimalFormat durationFormat = new DecimalFormat("#.######");
+
+    public static ResponseEntity<Map<String, Object>> send(Context context, KvPairs pairs) {
+        return send(context, pairs, null);
+    }
+
+    public static ResponseEntity<Map<String, Object>> send(Context context, Map<String, Object> data) {
+        return send(context, null, data);
+    }
+
+    public static ResponseEntity<Map<String, Object>> send(Context context, KvPairs pairs,Map<String, Object> data) {
+
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        Long now = System.currentTimeMillis();
+        map.put("timestamp", now);
+        Long duration = context.getDuration();
+        if (duration != null) {
+            double db = ((double) duration) / 1000000000.0;
+            map.put("duration", durationFormat.format(db));
+        }
+        if (pairs != null) {
+            if (pairs.size() == 0) {
+                if (data == null) {
+                    map.put("data", new HashMap<>());
+                } else {
+                    map.put("data", data);
+                }
+            } else if (pairs.size() == 1 && !context.isBatch()) {
+                KvPair pair = pairs.get(0);
+                map.put("key", pair.getId());
+                if (context.isSendValue()) {
+                    map.put("data",pair.getMapValue());
+                }
+            } else {
+                if (context.isSendValue()) {
+                    Map<String, Object> dmap = new LinkedHashMap<String, Object>();
+                    map.put("data", dmap);
+                    for (KvPair pair : pairs) {
+                        dmap.put(pair.getId(), pair.getMapValue());
+                    }
+                } else {
+                    List<String> keys = new ArrayList<>();
+                    for (KvPair pair : pairs) {
+                        keys.add(pair.getId());
+                    }
+                    map.put("data", keys);
+                }
+            }
+        } else if (data != null) {
+            map.put("data", data);
+        }
+        String traceId = context.getTraceId();
+        if ( traceId != null) {
+            map.put("trace_id", traceId);
+        }
+
+        AccessLog.log(context, 200);
+
+        return ResponseEntity.ok(map);
+    }
+
+    /**
+     * stream writes the pairs handed to the sink straight to the response, in the same shape
+     * send builds for a batch, so only the chunk in hand is held in memory. The response is
+     * written here and null is returned to the controller. Once the first chunk is out the
+     * status can no longer change, an error after that ends the response early.
+     *
+     * @param context Context
+     * @param response HttpServletResponse
+     * @param fetcher Consumer, fetches the pairs and hands them to the sink in chunks
+     * @return null
+     */
+    public static ResponseEntity<Map<String, Object>> stream(Context context, HttpServletResponse response,
+                                                             Consumer<KvPairSink> fetcher) {
+
+        response.setStatus(200);
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+
+        try {
+            JsonGenerator generator = Utils.getObjectMapper().getFactory().createGenerator(response.getOutputStream());
+
+            generator.writeStartObject();
+            generator.writeNumberField("timestamp", System.currentTimeMillis());
+            generator.writeFieldName("data");
+
+            // opened on the first pair, so that nothing found writes {} as send does
+            boolean[] opened = {false};
+
+            fetcher.accept((pairs, anyKey) -> {
+                try {
+                    for (KvPair pair : pairs) {
+                        if (!opened[0]) {
+                            if (context.isSendValue()) {
+                                generator.writeStartObject();
+                            } else {
+                                generator.writeStartArray();
+                            }
+                            opened[0] = true;
+                        }
+                        if (context.isSendValue()) {
+                            generator.writeObjectField(pair.getId(), pair.getMapValue());
+                        } else {
+                            generator.writeString(pair.getId());
+                        }
+                    }
+                    generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            if (!opened[0]) {
+                generator.writeStartObject();
+                generator.writeEndObject();
+            } else if (context.isSendValue()) {
+                generator.writeEndObject();
+            } else {
+                generator.writeEndArray();
+            }
+            Long duration = context.getDuration();
+            if (duration != null) {
+                double db = ((double) duration) / 1000000000.0;
+                generator.writeStringField("duration", durationFormat.format(db));
+            }
+            String traceId = context.getTraceId();
+            if ( traceId != null) {
+                generator.writeStringField("trace_id", traceId);
+            }
+            generator.writeEndObject();
+            generator.close();
+
+        } catch (IOException | RuntimeException e) {
+            if (!response.isCommitted()) {
+                response.reset();
+                if (e instanceof RuntimeException) {
+                    throw (RuntimeException) e;
+                }
+                throw new UncheckedIOException((IOException) e);
+            }
+            String msg = "stream ended early: " + e.getMessage();
+            LOGGER.error(msg);
+            context.logTraceMessage(msg);
+            AccessLog.log(context, 500);
+            return null;
+        }
+
+        AccessLog.log(context, 200);
+
+        return null;
+    }
+}
@@ -95,6 +95,13 @@ public class Parser {
                 continue;
             }
 
+            if (key.equalsIgnoreCase("after")) {
+                if (values != null && values.length > 0) {
+                    queryInfo.setAfter(new ArrayList<String>(Arrays.asList(values)));
+                }
+                continue;
+            }
+
             String keyLastChar = key.substring(key.length() - 1);
             String ops = null;
 
@@ -150,7 +157,7 @@ public class Parser {
         }
         Integer limit = queryInfo.getLimit();
         Map<String, Condition> conditions = queryInfo.getConditions();
-        if (limit == null && (conditions == null || conditions.size() == 0)) {
+        if (limit == null && queryInfo.getAfter() == null && (conditions == null || conditions.size() == 0)) {
             keyInfo.setQueryKey(null);
             keyInfo.setQuery(null);
             return false;
@@ -162,6 +169,47 @@ public class Parser {
         } else {
             params.clear();
         }
+        if (conditions == null) {
+            conditions = new LinkedHashMap<String, Condition>();
+        }
+
+        // the clause only depends on the shape of the conditions,
+        // collect the params and the shape, then reuse the clause built for that shape
+        //
+        StringBuilder shape = new StringBuilder();
+        for (Map.Entry<String, Condition> entry: conditions.entrySet()) {
+            shape.append(entry.getKey()).append('\0');
+            for (Map.Entry<String, List<String>> opsEntry: entry.getValue().entrySet()) {
+                List<String> values = opsEntry.getValue();
+                if (values == null || values.size() == 0) {
+                    return false;
+                }
+                String ops = opsEntry.getKey();
+                boolean isSingle = Arrays.asList(opsSingleList).contains(ops);
+                for (String value: values) {
+                    if (value == null) {
+                        return false;
+                    }
+                    if (!isSingle) {
+                        params.add(value);
+                    }
+                }
+                shape.append(ops).append('\0').append(values.size()).append('\0');
+            }
+            shape.append('\n');
+        }
+
+        String clause = SqlCache.getClause(shape.toString());
+        if (clause == null) {
+            clause = buildQueryClause(conditions);
+            SqlCache.putClause(shape.toString(), clause);
+        }
+        keyInfo.setClause(clause);
+
+        return true;
+    }
+
+    private static String buildQueryClause(Map<String, Condition> conditions) {
         String clause = "";
         int total = 0;
         for (Map.Entry<String, Condition> entry: conditions.entrySet()) {
@@ -174,9 +222,6 @@ public class Parser {
             String exp = "";
             for (Map.Entry<String, List<String>> opsEntry: condition.entrySet()) {
                 List<String> values = opsEntry.getValue();
-                if (values == null || values.size() == 0) {
-                    return false;
-                }
                 if (count > 0) {
                     exp += " AND ";
                 }
@@ -184,10 +229,6 @@ public class Parser {
                 String subExp = "";
                 int i = 0;
                 for (; i < values.size(); i++) {
-                    String value = values.get(i);
-                    if (value == null) {
-                        return false;
-                    }
                     if (i > 0) {
                         if (Arrays.asList(opsOrList).contains(ops)) {
                             subExp += " OR ";
@@ -199,7 +240,6 @@ public class Parser {
                         subExp += ckey + " " + ops;
                     } else {
                         subExp += ckey + " " + ops + " ?";
-                        params.add(value);
                     }
                 }
                 exp += "(" + subExp + ")";
@@ -212,9 +252,7 @@ public class Parser {
             }
             total++;
         }
-        keyInfo.setClause(clause);
-
-        return true;
+        return clause;
     }
 
     // prepare SQL where clause and parameters which use primary key or unique indexes
@@ -17,11 +17,14 @@
 package com.doitincloud.rdbcache.queries;
 
 import com.doitincloud.rdbcache.configs.AppCtx;
+import com.doitincloud.rdbcache.configs.PropCfg;
+import com.doitincloud.rdbcache.exceptions.BadRequestException;
 import com.doitincloud.rdbcache.exceptions.ServerErrorException;
 import com.doitincloud.rdbcache.supports.AnyKey;
 import com.doitincloud.rdbcache.supports.Context;
 import com.doitincloud.rdbcache.supports.KvPairs;
-import com.doitincloud.commons.Utils;
+import com.doitincloud.rdbcache.supports.KvPairSink;
+import com.doitincloud.rdbcache.supports.TaskPools;
 import com.doitincloud.rdbcache.models.KeyInfo;
 import com.doitincloud.rdbcache.models.KvIdType;
 import com.doitincloud.rdbcache.models.KvPair;
@@ -29,14 +32,18 @@ import com.doitincloud.rdbcache.models.StopWatch;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.util.Assert;
 
+import java.io.UncheckedIOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.*;
@@ -45,6 +52,9 @@ public class Query {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Query.class);
 
+    // mysql takes at most 65535 placeholders in one statement
+    private static final int MAX_PARAMS = 65535;
+
     private Context context;
 
     private JdbcTemplate jdbcTemplate;
@@ -57,6 +67,14 @@ public class Query {
 
     private List<Object> params;
 
+    private String selectClause;
+
+    private int selectLimit;
+
+    private List<String> keysetIndexes;
+
+    private List<Object> keysetAfter;
+
     public Query(Context context, JdbcTemplate jdbcTemplate, KvPairs pairs, AnyKey anyKey) {
         this.context = context;
         this.jdbcTemplate = jdbcTemplate;
@@ -128,19 +146,22 @@ public class Query {
 
         int limit = getLimit();
 
-        sql = "select * from " + table;
+        QueryInfo queryInfo = keyInfo.getQuery();
 
-        if (clause != null && clause.length() > 0) {
-            sql += " where " + clause;
-        }
-        if (limit != 0) {
-            sql += " limit " + limit;
+        // rows overwrite the clause and params of the key info, keep them for the next pages
+        //
+        selectClause = clause;
+        selectLimit = limit;
+
+        if (ifKeysetOk(keyInfo, queryInfo, limit)) {
+            sql = SqlCache.getKeysetSelectSql(table, clause, keysetIndexes, keysetAfter != null, getPageLimit(limit));
+        } else {
+            sql = SqlCache.getSelectSql(table, clause, limit);
         }
 
-        QueryInfo queryInfo = keyInfo.getQuery();
         if (queryInfo != null) {
             keyInfo.setQuery(null);
-            Utils.getExcutorService().submit(() -> {
+            TaskPools.getDbasePool().submit(() -> {
                 Thread.yield();
                 AppCtx.getDbaseOps().saveQuery(context, queryInfo);
             });
@@ -150,70 +171,443 @@ public class Query {
     }
 
     public boolean executeSelect() {
+        return executeSelect(null);
+    }
+
+    // rows are mapped, converted and handed over one by one as the driver reads them,
+    // no result list is built. with a sink, found rows are handed over stream_chunk_size
+    // at a time instead of being added to pairs and anyKey. a keyset select runs one
+    // statement per page, each starting after the last row of the previous page
+    //
+    public boolean executeSelect(KvPairSink sink) {
 
         KeyInfo keyInfo = anyKey.getKeyInfo();
         String table = keyInfo.getTable();
 
-        LOGGER.trace("sql: " + sql);
-        LOGGER.trace("params: " + (params != null ? params.toString() : "null"));
+        SelectHandler handler = new SelectHandler(table, sink);
 
-        List<Map<String, Object>> list = null;
-        StopWatch stopWatch = context.startStopWatch("dbase", "jdbcTemplate.queryForList");
+        StopWatch stopWatch = context.startStopWatch("dbase", "jdbcTemplate.query");
         try {
-            if (params != null) {
-                list = jdbcTemplate.queryForList(sql, params.toArray());
-            } else {
-                list = jdbcTemplate.queryForList(sql);
+            String pageSql = sql;
+            int remaining = selectLimit;
+
+            while (true) {
+
+                List<Object> pageParams = new ArrayList<>();
+                if (params != null) {
+                    pageParams.addAll(params);
+                }
+                if (keysetAfter != null) {
+                    pageParams.addAll(getKeysetParams(keysetAfter));
+                }
+
+                if (LOGGER.isTraceEnabled()) {
+                    LOGGER.trace("sql: " + pageSql);
+                }
+                if (LOGGER.isTraceEnabled()) {
+                    LOGGER.trace("params: " + pageParams.toString());
+                }
+
+                int before = handler.count;
+                select(pageSql, pageParams, handler);
+                int pageCount = handler.count - before;
+
+                if (keysetIndexes == null) {
+                    break;
+                }
+                int pageLimit = getPageLimit(remaining);
+                if (pageLimit == 0 || pageCount < pageLimit) {
+                    break;
+                }
+                if (remaining > 0) {
+                    remaining -= pageCount;
+                    if (remaining <= 0) {
+                        break;
+                    }
+                }
+                keysetAfter = handler.lastValues;
+                pageSql = SqlCache.getKeysetSelectSql(table, selectClause, keysetIndexes, true, getPageLimit(remaining));
             }
             if (stopWatch != null) stopWatch.stopNow();
 
-            if (list != null && list.size() > 0) {
+            handler.flush();
 
-                for (int i = 0; i < list.size(); i++) {
+            return handler.count > 0;
 
-                    KvPair pair = pairs.getAny(i);
-                    if (pair.getType().equals("data")) {
-                        pair.setType(table);
-                    }
-                    pair.setData(list.get(i));
-                    keyInfo = anyKey.getAny(i);
-
-                    //convertDbMap will be called within prepareStandardClauseParams
-                    //
-                    if (!Parser.prepareStandardClauseParams(context, pair, keyInfo)) {
-                        String msg = "executeSelect failed when prepareStandardClauseParams for " + pair.getId();
-                        LOGGER.error(msg);
-                        context.logTraceMessage(msg);
-                        if (context.isSync()) {
-                            throw new ServerErrorException(context, msg);
-                        }
-                    }
+        } catch (UncheckedIOException e) {
+
+            // the sink failed to write out a chunk, there is no one to hand the rest to
+            //
+            throw e;
+
+        } catch (Exception e) {
+            if (stopWatch != null) stopWatch.stopNow();
+
+            e.printStackTrace();
+            String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            LOGGER.error(msg);
+            context.logTraceMessage(msg);
+            if (context.isSync()) {
+                throw new ServerErrorException(context, msg);
+            }
+        }
+
+        return false;
+    }
+
+    private void select(final String sql, final List<Object> params, final RowCallbackHandler handler) {
+
+        final int fetchSize = getFetchSize();
+
+        jdbcTemplate.query(new PreparedStatementCreator() {
+
+            @Override
+            public PreparedStatement createPreparedStatement(Connection connection) throws SQLException {
+                PreparedStatement ps;
+                ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                if (fetchSize != 0) {
+                    ps.setFetchSize(fetchSize);
+                }
+                int i = 1;
+                for (Object param : params) {
+                    ps.setObject(i++, param);
+                }
+                return ps;
+            }
+        }, handler);
+    }
+
+    // maps each row as it is read, and keeps the primary index values of the last row
+    // for the next keyset page
+    //
+    private class SelectHandler implements RowCallbackHandler {
+
+        private final ColumnMapRowMapper rowMapper = new ColumnMapRowMapper();
+
+        private final String table;
+
+        private final KvPairSink sink;
+
+        private KvPairs chunkPairs = new KvPairs();
+
+        private AnyKey chunkAnyKey = new AnyKey();
+
+        private int count = 0;
+
+        private List<Object> lastValues;
+
+        SelectHandler(String table, KvPairSink sink) {
+            this.table = table;
+            this.sink = sink;
+        }
 
-                    LOGGER.trace("found " + pair.getId() + " from " + table);
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+
+            Map<String, Object> row = rowMapper.mapRow(rs, count);
+
+            if (keysetIndexes != null) {
+                lastValues = new ArrayList<>();
+                for (String indexKey: keysetIndexes) {
+                    lastValues.add(row.get(indexKey));
                 }
+            }
 
-                return true;
+            KvPair pair = null;
+            KeyInfo keyInfo = null;
+            if (sink == null) {
+                pair = pairs.getAny(count);
+                keyInfo = anyKey.getAny(count);
+            } else {
+                pair = nextPair(count);
+                keyInfo = nextKeyInfo(count);
             }
+            count++;
+
+            if (pair.getType().equals("data")) {
+                pair.setType(table);
+            }
+            pair.setData(row);
+
+            //convertDbMap will be called within prepareStandardClauseParams
+            //
+            if (!Parser.prepareStandardClauseParams(context, pair, keyInfo)) {
+                String msg = "executeSelect failed when prepareStandardClauseParams for " + pair.getId();
+                LOGGER.error(msg);
+                context.logTraceMessage(msg);
+                if (context.isSync()) {
+                    throw new ServerErrorException(context, msg);
+                }
+            }
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("found " + pair.getId() + " from " + table);
+            }
+
+            if (sink != null) {
+                chunkPairs.add(pair);
+                chunkAnyKey.add(keyInfo);
+                if (chunkPairs.size() >= PropCfg.getStreamChunkSize()) {
+                    flush();
+                }
+            }
+        }
+
+        void flush() {
+            if (sink == null || chunkPairs.size() == 0) {
+                return;
+            }
+            sink.accept(chunkPairs, chunkAnyKey);
+            chunkPairs = new KvPairs();
+            chunkAnyKey = new AnyKey();
+        }
+    }
+
+    // a query select pages through the table in primary index order, when the client
+    // passes after, or when the limit is larger than a page
+    //
+    private boolean ifKeysetOk(KeyInfo keyInfo, QueryInfo queryInfo, int limit) {
+
+        keysetIndexes = null;
+        keysetAfter = null;
+
+        if (pairs.size() > 0) {
+            return false;
+        }
+
+        List<String> after = queryInfo != null ? queryInfo.getAfter() : null;
+        Integer pageSize = PropCfg.getSelectPageSize();
+        boolean paged = pageSize != null && pageSize > 0 && (limit == 0 || limit > pageSize);
+        if (after == null && !paged) {
+            return false;
+        }
+
+        List<String> indexes = keyInfo.getPrimaryIndexes();
+        if (indexes == null || indexes.size() == 0) {
+            return false;
+        }
+
+        if (after != null) {
+            if (after.size() != indexes.size()) {
+                throw new BadRequestException(context, "after needs one value for each of " + String.join(", ", indexes));
+            }
+            keysetAfter = new ArrayList<>(after);
+        }
+        keysetIndexes = indexes;
+
+        return true;
+    }
+
+    // the params of SqlCache keyset clause, (a > ?) OR (a = ? AND b > ?) ...
+    //
+    private List<Object> getKeysetParams(List<Object> values) {
+        List<Object> list = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            for (int j = 0; j <= i; j++) {
+                list.add(values.get(j));
+            }
+        }
+        return list;
+    }
+
+    private int getPageLimit(int remaining) {
+        Integer pageSize = PropCfg.getSelectPageSize();
+        if (pageSize == null || pageSize <= 0) {
+            return remaining;
+        }
+        if (remaining == 0 || remaining > pageSize) {
+            return pageSize;
+        }
+        return remaining;
+    }
+
+    // mysql reads the whole result into memory, a page at most, unless the url turns on server
+    // side cursors for a real fetch size. Streaming row by row with Integer.MIN_VALUE is opt-in,
+    // it holds the pool connection until the last row is read, a slow client included
+    //
+    int getFetchSize() {
+        Integer fetchSize = PropCfg.getSelectFetchSize();
+        if (fetchSize == null || fetchSize <= 0) {
+            return 0;
+        }
+        if ("mysql".equals(AppCtx.getDbaseOps().getDatabaseType())) {
+            String url = PropCfg.getDatasourceUrl();
+            if (url == null || url.indexOf("useCursorFetch=true") < 0) {
+                return PropCfg.getEnableMysqlRowStreaming() ? Integer.MIN_VALUE : 0;
+            }
+        }
+        return fetchSize;
+    }
+
+    // same pair as pairs.getAny(index), without adding it to pairs
+    //
+    private KvPair nextPair(int index) {
+        if (index < pairs.size()) {
+            return pairs.get(index);
+        }
+        if (pairs.size() == 0) {
+            return new KvPair("*");
+        }
+        return new KvPair("*", pairs.get(0).getType());
+    }
+
+    // same key info as anyKey.getAny(index), without adding it to anyKey
+    //
+    private KeyInfo nextKeyInfo(int index) {
+        if (index < anyKey.size()) {
+            return anyKey.get(index);
+        }
+        KeyInfo keyInfo = anyKey.get(0).clone();
+        keyInfo.setIsNew(true);
+        keyInfo.clearParams();
+        return keyInfo;
+    }
+
+    public boolean ifMultiSelectOk() {
+
+        if (anyKey.size() < 2 || anyKey.size() != pairs.size()) {
+            return false;
+        }
+
+        KeyInfo keyInfo = anyKey.getKeyInfo();
+
+        String table = keyInfo.getTable();
+        if (table == null) {
+            return false;
+        }
+
+        List<String> indexes = keyInfo.getPrimaryIndexes();
+        if (indexes == null || indexes.size() == 0) {
+            return false;
+        }
+
+        String stdClause = SqlCache.getStandardClause(indexes);
+
+        // only keys already resolved to the primary index can share one statement
+        //
+        params = new ArrayList<>();
+        for (KeyInfo info: anyKey) {
+            if (!table.equals(info.getTable()) || info.getQuery() != null || info.getQueryKey() == null) {
+                return false;
+            }
+            String clause = info.getClause();
+            List<Object> infoParams = info.getParams();
+            if (clause == null || infoParams == null || infoParams.size() != indexes.size()) {
+                return false;
+            }
+            if (!clause.equals(stdClause) && !clause.equals("(" + stdClause + ")")) {
+                return false;
+            }
+            params.addAll(infoParams);
+        }
+
+        // round the key count up to a power of 2 by repeating the last key,
+        // so batches of similar size share the same statement text
+        //
+        int count = 2;
+        while (count < anyKey.size()) {
+            count *= 2;
+        }
+        List<Object> lastParams = anyKey.get(anyKey.size() - 1).getParams();
+        for (int i = anyKey.size(); i < count; i++) {
+            params.addAll(lastParams);
+        }
+
+        sql = SqlCache.getMultiSelectSql(table, indexes, count);
+
+        return true;
+    }
+
+    // returns the found flag of each pair in order, or null on error
+    //
+    public boolean[] executeMultiSelect() {
+
+        KeyInfo keyInfo = anyKey.getKeyInfo();
+        String table = keyInfo.getTable();
+        List<String> indexes = keyInfo.getPrimaryIndexes();
+        Map<String, Object> columns = keyInfo.getColumns();
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("sql: " + sql);
+        }
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("params: " + params.toString());
+        }
+
+        List<Map<String, Object>> list = null;
+        StopWatch stopWatch = context.startStopWatch("dbase", "jdbcTemplate.queryForList");
+        try {
+            list = jdbcTemplate.queryForList(sql, params.toArray());
+            if (stopWatch != null) stopWatch.stopNow();
+
         } catch (Exception e) {
             if (stopWatch != null) stopWatch.stopNow();
 
             e.printStackTrace();
-            String msg = e.getCause().getMessage();
+            String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
             LOGGER.error(msg);
             context.logTraceMessage(msg);
             if (context.isSync()) {
                 throw new ServerErrorException(context, msg);
             }
+            return null;
         }
 
-        return false;
+        // rows come back in any order, match them to the pairs by primary index values
+        //
+        Map<List<String>, Map<String, Object>> rows = new HashMap<>();
+        for (Map<String, Object> row: list) {
+            AppCtx.getDbaseOps().convertDbMap(columns, row);
+            List<String> rowKey = new ArrayList<>();
+            for (String indexKey: indexes) {
+                rowKey.add(String.valueOf(row.get(indexKey)));
+            }
+            rows.put(rowKey, row);
+        }
+
+        boolean[] founds = new boolean[pairs.size()];
+
+        for (int i = 0; i < pairs.size(); i++) {
+
+            KvPair pair = pairs.get(i);
+            keyInfo = anyKey.get(i);
+
+            List<String> paramsKey = new ArrayList<>();
+            for (Object param: keyInfo.getParams()) {
+                paramsKey.add(String.valueOf(param));
+            }
+
+            Map<String, Object> row = rows.get(paramsKey);
+            if (row == null) {
+                continue;
+            }
+
+            if (pair.getType().equals("data")) {
+                pair.setType(table);
+            }
+            pair.setData(new LinkedHashMap<>(row));
+
+            if (!Parser.prepareStandardClauseParams(context, pair, keyInfo)) {
+                String msg = "executeMultiSelect failed when prepareStandardClauseParams for " + pair.getId();
+                LOGGER.error(msg);
+                context.logTraceMessage(msg);
+                if (context.isSync()) {
+                    throw new ServerErrorException(context, msg);
+                }
+            }
+
+            founds[i] = true;
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("found " + pair.getId() + " from " + table);
+            }
+        }
+
+        return founds;
     }
 
     public boolean ifInsertOk() {
 
-        Assert.isTrue(anyKey.size() == 1, "anyKey.size() = " +
-                anyKey.size() + ", insert only supports anyKey size == 1");
-
         KeyInfo keyInfo = anyKey.getKeyInfo();
 
         String table = keyInfo.getTable();
@@ -221,6 +615,14 @@ public class Query {
             return false;
         }
 
+        // a batch insert only works within one table
+        //
+        for (int i = 1; i < anyKey.size(); i++) {
+            if (!table.equals(anyKey.get(i).getTable())) {
+                return false;
+            }
+        }
+
         String queryKey = keyInfo.getQueryKey();
         if (queryKey == null) {
             return false;
@@ -234,7 +636,19 @@ public class Query {
         params = new ArrayList<>();
         boolean allOk = true;
 
-        for (int i = 0; i < pairs.size(); i++) {
+        int size = pairs.size();
+        String[] autoIncKeys = new String[size];
+        boolean[] cacheUpdates = new boolean[size];
+        int[] rowCounts = new int[size];
+
+        // rows of the same table and column set share one sql, and are sent in one multiple rows
+        // statement, a single round trip whether or not the driver rewrites jdbc batches
+        //
+        Map<String, List<Integer>> sqlIndexes = new LinkedHashMap<>();
+        Map<String, List<Object[]>> sqlParams = new LinkedHashMap<>();
+        Map<String, List<String>> sqlFields = new LinkedHashMap<>();
+
+        for (int i = 0; i < size; i++) {
 
             KvPair pair  = pairs.get(i);
             KeyInfo keyInfo = anyKey.getAny(i);
@@ -243,83 +657,114 @@ public class Query {
             Map<String, Object> map = pair.getData();
 
             String autoIncKey = AppCtx.getDbaseOps().getTableAutoIncColumn(context, table);
-            boolean cacheUpdate = false;
+            autoIncKeys[i] = autoIncKey;
             if (!map.containsKey(autoIncKey) && keyInfo.getParams() != null && keyInfo.getParams().size() == 1) {
                 String stdClause = "(" + autoIncKey + " = ?)";
                 if (stdClause.equals(keyInfo.getClause())) {
                     map.put(autoIncKey, keyInfo.getParams().get(0));
-                    cacheUpdate = true;
+                    cacheUpdates[i] = true;
                 }
             }
 
             Map<String, Object> columns = keyInfo.getColumns();
             AppCtx.getDbaseOps().convertDbMap(columns, map);
 
-            String fields = "", values = "", update = "";
-            List<Object> tempParams = new ArrayList<>();
-            for (Map.Entry<String, Object> entry : map.entrySet()) {
-                tempParams.add(entry.getValue());
-                if (fields.length() != 0) {
-                    fields += ", ";
-                    values += ", ";
-                    update += ", ";
-                }
-                fields += entry.getKey();
-                values += "?";
-                update += entry.getKey() + " = ?";
-            }
+            // columns in a fixed order, so rows of any input field order share one statement
+            //
+            List<String> fields = new ArrayList<>(map.keySet());
+            Collections.sort(fields);
 
             params.clear();
-            params.addAll(tempParams);
-            params.addAll(tempParams);
+            for (String field: fields) {
+                params.add(map.get(field));
+            }
 
-            sql = "insert into " + table + " (" + fields + ") values (" + values + ") on duplicate key update " + update;
+            sql = SqlCache.getInsertSql(table, fields);
 
-            LOGGER.trace("sql: " + sql);
-            LOGGER.trace("params: " + params.toString());
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("sql: " + sql);
+            }
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("params: " + params.toString());
+            }
 
-            int rowCount = 0;
-            KeyHolder keyHolder = new GeneratedKeyHolder();
+            List<Integer> indexes = sqlIndexes.get(sql);
+            if (indexes == null) {
+                indexes = new ArrayList<>();
+                sqlIndexes.put(sql, indexes);
+                sqlParams.put(sql, new ArrayList<>());
+                sqlFields.put(sql, fields);
+            }
+            indexes.add(i);
+            sqlParams.get(sql).add(params.toArray());
+        }
 
-            StopWatch stopWatch = context.startStopWatch("dbase", "jdbcTemplate.update");
-            try {
-                rowCount = jdbcTemplate.update(new PreparedStatementCreator() {
+        for (Map.Entry<String, List<Integer>> entry: sqlIndexes.entrySet()) {
 
-                    @Override
-                    public PreparedStatement createPreparedStatement(Connection connection) throws SQLException {
-                        PreparedStatement ps;
-                        ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                        int i = 1;
-                        for (Object param : params) {
-                            ps.setObject(i++, param);
-                        }
-                        return ps;
-                    }
-                }, keyHolder);
-                if (stopWatch != null) stopWatch.stopNow();
+            sql = entry.getKey();
+            List<Integer> indexes = entry.getValue();
+            List<Object[]> paramsList = sqlParams.get(sql);
 
-            } catch (Exception e) {
-                if (stopWatch != null) stopWatch.stopNow();
+            int first = indexes.get(0);
+            String table = anyKey.getAny(first).getTable();
+            String autoIncKey = autoIncKeys[first];
 
-                allOk = false;
+            // rows of one statement have the same columns, they all need a generated key or none does.
+            // the keys of the rows are found by a unique key after the statement, without one the
+            // rows are inserted one by one, to get the generated key of each
+            //
+            List<String> uniqueKey = null;
+            boolean oneByOne = indexes.size() == 1;
+            if (!oneByOne && autoIncKey != null && !pairs.get(first).getData().containsKey(autoIncKey)) {
+                uniqueKey = getUniqueKey(table, autoIncKey, indexes);
+                oneByOne = uniqueKey == null;
+            }
 
-                String msg = e.getCause().getMessage();
-                LOGGER.error(msg);
-                context.logTraceMessage(msg);
-                if (context.isSync()) {
-                    throw new ServerErrorException(context, msg);
+            if (oneByOne) {
+                for (int j = 0; j < indexes.size(); j++) {
+                    int index = indexes.get(j);
+                    KeyHolder keyHolder = new GeneratedKeyHolder();
+                    rowCounts[index] = insertOne(sql, upsertParams(paramsList.get(j)), keyHolder);
+                    if (rowCounts[index] < 0) {
+                        allOk = false;
+                    } else if (rowCounts[index] > 0 && autoIncKeys[index] != null && keyHolder.getKey() != null) {
+                        pairs.get(index).getData().put(autoIncKeys[index], String.valueOf(keyHolder.getKey()));
+                        cacheUpdates[index] = true;
+                    }
                 }
+                continue;
             }
 
-            if (rowCount > 0) {
+            if (!insertRows(table, sqlFields.get(sql), paramsList)) {
+                allOk = false;
+                continue;
+            }
 
-                if (autoIncKey != null && keyHolder.getKey() != null) {
-                    String keyValue = String.valueOf(keyHolder.getKey());
-                    map.put(autoIncKey, keyValue);
-                    cacheUpdate = true;
+            // the statement reports the rows changed in total, an upsert counts an updated row twice
+            // and an unchanged one not at all, so the generated keys can not be mapped back to rows.
+            // the rows missing the auto increment column look up their keys by the unique key
+            //
+            List<Integer> missings = new ArrayList<>();
+            for (int index: indexes) {
+                rowCounts[index] = 1;
+                if (autoIncKey != null && !pairs.get(index).getData().containsKey(autoIncKey)) {
+                    missings.add(index);
                 }
+            }
+            if (missings.size() > 0) {
+                selectAutoIncKeys(table, autoIncKey, uniqueKey, missings, cacheUpdates);
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
 
-                if (cacheUpdate) {
+            KvPair pair  = pairs.get(i);
+            KeyInfo keyInfo = anyKey.getAny(i);
+            String table = keyInfo.getTable();
+
+            if (rowCounts[i] > 0) {
+
+                if (cacheUpdates[i]) {
                     if (enableLocal) {
                         AppCtx.getCacheOps().putData(pair, keyInfo);
                     }
@@ -337,7 +782,9 @@ public class Query {
                     }
                 }
 
-                LOGGER.trace("inserted " + pair.getId() + " into " + table);
+                if (LOGGER.isTraceEnabled()) {
+                    LOGGER.trace("inserted " + pair.getId() + " into " + table);
+                }
 
             } else {
 
@@ -350,6 +797,227 @@ public class Query {
         return allOk;
     }
 
+    // a unique index without the auto increment column, which every row has values for
+    //
+    private List<String> getUniqueKey(String table, String autoIncKey, List<Integer> indexes) {
+
+        Map<String, Object> tableIndexes = AppCtx.getDbaseOps().getTableIndexes(context, table);
+        if (tableIndexes == null) {
+            return null;
+        }
+
+        for (Object value: tableIndexes.values()) {
+            @SuppressWarnings("unchecked")
+            List<String> columns = (List<String>) value;
+            if (columns.contains(autoIncKey)) {
+                continue;
+            }
+            boolean hasValues = true;
+            for (int i = 0; hasValues && i < indexes.size(); i++) {
+                Map<String, Object> map = pairs.get(indexes.get(i)).getData();
+                for (String column: columns) {
+                    if (map.get(column) == null) {
+                        hasValues = false;
+                        break;
+                    }
+                }
+            }
+            if (hasValues) {
+                return columns;
+            }
+        }
+        return null;
+    }
+
+    // returns the auto increment column value of the row with the unique key values of map, or null
+    //
+    private Object selectAutoIncKey(String table, String autoIncKey, List<String> uniqueKey, Map<String, Object> map) {
+
+        String selectSql = SqlCache.getColumnSelectSql(table, autoIncKey, uniqueKey);
+        List<Object> selectParams = new ArrayList<>();
+        for (String column: uniqueKey) {
+            selectParams.add(map.get(column));
+        }
+
+        StopWatch stopWatch = context.startStopWatch("dbase", "jdbcTemplate.queryForList");
+        try {
+            List<Object> keys = jdbcTemplate.queryForList(selectSql, Object.class, selectParams.toArray());
+            if (stopWatch != null) stopWatch.stopNow();
+            return keys.size() == 1 ? keys.get(0) : null;
+
+        } catch (Exception e) {
+            if (stopWatch != null) stopWatch.stopNow();
+
+            String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            LOGGER.error(msg);
+            context.logTraceMessage(msg);
+            return null;
+        }
+    }
+
+    // returns the row count, or -1 on error
+    //
+    private int insertOne(final String sql, final Object[] params, KeyHolder keyHolder) {
+
+        int rowCount = 0;
+
+        StopWatch stopWatch = context.startStopWatch("dbase", "jdbcTemplate.update");
+        try {
+            rowCount = jdbcTemplate.update(new PreparedStatementCreator() {
+
+                @Override
+                public PreparedStatement createPreparedStatement(Connection connection) throws SQLException {
+                    PreparedStatement ps;
+                    ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                    int i = 1;
+                    for (Object param : params) {
+                        ps.setObject(i++, param);
+                    }
+                    return ps;
+                }
+            }, keyHolder);
+            if (stopWatch != null) stopWatch.stopNow();
+
+        } catch (Exception e) {
+            if (stopWatch != null) stopWatch.stopNow();
+
+            String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            LOGGER.error(msg);
+            context.logTraceMessage(msg);
+            if (context.isSync()) {
+                throw new ServerErrorException(context, msg);
+            }
+            return -1;
+        }
+
+        return rowCount;
+    }
+
+    // the single row upsert binds the values twice, for insert and for update
+    //
+    private static Object[] upsertParams(Object[] values) {
+        Object[] upsert = Arrays.copyOf(values, values.length * 2);
+        System.arraycopy(values, 0, upsert, values.length, values.length);
+        return upsert;
+    }
+
+    // inserts the rows with as few multiple rows statements as the placeholder limit allows,
+    // returns false on error
+    //
+    private boolean insertRows(String table, List<String> fields, List<Object[]> paramsList) {
+
+        int chunk = Math.max(1, MAX_PARAMS / fields.size());
+
+        for (int from = 0; from < paramsList.size(); from += chunk) {
+
+            int to = Math.min(from + chunk, paramsList.size());
+            final String rowsSql = SqlCache.getMultiInsertSql(table, fields, to - from);
+            final List<Object> rowsParams = new ArrayList<>();
+            for (int j = from; j < to; j++) {
+                rowsParams.addAll(Arrays.asList(paramsList.get(j)));
+            }
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("sql: " + rowsSql);
+            }
+
+            StopWatch stopWatch = context.startStopWatch("dbase", "jdbcTemplate.update");
+            try {
+                jdbcTemplate.update(new PreparedStatementCreator() {
+
+                    @Override
+                    public PreparedStatement createPreparedStatement(Connection connection) throws SQLException {
+                        PreparedStatement ps = connection.prepareStatement(rowsSql);
+                        int i = 1;
+                        for (Object param : rowsParams) {
+                            ps.setObject(i++, param);
+                        }
+                        return ps;
+                    }
+                });
+                if (stopWatch != null) stopWatch.stopNow();
+
+            } catch (Exception e) {
+                if (stopWatch != null) stopWatch.stopNow();
+
+                String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                LOGGER.error(msg);
+                context.logTraceMessage(msg);
+                if (context.isSync()) {
+                    throw new ServerErrorException(context, msg);
+                }
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // looks up the auto increment column values of the rows at indexes by their unique key values,
+    // in one select for all the rows. a row the select does not match, as the database may compare
+    // the values differently from their text, is looked up by itself
+    //
+    private void selectAutoIncKeys(String table, String autoIncKey, List<String> uniqueKey,
+                                   List<Integer> indexes, boolean[] cacheUpdates) {
+
+        Map<List<String>, Object> keys = new HashMap<>();
+
+        int chunk = Math.max(1, MAX_PARAMS / uniqueKey.size());
+
+        for (int from = 0; from < indexes.size(); from += chunk) {
+
+            int to = Math.min(from + chunk, indexes.size());
+            String selectSql = SqlCache.getMultiSelectSql(table, uniqueKey, to - from);
+            List<Object> selectParams = new ArrayList<>();
+            for (int j = from; j < to; j++) {
+                Map<String, Object> map = pairs.get(indexes.get(j)).getData();
+                for (String column: uniqueKey) {
+                    selectParams.add(map.get(column));
+                }
+            }
+
+            StopWatch stopWatch = context.startStopWatch("dbase", "jdbcTemplate.queryForList");
+            try {
+                List<Map<String, Object>> rows = jdbcTemplate.queryForList(selectSql, selectParams.toArray());
+                if (stopWatch != null) stopWatch.stopNow();
+
+                for (Map<String, Object> row: rows) {
+                    List<String> rowKey = new ArrayList<>();
+                    for (String column: uniqueKey) {
+                        rowKey.add(String.valueOf(row.get(column)));
+                    }
+                    keys.put(rowKey, row.get(autoIncKey));
+                }
+
+            } catch (Exception e) {
+                if (stopWatch != null) stopWatch.stopNow();
+
+                String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                LOGGER.error(msg);
+                context.logTraceMessage(msg);
+            }
+        }
+
+        for (int index: indexes) {
+
+            Map<String, Object> map = pairs.get(index).getData();
+
+            List<String> mapKey = new ArrayList<>();
+            for (String column: uniqueKey) {
+                mapKey.add(String.valueOf(map.get(column)));
+            }
+
+            Object key = keys.get(mapKey);
+            if (key == null) {
+                key = selectAutoIncKey(table, autoIncKey, uniqueKey, map);
+            }
+            if (key != null) {
+                map.put(autoIncKey, String.valueOf(key));
+                cacheUpdates[index] = true;
+            }
+        }
+    }
+
     public boolean ifUpdateOk() {
 
         Assert.isTrue(anyKey.size() == pairs.size(), anyKey.size() + " != " +
@@ -376,6 +1044,11 @@ public class Query {
 
         boolean allOk = true;
 
+        // statements of the same shape are sent in one jdbc batch
+        //
+        Map<String, List<Integer>> sqlIndexes = new LinkedHashMap<>();
+        Map<String, List<Object[]>> sqlParams = new LinkedHashMap<>();
+
         for (int i = 0; i < pairs.size(); i++) {
 
             KvPair pair  = pairs.get(i);
@@ -400,43 +1073,61 @@ public class Query {
             }
 
             Map<String, Object> map = pair.getData();
+            List<String> fields = new ArrayList<>(map.keySet());
+            Collections.sort(fields);
+
             params.clear();
-            String updates = "";
-            for (Map.Entry<String, Object> entry: map.entrySet()) {
-                params.add(entry.getValue());
-                if (updates.length() != 0) updates += ", ";
-                updates += entry.getKey() + " = ?";
+            for (String field: fields) {
+                params.add(map.get(field));
             }
 
             params.addAll(keyInfo.getParams());
             String clause = keyInfo.getClause();
 
-            sql = "update " + table + " set " + updates + " where " + clause + " limit 1";
+            sql = SqlCache.getUpdateSql(table, fields, clause);
 
-            LOGGER.trace("sql: " + sql);
-            LOGGER.trace("params: " + params.toString());
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("sql: " + sql);
+            }
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("params: " + params.toString());
+            }
 
-            StopWatch stopWatch = context.startStopWatch("dbase", "jdbcTemplate.update");
-            try {
-                if (jdbcTemplate.update(sql, params.toArray()) > 0) {
-                    if (stopWatch != null) stopWatch.stopNow();
+            List<Integer> indexes = sqlIndexes.get(sql);
+            if (indexes == null) {
+                indexes = new ArrayList<>();
+                sqlIndexes.put(sql, indexes);
+                sqlParams.put(sql, new ArrayList<>());
+            }
+            indexes.add(i);
+            sqlParams.get(sql).add(params.toArray());
+        }
 
-                    LOGGER.trace("update " + pair.getId() + " from " + table);
+        for (Map.Entry<String, List<Integer>> entry: sqlIndexes.entrySet()) {
 
-                    continue;
+            sql = entry.getKey();
+            List<Integer> indexes = entry.getValue();
+            List<Object[]> paramsList = sqlParams.get(sql);
 
-                } else {
-                    if (stopWatch != null) stopWatch.stopNow();
+            int[] counts = null;
 
-                    allOk = false;
+            StopWatch stopWatch = null;
+            try {
+                if (indexes.size() == 1) {
+                    stopWatch = context.startStopWatch("dbase", "jdbcTemplate.update");
+                    counts = new int[]{ jdbcTemplate.update(sql, paramsList.get(0)) };
+                } else {
+                    stopWatch = context.startStopWatch("dbase", "jdbcTemplate.batchUpdate");
+                    counts = jdbcTemplate.batchUpdate(sql, paramsList);
                 }
+                if (stopWatch != null) stopWatch.stopNow();
 
             } catch (Exception e) {
                 if (stopWatch != null) stopWatch.stopNow();
 
                 allOk = false;
 
-                String msg = e.getCause().getMessage();
+                String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
                 LOGGER.error(msg);
                 context.logTraceMessage(msg);
                 e.printStackTrace();
@@ -445,7 +1136,26 @@ public class Query {
                 }
             }
 
-            keyInfo.setQueryKey(null);
+            for (int j = 0; j < indexes.size(); j++) {
+
+                int index = indexes.get(j);
+                KvPair pair  = pairs.get(index);
+                KeyInfo keyInfo = anyKey.getAny(index);
+
+                if (counts != null && j < counts.length &&
+                        (counts[j] > 0 || counts[j] == Statement.SUCCESS_NO_INFO)) {
+
+                    if (LOGGER.isTraceEnabled()) {
+                        LOGGER.trace("update " + pair.getId() + " from " + keyInfo.getTable());
+                    }
+
+                    continue;
+                }
+
+                allOk = false;
+
+                keyInfo.setQueryKey(null);
+            }
         }
 
         return allOk;
@@ -497,10 +1207,14 @@ public class Query {
             params = keyInfo.getParams();
             String clause =  keyInfo.getClause();
 
-            sql = "delete from " + table + " where " + clause + " limit 1";
+            sql = SqlCache.getDeleteSql(table, clause);
 
-            LOGGER.trace("sql: " + sql);
-            LOGGER.trace("params: " + params.toString());
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("sql: " + sql);
+            }
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("params: " + params.toString());
+            }
 
             StopWatch stopWatch = context.startStopWatch("dbase", "jdbcTemplate.delete");
             try {
@@ -33,6 +33,10 @@ public class QueryInfo {
 
     private Integer limit;
 
+    // primary index values of the last row already read, rows come after it in index order
+    //
+    private List<String> after;
+
     @JsonIgnore
     private String key;
 
@@ -79,6 +83,14 @@ public class QueryInfo {
         this.limit = limit;
     }
 
+    public List<String> getAfter() {
+        return after;
+    }
+
+    public void setAfter(List<String> after) {
+        this.after = after;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -88,6 +100,7 @@ public class QueryInfo {
 
         if (table != null ? !table.equals(queryInfo.table) : queryInfo.table != null) return false;
         if (conditions != null ? !conditions.equals(queryInfo.conditions) : queryInfo.conditions != null) return false;
+        if (after != null ? !after.equals(queryInfo.after) : queryInfo.after != null) return false;
         return limit != null ? limit.equals(queryInfo.limit) : queryInfo.limit == null;
     }
 
@@ -96,6 +109,7 @@ public class QueryInfo {
         int result = table != null ? table.hashCode() : 0;
         result = 31 * result + (conditions != null ? conditions.hashCode() : 0);
         result = 31 * result + (limit != null ? limit.hashCode() : 0);
+        result = 31 * result + (after != null ? after.hashCode() : 0);
         return result;
     }
 
@@ -107,6 +121,9 @@ public class QueryInfo {
             s2 = s2.replace("\"", "");
         }
         String s1 = (limit == null ? "" : "limit: " + limit);
+        if (after != null) {
+            s1 += (s1.length() > 0 ? " " : "") + "after: " + String.join(",", after);
+        }
         if (s1.length() > 0) return s1 + " " + s2;
         else return s2;
     }
@@ -0,0 +1,254 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.doitincloud.rdbcache.queries;
+
+import com.doitincloud.rdbcache.configs.PropCfg;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// generated sql statements and where clauses, keyed by their shape,
+// so the hot path only binds parameters and the driver sees stable statement text
+//
+public class SqlCache {
+
+    private static final Map<String, String> cache = new ConcurrentHashMap<>();
+
+    public static String getSelectSql(String table, String clause, int limit) {
+        String key = "select|" + table + "|" + clause + "|" + limit;
+        String sql = cache.get(key);
+        if (sql == null) {
+            sql = "select * from " + table;
+            if (clause != null && clause.length() > 0) {
+                sql += " where " + clause;
+            }
+            if (limit != 0) {
+                sql += " limit " + limit;
+            }
+            put(key, sql);
+        }
+        return sql;
+    }
+
+    // one page of a keyset scan, ordered by the primary index. with after, the page starts
+    // past the index values of the last row read, so the database seeks instead of skipping
+    //
+    public static String getKeysetSelectSql(String table, String clause, List<String> indexes,
+                                            boolean after, int limit) {
+        String key = "keyset|" + table + "|" + clause + "|" + String.join(",", indexes) + "|" + after + "|" + limit;
+        String sql = cache.get(key);
+        if (sql == null) {
+            String where = "";
+            if (clause != null && clause.length() > 0) {
+                where = "(" + clause + ")";
+            }
+            if (after) {
+                if (where.length() > 0) where += " AND ";
+                where += getKeysetClause(indexes);
+            }
+            sql = "select * from " + table;
+            if (where.length() > 0) {
+                sql += " where " + where;
+            }
+            sql += " order by " + String.join(", ", indexes);
+            if (limit != 0) {
+                sql += " limit " + limit;
+            }
+            put(key, sql);
+        }
+        return sql;
+    }
+
+    // (a > ?) OR (a = ? AND b > ?) ..., one term per index column, which index range
+    // scans handle better than a row value comparison
+    //
+    private static String getKeysetClause(List<String> indexes) {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < indexes.size(); i++) {
+            if (i > 0) sb.append(" OR ");
+            sb.append("(");
+            for (int j = 0; j < i; j++) {
+                sb.append(indexes.get(j)).append(" = ? AND ");
+            }
+            sb.append(indexes.get(i)).append(" > ?)");
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+
+    public static String getMultiSelectSql(String table, List<String> indexes, int count) {
+        String key = "multi|" + table + "|" + String.join(",", indexes) + "|" + count;
+        String sql = cache.get(key);
+        if (sql == null) {
+            StringBuilder where = new StringBuilder();
+            if (indexes.size() == 1) {
+                where.append(indexes.get(0)).append(" in (");
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) where.append(", ");
+                    where.append("?");
+                }
+                where.append(")");
+            } else {
+                String stdClause = getStandardClause(indexes);
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) where.append(" OR ");
+                    where.append("(").append(stdClause).append(")");
+                }
+            }
+            sql = "select * from " + table + " where " + where;
+            put(key, sql);
+        }
+        return sql;
+    }
+
+    public static String getColumnSelectSql(String table, String column, List<String> indexes) {
+        String key = "column|" + table + "|" + column + "|" + String.join(",", indexes);
+        String sql = cache.get(key);
+        if (sql == null) {
+            sql = "select " + column + " from " + table + " where " + getStandardClause(indexes);
+            put(key, sql);
+        }
+        return sql;
+    }
+
+    public static String getInsertSql(String table, Collection<String> fields) {
+        String key = "insert|" + table + "|" + String.join(",", fields);
+        String sql = cache.get(key);
+        if (sql == null) {
+            StringBuilder names = new StringBuilder();
+            StringBuilder values = new StringBuilder();
+            StringBuilder update = new StringBuilder();
+            for (String field: fields) {
+                if (names.length() != 0) {
+                    names.append(", ");
+                    values.append(", ");
+                    update.append(", ");
+                }
+                names.append(field);
+                values.append("?");
+                update.append(field).append(" = ?");
+            }
+            sql = "insert into " + table + " (" + names + ") values (" + values + ") on duplicate key update " + update;
+            put(key, sql);
+        }
+        return sql;
+    }
+
+    // one statement for count rows, a row that is a duplicate is updated with its own values
+    //
+    public static String getMultiInsertSql(String table, Collection<String> fields, int count) {
+        String key = "multi-insert|" + table + "|" + String.join(",", fields) + "|" + count;
+        String sql = cache.get(key);
+        if (sql == null) {
+            StringBuilder names = new StringBuilder();
+            StringBuilder row = new StringBuilder("(");
+            StringBuilder update = new StringBuilder();
+            for (String field: fields) {
+                if (names.length() != 0) {
+                    names.append(", ");
+                    row.append(", ");
+                    update.append(", ");
+                }
+                names.append(field);
+                row.append("?");
+                update.append(field).append(" = values(").append(field).append(")");
+            }
+            row.append(")");
+            StringBuilder values = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                if (i > 0) values.append(", ");
+                values.append(row);
+            }
+            sql = "insert into " + table + " (" + names + ") values " + values + " on duplicate key update " + update;
+            put(key, sql);
+        }
+        return sql;
+    }
+
+    public static String getUpdateSql(String table, Collection<String> fields, String clause) {
+        String key = "update|" + table + "|" + String.join(",", fields) + "|" + clause;
+        String sql = cache.get(key);
+        if (sql == null) {
+            StringBuilder updates = new StringBuilder();
+            for (String field: fields) {
+                if (updates.length() != 0) updates.append(", ");
+                updates.append(field).append(" = ?");
+            }
+            sql = "update " + table + " set " + updates + " where " + clause + " limit 1";
+            put(key, sql);
+        }
+        return sql;
+    }
+
+    public static String getDeleteSql(String table, String clause) {
+        String key = "delete|" + table + "|" + clause;
+        String sql = cache.get(key);
+        if (sql == null) {
+            sql = "delete from " + table + " where " + clause + " limit 1";
+            put(key, sql);
+        }
+        return sql;
+    }
+
+    public static String getStandardClause(List<String> indexes) {
+        String key = "std|" + String.join(",", indexes);
+        String clause = cache.get(key);
+        if (clause == null) {
+            StringBuilder sb = new StringBuilder();
+            for (String indexKey : indexes) {
+                if (sb.length() > 0) sb.append(" AND ");
+                sb.append(indexKey).append(" = ?");
+            }
+            clause = sb.toString();
+            put(key, clause);
+        }
+        return clause;
+    }
+
+    // the caller supplies the shape key, the clause is built by the caller on a miss
+    //
+    public static String getClause(String shape) {
+        return cache.get("clause|" + shape);
+    }
+
+    public static void putClause(String shape, String clause) {
+        put("clause|" + shape, clause);
+    }
+
+    public static int size() {
+        return cache.size();
+    }
+
+    public static void clear() {
+        cache.clear();
+    }
+
+    private static void put(String key, String value) {
+        Integer maxSize = PropCfg.getSqlCacheSize();
+        if (maxSize == null || maxSize <= 0) {
+            return;
+        }
+        // shapes are few in practice, start over if something floods the cache
+        if (cache.size() >= maxSize) {
+            cache.clear();
+        }
+        cache.put(key, value);
+    }
+}
@@ -19,6 +19,7 @@ package com.doitincloud.rdbcache.repositories;
 import com.doitincloud.rdbcache.supports.AnyKey;
 import com.doitincloud.rdbcache.supports.Context;
 import com.doitincloud.rdbcache.supports.KvPairs;
+import com.doitincloud.rdbcache.supports.KvPairSink;
 import com.doitincloud.rdbcache.models.KeyInfo;
 import com.doitincloud.rdbcache.models.KvPair;
 import org.springframework.stereotype.Repository;
@@ -30,6 +31,8 @@ public interface DbaseRepo {
 
     public boolean find(final Context context, final KvPairs pairs, final AnyKey anyKey);
 
+    public boolean find(final Context context, final KvPairs pairs, final AnyKey anyKey, final KvPairSink sink);
+
     public boolean save(final Context context, final KvPair pair, final KeyInfo keyInfo);
 
     public boolean save(final Context context, final KvPairs pairs, final AnyKey anyKey);
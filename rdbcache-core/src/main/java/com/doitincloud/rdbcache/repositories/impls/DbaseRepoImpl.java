@@ -31,6 +31,8 @@ import com.doitincloud.rdbcache.supports.AnyKey;
 import com.doitincloud.rdbcache.supports.Context;
 import com.doitincloud.rdbcache.supports.DbUtils;
 import com.doitincloud.rdbcache.supports.KvPairs;
+import com.doitincloud.rdbcache.supports.KvPairSink;
+import com.doitincloud.rdbcache.supports.TaskPools;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
@@ -115,10 +117,14 @@ public class DbaseRepoImpl implements DbaseRepo {
 
         if (table == null) {
             if (!kvFind(context, pairs, anyKey)) {
-                LOGGER.debug("find - kvFind failed: " + pairs.printKey());
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("find - kvFind failed: " + pairs.printKey());
+                }
                 return false;
             } else {
-                LOGGER.debug("find - kvFind Ok: " + pairs.printKey());
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("find - kvFind Ok: " + pairs.printKey());
+                }
             }
             if (!anyKey.isNoOps()) AppCtx.getKeyInfoRepo().save(context, pairs, anyKey);
             return true;
@@ -144,16 +150,24 @@ public class DbaseRepoImpl implements DbaseRepo {
                             LOGGER.warn(msg);
                         }
                     } else {
-                        LOGGER.debug("find - not found: from " + table + " " + pairs.printKey());
+                        if (LOGGER.isDebugEnabled()) {
+                            LOGGER.debug("find - not found: from " + table + " " + pairs.printKey());
+                        }
                         allOk = false;
                     }
                 } else {
-                    LOGGER.debug("find - found Ok: from " + table + " " + pairs.printKey());
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("find - found Ok: from " + table + " " + pairs.printKey());
+                    }
                     if (!anyKey.isNoOps()) AppCtx.getKeyInfoRepo().save(context, pairs, anyKey);
                 }
 
             } else {
 
+                // keys of the same table already resolved to their primary index are
+                // selected in one statement, the rest are selected one by one
+                //
+                Map<String, List<Integer>> tableIndexes = new LinkedHashMap<>();
                 for (int i = 0; i < anyKey.size(); i++) {
 
                     KeyInfo keyInfo = anyKey.get(i);
@@ -162,6 +176,76 @@ public class DbaseRepoImpl implements DbaseRepo {
                         throw new ServerErrorException("query for muliple keyInfos is not supported");
                     }
 
+                    String keyTable = keyInfo.getTable();
+                    if (keyTable == null || !keyInfo.hasParams()) {
+                        continue;
+                    }
+                    List<Integer> indexes = tableIndexes.get(keyTable);
+                    if (indexes == null) {
+                        indexes = new ArrayList<>();
+                        tableIndexes.put(keyTable, indexes);
+                    }
+                    indexes.add(i);
+                }
+
+                boolean[] selected = new boolean[anyKey.size()];
+
+                for (Map.Entry<String, List<Integer>> entry: tableIndexes.entrySet()) {
+
+                    List<Integer> indexes = entry.getValue();
+                    if (indexes.size() < 2) {
+                        continue;
+                    }
+
+                    KvPairs newPairs = new KvPairs();
+                    AnyKey newAnyKey = new AnyKey();
+                    for (int index: indexes) {
+                        newPairs.add(pairs.getAny(index));
+                        newAnyKey.add(anyKey.get(index));
+                    }
+
+                    Query query = new Query(context, AppCtx.getDbaseOps().getJdbcTemplate(context, entry.getKey()),
+                            newPairs, newAnyKey);
+
+                    if (!query.ifMultiSelectOk()) {
+                        continue;
+                    }
+
+                    boolean[] founds = query.executeMultiSelect();
+                    if (founds == null) {
+                        continue;
+                    }
+
+                    // a row is matched to its key by the text of its index values, a key
+                    // without a match may still have a row the text of which differs,
+                    // e.g. by case or padding, it is selected one by one below
+                    //
+                    for (int j = 0; j < indexes.size(); j++) {
+
+                        if (!founds[j]) {
+                            continue;
+                        }
+
+                        selected[indexes.get(j)] = true;
+
+                        KvPairs onePairs = new KvPairs(newPairs.get(j));
+                        AnyKey oneAnyKey = new AnyKey(newAnyKey.get(j));
+
+                        if (LOGGER.isDebugEnabled()) {
+                            LOGGER.debug("find - found Ok: from " + entry.getKey() + " " + onePairs.printKey());
+                        }
+                        if (!oneAnyKey.isNoOps()) AppCtx.getKeyInfoRepo().save(context, onePairs, oneAnyKey);
+                    }
+                }
+
+                for (int i = 0; i < anyKey.size(); i++) {
+
+                    if (selected[i]) {
+                        continue;
+                    }
+
+                    KeyInfo keyInfo = anyKey.get(i);
+
                     table = keyInfo.getTable();
                     AnyKey newAnyKey = new AnyKey(keyInfo);
 
@@ -171,22 +255,13 @@ public class DbaseRepoImpl implements DbaseRepo {
                     Query query = new Query(context, jdbcTemplate, newPairs, newAnyKey);
 
                     if (!query.ifSelectOk() || !query.executeSelect()) {
-                        if (enableDbFallback) {
-                            if (!kvFind(context, newPairs, newAnyKey)) {
-                                String msg = "find - not found fallbacked to default table: " + newPairs.printKey();
-                                LOGGER.trace(msg);
-                                allOk = false;
-                            } else {
-                                String msg = "find - found fallbacked to default table Ok: " + newPairs.printKey();
-                                context.logTraceMessage(msg);
-                                LOGGER.warn(msg);
-                            }
-                        } else {
-                            LOGGER.debug("find - not found: from " + table + " " + newPairs.printKey());
+                        if (!findFallback(context, newPairs, newAnyKey)) {
                             allOk = false;
                         }
                     } else {
-                        LOGGER.debug("find - found Ok: from " + table + " " + pairs.printKey());
+                        if (LOGGER.isDebugEnabled()) {
+                            LOGGER.debug("find - found Ok: from " + table + " " + pairs.printKey());
+                        }
                         if (!newAnyKey.isNoOps()) AppCtx.getKeyInfoRepo().save(context, newPairs, newAnyKey);
                     }
                 }
@@ -196,14 +271,80 @@ public class DbaseRepoImpl implements DbaseRepo {
         }
     }
 
+    // a single select hands its rows to the sink as they are fetched, anything else
+    // is found as a whole and handed over in one go
+    //
+    @Override
+    public boolean find(final Context context, final KvPairs pairs, final AnyKey anyKey, final KvPairSink sink) {
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("find: " + pairs.printKey() + anyKey.print() + " streamed");
+        }
+
+        String table = anyKey.getKeyInfo().getTable();
+
+        if (table == null || anyKey.size() != 1) {
+            boolean found = find(context, pairs, anyKey);
+            if (pairs.size() > 0) {
+                sink.accept(pairs, anyKey);
+            }
+            return found;
+        }
+
+        JdbcTemplate jdbcTemplate = AppCtx.getDbaseOps().getJdbcTemplate(context, table);
+
+        Query query = new Query(context, jdbcTemplate, pairs, anyKey);
+
+        if (query.ifSelectOk() && query.executeSelect((chunkPairs, chunkAnyKey) -> {
+                if (!chunkAnyKey.isNoOps()) AppCtx.getKeyInfoRepo().save(context, chunkPairs, chunkAnyKey);
+                sink.accept(chunkPairs, chunkAnyKey);
+            })) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("find - found Ok: from " + table + " " + pairs.printKey());
+            }
+            return true;
+        }
+
+        if (!findFallback(context, pairs, anyKey)) {
+            return false;
+        }
+        sink.accept(pairs, anyKey);
+        return true;
+    }
+
+    private boolean findFallback(final Context context, final KvPairs pairs, final AnyKey anyKey) {
+
+        if (enableDbFallback) {
+            if (!kvFind(context, pairs, anyKey)) {
+                String msg = "find - not found fallbacked to default table: " + pairs.printKey();
+                LOGGER.trace(msg);
+                return false;
+            } else {
+                String msg = "find - found fallbacked to default table Ok: " + pairs.printKey();
+                context.logTraceMessage(msg);
+                LOGGER.warn(msg);
+                return true;
+            }
+        } else {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("find - not found: from " + anyKey.getKeyInfo().getTable() + " " + pairs.printKey());
+            }
+            return false;
+        }
+    }
+
     @Override
     public boolean save(final Context context, final KvPair pair, final KeyInfo keyInfo) {
         if (saveOne(context, pair, keyInfo)) {
-            LOGGER.debug("save - saveOne Ok: " + pair.printKey());
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("save - saveOne Ok: " + pair.printKey());
+            }
             if (!keyInfo.isNoOps()) AppCtx.getKeyInfoRepo().save(context, pair, keyInfo);
             return true;
         } else {
-            LOGGER.debug("save - saveOne failed: " + pair.printKey());
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("save - saveOne failed: " + pair.printKey());
+            }
             return false;
         }
     }
@@ -218,30 +359,74 @@ public class DbaseRepoImpl implements DbaseRepo {
         if (pairs.size() == 1) {
 
             if (saveOne(context, pairs.getPair(), anyKey.getKeyInfo())) {
-                LOGGER.debug("save - saveOne Ok: " + pairs.getPair().printKey());
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("save - saveOne Ok: " + pairs.getPair().printKey());
+                }
                 if (!anyKey.isNoOps()) AppCtx.getKeyInfoRepo().save(context, pairs, anyKey);
                 return true;
             } else {
-                LOGGER.debug("save - saveOne failed: " + pairs.getPair().printKey());
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("save - saveOne failed: " + pairs.getPair().printKey());
+                }
                 return false;
             }
 
         } else {
 
             boolean result = true;
+
+            // new records of the same table need no lookup, they go to the database in one batch insert
+            //
+            Map<String, KvPairs> insertPairsMap = new LinkedHashMap<>();
+            Map<String, AnyKey> insertAnyKeyMap = new LinkedHashMap<>();
+
             for (int i = 0; i < pairs.size(); i++) {
 
                 KvPair pair = pairs.get(i);
                 KeyInfo keyInfo = anyKey.getAny(i);
 
+                String table = keyInfo.getTable();
+                if (table != null && pair.isNewUuid() && keyInfo.getQuery() == null && keyInfo.getParams() == null) {
+                    KvPairs insertPairs = insertPairsMap.get(table);
+                    if (insertPairs == null) {
+                        insertPairs = new KvPairs();
+                        insertPairsMap.put(table, insertPairs);
+                        insertAnyKeyMap.put(table, new AnyKey());
+                    }
+                    insertPairs.add(pair);
+                    insertAnyKeyMap.get(table).add(keyInfo);
+                    continue;
+                }
+
                 if (!saveOne(context, pair, keyInfo)) {
-                    LOGGER.debug("save - saveOne failed: " + pair.getId());
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("save - saveOne failed: " + pair.getId());
+                    }
                     result = false;
                 } else {
                     if (!keyInfo.isNoOps()) {
                         AppCtx.getKeyInfoRepo().save(context, new KvPairs(pair), new AnyKey(keyInfo));
                     }
-                    LOGGER.debug("save - saveOne Ok: " + pair.getId());
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("save - saveOne Ok: " + pair.getId());
+                    }
+                }
+            }
+
+            for (Map.Entry<String, KvPairs> entry: insertPairsMap.entrySet()) {
+
+                KvPairs insertPairs = entry.getValue();
+                AnyKey insertAnyKey = insertAnyKeyMap.get(entry.getKey());
+
+                if (!insert(context, insertPairs, insertAnyKey)) {
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("save - insert failed: " + insertPairs.printKey());
+                    }
+                    result = false;
+                } else {
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("save - insert Ok: " + insertPairs.printKey());
+                    }
                 }
             }
             return result;
@@ -266,7 +451,9 @@ public class DbaseRepoImpl implements DbaseRepo {
 
         if (table == null) {
             if (!kvSave(context, pairs, anyKey)) {
-                LOGGER.debug("insert kvSave failed: " + pairs.printKey());
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("insert kvSave failed: " + pairs.printKey());
+                }
                 return false;
             } else {
                 if (!anyKey.isNoOps()) AppCtx.getKeyInfoRepo().save(context, pairs, anyKey);
@@ -281,8 +468,10 @@ public class DbaseRepoImpl implements DbaseRepo {
             if (!query.ifInsertOk() || !query.executeInsert(enableDataCache, enableRedisCache)) {
                 if (enableDbFallback) {
                     if (!kvSave(context, pairs, anyKey)) {
-                        LOGGER.debug("insert failed - fallbacked to kvSave: " +
-                                pairs.printKey());
+                        if (LOGGER.isDebugEnabled()) {
+                            LOGGER.debug("insert failed - fallbacked to kvSave: " +
+                                    pairs.printKey());
+                        }
                         return false;
                     } else {
                         String msg = "inserted Ok - fallbacked to kvSave: " +
@@ -291,7 +480,9 @@ public class DbaseRepoImpl implements DbaseRepo {
                         LOGGER.warn(msg);
                     }
                 } else {
-                    LOGGER.debug("insert failed: " + pairs.printKey());
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("insert failed: " + pairs.printKey());
+                    }
                     return false;
                 }
             } else {
@@ -321,10 +512,14 @@ public class DbaseRepoImpl implements DbaseRepo {
 
         if (table == null) {
             if (!kvUpdate(context, pairs, anyKey)) {
-                LOGGER.debug("update kvSave failed: " + pairs.printKey());
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("update kvSave failed: " + pairs.printKey());
+                }
                 return false;
             } else {
-                LOGGER.debug("updated kvSave Ok: " + pairs.printKey());
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("updated kvSave Ok: " + pairs.printKey());
+                }
             }
         } else {
 
@@ -335,7 +530,9 @@ public class DbaseRepoImpl implements DbaseRepo {
             if (!query.ifUpdateOk() || !query.executeUpdate()) {
                 if (enableDbFallback) {
                     if (!kvUpdate(context, pairs, anyKey)) {
-                        LOGGER.debug("update failed - fallback to kvSave: " + pairs.printKey());
+                        if (LOGGER.isDebugEnabled()) {
+                            LOGGER.debug("update failed - fallback to kvSave: " + pairs.printKey());
+                        }
                         return false;
                     } else {
                         String msg = "update Ok -  fallbacked to kvSave: " + pairs.printKey();
@@ -343,7 +540,9 @@ public class DbaseRepoImpl implements DbaseRepo {
                         LOGGER.warn(msg);
                     }
                 } else {
-                    LOGGER.debug("update failed - " + pairs.printKey());
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("update failed - " + pairs.printKey());
+                    }
                     return false;
                 }
             } else {
@@ -377,10 +576,14 @@ public class DbaseRepoImpl implements DbaseRepo {
 
         if (table == null) {
             if (!kvDelete(context, pairs, anyKey)) {
-                LOGGER.debug("delete kvDelete failed: " + pairs.printKey());
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("delete kvDelete failed: " + pairs.printKey());
+                }
                 return false;
             } else {
-                LOGGER.debug("deleted kvDelete Ok: " + pairs.printKey());
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("deleted kvDelete Ok: " + pairs.printKey());
+                }
             }
         } else {
 
@@ -391,7 +594,9 @@ public class DbaseRepoImpl implements DbaseRepo {
             if (!query.ifDeleteOk() || !query.executeDelete()) {
                 if (enableDbFallback) {
                     if (!kvDelete(context, pairs, anyKey)) {
-                        LOGGER.debug("delete failed - fallback to kvDelete: " + pairs.printKey());
+                        if (LOGGER.isDebugEnabled()) {
+                            LOGGER.debug("delete failed - fallback to kvDelete: " + pairs.printKey());
+                        }
                         return false;
                     } else {
                         String msg = "delete Ok - fallbacked to kvDelete " + pairs.printKey();
@@ -402,7 +607,9 @@ public class DbaseRepoImpl implements DbaseRepo {
                     return false;
                 }
             } else {
-                LOGGER.debug("deleted Ok: " + anyKey.size() + " record(s) from " + table);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("deleted Ok: " + anyKey.size() + " record(s) from " + table);
+                }
             }
         }
 
@@ -569,7 +776,7 @@ public class DbaseRepoImpl implements DbaseRepo {
 
             if (queryInfo != null) {
                 keyInfo.setQuery(null);
-                Utils.getExcutorService().submit(() -> {
+                TaskPools.getDbasePool().submit(() -> {
                     Thread.yield();
                     AppCtx.getDbaseOps().saveQuery(context, queryInfo);
                 });
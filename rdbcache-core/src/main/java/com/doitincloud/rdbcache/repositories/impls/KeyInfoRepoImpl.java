@@ -27,6 +27,7 @@ import com.doitincloud.rdbcache.repositories.KeyInfoRepo;
 import com.doitincloud.rdbcache.supports.AnyKey;
 import com.doitincloud.rdbcache.supports.Context;
 import com.doitincloud.rdbcache.supports.KvPairs;
+import com.doitincloud.rdbcache.supports.TaskPools;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
@@ -114,11 +115,11 @@ public class KeyInfoRepoImpl implements KeyInfoRepo {
 
             if (enableRedisCache) {
                 StopWatch stopWatch = context.startStopWatch("redis", "keyInfoOps.get");
-                KeyInfo keyInfoRedis = keyInfoOps.get(hkeyPrefix + "::" + type, key);
+                KeyInfo keyInfoRedis = redisGet(type, key);
                 if (stopWatch != null) stopWatch.stopNow();
 
                 if (keyInfoRedis != null) {
-                    keyInfo.copy(keyInfoCached);
+                    keyInfo.copy(keyInfoRedis);
                     AppCtx.getCacheOps().putKeyInfo(pair.getIdType(), keyInfo);
                     if (LOGGER.isTraceEnabled()) LOGGER.trace("find - found from cache: " + key);
                     return true;
@@ -137,7 +138,9 @@ public class KeyInfoRepoImpl implements KeyInfoRepo {
         if (stopWatch != null) stopWatch.stopNow();
 
         if (dbPair == null) {
-            LOGGER.debug("find - not found from anywhere: " + key);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("find - not found from anywhere: " + key);
+            }
             return false;
         }
 
@@ -147,11 +150,7 @@ public class KeyInfoRepoImpl implements KeyInfoRepo {
         keyInfo.copy(keyInfoDb);
         AppCtx.getCacheOps().putKeyInfo(pair.getIdType(), keyInfo);
 
-        Utils.getExcutorService().submit(() -> {
-            StopWatch stopWatch2 = context.startStopWatch("dbase", "finalQuery.save");
-            keyInfoOps.put(hkeyPrefix + "::" + type, key, keyInfo);
-            if (stopWatch2 != null) stopWatch2.stopNow();
-        });
+        redisPutAllLater(context, type, Collections.singletonMap(key, keyInfo));
 
         return true;
     }
@@ -243,7 +242,7 @@ public class KeyInfoRepoImpl implements KeyInfoRepo {
                 String key = redisKeys.get(0);
 
                 StopWatch stopWatch = context.startStopWatch("redis", "keyInfoOps.get");
-                KeyInfo keyInfoRedis = keyInfoOps.get(hkeyPrefix + "::" + type, key);
+                KeyInfo keyInfoRedis = redisGet(type, key);
                 if (stopWatch != null) stopWatch.stopNow();
 
                 if (keyInfoRedis == null) {
@@ -259,13 +258,15 @@ public class KeyInfoRepoImpl implements KeyInfoRepo {
             } else {
 
                 StopWatch stopWatch = context.startStopWatch("redis", "keyInfoOps.multiGet");
-                List<KeyInfo> redisKeyInfos = keyInfoOps.multiGet(hkeyPrefix + "::" + type, redisKeys);
+                List<KeyInfo> redisKeyInfos = redisMultiGet(type, redisKeys);
                 if (stopWatch != null) stopWatch.stopNow();
 
-                for (int i = 0; i < redisKeys.size() && i < redisKeyInfos.size(); i++) {
+                // a key past the end of the result is a miss too, it is looked up from database
+                //
+                for (int i = 0; i < redisKeys.size(); i++) {
 
                     String key = redisKeys.get(i);
-                    KeyInfo keyInfo = redisKeyInfos.get(i);
+                    KeyInfo keyInfo = redisKeyInfos != null && i < redisKeyInfos.size() ? redisKeyInfos.get(i) : null;
 
                     if (keyInfo == null) {
                         foundAll = false;
@@ -316,11 +317,7 @@ public class KeyInfoRepoImpl implements KeyInfoRepo {
             }
 
             if (redisKeyInfoMap.size() > 0) {
-                Utils.getExcutorService().submit(() -> {
-                    StopWatch stopWatch2 = context.startStopWatch("redis", "keyInfoOps.putAll");
-                    keyInfoOps.putAll(hkeyPrefix + "::" + type, redisKeyInfoMap);
-                    if (stopWatch2 != null) stopWatch2.stopNow();
-                });
+                redisPutAllLater(context, type, redisKeyInfoMap);
             }
         }
 
@@ -328,7 +325,9 @@ public class KeyInfoRepoImpl implements KeyInfoRepo {
         for (int i = 0; i < keys.size(); i++) {
             if (keys.get(i) != null) {
                 foundAll = false;
-                LOGGER.debug("find - not found from anywhere: " + keys.get(i));
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("find - not found from anywhere: " + keys.get(i));
+                }
                 break;
             }
         }
@@ -350,7 +349,9 @@ public class KeyInfoRepoImpl implements KeyInfoRepo {
         String key = pair.getId();
 
         if (!keyInfo.getIsNew()) {
-            LOGGER.trace("save KeyInfo is not new, skipped for " + key);
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("save KeyInfo is not new, skipped for " + key);
+            }
             return false;
         }
 
@@ -361,7 +362,7 @@ public class KeyInfoRepoImpl implements KeyInfoRepo {
 
         if (enableRedisCache) {
             StopWatch stopWatch = context.startStopWatch("redis", "keyInfoOps.put");
-            keyInfoOps.put(hkeyPrefix + "::" + type, key, keyInfo);
+            redisPut(type, key, keyInfo);
             if (stopWatch != null) stopWatch.stopNow();
         }
 
@@ -387,7 +388,9 @@ public class KeyInfoRepoImpl implements KeyInfoRepo {
                 pairs.size() + ", only supports that pairs and anyKey have the same size");
 
         if (pairs.size() == 0 || anyKey.size() == 0) {
-            LOGGER.debug("save " + pairs.printKey()  + "anyKey(" + anyKey.size() + ") - nothing to save");
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("save " + pairs.printKey()  + "anyKey(" + anyKey.size() + ") - nothing to save");
+            }
             return false;
         }
 
@@ -443,7 +446,7 @@ public class KeyInfoRepoImpl implements KeyInfoRepo {
 
         if (keyInfoMap.size() > 0) {
             StopWatch stopWatch = context.startStopWatch("redis", "keyInfoOps.putAll");
-            keyInfoOps.putAll(hkeyPrefix + "::" + type, keyInfoMap);
+            redisPutAll(type, keyInfoMap);
             if (stopWatch != null) stopWatch.stopNow();
         }
 
@@ -453,7 +456,9 @@ public class KeyInfoRepoImpl implements KeyInfoRepo {
             if (stopWatch != null) stopWatch.stopNow();
         }
 
-        LOGGER.debug("save Ok: " + pairs.printKey());
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("save Ok: " + pairs.printKey());
+        }
 
         return true;
     }
@@ -468,16 +473,14 @@ public class KeyInfoRepoImpl implements KeyInfoRepo {
         AppCtx.getCacheOps().removeKeyInfo(pair.getIdType());
 
         if (enableRedisCache) {
-            String key = pair.getId();
-            String type = pair.getType();
-            StopWatch stopWatch = context.startStopWatch("redis", "keyInfoOps.delete");
-            keyInfoOps.delete(hkeyPrefix + "::" + type, key);
-            if (stopWatch != null) stopWatch.stopNow();
+            redisDelete(context, new KvPairs(pair));
         }
 
         //intentional leave database not deleted
 
-        LOGGER.debug("delete Ok: " + pair.printKey());
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("delete Ok: " + pair.printKey());
+        }
     }
 
     @Override
@@ -491,17 +494,47 @@ public class KeyInfoRepoImpl implements KeyInfoRepo {
 
 
         if (enableRedisCache) {
-            for (KvPair pair: pairs) {
-                String key = pair.getId();
-                String type = pair.getType();
-                StopWatch stopWatch = context.startStopWatch("redis", "keyInfoOps.delete");
-                keyInfoOps.delete(hkeyPrefix + "::" + type, key);
-                if (stopWatch != null) stopWatch.stopNow();
-            }
+            redisDelete(context, pairs);
         }
 
         //intentional leave database not deleted
 
-        LOGGER.debug("delete Ok: " + pairs.printKey());
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("delete Ok: " + pairs.printKey());
+        }
+    }
+
+    protected KeyInfo redisGet(String type, String key) {
+        return keyInfoOps.get(hkeyPrefix + "::" + type, key);
+    }
+
+    protected List<KeyInfo> redisMultiGet(String type, List<String> keys) {
+        return keyInfoOps.multiGet(hkeyPrefix + "::" + type, keys);
+    }
+
+    protected void redisPut(String type, String key, KeyInfo keyInfo) {
+        keyInfoOps.put(hkeyPrefix + "::" + type, key, keyInfo);
+    }
+
+    protected void redisPutAll(String type, Map<String, KeyInfo> keyInfoMap) {
+        keyInfoOps.putAll(hkeyPrefix + "::" + type, keyInfoMap);
+    }
+
+    // write back in the background, nobody waits for it
+    //
+    protected void redisPutAllLater(final Context context, final String type, final Map<String, KeyInfo> keyInfoMap) {
+        TaskPools.getRedisPool().submit(() -> {
+            StopWatch stopWatch = context.startStopWatch("redis", "keyInfoOps.putAll");
+            redisPutAll(type, keyInfoMap);
+            if (stopWatch != null) stopWatch.stopNow();
+        });
+    }
+
+    protected void redisDelete(final Context context, final KvPairs pairs) {
+        for (KvPair pair: pairs) {
+            StopWatch stopWatch = context.startStopWatch("redis", "keyInfoOps.delete");
+            keyInfoOps.delete(hkeyPrefix + "::" + pair.getType(), pair.getId());
+            if (stopWatch != null) stopWatch.stopNow();
+        }
     }
-}
\ No newline at end of file
+}
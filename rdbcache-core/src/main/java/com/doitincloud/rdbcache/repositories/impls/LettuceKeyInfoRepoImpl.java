@@ -0,0 +1,165 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.repositories.impls;
+
+import com.doitincloud.rdbcache.configs.AppCtx;
+import com.doitincloud.rdbcache.configs.LettuceAsync;
+import com.doitincloud.rdbcache.configs.RedisKeyInfoTemplate;
+import com.doitincloud.rdbcache.models.KeyInfo;
+import com.doitincloud.rdbcache.models.KvPair;
+import com.doitincloud.rdbcache.supports.Context;
+import com.doitincloud.rdbcache.supports.KvPairs;
+
+import com.lambdaworks.redis.RedisFuture;
+import com.lambdaworks.redis.cluster.api.async.RedisClusterAsyncCommands;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.stereotype.Repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Key info hashes over async lettuce commands. Deletes of many keys are sent together,
+ * background write backs are sent without handing them to the redis task pool.
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(name = "rdbcache.redis_client", havingValue = "lettuce")
+public class LettuceKeyInfoRepoImpl extends KeyInfoRepoImpl {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LettuceKeyInfoRepoImpl.class);
+
+    private final Jackson2JsonRedisSerializer<KeyInfo> keyInfoSerializer =
+            new Jackson2JsonRedisSerializer<KeyInfo>(KeyInfo.class);
+
+    private LettuceAsync lettuce;
+
+    @Override
+    @EventListener
+    public void handleApplicationReadyEvent(ApplicationReadyEvent event) {
+        super.handleApplicationReadyEvent(event);
+        RedisKeyInfoTemplate template = AppCtx.getRedisKeyInfoTemplate();
+        if (template != null) {
+            lettuce = LettuceAsync.from(template.getConnectionFactory());
+        }
+        if (lettuce == null) {
+            LOGGER.warn("no shared lettuce connection, key infos use the redis template");
+        }
+    }
+
+    public LettuceAsync getLettuce() {
+        return lettuce;
+    }
+
+    public void setLettuce(LettuceAsync lettuce) {
+        this.lettuce = lettuce;
+    }
+
+    @Override
+    protected KeyInfo redisGet(String type, String key) {
+        if (lettuce == null) {
+            return super.redisGet(type, key);
+        }
+        byte[] value = lettuce.await(lettuce.getCommands().hget(hashKey(type), LettuceAsync.toBytes(key)));
+        return keyInfoSerializer.deserialize(value);
+    }
+
+    @Override
+    protected List<KeyInfo> redisMultiGet(String type, List<String> keys) {
+        if (lettuce == null) {
+            return super.redisMultiGet(type, keys);
+        }
+        byte[][] fields = new byte[keys.size()][];
+        for (int i = 0; i < keys.size(); i++) {
+            fields[i] = LettuceAsync.toBytes(keys.get(i));
+        }
+        List<byte[]> values = lettuce.await(lettuce.getCommands().hmget(hashKey(type), fields));
+        List<KeyInfo> keyInfos = new ArrayList<>();
+        for (byte[] value: values) {
+            keyInfos.add(keyInfoSerializer.deserialize(value));
+        }
+        return keyInfos;
+    }
+
+    @Override
+    protected void redisPut(String type, String key, KeyInfo keyInfo) {
+        if (lettuce == null) {
+            super.redisPut(type, key, keyInfo);
+            return;
+        }
+        lettuce.await(lettuce.getCommands().hset(hashKey(type), LettuceAsync.toBytes(key),
+                keyInfoSerializer.serialize(keyInfo)));
+    }
+
+    @Override
+    protected void redisPutAll(String type, Map<String, KeyInfo> keyInfoMap) {
+        if (lettuce == null) {
+            super.redisPutAll(type, keyInfoMap);
+            return;
+        }
+        lettuce.await(hmset(type, keyInfoMap));
+    }
+
+    @Override
+    protected void redisPutAllLater(Context context, String type, Map<String, KeyInfo> keyInfoMap) {
+        if (lettuce == null) {
+            super.redisPutAllLater(context, type, keyInfoMap);
+            return;
+        }
+        hmset(type, keyInfoMap).whenComplete((result, e) -> {
+            if (e != null) {
+                LOGGER.error("key info write back failed: " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    protected void redisDelete(Context context, KvPairs pairs) {
+        if (lettuce == null) {
+            super.redisDelete(context, pairs);
+            return;
+        }
+        RedisClusterAsyncCommands<byte[], byte[]> commands = lettuce.getCommands();
+        List<RedisFuture<Long>> futures = new ArrayList<>();
+        for (KvPair pair: pairs) {
+            futures.add(commands.hdel(hashKey(pair.getType()), LettuceAsync.toBytes(pair.getId())));
+        }
+        lettuce.awaitAll(futures);
+    }
+
+    private RedisFuture<String> hmset(String type, Map<String, KeyInfo> keyInfoMap) {
+        Map<byte[], byte[]> fields = new LinkedHashMap<>();
+        for (Map.Entry<String, KeyInfo> entry: keyInfoMap.entrySet()) {
+            fields.put(LettuceAsync.toBytes(entry.getKey()), keyInfoSerializer.serialize(entry.getValue()));
+        }
+        return lettuce.getCommands().hmset(hashKey(type), fields);
+    }
+
+    private byte[] hashKey(String type) {
+        return LettuceAsync.toBytes(getHkeyPrefix() + "::" + type);
+    }
+}
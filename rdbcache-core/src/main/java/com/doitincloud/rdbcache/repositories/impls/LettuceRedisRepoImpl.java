@@ -0,0 +1,127 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.repositories.impls;
+
+import com.doitincloud.rdbcache.configs.AppCtx;
+import com.doitincloud.rdbcache.configs.LettuceAsync;
+import com.doitincloud.rdbcache.configs.RedisValueSerializer;
+
+import com.lambdaworks.redis.RedisFuture;
+import com.lambdaworks.redis.cluster.api.async.RedisClusterAsyncCommands;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch reads and writes of data rows go out as async lettuce commands on the shared
+ * connection, all commands of a batch are in flight together and no thread waits per key.
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(name = "rdbcache.redis_client", havingValue = "lettuce")
+public class LettuceRedisRepoImpl extends RedisRepoImpl {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LettuceRedisRepoImpl.class);
+
+    private final RedisValueSerializer valueSerializer = new RedisValueSerializer();
+
+    private LettuceAsync lettuce;
+
+    @Override
+    @EventListener
+    public void handleApplicationReadyEvent(ApplicationReadyEvent event) {
+        super.handleApplicationReadyEvent(event);
+        StringRedisTemplate template = AppCtx.getStringRedisTemplate();
+        if (template != null) {
+            lettuce = LettuceAsync.from(template.getConnectionFactory());
+        }
+        if (lettuce == null) {
+            LOGGER.warn("no shared lettuce connection, batches use the redis template");
+        }
+    }
+
+    public LettuceAsync getLettuce() {
+        return lettuce;
+    }
+
+    public void setLettuce(LettuceAsync lettuce) {
+        this.lettuce = lettuce;
+    }
+
+    @Override
+    protected List<Object> batchEntries(List<String> hashKeys) {
+
+        if (lettuce == null) {
+            return super.batchEntries(hashKeys);
+        }
+
+        RedisClusterAsyncCommands<byte[], byte[]> commands = lettuce.getCommands();
+        List<RedisFuture<Map<byte[], byte[]>>> futures = new ArrayList<>();
+        for (String hashKey: hashKeys) {
+            futures.add(commands.hgetall(LettuceAsync.toBytes(hashKey)));
+        }
+
+        List<Object> results = new ArrayList<>();
+        for (RedisFuture<Map<byte[], byte[]>> future: futures) {
+            Map<byte[], byte[]> entries = lettuce.await(future);
+            Map<String, Object> map = new LinkedHashMap<>();
+            if (entries != null) {
+                for (Map.Entry<byte[], byte[]> entry: entries.entrySet()) {
+                    map.put(LettuceAsync.toString(entry.getKey()), valueSerializer.deserialize(entry.getValue()));
+                }
+            }
+            results.add(map);
+        }
+        return results;
+    }
+
+    @Override
+    protected void batchPutAll(Map<String, Map<String, Object>> maps) {
+
+        if (lettuce == null) {
+            super.batchPutAll(maps);
+            return;
+        }
+
+        RedisClusterAsyncCommands<byte[], byte[]> commands = lettuce.getCommands();
+        List<RedisFuture<String>> futures = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry: maps.entrySet()) {
+            Map<String, Object> map = entry.getValue();
+            if (map == null || map.size() == 0) {
+                continue;
+            }
+            Map<byte[], byte[]> fields = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> field: map.entrySet()) {
+                fields.put(LettuceAsync.toBytes(field.getKey()), valueSerializer.serialize(field.getValue()));
+            }
+            futures.add(commands.hmset(LettuceAsync.toBytes(entry.getKey()), fields));
+        }
+        lettuce.awaitAll(futures);
+    }
+}
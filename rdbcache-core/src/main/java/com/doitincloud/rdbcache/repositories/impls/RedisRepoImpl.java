@@ -16,11 +16,14 @@
 
 package com.doitincloud.rdbcache.repositories.impls;
 
+import com.doitincloud.commons.RowBlob;
+import com.doitincloud.commons.ValueCodecs;
 import com.doitincloud.rdbcache.exceptions.ServerErrorException;
 import com.doitincloud.rdbcache.supports.AnyKey;
 import com.doitincloud.rdbcache.supports.KvPairs;
 import com.doitincloud.rdbcache.configs.PropCfg;
 import com.doitincloud.rdbcache.supports.Context;
+import com.doitincloud.rdbcache.supports.RedisKeys;
 import com.doitincloud.rdbcache.configs.AppCtx;
 import com.doitincloud.rdbcache.models.KeyInfo;
 import com.doitincloud.rdbcache.models.KvPair;
@@ -29,13 +32,20 @@ import com.doitincloud.rdbcache.repositories.RedisRepo;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.core.*;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.stereotype.Repository;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @Repository
@@ -45,10 +55,29 @@ public class RedisRepoImpl implements RedisRepo {
 
     private boolean enableDataCache = true;
 
+    private boolean enablePipeline = PropCfg.getEnableRedisPipeline();
+
     private String hdataPrefix = PropCfg.getHdataPrefix();
 
     private String eventPrefix = PropCfg.getEventPrefix();
-    
+
+    // tables whose rows are stored as one blob instead of a hash
+    private Set<String> blobTables = new HashSet<>();
+
+    private DefaultRedisScript<Long> mergeRowBlobScript;
+
+    private static final RedisSerializer<byte[]> bytesSerializer = new RedisSerializer<byte[]>() {
+        @Override
+        public byte[] serialize(byte[] bytes) throws SerializationException {
+            return bytes;
+        }
+
+        @Override
+        public byte[] deserialize(byte[] bytes) throws SerializationException {
+            return bytes;
+        }
+    };
+
     private StringRedisTemplate stringRedisTemplate;
 
     private HashOperations hashOps;
@@ -62,6 +91,9 @@ public class RedisRepoImpl implements RedisRepo {
     public void handleEvent(ContextRefreshedEvent event) {
         hdataPrefix = PropCfg.getHdataPrefix();
         eventPrefix = PropCfg.getEventPrefix();
+        // cluster connections do not pipeline
+        enablePipeline = PropCfg.getEnableRedisPipeline() && !RedisKeys.isCluster();
+        setBlobTables(PropCfg.getBlobTables());
         if (PropCfg.getDataMaxCacheTLL() <= 0l) {
             enableDataCache = false;
         } else {
@@ -78,6 +110,10 @@ public class RedisRepoImpl implements RedisRepo {
             return;
         }
         hashOps = stringRedisTemplate.opsForHash();
+
+        mergeRowBlobScript = new DefaultRedisScript<>();
+        mergeRowBlobScript.setLocation(new ClassPathResource("scripts/merge-row-blob.lua"));
+        mergeRowBlobScript.setResultType(Long.class);
     }
 
     public boolean isEnableDataCache() {
@@ -88,6 +124,14 @@ public class RedisRepoImpl implements RedisRepo {
         this.enableDataCache = enable;
     }
 
+    public boolean isEnablePipeline() {
+        return enablePipeline;
+    }
+
+    public void setEnablePipeline(boolean enable) {
+        this.enablePipeline = enable;
+    }
+
     public String getHdataPrefix() {
         return hdataPrefix;
     }
@@ -96,6 +140,24 @@ public class RedisRepoImpl implements RedisRepo {
         this.hdataPrefix = hdataPrefix;
     }
 
+    public Set<String> getBlobTables() {
+        return blobTables;
+    }
+
+    /**
+     * @param tables String, comma separated table names
+     */
+    public void setBlobTables(String tables) {
+        Set<String> set = new HashSet<>();
+        if (tables != null) {
+            for (String table: tables.split(",")) {
+                table = table.trim();
+                if (table.length() > 0) set.add(table);
+            }
+        }
+        blobTables = set;
+    }
+
     public String getEventPrefix() {
         return eventPrefix;
     }
@@ -113,7 +175,7 @@ public class RedisRepoImpl implements RedisRepo {
 
         String key = pair.getId();
         String type = pair.getType();
-        String hashKey = hdataPrefix + "::" + type + ":" + key;
+        String hashKey = hdataPrefix + "::" + RedisKeys.tag(type, key);
 
         if (enableDataCache) {
             if (AppCtx.getCacheOps().containsData(pair.getIdType())) {
@@ -127,10 +189,14 @@ public class RedisRepoImpl implements RedisRepo {
         if (stopWatch != null) stopWatch.stopNow();
 
         if (!hasIt) {
-            LOGGER.debug("ifExit not found from redis " + key);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("ifExit not found from redis " + key);
+            }
             return false;
         } else {
-            LOGGER.debug("ifExit found redis " + key);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("ifExit found redis " + key);
+            }
             return true;
         }
     }
@@ -150,7 +216,7 @@ public class RedisRepoImpl implements RedisRepo {
             KvPair pair = pairs.get(i);
             String key = pair.getId();
             String type = pair.getType();
-            String hashKey = hdataPrefix + "::" + type + ":" + key;
+            String hashKey = hdataPrefix + "::" + RedisKeys.tag(type, key);
 
             if (enableDataCache) {
                 if (AppCtx.getCacheOps().containsData(pair.getIdType())) {
@@ -164,14 +230,20 @@ public class RedisRepoImpl implements RedisRepo {
             if (stopWatch != null) stopWatch.stopNow();
 
             if (!foundAll) {
-                LOGGER.debug("ifExit not found from redis " + key);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("ifExit not found from redis " + key);
+                }
                 break;
             } else {
-                LOGGER.debug("ifExit found redis " + key);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("ifExit found redis " + key);
+                }
             }
         }
 
-        LOGGER.debug("ifExist returns " + foundAll);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("ifExist returns " + foundAll);
+        }
 
         return foundAll;
     }
@@ -189,12 +261,12 @@ public class RedisRepoImpl implements RedisRepo {
 
         String key = pair.getId();
         String type = pair.getType();
-        String hashKey = hdataPrefix + "::" + type + ":" + key;
+        String hashKey = hdataPrefix + "::" + RedisKeys.tag(type, key);
         Map<String, Object> map = pair.getData();
 
         StopWatch stopWatch = context.startStopWatch("redis", "hashOps.putAll");
         try {
-            hashOps.putAll(hashKey, map);
+            putAll(hashKey, map, keyInfo);
             if (stopWatch != null) stopWatch.stopNow();
 
             LOGGER.debug("update redis for " + key);
@@ -223,9 +295,30 @@ public class RedisRepoImpl implements RedisRepo {
 
         boolean foundAll = true;
 
+        if (enablePipeline && pairs.size() > 1) {
+
+            if (enableDataCache) {
+                for (KvPair pair: pairs) {
+                    AppCtx.getCacheOps().updateData(pair);
+                }
+            }
+
+            if (putAllPipelined(context, pairs, anyKey)) {
+
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("update returns " + foundAll);
+                }
+
+                return foundAll;
+            }
+
+            // fall through to update one by one, to find out which one fails
+        }
+
         for (int i = 0; i < pairs.size(); i++) {
             
             KvPair pair = pairs.get(i);
+            KeyInfo keyInfo = anyKey.getAny(i);
 
             if (enableDataCache) {
                 AppCtx.getCacheOps().updateData(pair);
@@ -233,12 +326,12 @@ public class RedisRepoImpl implements RedisRepo {
 
             String key = pair.getId();
             String type = pair.getType();
-            String hashKey = hdataPrefix + "::" + type + ":" + key;
+            String hashKey = hdataPrefix + "::" + RedisKeys.tag(type, key);
             Map<String, Object> map = pair.getData();
 
             StopWatch stopWatch = context.startStopWatch("redis", "hashOps.putAll");
             try {
-                hashOps.putAll(hashKey, map);
+                putAll(hashKey, map, keyInfo);
                 if (stopWatch != null) stopWatch.stopNow();
 
                 LOGGER.debug("update redis for " + key);
@@ -255,7 +348,9 @@ public class RedisRepoImpl implements RedisRepo {
             }
         }
 
-        LOGGER.debug("update returns " + foundAll);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("update returns " + foundAll);
+        }
 
         return foundAll;
     }
@@ -272,14 +367,16 @@ public class RedisRepoImpl implements RedisRepo {
         String key = pair.getId();
         String type = pair.getType();
 
-        String hashKey = hdataPrefix + "::" + type + ":" + key;
+        String hashKey = hdataPrefix + "::" + RedisKeys.tag(type, key);
         Map<String, Object> map = null;
 
         if (enableDataCache) {
             map = (Map<String, Object>) AppCtx.getCacheOps().getData(pair.getIdType());
             if (map != null && map.size() > 0) {
                 pair.setData(map);
-                LOGGER.debug("find - found from cache " + key);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("find - found from cache " + key);
+                }
             }
         }
 
@@ -287,7 +384,7 @@ public class RedisRepoImpl implements RedisRepo {
 
             StopWatch stopWatch = context.startStopWatch("redis", "hashOps.entries");
             try {
-                map = hashOps.entries(hashKey);
+                map = entries(hashKey, keyInfo);
                 if (stopWatch != null) stopWatch.stopNow();
 
                 if (map != null && map.size() > 0) {
@@ -295,7 +392,9 @@ public class RedisRepoImpl implements RedisRepo {
                     if (enableDataCache) {
                         AppCtx.getCacheOps().putData(pair, keyInfo);
                     }
-                    LOGGER.debug("find - found from redis " + key);
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("find - found from redis " + key);
+                    }
                 }
             } catch (Exception e) {
                 if (stopWatch != null) stopWatch.stopNow();
@@ -314,7 +413,9 @@ public class RedisRepoImpl implements RedisRepo {
 
         if (map == null || map.size() == 0) {
             foundAll = false;
-            LOGGER.debug("find - not found " + key);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("find - not found " + key);
+            }
         }
 
         if (LOGGER.isTraceEnabled()) LOGGER.trace("find returns " + foundAll);
@@ -332,6 +433,12 @@ public class RedisRepoImpl implements RedisRepo {
 
         boolean foundAll = true;
 
+        // local cache first, only the misses go to redis
+        //
+        List<Integer> indexes = new ArrayList<>();
+        List<String> hashKeys = new ArrayList<>();
+        List<KeyInfo> keyInfos = new ArrayList<>();
+
         for (int i = 0; i < pairs.size(); i++) {
 
             KvPair pair = pairs.get(i);
@@ -339,55 +446,125 @@ public class RedisRepoImpl implements RedisRepo {
             String type = pair.getType();
             KeyInfo keyInfo = anyKey.getAny(i);
 
-            String hashKey = hdataPrefix + "::" + type + ":" + key;
-            Map<String, Object> map = null;
-
             if (enableDataCache) {
-                map = (Map<String, Object>) AppCtx.getCacheOps().getData(pair.getIdType());
+                Map<String, Object> map = (Map<String, Object>) AppCtx.getCacheOps().getData(pair.getIdType());
                 if (map != null && map.size() > 0) {
                     pair.setData(map);
-                    LOGGER.debug("find - found from cache " + key);
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("find - found from cache " + key);
+                    }
+                    continue;
                 }
             }
 
-            if (map == null) {
+            indexes.add(i);
+            hashKeys.add(hdataPrefix + "::" + RedisKeys.tag(type, key));
+            keyInfos.add(keyInfo);
+        }
 
-                StopWatch stopWatch = context.startStopWatch("redis", "hashOps.entries");
-                try {
-                    map = hashOps.entries(hashKey);
-                    if (stopWatch != null) stopWatch.stopNow();
+        if (indexes.size() == 0) {
 
-                    if (map != null && map.size() > 0) {
-                        pair.setData(map);
-                        if (enableDataCache) {
-                            AppCtx.getCacheOps().putData(pair, keyInfo);
-                        }
-                        LOGGER.debug("find - found from redis " + key);
-                    }
-                } catch (Exception e) {
-                    if (stopWatch != null) stopWatch.stopNow();
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("find returns " + foundAll);
+            }
+
+            return foundAll;
+        }
 
+        if (!enablePipeline || indexes.size() == 1) {
+
+            for (int i = 0; i < indexes.size(); i++) {
+                if (!find(context, pairs.get(indexes.get(i)), keyInfos.get(i))) {
                     foundAll = false;
+                }
+            }
 
-                    String msg = e.getCause().getMessage();
-                    LOGGER.error(msg);
-                    context.logTraceMessage(msg);
-                    e.printStackTrace();
-                    if (context.isSync()) {
-                        throw new ServerErrorException(context, msg);
-                    }
-                    continue;
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("find returns " + foundAll);
+            }
+
+            return foundAll;
+        }
+
+        // rows of blob tables come in one MGET
+        //
+        if (blobTables.size() > 0) {
+            List<Integer> blobIndexes = new ArrayList<>();
+            List<String> blobKeys = new ArrayList<>();
+            for (int i = indexes.size() - 1; i >= 0; i--) {
+                if (isBlob(keyInfos.get(i))) {
+                    blobIndexes.add(0, indexes.remove(i));
+                    blobKeys.add(0, hashKeys.remove(i));
+                    keyInfos.remove(i);
                 }
             }
+            if (blobIndexes.size() > 0 && !findBlobs(context, pairs, anyKey, blobIndexes, blobKeys)) {
+                foundAll = false;
+            }
+        }
+
+        if (indexes.size() == 0) {
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("find returns " + foundAll);
+            }
+
+            return foundAll;
+        }
+
+        List<Object> results = null;
+
+        StopWatch stopWatch = context.startStopWatch("redis", "stringRedisTemplate.executePipelined");
+        try {
+            results = batchEntries(hashKeys);
+            if (stopWatch != null) stopWatch.stopNow();
+
+        } catch (Exception e) {
+            if (stopWatch != null) stopWatch.stopNow();
+
+            String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            LOGGER.error(msg);
+            context.logTraceMessage(msg);
+            e.printStackTrace();
+            if (context.isSync()) {
+                throw new ServerErrorException(context, msg);
+            }
+
+            LOGGER.trace("find returns false");
+
+            return false;
+        }
+
+        for (int i = 0; i < indexes.size(); i++) {
+
+            KvPair pair = pairs.get(indexes.get(i));
+            String key = pair.getId();
+
+            Map<String, Object> map = null;
+            if (results != null && i < results.size()) {
+                map = (Map<String, Object>) results.get(i);
+            }
 
             if (map == null || map.size() == 0) {
                 foundAll = false;
-                LOGGER.debug("find - not found " + key);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("find - not found " + key);
+                }
                 continue;
             }
+
+            pair.setData(map);
+            if (enableDataCache) {
+                AppCtx.getCacheOps().putData(pair, keyInfos.get(i));
+            }
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("find - found from redis " + key);
+            }
         }
 
-        LOGGER.trace("find returns " + foundAll);
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("find returns " + foundAll);
+        }
 
         return foundAll;
     }
@@ -404,7 +581,7 @@ public class RedisRepoImpl implements RedisRepo {
         String key = pair.getId();
         String type = pair.getType();
 
-        String hashKey = hdataPrefix + "::" + type + ":" + key;
+        String hashKey = hdataPrefix + "::" + RedisKeys.tag(type, key);
 
         Map<String, Object> map = pair.getData();
         if (enableDataCache) {
@@ -413,7 +590,7 @@ public class RedisRepoImpl implements RedisRepo {
 
         StopWatch stopWatch = context.startStopWatch("redis", "hashOps.putAll");
         try {
-            hashOps.putAll(hashKey, map);
+            putAll(hashKey, map, keyInfo);
             if (stopWatch != null) stopWatch.stopNow();
 
             LOGGER.debug("save to redis for " + key);
@@ -451,12 +628,31 @@ public class RedisRepoImpl implements RedisRepo {
 
         boolean savedAll = true;
 
+        if (enablePipeline && pairs.size() > 1) {
+
+            for (int i = 0; i < pairs.size(); i++) {
+                KeyInfo keyInfo = anyKey.getAny(i);
+                if (enableDataCache) {
+                    AppCtx.getCacheOps().putData(pairs.get(i), keyInfo);
+                }
+            }
+
+            if (putAllPipelined(context, pairs, anyKey)) {
+
+                if (LOGGER.isTraceEnabled()) LOGGER.trace("save returns " + savedAll);
+
+                return savedAll;
+            }
+
+            // fall through to save one by one, to find out which one fails
+        }
+
         for (int i = 0; i < pairs.size(); i++) {
 
             KvPair pair = pairs.get(i);
             String key = pair.getId();
             String type = pair.getType();
-            String hashKey = hdataPrefix + "::" + type + ":" + key;
+            String hashKey = hdataPrefix + "::" + RedisKeys.tag(type, key);
             KeyInfo keyInfo = anyKey.getAny(i);
 
             Map<String, Object> map = pair.getData();
@@ -466,7 +662,7 @@ public class RedisRepoImpl implements RedisRepo {
 
             StopWatch stopWatch = context.startStopWatch("redis", "hashOps.putAll");
             try {
-                hashOps.putAll(hashKey, map);
+                putAll(hashKey, map, keyInfo);
                 if (stopWatch != null) stopWatch.stopNow();
 
                 LOGGER.debug("save to redis for " + key);
@@ -506,14 +702,16 @@ public class RedisRepoImpl implements RedisRepo {
 
         String key = pair.getId();
         String type = pair.getType();
-        String hashKey = hdataPrefix + "::" + type + ":" + key;
+        String hashKey = hdataPrefix + "::" + RedisKeys.tag(type, key);
         Map<String, Object> map = pair.getData();
         Map<String, Object> fmap = null;
 
         if (enableDataCache) {
             fmap = AppCtx.getCacheOps().getData(pair.getIdType());
             if (fmap != null && fmap.size() > 0) {
-                LOGGER.debug("findAndSave - found from cache " + key);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("findAndSave - found from cache " + key);
+                }
             }
         }
 
@@ -522,11 +720,13 @@ public class RedisRepoImpl implements RedisRepo {
         if (fmap == null) {
             try {
                 stopWatch = context.startStopWatch("redis", "hashOps.entries");
-                fmap = hashOps.entries(hashKey);
+                fmap = entries(hashKey, keyInfo);
                 if (stopWatch != null) stopWatch.stopNow();
 
                 if (fmap != null && fmap.size() > 0) {
-                    LOGGER.debug("findAndSave - found from redis " + key);
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("findAndSave - found from redis " + key);
+                    }
                 }
             } catch (Exception e) {
                 if (stopWatch != null) stopWatch.stopNow();
@@ -546,7 +746,7 @@ public class RedisRepoImpl implements RedisRepo {
 
         try {
             stopWatch = context.startStopWatch("redis", "hashOps.putAll");
-            hashOps.putAll(hashKey, map);
+            putAll(hashKey, map, keyInfo);
             if (stopWatch != null) stopWatch.stopNow();
 
             LOGGER.debug("findAndSave - save " + key);
@@ -589,7 +789,7 @@ public class RedisRepoImpl implements RedisRepo {
             KvPair pair = pairs.get(i);
             String key = pair.getId();
             String type = pair.getType();
-            String hashKey = hdataPrefix + "::" + type + ":" + key;
+            String hashKey = hdataPrefix + "::" + RedisKeys.tag(type, key);
             KeyInfo keyInfo = anyKey.getAny(i);
 
             Map<String, Object> map = pair.getData();
@@ -598,7 +798,9 @@ public class RedisRepoImpl implements RedisRepo {
             if (enableDataCache) {
                 fmap = AppCtx.getCacheOps().getData(pair.getIdType());
                 if (fmap != null && fmap.size() > 0) {
-                    LOGGER.debug("findAndSave - found from cache " + key);
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("findAndSave - found from cache " + key);
+                    }
                 }
                 AppCtx.getCacheOps().putData(pair, keyInfo);
             }
@@ -608,11 +810,13 @@ public class RedisRepoImpl implements RedisRepo {
             if (fmap == null) {
                 try {
                     stopWatch = context.startStopWatch("redis", "hashOps.entries");
-                    fmap = hashOps.entries(hashKey);
+                    fmap = entries(hashKey, keyInfo);
                     if (stopWatch != null) stopWatch.stopNow();
 
                     if (fmap != null && fmap.size() > 0) {
-                        LOGGER.debug("findAndSave - found from redis " + key);
+                        if (LOGGER.isDebugEnabled()) {
+                            LOGGER.debug("findAndSave - found from redis " + key);
+                        }
                     }
                 } catch (Exception e) {
                     if (stopWatch != null) stopWatch.stopNow();
@@ -628,7 +832,7 @@ public class RedisRepoImpl implements RedisRepo {
 
             try {
                 stopWatch = context.startStopWatch("redis", "hashOps.putAll");
-                hashOps.putAll(hashKey, map);
+                putAll(hashKey, map, keyInfo);
                 if (stopWatch != null) stopWatch.stopNow();
 
                 LOGGER.debug("findAndSave - save " + key);
@@ -671,24 +875,28 @@ public class RedisRepoImpl implements RedisRepo {
         String key = pair.getId();
         String type = pair.getType();
 
-        String hashKey = hdataPrefix + "::" + type + ":" + key;
-        String expKey = eventPrefix + "::" + type + ":" + key;
+        String hashKey = hdataPrefix + "::" + RedisKeys.tag(type, key);
+        String indexKey = "index_" + eventPrefix + "::" + RedisKeys.tag(type, key);
 
-        // get existing expire key
-        StopWatch stopWatch = context.startStopWatch("redis", "stringRedisTemplate.hasKey");
-        Set<String> expKeys = AppCtx.getStringRedisTemplate().keys(expKey + "::*");
+        Set<String> keys = new HashSet<>();
+        keys.add(hashKey);
+
+        // get existing expire keys from the expire key index
+        StopWatch stopWatch = context.startStopWatch("redis", "setOps.members");
+        Set<String> expKeys = AppCtx.getStringRedisTemplate().opsForSet().members(indexKey);
         if (stopWatch != null) stopWatch.stopNow();
 
         if (expKeys != null && expKeys.size() > 0) {
-            stopWatch = context.startStopWatch("redis", "stringRedisTemplate.delete");
-            AppCtx.getStringRedisTemplate().delete(expKeys);
-            if (stopWatch != null) stopWatch.stopNow();
+            keys.addAll(expKeys);
+            keys.add(indexKey);
 
-            LOGGER.debug("delete " + key);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("delete " + key);
+            }
         }
 
         stopWatch = context.startStopWatch("redis", "stringRedisTemplate.delete");
-        AppCtx.getStringRedisTemplate().delete(hashKey);
+        AppCtx.getStringRedisTemplate().delete(keys);
         if (stopWatch != null) stopWatch.stopNow();
 
         LOGGER.trace("delete done");
@@ -713,21 +921,22 @@ public class RedisRepoImpl implements RedisRepo {
             KvPair pair = pairs.get(i);
             String key = pair.getId();
             String type = pair.getType();
-            hashKeys.add(hdataPrefix + "::" + type + ":" + key);
+            hashKeys.add(hdataPrefix + "::" + RedisKeys.tag(type, key));
 
-            String expKey = eventPrefix + "::" + type + ":" + key;
+            String indexKey = "index_" + eventPrefix + "::" + RedisKeys.tag(type, key);
 
-            // get existing expire key
-            StopWatch stopWatch = context.startStopWatch("redis", "stringRedisTemplate.hasKey");
-            Set<String> expKeys = AppCtx.getStringRedisTemplate().keys(expKey + "::*");
+            // get existing expire keys from the expire key index
+            StopWatch stopWatch = context.startStopWatch("redis", "setOps.members");
+            Set<String> expKeys = AppCtx.getStringRedisTemplate().opsForSet().members(indexKey);
             if (stopWatch != null) stopWatch.stopNow();
 
             if (expKeys != null && expKeys.size() > 0) {
-                stopWatch = context.startStopWatch("redis", "stringRedisTemplate.delete");
-                AppCtx.getStringRedisTemplate().delete(expKeys);
-                if (stopWatch != null) stopWatch.stopNow();
+                hashKeys.addAll(expKeys);
+                hashKeys.add(indexKey);
 
-                LOGGER.debug("delete " + key);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("delete " + key);
+                }
             }
         }
 
@@ -738,4 +947,220 @@ public class RedisRepoImpl implements RedisRepo {
         LOGGER.trace("delete done");
 
     }
+
+    // send all HMSETs of pairs in one pipeline, returns false if any of them fails
+    //
+    private boolean putAllPipelined(final Context context, final KvPairs pairs, final AnyKey anyKey) {
+
+        // scripts can't be pipelined, rows of blob tables are merged one by one
+        KvPairs hashPairs = pairs;
+        if (blobTables.size() > 0) {
+            hashPairs = new KvPairs();
+            for (int i = 0; i < pairs.size(); i++) {
+                KvPair pair = pairs.get(i);
+                KeyInfo keyInfo = anyKey.getAny(i);
+                if (!isBlob(keyInfo)) {
+                    hashPairs.add(pair);
+                    continue;
+                }
+                StopWatch stopWatch = context.startStopWatch("redis", "scriptExecutor.execute");
+                try {
+                    putAll(hdataPrefix + "::" + RedisKeys.tag(pair.getType(), pair.getId()), pair.getData(), keyInfo);
+                    if (stopWatch != null) stopWatch.stopNow();
+                } catch (Exception e) {
+                    if (stopWatch != null) stopWatch.stopNow();
+
+                    String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                    LOGGER.error("merge row blob failed: " + msg);
+                    context.logTraceMessage(msg);
+
+                    return false;
+                }
+            }
+            if (hashPairs.size() == 0) {
+                return true;
+            }
+        }
+        final KvPairs pipelinedPairs = hashPairs;
+
+        Map<String, Map<String, Object>> maps = new LinkedHashMap<>();
+        for (KvPair pair: pipelinedPairs) {
+            maps.put(hdataPrefix + "::" + RedisKeys.tag(pair.getType(), pair.getId()), pair.getData());
+        }
+
+        StopWatch stopWatch = context.startStopWatch("redis", "stringRedisTemplate.executePipelined");
+        try {
+            batchPutAll(maps);
+            if (stopWatch != null) stopWatch.stopNow();
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("putAll pipelined to redis for " + pipelinedPairs.size() + " pairs");
+            }
+
+            return true;
+
+        } catch (Exception e) {
+            if (stopWatch != null) stopWatch.stopNow();
+
+            String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            LOGGER.error("putAll pipelined failed: " + msg);
+            context.logTraceMessage(msg);
+
+            return false;
+        }
+    }
+
+    // HGETALL of all hash keys in one pipeline, results come in the same order
+    //
+    protected List<Object> batchEntries(final List<String> hashKeys) {
+        return AppCtx.getStringRedisTemplate().executePipelined(new SessionCallback<Object>() {
+            @Override
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                HashOperations ops = operations.opsForHash();
+                for (String hashKey: hashKeys) {
+                    ops.entries(hashKey);
+                }
+                return null;
+            }
+        });
+    }
+
+    // HMSET of all hash keys in one pipeline
+    //
+    protected void batchPutAll(final Map<String, Map<String, Object>> maps) {
+        AppCtx.getStringRedisTemplate().executePipelined(new SessionCallback<Object>() {
+            @Override
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                HashOperations ops = operations.opsForHash();
+                for (Map.Entry<String, Map<String, Object>> entry: maps.entrySet()) {
+                    ops.putAll(entry.getKey(), entry.getValue());
+                }
+                return null;
+            }
+        });
+    }
+
+    private boolean isBlob(KeyInfo keyInfo) {
+        if (blobTables.size() == 0 || keyInfo == null) {
+            return false;
+        }
+        String table = keyInfo.getTable();
+        return table != null && blobTables.contains(table);
+    }
+
+    // HGETALL, or GET for a blob table
+    //
+    private Map<String, Object> entries(String hashKey, KeyInfo keyInfo) {
+        if (!isBlob(keyInfo)) {
+            return hashOps.entries(hashKey);
+        }
+        return getBlobs(Collections.singletonList(hashKey)).get(0);
+    }
+
+    // HMSET, or merge into the blob for a blob table
+    //
+    private void putAll(String hashKey, Map<String, Object> map, KeyInfo keyInfo) {
+        if (!isBlob(keyInfo)) {
+            hashOps.putAll(hashKey, map);
+            return;
+        }
+        byte[] blob = RowBlob.encode(map, ValueCodecs.forName(PropCfg.getValueCodec()));
+        AppCtx.getStringRedisTemplate().execute(mergeRowBlobScript, bytesSerializer, null,
+                Collections.singletonList(hashKey), blob);
+    }
+
+    // MGET all rows at once; MGET returns nil for a row still stored as a hash,
+    // those rows are read by HGETALL, in one pipeline when pipelining is enabled
+    //
+    List<Map<String, Object>> getBlobs(final List<String> hashKeys) {
+        List<byte[]> blobs = AppCtx.getStringRedisTemplate().execute(new RedisCallback<List<byte[]>>() {
+            @Override
+            public List<byte[]> doInRedis(RedisConnection connection) throws DataAccessException {
+                byte[][] keys = new byte[hashKeys.size()][];
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = hashKeys.get(i).getBytes(StandardCharsets.UTF_8);
+                }
+                return connection.mGet(keys);
+            }
+        });
+        List<Map<String, Object>> maps = new ArrayList<>();
+        List<Integer> hashIndexes = new ArrayList<>();
+        List<String> hashKeysLeft = new ArrayList<>();
+        for (int i = 0; i < hashKeys.size(); i++) {
+            byte[] blob = (blobs != null && i < blobs.size() ? blobs.get(i) : null);
+            if (blob != null) {
+                maps.add(RowBlob.decode(blob));
+            } else {
+                maps.add(null);
+                hashIndexes.add(i);
+                hashKeysLeft.add(hashKeys.get(i));
+            }
+        }
+        if (hashKeysLeft.size() == 0) {
+            return maps;
+        }
+        if (!enablePipeline || hashKeysLeft.size() == 1) {
+            for (int i = 0; i < hashIndexes.size(); i++) {
+                maps.set(hashIndexes.get(i), hashOps.entries(hashKeysLeft.get(i)));
+            }
+            return maps;
+        }
+        List<Object> results = batchEntries(hashKeysLeft);
+        for (int i = 0; i < hashIndexes.size(); i++) {
+            Object result = (results != null && i < results.size() ? results.get(i) : null);
+            maps.set(hashIndexes.get(i), (Map<String, Object>) result);
+        }
+        return maps;
+    }
+
+    private boolean findBlobs(final Context context, final KvPairs pairs, final AnyKey anyKey,
+                              final List<Integer> indexes, final List<String> hashKeys) {
+
+        List<Map<String, Object>> maps = null;
+
+        StopWatch stopWatch = context.startStopWatch("redis", "connection.mGet");
+        try {
+            maps = getBlobs(hashKeys);
+            if (stopWatch != null) stopWatch.stopNow();
+
+        } catch (Exception e) {
+            if (stopWatch != null) stopWatch.stopNow();
+
+            String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            LOGGER.error(msg);
+            context.logTraceMessage(msg);
+            e.printStackTrace();
+            if (context.isSync()) {
+                throw new ServerErrorException(context, msg);
+            }
+            return false;
+        }
+
+        boolean foundAll = true;
+
+        for (int i = 0; i < indexes.size(); i++) {
+
+            int index = indexes.get(i);
+            KvPair pair = pairs.get(index);
+            Map<String, Object> map = maps.get(i);
+
+            if (map == null || map.size() == 0) {
+                foundAll = false;
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("find - not found " + pair.getId());
+                }
+                continue;
+            }
+
+            pair.setData(map);
+            if (enableDataCache) {
+                AppCtx.getCacheOps().putData(pair, anyKey.getAny(index));
+            }
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("find - found blob from redis " + pair.getId());
+            }
+        }
+
+        return foundAll;
+    }
 }
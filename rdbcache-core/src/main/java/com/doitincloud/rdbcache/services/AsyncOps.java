@@ -17,13 +17,14 @@
 package com.doitincloud.rdbcache.services;
 
 import com.doitincloud.rdbcache.configs.AppCtx;
-import com.doitincloud.commons.Utils;
+import com.doitincloud.rdbcache.configs.PropCfg;
 
 import com.doitincloud.rdbcache.models.KeyInfo;
 import com.doitincloud.rdbcache.models.StopWatch;
 import com.doitincloud.rdbcache.supports.AnyKey;
 import com.doitincloud.rdbcache.supports.Context;
 import com.doitincloud.rdbcache.supports.KvPairs;
+import com.doitincloud.rdbcache.supports.TaskPools;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
@@ -51,13 +52,23 @@ public class AsyncOps {
     public void handleApplicationReadyEvent(ApplicationReadyEvent event) {
     }
 
+    private boolean isWriteBehind() {
+        if (!PropCfg.getEnableWriteBehind()) {
+            return false;
+        }
+        WriteBehindOps ops = AppCtx.getWriteBehindOps();
+        return ops != null && ops.isRunning();
+    }
+
     public void doSetExpKey(Context context, KvPair pair, KeyInfo keyInfo) {
 
-        LOGGER.trace("doSetExpKey: " + pair.printKey() + " table: " + keyInfo.getTable());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doSetExpKey: " + pair.printKey() + " table: " + keyInfo.getTable());
+        }
 
         // set expire key always runs asynchronously
         //
-        Utils.getExcutorService().submit(() -> {
+        TaskPools.getExpirePool().submit(() -> {
 
             AppCtx.getExpireOps().setExpireKey(context, pair, keyInfo);
             context.closeMonitor();
@@ -66,11 +77,13 @@ public class AsyncOps {
 
     public void doSetExpKey(Context context, KvPairs pairs, AnyKey anyKey) {
 
-        LOGGER.trace("doSetExpKey: " + pairs.size() + " table: " + anyKey.printTable());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doSetExpKey: " + pairs.size() + " table: " + anyKey.printTable());
+        }
 
         // set expire key always runs asynchronously
         //
-        Utils.getExcutorService().submit(() -> {
+        TaskPools.getExpirePool().submit(() -> {
 
             AppCtx.getExpireOps().setExpireKey(context, pairs, anyKey);
             context.closeMonitor();
@@ -79,7 +92,9 @@ public class AsyncOps {
 
     public void doSaveToRedis(Context context, KvPair pair, KeyInfo keyInfo) {
 
-        LOGGER.trace("doSaveToRedis: " + pair.printKey() + " table: " + keyInfo.getTable());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doSaveToRedis: " + pair.printKey() + " table: " + keyInfo.getTable());
+        }
 
         if (context.isSync()) {
 
@@ -88,7 +103,7 @@ public class AsyncOps {
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        TaskPools.getRedisPool().submit(() -> {
 
             AppCtx.getRedisRepo().save(context, pair, keyInfo);
             AppCtx.getExpireOps().setExpireKey(context, pair, keyInfo);
@@ -98,7 +113,9 @@ public class AsyncOps {
 
     public void doSaveToRedis(Context context, KvPairs pairs, AnyKey anyKey) {
 
-        LOGGER.trace("doSaveToRedis: " + pairs.size() + " table: " + anyKey.printTable());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doSaveToRedis: " + pairs.size() + " table: " + anyKey.printTable());
+        }
 
         if (context.isSync()) {
 
@@ -107,7 +124,7 @@ public class AsyncOps {
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        TaskPools.getRedisPool().submit(() -> {
 
             AppCtx.getRedisRepo().save(context, pairs, anyKey);
             AppCtx.getExpireOps().setExpireKey(context, pairs, anyKey);
@@ -117,7 +134,9 @@ public class AsyncOps {
 
     public void doSaveToDbase(Context context, KvPair pair, KeyInfo keyInfo) {
 
-        LOGGER.trace("doSaveToDbase: " + pair.printKey() + " table: " + keyInfo.getTable());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doSaveToDbase: " + pair.printKey() + " table: " + keyInfo.getTable());
+        }
 
         if (context.isSync()) {
 
@@ -126,7 +145,15 @@ public class AsyncOps {
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        if (!context.isDelayed() && isWriteBehind()) {
+
+            // the expire key is set up after the write is flushed
+            AppCtx.getWriteBehindOps().addSave(context, pair, keyInfo);
+            context.closeMonitor();
+            return;
+        }
+
+        TaskPools.getDbasePool().submit(() -> {
 
             if (!context.isDelayed()) {
                 AppCtx.getDbaseRepo().save(context, pair, keyInfo);
@@ -138,7 +165,9 @@ public class AsyncOps {
 
     public void doSaveToDbase(Context context, KvPairs pairs, AnyKey anyKey) {
 
-        LOGGER.trace("doSaveToDbase: " + pairs.size() + " table: " + anyKey.printTable());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doSaveToDbase: " + pairs.size() + " table: " + anyKey.printTable());
+        }
 
         if (context.isSync()) {
 
@@ -147,7 +176,15 @@ public class AsyncOps {
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        if (!context.isDelayed() && isWriteBehind()) {
+
+            // the expire key is set up after the write is flushed
+            AppCtx.getWriteBehindOps().addSave(context, pairs, anyKey);
+            context.closeMonitor();
+            return;
+        }
+
+        TaskPools.getDbasePool().submit(() -> {
 
             if (!context.isDelayed()) {
                 AppCtx.getDbaseRepo().save(context, pairs, anyKey);
@@ -159,7 +196,9 @@ public class AsyncOps {
 
     public void doUpdateToDbase(Context context, KvPair pair, KeyInfo keyInfo) {
 
-        LOGGER.trace("doUpateToDbase: " + pair.printKey() + " table: " + keyInfo.getTable());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doUpateToDbase: " + pair.printKey() + " table: " + keyInfo.getTable());
+        }
 
         if (context.isSync()) {
 
@@ -168,7 +207,15 @@ public class AsyncOps {
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        if (!context.isDelayed() && isWriteBehind()) {
+
+            // the expire key is set up after the write is flushed
+            AppCtx.getWriteBehindOps().addUpdate(context, pair, keyInfo);
+            context.closeMonitor();
+            return;
+        }
+
+        TaskPools.getDbasePool().submit(() -> {
 
             if (!context.isDelayed()) {
                 AppCtx.getDbaseRepo().update(context, pair, keyInfo);
@@ -180,7 +227,9 @@ public class AsyncOps {
 
     public void doUpdateToDbase(Context context, KvPairs pairs, AnyKey anyKey) {
 
-        LOGGER.trace("doUpateToDbase: " + pairs.size() + " table: " + anyKey.printTable());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doUpateToDbase: " + pairs.size() + " table: " + anyKey.printTable());
+        }
 
         if (context.isSync()) {
 
@@ -189,7 +238,15 @@ public class AsyncOps {
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        if (!context.isDelayed() && isWriteBehind()) {
+
+            // the expire key is set up after the write is flushed
+            AppCtx.getWriteBehindOps().addUpdate(context, pairs, anyKey);
+            context.closeMonitor();
+            return;
+        }
+
+        TaskPools.getDbasePool().submit(() -> {
 
             if (!context.isDelayed()) {
                 AppCtx.getDbaseRepo().update(context, pairs, anyKey);
@@ -201,7 +258,9 @@ public class AsyncOps {
 
     public void doPushOperations(Context context, KvPair pair, KeyInfo keyInfo) {
 
-        LOGGER.trace("doPushOperations: " + pair.printKey() + " table: " + keyInfo.getTable());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doPushOperations: " + pair.printKey() + " table: " + keyInfo.getTable());
+        }
 
         if (context.isSync()) {
 
@@ -211,7 +270,19 @@ public class AsyncOps {
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        if (!context.isDelayed() && isWriteBehind()) {
+
+            TaskPools.getRedisPool().submit(() -> {
+
+                AppCtx.getRedisRepo().update(context, pair, keyInfo);
+                // the expire key is set up after the write is flushed
+                AppCtx.getWriteBehindOps().addUpdate(context, pair, keyInfo);
+                context.closeMonitor();
+            });
+            return;
+        }
+
+        TaskPools.getDbasePool().submit(() -> {
 
             if (!context.isDelayed()) {
                 AppCtx.getDbaseRepo().update(context, pair, keyInfo);
@@ -224,7 +295,9 @@ public class AsyncOps {
 
     public void doPushOperations(Context context, KvPairs pairs, AnyKey anyKey) {
 
-        LOGGER.trace("doPushOperations: " + pairs.size() + " table: " + anyKey.printTable());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doPushOperations: " + pairs.size() + " table: " + anyKey.printTable());
+        }
 
         if (context.isSync()) {
 
@@ -234,7 +307,19 @@ public class AsyncOps {
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        if (!context.isDelayed() && isWriteBehind()) {
+
+            TaskPools.getRedisPool().submit(() -> {
+
+                AppCtx.getRedisRepo().update(context, pairs, anyKey);
+                // the expire key is set up after the write is flushed
+                AppCtx.getWriteBehindOps().addUpdate(context, pairs, anyKey);
+                context.closeMonitor();
+            });
+            return;
+        }
+
+        TaskPools.getDbasePool().submit(() -> {
 
             if (!context.isDelayed()) {
                 AppCtx.getDbaseRepo().update(context, pairs, anyKey);
@@ -247,7 +332,9 @@ public class AsyncOps {
 
     public void doSaveAllToRedisAndSaveAllTodDbase(Context context, KvPairs pairs, AnyKey anyKey) {
 
-        LOGGER.trace("doSaveToRedisAndDbase: " + pairs.size() + " table: " + anyKey.printTable());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doSaveToRedisAndDbase: " + pairs.size() + " table: " + anyKey.printTable());
+        }
 
         if (context.isSync()) {
 
@@ -257,7 +344,19 @@ public class AsyncOps {
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        if (!context.isDelayed() && isWriteBehind()) {
+
+            TaskPools.getRedisPool().submit(() -> {
+
+                AppCtx.getRedisRepo().save(context, pairs,  anyKey);
+                // the expire key is set up after the write is flushed
+                AppCtx.getWriteBehindOps().addSave(context, pairs, anyKey);
+                context.closeMonitor();
+            });
+            return;
+        }
+
+        TaskPools.getDbasePool().submit(() -> {
 
             AppCtx.getRedisRepo().save(context, pairs,  anyKey);
             if (!context.isDelayed()) {
@@ -270,7 +369,9 @@ public class AsyncOps {
 
     public void doSaveToRedisAndDbase(Context context, KvPair pair, KeyInfo keyInfo) {
 
-        LOGGER.trace("doSaveToRedisAndDbase: " + pair.printKey() + " table: " + keyInfo.getTable());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doSaveToRedisAndDbase: " + pair.printKey() + " table: " + keyInfo.getTable());
+        }
 
         if (context.isSync()) {
 
@@ -280,7 +381,19 @@ public class AsyncOps {
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        if (!context.isDelayed() && isWriteBehind()) {
+
+            TaskPools.getRedisPool().submit(() -> {
+
+                AppCtx.getRedisRepo().save(context, pair, keyInfo);
+                // the expire key is set up after the write is flushed
+                AppCtx.getWriteBehindOps().addSave(context, pair, keyInfo);
+                context.closeMonitor();
+            });
+            return;
+        }
+
+        TaskPools.getDbasePool().submit(() -> {
 
             AppCtx.getRedisRepo().save(context, pair, keyInfo);
             if (!context.isDelayed()) {
@@ -293,7 +406,9 @@ public class AsyncOps {
 
     public void doSaveToRedisAndDbase(Context context, KvPairs pairs, AnyKey anyKey) {
 
-        LOGGER.trace("doSaveToRedisAndDbase: " + pairs.size() + " table: " + anyKey.printTable());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doSaveToRedisAndDbase: " + pairs.size() + " table: " + anyKey.printTable());
+        }
 
         if (context.isSync()) {
 
@@ -303,7 +418,19 @@ public class AsyncOps {
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        if (!context.isDelayed() && isWriteBehind()) {
+
+            TaskPools.getRedisPool().submit(() -> {
+
+                AppCtx.getRedisRepo().save(context, pairs, anyKey);
+                // the expire key is set up after the write is flushed
+                AppCtx.getWriteBehindOps().addSave(context, pairs, anyKey);
+                context.closeMonitor();
+            });
+            return;
+        }
+
+        TaskPools.getDbasePool().submit(() -> {
 
             AppCtx.getRedisRepo().save(context, pairs, anyKey);
             if (!context.isDelayed()) {
@@ -316,7 +443,9 @@ public class AsyncOps {
 
     public void doPutOperation(Context context, KvPair pair, KeyInfo keyInfo) {
 
-        LOGGER.trace("doPutOperation: " + pair.printKey() + " table: " + keyInfo.getTable());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doPutOperation: " + pair.printKey() + " table: " + keyInfo.getTable());
+        }
 
         if (context.isSync()) {
 
@@ -332,10 +461,16 @@ public class AsyncOps {
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        TaskPools.getDbasePool().submit(() -> {
 
             if (AppCtx.getRedisRepo().ifExist(context, pair, keyInfo)) {
                 AppCtx.getRedisRepo().update(context, pair, keyInfo);
+                if (!context.isDelayed() && isWriteBehind()) {
+                    // the expire key is set up after the write is flushed
+                    AppCtx.getWriteBehindOps().addUpdate(context, pair, keyInfo);
+                    context.closeMonitor();
+                    return;
+                }
                 AppCtx.getDbaseRepo().update(context, pair, keyInfo);
             } else {
                 AppCtx.getDbaseRepo().save(context, pair, keyInfo);
@@ -349,7 +484,9 @@ public class AsyncOps {
 
     public void doPutOperation(Context context, KvPairs pairs, AnyKey anyKey) {
 
-        LOGGER.trace("doPutOperation: " + pairs.size() + " table: " + anyKey.print());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doPutOperation: " + pairs.size() + " table: " + anyKey.print());
+        }
 
         if (context.isSync()) {
 
@@ -365,10 +502,16 @@ public class AsyncOps {
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        TaskPools.getDbasePool().submit(() -> {
 
             if (AppCtx.getRedisRepo().ifExist(context, pairs, anyKey)) {
                 AppCtx.getRedisRepo().update(context, pairs, anyKey);
+                if (!context.isDelayed() && isWriteBehind()) {
+                    // the expire key is set up after the write is flushed
+                    AppCtx.getWriteBehindOps().addUpdate(context, pairs, anyKey);
+                    context.closeMonitor();
+                    return;
+                }
                 AppCtx.getDbaseRepo().update(context, pairs, anyKey);
             } else {
                 AppCtx.getDbaseRepo().save(context, pairs, anyKey);
@@ -382,7 +525,9 @@ public class AsyncOps {
 
     public void doDeleteFromRedis(Context context, KvPair pair, KeyInfo keyInfo) {
 
-        LOGGER.trace("doDeleteFromRedis: " + pair.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doDeleteFromRedis: " + pair.printKey());
+        }
 
         if (context.isSync()) {
 
@@ -390,13 +535,13 @@ public class AsyncOps {
             AppCtx.getKeyInfoRepo().delete(context, pair);
             deleteKvPairKeyInfo(context, pair, keyInfo);
 
-            Utils.getExcutorService().submit(() -> {
+            TaskPools.getRedisPool().submit(() -> {
                 context.closeMonitor();
             });
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        TaskPools.getRedisPool().submit(() -> {
 
             AppCtx.getRedisRepo().delete(context, pair, keyInfo);
             AppCtx.getKeyInfoRepo().delete(context, pair);
@@ -407,7 +552,9 @@ public class AsyncOps {
 
     public void doDeleteFromRedis(Context context, KvPairs pairs, AnyKey anyKey) {
 
-        LOGGER.trace("doDeleteFromRedis: " + pairs.size());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doDeleteFromRedis: " + pairs.size());
+        }
 
         if (context.isSync()) {
 
@@ -415,13 +562,13 @@ public class AsyncOps {
             AppCtx.getKeyInfoRepo().delete(context, pairs);
             deleteKvPairsKeyInfo(context, pairs, anyKey);
 
-            Utils.getExcutorService().submit(() -> {
+            TaskPools.getRedisPool().submit(() -> {
                 context.closeMonitor();
             });
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        TaskPools.getRedisPool().submit(() -> {
 
             AppCtx.getRedisRepo().delete(context, pairs, anyKey);
             AppCtx.getKeyInfoRepo().delete(context, pairs);
@@ -432,7 +579,9 @@ public class AsyncOps {
 
     public void doDeleteFromRedisAndDbase(Context context, KvPair pair, KeyInfo keyInfo) {
 
-        LOGGER.trace("doDeleteFromRedisAndDbase: " + pair.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doDeleteFromRedisAndDbase: " + pair.printKey());
+        }
 
         if (context.isSync()) {
 
@@ -441,13 +590,13 @@ public class AsyncOps {
             AppCtx.getKeyInfoRepo().delete(context, pair);
             deleteKvPairKeyInfo(context, pair, keyInfo);
 
-            Utils.getExcutorService().submit(() -> {
+            TaskPools.getDbasePool().submit(() -> {
                 context.closeMonitor();
             });
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        TaskPools.getDbasePool().submit(() -> {
 
             AppCtx.getRedisRepo().delete(context, pair, keyInfo);
             AppCtx.getDbaseRepo().delete(context, pair, keyInfo);
@@ -459,7 +608,9 @@ public class AsyncOps {
 
     public void doDeleteFromRedisAndDbase(Context context, KvPairs pairs, AnyKey anyKey) {
 
-        LOGGER.trace("doDeleteFromRedisAndDbase: " + pairs.size());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("doDeleteFromRedisAndDbase: " + pairs.size());
+        }
 
         if (context.isSync()) {
 
@@ -468,13 +619,13 @@ public class AsyncOps {
             AppCtx.getKeyInfoRepo().delete(context, pairs);
             deleteKvPairsKeyInfo(context, pairs, anyKey);
 
-            Utils.getExcutorService().submit(() -> {
+            TaskPools.getDbasePool().submit(() -> {
                 context.closeMonitor();
             });
             return;
         }
 
-        Utils.getExcutorService().submit(() -> {
+        TaskPools.getDbasePool().submit(() -> {
 
             AppCtx.getRedisRepo().delete(context, pairs, anyKey);
             AppCtx.getDbaseRepo().delete(context, pairs, anyKey);
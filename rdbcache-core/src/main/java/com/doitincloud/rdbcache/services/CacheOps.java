@@ -17,11 +17,13 @@
 package com.doitincloud.rdbcache.services;
 
 import com.doitincloud.commons.LocalCache;
+import com.doitincloud.commons.OffHeapStore;
 import com.doitincloud.rdbcache.configs.PropCfg;
 import com.doitincloud.commons.Utils;
 import com.doitincloud.rdbcache.models.KeyInfo;
 import com.doitincloud.rdbcache.models.KvIdType;
 import com.doitincloud.rdbcache.models.KvPair;
+import com.doitincloud.rdbcache.supports.TaskPools;
 
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.ContextRefreshedEvent;
@@ -29,6 +31,7 @@ import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +52,16 @@ public class CacheOps extends LocalCache {
         keyMinCacheTTL = PropCfg.getKeyMinCacheTTL();
         dataMaxCacheTLL = PropCfg.getDataMaxCacheTLL();
         setMaxSecsToLive(keyMinCacheTTL > dataMaxCacheTLL ? keyMinCacheTTL : dataMaxCacheTLL);
+        setRefreshExecutor(task -> {
+            // refresh ahead is skipped rather than run on the request thread
+            if (!TaskPools.getDbasePool().tryExecute(task)) {
+                throw new RejectedExecutionException("dbase pool is full");
+            }
+        });
+        Long offHeapMb = PropCfg.getDataOffHeapMb();
+        if (offHeapMb > 0L && getValueStore() == null) {
+            setValueStore(new OffHeapStore(offHeapMb * 1024L * 1024L));
+        }
 
         if (cache == null) {
             initializeCache();
@@ -106,7 +119,7 @@ public class CacheOps extends LocalCache {
 
     public void removeKeyInfo(KvIdType idType) {
         String hashKey = "keyInfo::"+ idType.getType() + ":" + idType.getId();
-        cache.remove(hashKey);
+        remove(hashKey);
     }
 
     public void removeKeyInfo(List<KvPair> pairs) {
@@ -122,7 +135,7 @@ public class CacheOps extends LocalCache {
         Long ttl = keyInfo.getExpireTTL();
         if (ttl > dataMaxCacheTLL) ttl = dataMaxCacheTLL;
         String hashKey = pair.getType() + "::" + pair.getId();
-        put(hashKey, pair.getDataClone(), ttl);
+        putOffHeap(hashKey, pair.getDataClone(), ttl);
     }
 
     public void updateData(KvPair pair) {
@@ -147,7 +160,7 @@ public class CacheOps extends LocalCache {
 
     public void removeData(KvIdType idType) {
         String hashKey = idType.getType() + "::" + idType.getId();
-        cache.remove(hashKey);
+        remove(hashKey);
     }
 
     public void removeKeyAndData(KvPair pair) {
@@ -195,7 +208,7 @@ public class CacheOps extends LocalCache {
                         continue;
                     }
                 }
-                cache.remove(key);
+                remove(key);
             }
         }
     }
@@ -234,7 +247,7 @@ public class CacheOps extends LocalCache {
                     continue;
                 }
             }
-            cache.remove(key);
+            remove(key);
         }
     }
 
@@ -245,7 +258,7 @@ public class CacheOps extends LocalCache {
             if (key.startsWith("table")) {
                 continue;
             }
-            cache.remove(key);
+            remove(key);
         }
     }
 
@@ -271,7 +284,7 @@ public class CacheOps extends LocalCache {
             if (!key.startsWith("table")) {
                 continue;
             }
-            cache.remove(key);
+            remove(key);
         }
     }
 }
@@ -19,6 +19,9 @@ package com.doitincloud.rdbcache.services;
 import com.doitincloud.rdbcache.configs.PropCfg;
 import com.doitincloud.commons.Utils;
 import com.doitincloud.rdbcache.configs.AppCtx;
+import com.doitincloud.rdbcache.configs.ClusterScriptExecutor;
+import com.doitincloud.rdbcache.configs.LettuceAsync;
+import com.doitincloud.rdbcache.configs.LettuceScriptExecutor;
 import com.doitincloud.rdbcache.models.KeyInfo;
 import com.doitincloud.rdbcache.models.KvPair;
 import com.doitincloud.rdbcache.models.StopWatch;
@@ -26,15 +29,16 @@ import com.doitincloud.rdbcache.supports.AnyKey;
 import com.doitincloud.rdbcache.supports.Context;
 import com.doitincloud.rdbcache.supports.ExpireDbOps;
 import com.doitincloud.rdbcache.supports.KvPairs;
+import com.doitincloud.rdbcache.supports.RedisKeys;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
-import org.springframework.data.redis.core.script.DefaultScriptExecutor;
 import org.springframework.data.redis.core.script.ScriptExecutor;
 import org.springframework.stereotype.Service;
 
@@ -42,9 +46,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 //@Service
 public class ExpireOps {
@@ -61,12 +70,25 @@ public class ExpireOps {
 
     private static DefaultRedisScript<Long> set_expire_key_script;
 
+    private static DefaultRedisScript<List> set_expire_keys_script;
+
+    private static DefaultRedisScript<List> index_expire_keys_script;
+
     private static DefaultRedisScript<String> expire_event_lock_script;
 
     private static DefaultRedisScript<Long> expire_event_unlock_script;
 
     private ScriptExecutor<String> scriptExecutor;
 
+    // expire keys are set up only after the scripts are loaded and the event keys indexed
+    private final CountDownLatch ready = new CountDownLatch(1);
+
+    // how long a call waits for the set up, in milliseconds. once a call times out,
+    // the calls after it do not wait, until the set up is done
+    private long readyTimeout = 30000L;
+
+    private volatile boolean readyTimedOut = false;
+
     @PostConstruct
     public void init() {
     }
@@ -80,6 +102,14 @@ public class ExpireOps {
 
     @EventListener
     public void handleApplicationReadyEvent(ApplicationReadyEvent event) {
+        try {
+            setup();
+        } finally {
+            ready.countDown();
+        }
+    }
+
+    private void setup() {
 
         StringRedisTemplate stringRedisTemplate = AppCtx.getStringRedisTemplate();
         if (stringRedisTemplate == null) {
@@ -96,6 +126,14 @@ public class ExpireOps {
         set_expire_key_script.setLocation(new ClassPathResource("scripts/set-expire-key.lua"));
         set_expire_key_script.setResultType(Long.class);
 
+        set_expire_keys_script = new DefaultRedisScript<>();
+        set_expire_keys_script.setLocation(new ClassPathResource("scripts/set-expire-keys.lua"));
+        set_expire_keys_script.setResultType(List.class);
+
+        index_expire_keys_script = new DefaultRedisScript<>();
+        index_expire_keys_script.setLocation(new ClassPathResource("scripts/index-expire-keys.lua"));
+        index_expire_keys_script.setResultType(List.class);
+
         expire_event_lock_script = new DefaultRedisScript<>();
         expire_event_lock_script.setLocation(new ClassPathResource("scripts/expire-event-lock.lua"));
         expire_event_lock_script.setResultType(String.class);
@@ -104,7 +142,50 @@ public class ExpireOps {
         expire_event_unlock_script.setLocation(new ClassPathResource("scripts/expire-event-unlock.lua"));
         expire_event_unlock_script.setResultType(Long.class);
 
-        scriptExecutor = new DefaultScriptExecutor<String>(stringRedisTemplate);
+        LettuceAsync lettuce = LettuceAsync.from(stringRedisTemplate.getConnectionFactory());
+        if (lettuce != null) {
+            scriptExecutor = new LettuceScriptExecutor<String>(stringRedisTemplate, lettuce);
+        } else {
+            scriptExecutor = new ClusterScriptExecutor<String>(stringRedisTemplate);
+        }
+
+        // SCAN in a script only sees the keys of one node
+        if (!RedisKeys.isCluster()) {
+            indexExpireKeys();
+        }
+    }
+
+    // event keys set before the index sets existed are not in any index set,
+    // they are added a few at a time, so that set-expire-key.lua still finds them.
+    // it is done once, a marker key is set when all event keys are indexed
+    //
+    public void indexExpireKeys() {
+
+        String markerKey = "indexed_" + eventPrefix;
+
+        try {
+
+            if (valueOps.get(markerKey) != null) {
+                return;
+            }
+
+            String cursor = "0";
+            long indexed = 0;
+            do {
+                List<Object> result = scriptExecutor.execute(index_expire_keys_script,
+                        Collections.emptyList(), eventPrefix, cursor, "1000");
+                cursor = String.valueOf(result.get(0));
+                indexed += (Long) result.get(1);
+            } while (!"0".equals(cursor));
+
+            valueOps.set(markerKey, "1");
+
+            LOGGER.info("indexed " + indexed + " expire event keys");
+
+        } catch (Exception e) {
+            String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            LOGGER.error("failed to index expire event keys: " + msg);
+        }
     }
 
     public String getEventPrefix() {
@@ -123,6 +204,14 @@ public class ExpireOps {
         this.enableMonitor = enableMonitor;
     }
 
+    public long getReadyTimeout() {
+        return readyTimeout;
+    }
+
+    public void setReadyTimeout(long readyTimeout) {
+        this.readyTimeout = readyTimeout;
+    }
+
     public Long getEventLockTimeout() {
         return eventLockTimeout;
     }
@@ -145,15 +234,22 @@ public class ExpireOps {
     //
     public void setExpireKey(Context context, KvPair pair, KeyInfo keyInfo) {
 
+        if (!awaitReady(context)) {
+            return;
+        }
+
         try {
 
             String key = pair.getId();
             String type = pair.getType();
 
-            LOGGER.trace("setExpireKey: " + pair.printKey() + " expire: " + keyInfo.getExpire());
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("setExpireKey: " + pair.printKey() + " expire: " + keyInfo.getExpire());
+            }
 
             String expire = keyInfo.getExpire();
-            String expKey = eventPrefix + "::" + type + ":" + key;
+            String expKey = eventPrefix + "::" + RedisKeys.tag(type, key);
+            String indexKey = "index_" + expKey;
 
             boolean noOps = keyInfo.isNoOps();
             if (noOps) {
@@ -162,7 +258,7 @@ public class ExpireOps {
 
             StopWatch stopWatch = context.startStopWatch("redis", "scriptExecutor.execute");
             Long result = scriptExecutor.execute(set_expire_key_script,
-                    Collections.singletonList(expKey), context.getTraceId(), expire);
+                    Arrays.asList(expKey, indexKey), context.getTraceId(), expire);
             if (stopWatch != null) stopWatch.stopNow();
 
             if (result != 1) {
@@ -178,13 +274,131 @@ public class ExpireOps {
         }
     }
 
+    // same as above for multiple keys, all keys are set up in one script call,
+    // on redis cluster in one call per hash slot
+    //
     public void setExpireKey(Context context, KvPairs pairs, AnyKey anyKey) {
 
-        for (int i = 0; i < pairs.size(); i++) {
-            KvPair pair = pairs.get(i);
-            KeyInfo keyInfo = anyKey.getAny(i);
-            setExpireKey(context, pair, keyInfo);
+        if (!awaitReady(context)) {
+            return;
+        }
+
+        if (pairs.size() < 2) {
+            for (int i = 0; i < pairs.size(); i++) {
+                KvPair pair = pairs.get(i);
+                KeyInfo keyInfo = anyKey.getAny(i);
+                setExpireKey(context, pair, keyInfo);
+            }
+            return;
+        }
+
+        try {
+
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("setExpireKey pairs(" + pairs.size() + "): " + pairs.printKey());
+            }
+
+            List<String> expKeys = new ArrayList<>();
+            Map<Integer, List<Integer>> slots = new LinkedHashMap<>();
+            boolean cluster = RedisKeys.isCluster();
+
+            for (int i = 0; i < pairs.size(); i++) {
+
+                KvPair pair = pairs.get(i);
+                KeyInfo keyInfo = anyKey.getAny(i);
+
+                String expKey = eventPrefix + "::" + RedisKeys.tag(pair.getType(), pair.getId());
+                if (keyInfo.isNoOps()) {
+                    expKey += "::" + keyInfo.getQueryKey() + "/" + keyInfo.getExpire();
+                }
+                expKeys.add(expKey);
+
+                Integer slot = cluster ? ClusterSlotHashUtil.calculateSlot(expKey) : 0;
+                List<Integer> indexes = slots.get(slot);
+                if (indexes == null) {
+                    indexes = new ArrayList<>();
+                    slots.put(slot, indexes);
+                }
+                indexes.add(i);
+            }
+
+            Long[] results = new Long[pairs.size()];
+
+            for (List<Integer> indexes: slots.values()) {
+
+                List<String> keys = new ArrayList<>();
+                List<String> args = new ArrayList<>();
+                args.add(context.getTraceId());
+
+                for (Integer i: indexes) {
+                    String expKey = expKeys.get(i);
+                    keys.add(expKey);
+                    keys.add("index_" + eventPrefix + "::" +
+                            RedisKeys.tag(pairs.get(i).getType(), pairs.get(i).getId()));
+                    args.add(anyKey.getAny(i).getExpire());
+                }
+
+                StopWatch stopWatch = context.startStopWatch("redis", "scriptExecutor.execute");
+                List<Long> list = scriptExecutor.execute(set_expire_keys_script, keys, args.toArray());
+                if (stopWatch != null) stopWatch.stopNow();
+
+                for (int j = 0; list != null && j < indexes.size() && j < list.size(); j++) {
+                    results[indexes.get(j)] = list.get(j);
+                }
+            }
+
+            KvPairs newPairs = new KvPairs();
+            AnyKey newAnyKey = new AnyKey();
+            boolean sameType = true;
+
+            for (int i = 0; i < pairs.size(); i++) {
+
+                KvPair pair = pairs.get(i);
+                KeyInfo keyInfo = anyKey.getAny(i);
+
+                Long result = results[i];
+                if (result == null || result != 1) {
+                    keyInfo.restoreExpire();
+                }
+                if (!keyInfo.isNoOps() && keyInfo.getIsNew()) {
+                    if (newPairs.size() > 0 && !newPairs.get(0).getType().equals(pair.getType())) {
+                        sameType = false;
+                    }
+                    newPairs.add(pair);
+                    newAnyKey.add(keyInfo);
+                }
+            }
+
+            // KeyInfoRepo saves multiple keyInfos only if they have the same type
+            if (sameType && newPairs.size() > 1) {
+                AppCtx.getKeyInfoRepo().save(context, newPairs, newAnyKey);
+            } else {
+                for (int i = 0; i < newPairs.size(); i++) {
+                    AppCtx.getKeyInfoRepo().save(context, newPairs.get(i), newAnyKey.get(i));
+                }
+            }
+        } catch (Exception e) {
+            String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            LOGGER.error(msg);
+            context.logTraceMessage(msg);
+        }
+    }
+
+    // returns false if the set up is not done in time, the expire keys of the call are not set up
+    //
+    private boolean awaitReady(Context context) {
+        try {
+            if (ready.await(readyTimedOut ? 0L : readyTimeout, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        readyTimedOut = true;
+        String msg = "expire ops not ready, expire key not set up";
+        LOGGER.error(msg);
+        context.logTraceMessage(msg);
+        return false;
     }
 
     /**
@@ -194,7 +408,9 @@ public class ExpireOps {
      */
     public void onExpireEvent(String event) {
 
-        LOGGER.debug("Received: " + event);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Received: " + event);
+        }
 
         if (!event.startsWith(eventPrefix)) {
             return;
@@ -207,7 +423,8 @@ public class ExpireOps {
             return;
         }
 
-        String hashKey = parts[1];
+        String tag = parts[1];
+        String hashKey = RedisKeys.untag(tag);
         int index = hashKey.indexOf(":");
         if (index < 0) {
             LOGGER.error("invalid event format, failed to figure out type and key");
@@ -229,12 +446,12 @@ public class ExpireOps {
                 if (subParts.length > 1) expireString = subParts[1];
             }
         }
-        Context context = new Context(traceId);
+        Context context = new Context(traceId, "onExpireEvent");
         KvPair pair = new KvPair(key, type);
 
         if (enableMonitor) context.enableMonitor(event, "event", key);
 
-        String lockKey = "lock_" + eventPrefix + "::" + hashKey + "::" + traceId;
+        String lockKey = "lock_" + eventPrefix + "::" + tag + "::" + traceId;
         String signature = Utils.generateId();
 
         StopWatch stopWatch = context.startStopWatch("redis", "scriptExecutor.execute");
@@ -242,7 +459,7 @@ public class ExpireOps {
                 Collections.singletonList(lockKey), signature, eventLockTimeout.toString());
         if (stopWatch != null) stopWatch.stopNow();
 
-        if (!result.equals("OK")) {
+        if (!"OK".equals(result)) {
             String msg = "unable to lock key: " + lockKey;
             LOGGER.trace(msg);
             context.closeMonitor();
@@ -380,7 +597,13 @@ public class ExpireOps {
         } finally {
 
             stopWatch = context.startStopWatch("redis", "scriptExecutor.execute");
-            scriptExecutor.execute(expire_event_unlock_script, Collections.singletonList(lockKey), signature);
+            if (scriptExecutor instanceof LettuceScriptExecutor) {
+                // nothing waits on the unlock
+                ((LettuceScriptExecutor<String>) scriptExecutor).executeAsync(expire_event_unlock_script,
+                        Collections.singletonList(lockKey), signature);
+            } else {
+                scriptExecutor.execute(expire_event_unlock_script, Collections.singletonList(lockKey), signature);
+            }
             if (stopWatch != null) stopWatch.stopNow();
 
             context.closeMonitor();
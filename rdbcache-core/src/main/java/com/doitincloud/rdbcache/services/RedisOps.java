@@ -136,11 +136,15 @@ public class RedisOps extends Thread {
             }
         }
         if (config == null) {
-            LOGGER.trace("config set for " + pattern + " is empty"); // it happens during unit test, which is OK
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("config set for " + pattern + " is empty"); // it happens during unit test, which is OK
+            }
             return;
         }
 
-        LOGGER.trace("config get " + Utils.toJson(config));
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("config get " + Utils.toJson(config));
+        }
 
         if (config.contains("E") && (config.contains("A") || config.contains("x"))) {
             return;
@@ -154,7 +158,9 @@ public class RedisOps extends Thread {
         }
         connection.setConfig("notify-keyspace-events", config);
 
-        LOGGER.trace("setConfig notify-keyspace-events " + config);
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("setConfig notify-keyspace-events " + config);
+        }
 
     }
 
@@ -223,6 +229,8 @@ public class RedisOps extends Thread {
     }
 
     public void onReceiveTask(String task) {
-        LOGGER.debug("Received Task: " + task);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Received Task: " + task);
+        }
     }
 }
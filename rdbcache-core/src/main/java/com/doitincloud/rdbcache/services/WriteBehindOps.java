@@ -0,0 +1,467 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.doitincloud.rdbcache.services;
+
+import com.doitincloud.rdbcache.configs.AppCtx;
+import com.doitincloud.rdbcache.configs.PropCfg;
+import com.doitincloud.rdbcache.models.KeyInfo;
+import com.doitincloud.rdbcache.models.KvIdType;
+import com.doitincloud.rdbcache.models.KvPair;
+import com.doitincloud.rdbcache.supports.AnyKey;
+import com.doitincloud.rdbcache.supports.Context;
+import com.doitincloud.rdbcache.supports.KvPairs;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// write-behind stage for database writes
+//
+// pending writes are keyed by KvIdType, a write to a key that is already pending is merged
+// into the pending one. pending writes are flushed every flush interval, or as soon as
+// there are batch size of them, grouped by table, so that each group goes to the database
+// in one call. inserts of the same shape are sent as one statement, updates as one jdbc batch.
+//
+// once a group is written, the expire keys of its pairs are set up, as it is done after
+// a database write that is not write-behind.
+//
+// a group that fails is put back to pending, under any newer write to the same key, and
+// retried on the next flush. after max retries failed attempts its writes are dropped.
+//
+// at most max pending keys are pending or being flushed. while the writer runs, a write
+// to a key that is not pending waits for the flush to make room, so that a slow or down
+// database holds back the writers instead of growing the heap.
+//
+@Service
+public class WriteBehindOps extends Thread {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindOps.class);
+
+    private Boolean enableWriteBehind = PropCfg.getEnableWriteBehind();
+
+    private Long flushIntervalMs = PropCfg.getWriteBehindFlushMs();
+
+    private Integer batchSize = PropCfg.getWriteBehindBatchSize();
+
+    private Integer maxRetries = PropCfg.getWriteBehindMaxRetries();
+
+    private Integer maxPending = PropCfg.getWriteBehindMaxPending();
+
+    private final Object lock = new Object();
+
+    private Map<KvIdType, Pending> pendings = new LinkedHashMap<>();
+
+    // number of pending writes taken by flush and not written, requeued or dropped yet
+    private int flushing = 0;
+
+    private final AtomicLong queuedCount = new AtomicLong();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    private final AtomicLong flushedCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final AtomicLong waitedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+    }
+
+    @EventListener
+    public void handleEvent(ContextRefreshedEvent event) {
+        enableWriteBehind = PropCfg.getEnableWriteBehind();
+        flushIntervalMs = PropCfg.getWriteBehindFlushMs();
+        batchSize = PropCfg.getWriteBehindBatchSize();
+        maxRetries = PropCfg.getWriteBehindMaxRetries();
+        maxPending = PropCfg.getWriteBehindMaxPending();
+    }
+
+    @EventListener
+    public void handleApplicationReadyEvent(ApplicationReadyEvent event) {
+        if (enableWriteBehind) {
+            setName("rdbcache-write-behind");
+            setDaemon(true);
+            start();
+        }
+    }
+
+    // the writer drains pending writes before it exits, wait for it,
+    // so that there is only one thread flushing
+    //
+    @PreDestroy
+    public void shutdown() {
+        if (isAlive()) {
+            interrupt();
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            drain();
+        }
+    }
+
+    public Boolean getEnableWriteBehind() {
+        return enableWriteBehind;
+    }
+
+    public void setEnableWriteBehind(Boolean enableWriteBehind) {
+        this.enableWriteBehind = enableWriteBehind;
+    }
+
+    public Long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public void setFlushIntervalMs(Long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Integer getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(Integer maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public Integer getMaxPending() {
+        return maxPending;
+    }
+
+    public void setMaxPending(Integer maxPending) {
+        this.maxPending = maxPending;
+    }
+
+    public int getPendingSize() {
+        synchronized (lock) {
+            return pendings.size();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("pending", getPendingSize());
+        map.put("queued", queuedCount.get());
+        map.put("coalesced", coalescedCount.get());
+        map.put("flushed", flushedCount.get());
+        map.put("failed", failedCount.get());
+        map.put("dropped", droppedCount.get());
+        map.put("waited", waitedCount.get());
+        return map;
+    }
+
+    public void addSave(Context context, KvPair pair, KeyInfo keyInfo) {
+        add(pair, keyInfo, true);
+    }
+
+    public void addSave(Context context, KvPairs pairs, AnyKey anyKey) {
+        for (int i = 0; i < pairs.size(); i++) {
+            add(pairs.get(i), anyKey.getAny(i), true);
+        }
+    }
+
+    public void addUpdate(Context context, KvPair pair, KeyInfo keyInfo) {
+        add(pair, keyInfo, false);
+    }
+
+    public void addUpdate(Context context, KvPairs pairs, AnyKey anyKey) {
+        for (int i = 0; i < pairs.size(); i++) {
+            add(pairs.get(i), anyKey.getAny(i), false);
+        }
+    }
+
+    private void add(KvPair pair, KeyInfo keyInfo, boolean isSave) {
+
+        queuedCount.incrementAndGet();
+
+        synchronized (lock) {
+
+            Pending pending = waitForRoom(pair.getIdType());
+            if (pending == null) {
+                pendings.put(pair.getIdType(), new Pending(pair.clone(), keyInfo.clone(), isSave));
+            } else {
+                coalescedCount.incrementAndGet();
+                Map<String, Object> data = pending.pair.getData();
+                Map<String, Object> update = pair.getData();
+                if (data == null) {
+                    pending.pair.setData(pair.getDataClone());
+                } else if (update != null) {
+                    data.putAll(update);
+                }
+                pending.keyInfo = newerKeyInfo(pending.keyInfo, keyInfo.clone());
+                // save finds what has changed from database, it covers an update
+                pending.isSave = pending.isSave || isSave;
+            }
+
+            if (pendings.size() >= batchSize) {
+                lock.notifyAll();
+            }
+        }
+
+        if (LOGGER.isTraceEnabled()) LOGGER.trace("add " + (isSave ? "save " : "update ") + pair.printKey());
+    }
+
+    // called with lock held, returns the pending write of the key if there is one,
+    // otherwise waits until there is room for a new one while the writer runs
+    //
+    private Pending waitForRoom(KvIdType idType) {
+
+        boolean waited = false;
+        while (true) {
+            Pending pending = pendings.get(idType);
+            if (pending != null || !isRunning || pendings.size() + flushing < maxPending) {
+                return pending;
+            }
+            if (!waited) {
+                waited = true;
+                waitedCount.incrementAndGet();
+            }
+            lock.notifyAll();
+            try {
+                lock.wait(flushIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return pendings.get(idType);
+            }
+        }
+    }
+
+    // flush all pending writes to database
+    //
+    public void flush() {
+
+        Map<KvIdType, Pending> toFlush;
+        synchronized (lock) {
+            if (pendings.size() == 0) {
+                return;
+            }
+            toFlush = pendings;
+            pendings = new LinkedHashMap<>();
+            flushing += toFlush.size();
+        }
+
+        // group by table and operation
+        Map<String, List<Pending>> groups = new LinkedHashMap<>();
+        for (Pending pending: toFlush.values()) {
+            String groupKey = (pending.isSave ? "save:" : "update:") + pending.keyInfo.getTable();
+            List<Pending> group = groups.get(groupKey);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(groupKey, group);
+            }
+            group.add(pending);
+        }
+
+        for (List<Pending> group: groups.values()) {
+
+            KvPairs pairs = new KvPairs();
+            AnyKey anyKey = new AnyKey();
+            for (Pending pending: group) {
+                pairs.add(pending.pair);
+                anyKey.add(pending.keyInfo);
+            }
+
+            Context context = new Context(false, "flush");
+            boolean ok;
+            try {
+                if (group.get(0).isSave) {
+                    ok = AppCtx.getDbaseRepo().save(context, pairs, anyKey);
+                } else {
+                    ok = AppCtx.getDbaseRepo().update(context, pairs, anyKey);
+                }
+            } catch (Exception e) {
+                String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                LOGGER.error("flush failed: " + msg);
+                e.printStackTrace();
+                ok = false;
+            }
+
+            if (ok) {
+                flushedCount.addAndGet(pairs.size());
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("flush " + pairs.size() + " pair(s) to " + anyKey.printTable());
+                }
+                synchronized (lock) {
+                    flushing -= group.size();
+                    lock.notifyAll();
+                }
+                AppCtx.getExpireOps().setExpireKey(context, pairs, anyKey);
+            } else {
+                failedCount.addAndGet(pairs.size());
+                requeue(group);
+            }
+        }
+    }
+
+    // a key info not saved yet stays new, so that setExpireKey still saves it
+    //
+    private static KeyInfo newerKeyInfo(KeyInfo older, KeyInfo newer) {
+        if (older.getIsNew()) {
+            newer.setIsNew(true);
+        }
+        return newer;
+    }
+
+    // flush until all pending writes are written or dropped,
+    // waiting a flush interval between attempts
+    //
+    private void drain() {
+        while (true) {
+            flush();
+            if (getPendingSize() == 0) {
+                break;
+            }
+            try {
+                Thread.sleep(flushIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void requeue(List<Pending> group) {
+
+        List<Pending> dropped = new ArrayList<>();
+
+        synchronized (lock) {
+            for (Pending pending: group) {
+                pending.failures++;
+                if (pending.failures > maxRetries) {
+                    dropped.add(pending);
+                    continue;
+                }
+                KvIdType idType = pending.pair.getIdType();
+                Pending newer = pendings.get(idType);
+                if (newer != null) {
+                    // the newer write goes over the failed one
+                    Map<String, Object> data = pending.pair.getData();
+                    Map<String, Object> update = newer.pair.getData();
+                    if (data == null) {
+                        pending.pair.setData(newer.pair.getDataClone());
+                    } else if (update != null) {
+                        data.putAll(update);
+                    }
+                    pending.keyInfo = newerKeyInfo(pending.keyInfo, newer.keyInfo);
+                    pending.isSave = pending.isSave || newer.isSave;
+                }
+                pendings.put(idType, pending);
+            }
+            flushing -= group.size();
+            lock.notifyAll();
+        }
+
+        if (dropped.size() > 0) {
+            droppedCount.addAndGet(dropped.size());
+            KvPairs droppedPairs = new KvPairs();
+            for (Pending pending: dropped) {
+                droppedPairs.add(pending.pair);
+            }
+            LOGGER.error("drop " + dropped.size() + " write(s) after " + maxRetries + " retries: " +
+                    droppedPairs.printKey());
+        } else if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("requeue " + group.size() + " pair(s) after failed flush");
+        }
+    }
+
+    private volatile boolean isRunning = false;
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    @Override
+    public void interrupt() {
+        isRunning = false;
+        super.interrupt();
+    }
+
+    @Override
+    public void run() {
+
+        isRunning = true;
+
+        while (isRunning) {
+
+            try {
+                synchronized (lock) {
+                    if (pendings.size() < batchSize) {
+                        lock.wait(flushIntervalMs);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            try {
+                flush();
+            } catch (Exception e) {
+                String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                LOGGER.error(msg);
+                e.printStackTrace();
+            }
+        }
+
+        isRunning = false;
+
+        // clear the interrupt, drain waits between retries
+        Thread.interrupted();
+
+        drain();
+    }
+
+    static class Pending {
+
+        KvPair pair;
+
+        KeyInfo keyInfo;
+
+        boolean isSave;
+
+        int failures = 0;
+
+        Pending(KvPair pair, KeyInfo keyInfo, boolean isSave) {
+            this.pair = pair;
+            this.keyInfo = keyInfo;
+            this.isSave = isSave;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.doitincloud.rdbcache.supports;
+
+import com.doitincloud.rdbcache.configs.PropCfg;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.ThreadLocalRandom;
+
+// one line per sampled request, written to the rdbcache.access logger
+//
+public class AccessLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("rdbcache.access");
+
+    // the sampled context of the request, for requests that end without a response sent
+    public static final String CONTEXT_ATTRIBUTE = "rdbcache.access.context";
+
+    // decide once per request, only sampled requests keep their uri in the context
+    //
+    public static void sample(Context context, HttpServletRequest request) {
+        if (!isSampled()) {
+            return;
+        }
+        context.setAccessUri(getUri(request));
+        request.setAttribute(CONTEXT_ATTRIBUTE, context);
+    }
+
+    // a request is logged once, by the response or else by AccessLogInterceptor
+    //
+    public static void log(Context context, int status) {
+        String uri = context.getAccessUri();
+        if (uri == null) {
+            return;
+        }
+        context.setAccessUri(null);
+        Long duration = context.getDuration();
+        String ms = duration == null ? "-" : String.valueOf(duration / 1000000L);
+        LOGGER.info(status + " " + context.getAction() + " " + uri + " " + ms + "ms " + context.getTraceId());
+    }
+
+    // a request that failed before it had a context, e.g. on a full pool
+    //
+    public static void log(HttpServletRequest request, int status) {
+        if (!isSampled()) {
+            return;
+        }
+        LOGGER.info(status + " - " + getUri(request) + " -ms -");
+    }
+
+    private static boolean isSampled() {
+        if (!LOGGER.isInfoEnabled()) {
+            return false;
+        }
+        Double rate = PropCfg.getAccessLogSampleRate();
+        if (rate == null || rate <= 0.0) {
+            return false;
+        }
+        return rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private static String getUri(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String query = request.getQueryString();
+        return query == null ? uri : uri + "?" + query;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.supports;
+
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// logs the requests that end in an exception, the response does not log them
+//
+public class AccessLogInterceptor extends HandlerInterceptorAdapter {
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+
+        // an exception not resolved to a status is answered 500 by the container
+        int status = ex != null ? 500 : response.getStatus();
+
+        Object context = request.getAttribute(AccessLog.CONTEXT_ATTRIBUTE);
+        if (context != null) {
+            AccessLog.log((Context) context, status);
+        } else if (status >= 400) {
+            AccessLog.log(request, status);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.doitincloud.rdbcache.exceptions.ServerErrorException;
 import com.doitincloud.rdbcache.models.KeyInfo;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class AnyKey extends ArrayList<KeyInfo> {
 
@@ -66,6 +67,16 @@ public class AnyKey extends ArrayList<KeyInfo> {
         return get(index);
     }
 
+    // removes the first count key infos and returns them, the counterpart of KvPairs.takeFirst
+    //
+    public AnyKey takeFirst(int count) {
+        List<KeyInfo> head = subList(0, Math.min(count, size()));
+        AnyKey anyKey = new AnyKey();
+        anyKey.addAll(head);
+        head.clear();
+        return anyKey;
+    }
+
     public String printTable() {
         if (size() == 0) {
             return null;
@@ -43,39 +43,65 @@ public class Context {
 
     private Long duration;
 
+    private String accessUri;
+
+    // the action is given by the caller, e.g. the controller mapping name,
+    // which saves walking the stack on every request
+    //
+    public Context(Boolean sendValue, Boolean batch, String action) {
+        this.sendValue = sendValue;
+        this.batch = batch;
+        traceId = Utils.generateId();
+        setupAction(action);
+    }
+
+    public Context(Boolean sendValue, String action) {
+        this.sendValue = sendValue;
+        traceId = Utils.generateId();
+        setupAction(action);
+    }
+
+    public Context(String traceId, String action) {
+        this.sendValue = false;
+        this.traceId = traceId;
+        setupAction(action);
+    }
+
+    // the constructors below find the action from the stack of the caller
+    //
     public Context(Boolean sendValue) {
         this.sendValue = sendValue;
         traceId = Utils.generateId();
-        StackTraceElement element = Thread.currentThread().getStackTrace()[2];
-        action = element.getMethodName();
-        if (attr != null && !attr.equals("async")) action += "/"+attr;
-        monitor = new Monitor(element.getFileName(), element.getClassName(), action);
+        setupAction(Thread.currentThread().getStackTrace()[2]);
     }
 
     public Context(Boolean sendValue, Boolean batch) {
         this.sendValue = sendValue;
         this.batch = batch;
         traceId = Utils.generateId();
-        StackTraceElement element = Thread.currentThread().getStackTrace()[2];
-        action = element.getMethodName();
-        if (attr != null && !attr.equals("async")) action += "/"+attr;
-        monitor = new Monitor(element.getFileName(), element.getClassName(), action);
+        setupAction(Thread.currentThread().getStackTrace()[2]);
     }
 
     public Context(String traceId) {
         this.sendValue = false;
         this.traceId = traceId;
-        StackTraceElement element = Thread.currentThread().getStackTrace()[2];
-        action = element.getMethodName();
-        if (attr != null && !attr.equals("async")) action += "/"+attr;
-        monitor = new Monitor(element.getFileName(), element.getClassName(), action);
+        setupAction(Thread.currentThread().getStackTrace()[2]);
     }
 
     public Context() {
         this.sendValue = false;
         traceId = Utils.generateId();
-        action = Thread.currentThread().getStackTrace()[2].getMethodName();
-        StackTraceElement element = Thread.currentThread().getStackTrace()[2];
+        setupAction(Thread.currentThread().getStackTrace()[2]);
+    }
+
+    private void setupAction(String action) {
+        this.action = action;
+        if (attr != null && !attr.equals("async")) this.action += "/"+attr;
+        // name and type are replaced by enableMonitor when monitor is on
+        monitor = new Monitor(action, "main", this.action);
+    }
+
+    private void setupAction(StackTraceElement element) {
         action = element.getMethodName();
         if (attr != null && !attr.equals("async")) action += "/"+attr;
         monitor = new Monitor(element.getFileName(), element.getClassName(), action);
@@ -180,6 +206,14 @@ public class Context {
         this.duration = duration;
     }
 
+    public String getAccessUri() {
+        return accessUri;
+    }
+
+    public void setAccessUri(String accessUri) {
+        this.accessUri = accessUri;
+    }
+
     public StopWatch startStopWatch(String type, String action) {
         if (!monitorEnabled || monitor == null) {
             return null;
@@ -0,0 +1,25 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.supports;
+
+// receives a streamed result a chunk at a time, in fetch order. the fetcher does
+// not keep a chunk once it is handed over, so it is released after it is consumed
+//
+public interface KvPairSink {
+
+    void accept(KvPairs pairs, AnyKey anyKey);
+}
@@ -104,6 +104,16 @@ public class KvPairs extends ArrayList<KvPair>{
         return get(index);
     }
 
+    // removes the first count pairs and returns them, for processing a long list in chunks
+    //
+    public KvPairs takeFirst(int count) {
+        List<KvPair> head = subList(0, Math.min(count, size()));
+        KvPairs pairs = new KvPairs();
+        pairs.addAll(head);
+        head.clear();
+        return pairs;
+    }
+
     public List<String> getKeys() {
         List<String> keys = new ArrayList<String>();
         for (int i = 0; i < size(); i++) {
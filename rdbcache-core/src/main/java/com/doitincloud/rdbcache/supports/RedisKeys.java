@@ -0,0 +1,51 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.supports;
+
+import com.doitincloud.rdbcache.configs.PropCfg;
+
+/**
+ * The type:id part shared by the data, event, index and lock keys of a pair.
+ *
+ * Against redis cluster it is wrapped as a hash tag, {type:id}, so all keys of a pair
+ * land in the same slot and the multi-key scripts on them stay slot local.
+ */
+public class RedisKeys {
+
+    public static boolean isCluster() {
+        String nodes = PropCfg.getRedisClusterNodes();
+        return nodes != null && nodes.trim().length() > 0;
+    }
+
+    public static String tag(String type, String id) {
+        if (isCluster()) {
+            return "{" + type + ":" + id + "}";
+        }
+        return type + ":" + id;
+    }
+
+    /**
+     * @param tag String, type:id or {type:id}
+     * @return type:id
+     */
+    public static String untag(String tag) {
+        if (tag.length() > 1 && tag.startsWith("{") && tag.endsWith("}")) {
+            return tag.substring(1, tag.length() - 1);
+        }
+        return tag;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.doitincloud.rdbcache.supports;
+
+import com.doitincloud.rdbcache.exceptions.ServiceUnavailableException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// bounded thread pool executor with a policy for when both threads and queue are full
+//
+// caller_runs, the task runs in the thread that submits it
+//
+// reject,      the task is rejected with ServiceUnavailableException (503)
+//
+// spill,       the task is kept in an overflow queue, and it is moved to the pool
+//              queue as soon as there is room. the overflow queue is bounded too,
+//              when it is full the task runs in the thread that submits it
+//
+public class TaskExecutor extends ThreadPoolExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskExecutor.class);
+
+    public enum Policy {
+
+        CALLER_RUNS, REJECT, SPILL;
+
+        public static Policy fromString(String value) {
+            if (value == null) {
+                return CALLER_RUNS;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                LOGGER.error("unknown executor policy: " + value + ", use caller_runs");
+                return CALLER_RUNS;
+            }
+        }
+    }
+
+    private final String name;
+
+    private final Policy policy;
+
+    private final int queueSize;
+
+    private final int spillSize;
+
+    private final BlockingQueue<Runnable> spillQueue;
+
+    private final AtomicLong callerRunsCount = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private final AtomicLong spilledCount = new AtomicLong();
+
+    // set while tryExecute submits, a full pool then refuses the task whatever the policy
+    private final ThreadLocal<Boolean> tryOnly = new ThreadLocal<>();
+
+    public TaskExecutor(String name, int poolSize, int queueSize, Policy policy) {
+
+        this(name, poolSize, queueSize, queueSize, policy);
+    }
+
+    public TaskExecutor(String name, int poolSize, int queueSize, int spillSize, Policy policy) {
+
+        this(name, poolSize, queueSize, spillSize, policy, new NamedThreadFactory(name));
+    }
+
+    public TaskExecutor(String name, int poolSize, int queueSize, int spillSize, Policy policy,
+                        ThreadFactory threadFactory) {
+
+        super(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueSize), threadFactory);
+
+        this.name = name;
+        this.policy = policy;
+        this.queueSize = queueSize;
+        this.spillSize = spillSize;
+        this.spillQueue = new LinkedBlockingQueue<>(spillSize);
+
+        allowCoreThreadTimeOut(true);
+        setRejectedExecutionHandler((r, executor) -> onFull(r));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    public int getSpillDepth() {
+        return spillQueue.size();
+    }
+
+    public long getCallerRunsCount() {
+        return callerRunsCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("policy", policy.name().toLowerCase());
+        map.put("pool_size", getPoolSize());
+        map.put("max_pool_size", getMaximumPoolSize());
+        map.put("active_threads", getActiveCount());
+        map.put("queue_depth", getQueueDepth());
+        map.put("queue_size", queueSize);
+        map.put("spill_depth", getSpillDepth());
+        map.put("spill_size", spillSize);
+        map.put("completed_tasks", getCompletedTaskCount());
+        map.put("caller_runs", getCallerRunsCount());
+        map.put("rejected", getRejectedCount());
+        map.put("spilled", getSpilledCount());
+        return map;
+    }
+
+    // runs the task on the pool if it has room, for work that can be skipped,
+    // it is never run by the caller, rejected or spilled
+    //
+    public boolean tryExecute(Runnable r) {
+        tryOnly.set(Boolean.TRUE);
+        try {
+            execute(r);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        } finally {
+            tryOnly.remove();
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        drainSpillQueue();
+    }
+
+    private void onFull(Runnable r) {
+
+        if (isShutdown()) {
+            throw new RejectedExecutionException(name + " executor is shut down");
+        }
+
+        if (tryOnly.get() != null) {
+            throw new RejectedExecutionException(name + " executor is full");
+        }
+
+        switch (policy) {
+
+            case REJECT:
+                rejectedCount.incrementAndGet();
+                LOGGER.warn(name + " executor is full, task rejected");
+                throw new ServiceUnavailableException(name + " executor is full");
+
+            case SPILL:
+                if (spillQueue.offer(r)) {
+                    spilledCount.incrementAndGet();
+                    drainSpillQueue();
+                    break;
+                }
+                LOGGER.warn(name + " executor spill queue is full, task runs in the caller");
+                callerRunsCount.incrementAndGet();
+                r.run();
+                break;
+
+            default:
+                callerRunsCount.incrementAndGet();
+                r.run();
+        }
+    }
+
+    private void drainSpillQueue() {
+
+        BlockingQueue<Runnable> queue = getQueue();
+        while (queue.remainingCapacity() > 0) {
+            Runnable r = spillQueue.poll();
+            if (r == null) {
+                break;
+            }
+            if (!queue.offer(r)) {
+                // the pool queue filled up in between, it goes back, or runs here if the spill queue is full too
+                if (!spillQueue.offer(r)) {
+                    callerRunsCount.incrementAndGet();
+                    r.run();
+                }
+                break;
+            }
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            prefix = "rdbcache-" + name + "-";
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
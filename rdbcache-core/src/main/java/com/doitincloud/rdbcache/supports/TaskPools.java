@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.doitincloud.rdbcache.supports;
+
+import com.doitincloud.rdbcache.configs.PropCfg;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+
+// thread pools for asynchronous tasks, separated by the resource they mostly wait for,
+// so that a slow database does not hold up redis writes and expire key scheduling
+//
+public class TaskPools {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskPools.class);
+
+    private static TaskExecutor redisPool;
+
+    private static TaskExecutor dbasePool;
+
+    private static TaskExecutor expirePool;
+
+    private static TaskExecutor apiPool;
+
+    public static synchronized TaskExecutor getRedisPool() {
+        if (redisPool == null) {
+            redisPool = newPool("redis", PropCfg.getRedisPoolSize());
+        }
+        return redisPool;
+    }
+
+    // the database writes follow updates of redis and the local cache, a rejected write would
+    // be lost while the client gets a 503, so the dbase pool runs it in the caller instead
+    //
+    public static synchronized TaskExecutor getDbasePool() {
+        if (dbasePool == null) {
+            TaskExecutor.Policy policy = TaskExecutor.Policy.fromString(PropCfg.getPoolFullPolicy());
+            if (policy == TaskExecutor.Policy.REJECT) {
+                policy = TaskExecutor.Policy.CALLER_RUNS;
+            }
+            dbasePool = newPool("dbase", PropCfg.getDbasePoolSize(), policy);
+        }
+        return dbasePool;
+    }
+
+    public static synchronized TaskExecutor getExpirePool() {
+        if (expirePool == null) {
+            expirePool = newPool("expire", PropCfg.getExpirePoolSize());
+        }
+        return expirePool;
+    }
+
+    // blocking work offloaded by the async api, a full pool answers 503 instead of
+    // running the task on the request thread
+    //
+    public static synchronized TaskExecutor getApiPool() {
+        if (apiPool == null) {
+            apiPool = newPool("api", PropCfg.getApiPoolSize(), TaskExecutor.Policy.REJECT);
+        }
+        return apiPool;
+    }
+
+    public static Map<String, Object> getMetrics() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("virtual_threads", PropCfg.getEnableVirtualThreads() && VirtualThreads.isSupported());
+        map.put("redis", getRedisPool().getMetrics());
+        map.put("dbase", getDbasePool().getMetrics());
+        map.put("expire", getExpirePool().getMetrics());
+        if (apiPool != null) {
+            map.put("api", apiPool.getMetrics());
+        }
+        return map;
+    }
+
+    static TaskExecutor newPool(String name, int poolSize) {
+        return newPool(name, poolSize, TaskExecutor.Policy.fromString(PropCfg.getPoolFullPolicy()));
+    }
+
+    private static TaskExecutor newPool(String name, int poolSize, TaskExecutor.Policy policy) {
+
+        if (PropCfg.getEnableVirtualThreads()) {
+            ThreadFactory factory = VirtualThreads.newThreadFactory("rdbcache-" + name + "-");
+            if (factory != null) {
+                // virtual threads are cheap, the connection pools bound the real concurrency
+                return new TaskExecutor(name, PropCfg.getVirtualPoolSize(), PropCfg.getPoolQueueSize(),
+                        PropCfg.getPoolSpillSize(), policy, factory);
+            }
+            LOGGER.warn("virtual threads are not supported by this jvm, use platform threads for " + name + " pool");
+        }
+
+        return new TaskExecutor(name, poolSize, PropCfg.getPoolQueueSize(), PropCfg.getPoolSpillSize(), policy);
+    }
+}
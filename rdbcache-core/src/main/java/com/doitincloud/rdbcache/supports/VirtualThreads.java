@@ -0,0 +1,96 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.doitincloud.rdbcache.supports;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// virtual threads are looked up through reflection, so that rdbcache still builds for
+// and runs on java 8. newThreadFactory returns null when the jvm does not have them.
+//
+// Thread.ofVirtual needs java 21 or later. spring 4.3 proxies classes with cglib, which
+// on java 17+ needs the jvm option --add-opens java.base/java.lang=ALL-UNNAMED
+//
+// on java 21 a virtual thread blocked inside synchronized pins its carrier thread. jedis
+// takes its connections from a commons-pool2 pool that synchronizes, and waits on a monitor
+// while connections are made, so with jedis the carrier threads, not the virtual threads,
+// can bound the redis calls in flight. lettuce does not pin.
+//
+public class VirtualThreads {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static Method ofVirtual;
+
+    private static Method name;
+
+    private static Method factory;
+
+    private static Method newThreadPerTaskExecutor;
+
+    static {
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            name = builderClass.getMethod("name", String.class, long.class);
+            factory = builderClass.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (Exception e) {
+            ofVirtual = null;
+        }
+    }
+
+    public static boolean isSupported() {
+        return ofVirtual != null;
+    }
+
+    public static ThreadFactory newThreadFactory(String prefix) {
+
+        if (!isSupported()) {
+            return null;
+        }
+        try {
+            Object builder = ofVirtual.invoke(null);
+            builder = name.invoke(builder, prefix, 1L);
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (Exception e) {
+            LOGGER.error("failed to create virtual thread factory: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // an executor that starts a new thread for each task, virtual threads are not pooled
+    //
+    public static ExecutorService newThreadPerTaskExecutor(ThreadFactory threadFactory) {
+
+        if (!isSupported() || threadFactory == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+        } catch (Exception e) {
+            LOGGER.error("failed to create thread per task executor: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+--- redis-cli --eval index-expire-keys.lua , event_prefix cursor count
+---
+--- adds event keys set before the index sets existed to the index set of their data key,
+--- one SCAN step per call, returns the next cursor and the number of event keys indexed
+---
+-- writes after SCAN are replicated as commands, not as the script
+redis.replicate_commands()
+local prefix = ARGV[1] .. "::"
+local scan = redis.call('SCAN', ARGV[2], 'MATCH', prefix .. '*', 'COUNT', ARGV[3])
+local indexed = 0
+for i = 1, #scan[2] do
+    local key = scan[2][i]
+    local rest = string.sub(key, string.len(prefix) + 1)
+    local pos = string.find(rest, '::', 1, true)
+    local ttl = redis.call('TTL', key)
+    if pos ~= nil and ttl > 0 then
+        local indexKey = 'index_' .. prefix .. string.sub(rest, 1, pos - 1)
+        indexed = indexed + redis.call('SADD', indexKey, key)
+        if redis.call('TTL', indexKey) < ttl + 1 then
+            redis.call('EXPIRE', indexKey, ttl + 1)
+        end
+    end
+end
+return {scan[1], indexed}
@@ -0,0 +1,26 @@
+--- redis-cli --eval merge-row-blob.lua data_key , update_blob
+---
+--- a row blob is a messagepack map of field names to encoded field values,
+--- the fields of the update are merged into the row like HMSET does for a hash.
+--- a row still stored as a hash is converted, its ttl is kept
+---
+local row = {}
+local ttl = redis.call('PTTL', KEYS[1])
+local ktype = redis.call('TYPE', KEYS[1]).ok
+if ktype == 'string' then
+    row = cmsgpack.unpack(redis.call('GET', KEYS[1]))
+elseif ktype == 'hash' then
+    local fields = redis.call('HGETALL', KEYS[1])
+    for i = 1, #fields, 2 do
+        row[fields[i]] = fields[i + 1]
+    end
+end
+local update = cmsgpack.unpack(ARGV[1])
+for field, value in pairs(update) do
+    row[field] = value
+end
+redis.call('SET', KEYS[1], cmsgpack.pack(row))
+if ttl > 0 then
+    redis.call('PEXPIRE', KEYS[1], ttl)
+end
+return 1
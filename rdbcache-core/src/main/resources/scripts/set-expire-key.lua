@@ -1,12 +1,26 @@
---- redis-cli --eval set-expire-key.lua key , trace_id expire_string
+--- redis-cli --eval set-expire-key.lua key index_key , trace_id expire_string
 ---
-local res = redis.call('KEYS', KEYS[1] .. "::*")
+--- index_key is a set holding all event keys of the same data key,
+--- it is looked up instead of scanning the key space with KEYS
+---
+local prefix = KEYS[1] .. "::"
+local res = {}
+local members = redis.call('SMEMBERS', KEYS[2])
+for i = 1, #members do
+    local member = members[i]
+    if redis.call('EXISTS', member) == 0 then
+        redis.call('SREM', KEYS[2], member)
+    elseif string.sub(member, 1, string.len(prefix)) == prefix then
+        table.insert(res, member)
+    end
+end
 local expValue = tonumber(ARGV[2])
 if next(res) ~= nil then
     if expValue > 0 and string.sub(ARGV[2], 1, 1) ~= '+' then
         return 0
     end
     redis.call('DEL', unpack(res))
+    redis.call('SREM', KEYS[2], unpack(res))
 end
 if expValue == 0 then
     return 0
@@ -14,5 +28,10 @@ end
 if expValue < 0 then
     expValue = -expValue
 end
-redis.call('SETEX', KEYS[1] .. "::" .. ARGV[1], expValue, ARGV[2])
-return 1
\ No newline at end of file
+local expKey = prefix .. ARGV[1]
+redis.call('SETEX', expKey, expValue, ARGV[2])
+redis.call('SADD', KEYS[2], expKey)
+if redis.call('TTL', KEYS[2]) < expValue + 1 then
+    redis.call('EXPIRE', KEYS[2], expValue + 1)
+end
+return 1
@@ -0,0 +1,47 @@
+--- redis-cli --eval set-expire-keys.lua key1 index_key1 key2 index_key2 ... , trace_id expire_string1 expire_string2 ...
+---
+--- multiple keys version of set-expire-key.lua, returns a list of results in the order of the keys
+---
+local results = {}
+for k = 1, #KEYS / 2 do
+    local key = KEYS[2 * k - 1]
+    local indexKey = KEYS[2 * k]
+    local expire = ARGV[k + 1]
+    local prefix = key .. "::"
+    local res = {}
+    local members = redis.call('SMEMBERS', indexKey)
+    for i = 1, #members do
+        local member = members[i]
+        if redis.call('EXISTS', member) == 0 then
+            redis.call('SREM', indexKey, member)
+        elseif string.sub(member, 1, string.len(prefix)) == prefix then
+            table.insert(res, member)
+        end
+    end
+    local expValue = tonumber(expire)
+    local result = 1
+    if next(res) ~= nil then
+        if expValue > 0 and string.sub(expire, 1, 1) ~= '+' then
+            result = 0
+        else
+            redis.call('DEL', unpack(res))
+            redis.call('SREM', indexKey, unpack(res))
+        end
+    end
+    if result == 1 and expValue == 0 then
+        result = 0
+    end
+    if result == 1 then
+        if expValue < 0 then
+            expValue = -expValue
+        end
+        local expKey = prefix .. ARGV[1]
+        redis.call('SETEX', expKey, expValue, expire)
+        redis.call('SADD', indexKey, expKey)
+        if redis.call('TTL', indexKey) < expValue + 1 then
+            redis.call('EXPIRE', indexKey, expValue + 1)
+        end
+    end
+    results[k] = result
+end
+return results
@@ -0,0 +1,325 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.commons;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LocalCacheTest {
+
+    private static LocalCache newCache(long maxSize) {
+        LocalCache localCache = new LocalCache();
+        localCache.setMaxCacheSize(maxSize);
+        localCache.initializeCache();
+        return localCache;
+    }
+
+    private static Map<String, Object> valueOf(int i) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", i);
+        return map;
+    }
+
+    @Test
+    public void strictMaxSize() {
+
+        LocalCache localCache = newCache(100L);
+
+        for (int i = 0; i < 1000; i++) {
+            localCache.put("key-" + i, valueOf(i));
+            assertTrue(localCache.cache.size() <= 100);
+        }
+
+        assertEquals(100, localCache.cache.size());
+        assertEquals(900L, localCache.getEvictionCount());
+    }
+
+    @Test
+    public void frequentKeysSurvive() {
+
+        LocalCache localCache = newCache(100L);
+
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 20; i++) {
+                if (localCache.get("hot-" + i) == null) {
+                    localCache.put("hot-" + i, valueOf(i));
+                }
+            }
+        }
+
+        // a scan of keys seen once should not flush the frequently used ones
+        for (int i = 0; i < 1000; i++) {
+            localCache.put("cold-" + i, valueOf(i));
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertNotNull("hot-" + i, localCache.get("hot-" + i));
+        }
+        assertTrue(localCache.getRejectionCount() > 0L);
+        assertTrue(localCache.cache.size() <= 100);
+    }
+
+    @Test
+    public void metrics() {
+
+        LocalCache localCache = newCache(10L);
+
+        localCache.put("key", valueOf(1));
+        assertNotNull(localCache.get("key"));
+        assertNotNull(localCache.get("key"));
+        assertNull(localCache.get("none"));
+
+        assertEquals(2L, localCache.getHitCount());
+        assertEquals(1L, localCache.getMissCount());
+        assertEquals(2.0 / 3.0, localCache.getHitRatio(), 0.0001);
+
+        Map<String, Object> metrics = localCache.getMetrics();
+        assertEquals(1, metrics.get("size"));
+        assertEquals(10L, metrics.get("max_size"));
+        assertEquals(0L, metrics.get("evictions"));
+    }
+
+    @Test
+    public void removeKeepsPolicyInSync() {
+
+        LocalCache localCache = newCache(10L);
+
+        for (int i = 0; i < 10; i++) {
+            localCache.put("key-" + i, valueOf(i));
+        }
+        localCache.put("key-0", valueOf(100));
+        localCache.remove("key-1");
+        localCache.put("key-10", valueOf(10));
+        assertEquals(0L, localCache.getEvictionCount());
+
+        localCache.removeAll();
+        for (int i = 0; i < 10; i++) {
+            localCache.put("key-" + i, valueOf(i));
+        }
+        assertEquals(0L, localCache.getEvictionCount());
+        assertEquals(10, localCache.cache.size());
+    }
+
+    @Test
+    public void refreshableNotEvicted() {
+
+        LocalCache localCache = newCache(10L);
+
+        localCache.put("table_list", 60L, new Refreshable() {
+            @Override
+            public Map<String, Object> call() throws Exception {
+                return valueOf(0);
+            }
+        });
+        for (int i = 0; i < 100; i++) {
+            localCache.put("key-" + i, valueOf(i));
+        }
+        assertNotNull(localCache.get("table_list"));
+        assertEquals(11, localCache.cache.size());
+    }
+
+    @Test
+    public void concurrentUpdatesAndReads() throws Exception {
+
+        LocalCache localCache = newCache(100L);
+        localCache.put("hot", valueOf(0));
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final String field = "field-" + t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    Map<String, Object> update = new LinkedHashMap<>();
+                    update.put(field, i);
+                    localCache.update("hot", update);
+                    assertNotNull(localCache.get("hot"));
+                }
+            }));
+        }
+        for (Thread thread: threads) {
+            thread.start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+
+        Map<String, Object> map = localCache.get("hot");
+        assertEquals(9, map.size());
+        for (int t = 0; t < 8; t++) {
+            assertEquals(999, map.get("field-" + t));
+        }
+        assertEquals(8001L, localCache.getHitCount());
+    }
+
+    private static Refreshable counting(AtomicInteger calls, CountDownLatch release) {
+        return new Refreshable() {
+            @Override
+            public Map<String, Object> call() throws Exception {
+                int call = calls.incrementAndGet();
+                if (call > 1 && release != null) {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                return valueOf(call);
+            }
+        };
+    }
+
+    @Test
+    public void concurrentPutLoadsOnce() throws Exception {
+
+        LocalCache localCache = newCache(100L);
+        AtomicInteger calls = new AtomicInteger();
+        Refreshable refreshable = new Refreshable() {
+            @Override
+            public Map<String, Object> call() throws Exception {
+                Thread.sleep(200L);
+                return valueOf(calls.incrementAndGet());
+            }
+        };
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                assertEquals(1, localCache.put("table_list", 60L, refreshable).get("id"));
+            }));
+        }
+        for (Thread thread: threads) {
+            thread.start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void staleWhileRefreshing() throws Exception {
+
+        LocalCache localCache = newCache(100L);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        localCache.put("table_list", 1L, counting(calls, release));
+        Thread.sleep(1100L);
+
+        Thread refresher = new Thread(() -> {
+            assertEquals(2, localCache.get("table_list").get("id"));
+        });
+        refresher.start();
+        while (calls.get() < 2) {
+            Thread.sleep(10L);
+        }
+
+        // refresh in flight, the others get the stale value without calling the refreshable
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1, localCache.get("table_list").get("id"));
+        }
+        release.countDown();
+        refresher.join();
+
+        assertEquals(2, calls.get());
+        assertEquals(2, localCache.get("table_list").get("id"));
+    }
+
+    @Test
+    public void refreshAhead() throws Exception {
+
+        LocalCache localCache = newCache(100L);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        localCache.setRefreshExecutor(executor);
+        AtomicInteger calls = new AtomicInteger();
+
+        localCache.put("table_list", 1L, counting(calls, null));
+        Thread.sleep(800L);
+
+        // almost timed out, served from cache while it refreshes in background
+        assertEquals(1, localCache.get("table_list").get("id"));
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(2, calls.get());
+        assertEquals(2, localCache.get("table_list").get("id"));
+    }
+
+    @Test
+    public void refreshAheadSkippedWhenFull() throws Exception {
+
+        LocalCache localCache = newCache(100L);
+        localCache.setRefreshExecutor(task -> {
+            throw new RejectedExecutionException("full");
+        });
+        AtomicInteger calls = new AtomicInteger();
+
+        localCache.put("table_list", 1L, counting(calls, null));
+        Thread.sleep(800L);
+
+        // almost timed out, the refresh is skipped, not run in this thread
+        assertEquals(1, localCache.get("table_list").get("id"));
+        assertEquals(1, calls.get());
+
+        // a later hit tries again
+        localCache.setRefreshExecutor(Runnable::run);
+        assertEquals(1, localCache.get("table_list").get("id"));
+        assertEquals(2, calls.get());
+        assertEquals(2, localCache.get("table_list").get("id"));
+    }
+
+    @Test
+    public void offHeapValues() {
+
+        LocalCache localCache = newCache(10L);
+        OffHeapStore store = new OffHeapStore(1024 * 1024L);
+        localCache.setValueStore(store);
+
+        for (int i = 0; i < 100; i++) {
+            localCache.putOffHeap("key-" + i, valueOf(i), 60L);
+        }
+        // evicted entries give their blocks back
+        assertEquals(10L, store.getMetrics().get("entries"));
+
+        Map<String, Object> update = new LinkedHashMap<>();
+        update.put("name", "value");
+        localCache.update("key-99", update);
+
+        Map<String, Object> map = localCache.get("key-99");
+        assertEquals(99, map.get("id"));
+        assertEquals("value", map.get("name"));
+        assertEquals(10L, store.getMetrics().get("entries"));
+
+        localCache.remove("key-99");
+        assertNull(localCache.get("key-99"));
+        assertEquals(9L, store.getMetrics().get("entries"));
+
+        localCache.removeAll();
+        assertEquals(0L, store.getMetrics().get("entries"));
+        assertEquals(0L, store.getUsedBytes());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.commons;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class OffHeapStoreTest {
+
+    private static Map<String, Object> row(int id, int width) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", id);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < width; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        map.put("name", sb.toString());
+        return map;
+    }
+
+    @Test
+    public void putGetFree() {
+
+        OffHeapStore store = new OffHeapStore(64 * 1024L, 64);
+
+        Map<String, Object> small = row(1, 4);
+        Map<String, Object> large = row(2, 1000);
+
+        OffHeapStore.Slot slot1 = store.put(small);
+        OffHeapStore.Slot slot2 = store.put(large);
+
+        assertEquals(small, store.get(slot1));
+        assertEquals(large, store.get(slot2));
+        assertNotSame(small, store.get(slot1));
+
+        Map<String, Object> metrics = store.getMetrics();
+        assertEquals(2L, metrics.get("entries"));
+        assertEquals((long) (slot1.getLength() + slot2.getLength()), metrics.get("stored_bytes"));
+
+        store.free(slot2);
+        store.free(slot2);
+        assertNull(store.get(slot2));
+        assertEquals(64L, store.getUsedBytes());
+        assertEquals(small, store.get(slot1));
+    }
+
+    @Test
+    public void fullStoreReusesFreedBlocks() {
+
+        OffHeapStore store = new OffHeapStore(4096L, 64);
+
+        List<OffHeapStore.Slot> slots = new ArrayList<>();
+        OffHeapStore.Slot slot;
+        while ((slot = store.put(row(slots.size(), 100))) != null) {
+            slots.add(slot);
+        }
+        assertTrue(slots.size() > 0);
+        assertEquals(1L, store.getMetrics().get("overflows"));
+        assertTrue(store.getAllocatedBytes() <= store.getCapacity());
+
+        store.free(slots.get(0));
+        slot = store.put(row(-1, 100));
+        assertNotNull(slot);
+        assertEquals(row(-1, 100), store.get(slot));
+        for (int i = 1; i < slots.size(); i++) {
+            assertEquals(row(i, 100), store.get(slots.get(i)));
+        }
+    }
+
+    @Test
+    public void lastChunkUpToCapacity() {
+
+        // 20 blocks of 1 MB, one chunk of 16 blocks and a last one of 4
+        int blockSize = 1 << 20;
+        OffHeapStore store = new OffHeapStore(20L * blockSize, blockSize);
+        assertEquals(20L * blockSize, store.getCapacity());
+
+        int count = 0;
+        while (store.put(row(count, 4)) != null) {
+            count++;
+        }
+        assertEquals(20, count);
+        assertEquals(store.getCapacity(), store.getAllocatedBytes());
+        assertEquals(store.getCapacity(), store.getUsedBytes());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.commons;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RowBlobTest {
+
+    private static Map<String, Object> row(int width) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < width; i++) {
+            map.put("field_" + i, i % 3 == 0 ? "value " + i : i % 3 == 1 ? i : null);
+        }
+        return map;
+    }
+
+    @Test
+    public void roundTrip() {
+
+        for (int width: new int[] {0, 1, 15, 16, 100}) {
+            Map<String, Object> row = row(width);
+            assertEquals(row, RowBlob.decode(RowBlob.encode(row, ValueCodecs.JSON)));
+            assertEquals(row, RowBlob.decode(RowBlob.encode(row, ValueCodecs.BINARY)));
+        }
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            sb.append('x');
+        }
+        row.put("long_text", sb.toString());
+        assertEquals(row, RowBlob.decode(RowBlob.encode(row, ValueCodecs.BINARY)));
+    }
+
+    @Test
+    public void decodeLuaPacked() {
+
+        // what cmsgpack packs after a merge: str8 field names, bin values, empty table as array
+        byte[] packed = new byte[] {
+                (byte) 0x82,
+                (byte) 0xd9, 2, 'i', 'd', (byte) 0xc4, 2, (byte) 0xFB, 7,
+                (byte) 0xa4, 'n', 'a', 'm', 'e', (byte) 0xa3, '"', 'a', '"'
+        };
+        Map<String, Object> row = RowBlob.decode(packed);
+        assertEquals(7, row.get("id"));
+        assertEquals("a", row.get("name"));
+
+        assertEquals(0, RowBlob.decode(new byte[] {(byte) 0x90}).size());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.commons;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ValueCodecTest {
+
+    private static List<Object> values() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("k", "v");
+        return Arrays.asList(null, true, false, 0, 1, -1, 127, -128, 128, 65536,
+                Integer.MAX_VALUE, Integer.MIN_VALUE, 1L << 40, Long.MAX_VALUE, Long.MIN_VALUE,
+                (short) 7, 3.25, -0.0, "", "text", "unicode é中😀", "\"quoted\"",
+                new BigDecimal("12.50"), Arrays.asList(1, "a"), map);
+    }
+
+    @Test
+    public void sameTypesFromBothCodecs() {
+
+        for (Object value: values()) {
+            Object fromJson = ValueCodecs.decode(ValueCodecs.JSON.encode(value));
+            Object fromBinary = ValueCodecs.decode(ValueCodecs.BINARY.encode(value));
+            assertEquals("value " + value, fromJson, fromBinary);
+            if (fromJson != null) {
+                assertEquals("value " + value, fromJson.getClass(), fromBinary.getClass());
+            }
+        }
+    }
+
+    @Test
+    public void binaryIsCompact() {
+
+        assertEquals(1, ValueCodecs.BINARY.encode(null).length);
+        assertEquals(2, ValueCodecs.BINARY.encode(100).length);
+        assertEquals(3, ValueCodecs.BINARY.encode(-30000).length);
+        assertEquals(9, ValueCodecs.BINARY.encode(Long.MIN_VALUE).length);
+        assertEquals(5, ValueCodecs.BINARY.encode("text").length);
+    }
+
+    @Test
+    public void detectFormat() {
+
+        for (Object value: values()) {
+            byte[] json = ValueCodecs.JSON.encode(value);
+            byte[] binary = ValueCodecs.BINARY.encode(value);
+            assertTrue(ValueCodecs.JSON.canDecode(json));
+            assertFalse(ValueCodecs.BINARY.canDecode(json));
+            assertTrue(ValueCodecs.BINARY.canDecode(binary));
+            assertFalse(ValueCodecs.JSON.canDecode(binary));
+        }
+        assertSame(ValueCodecs.BINARY, ValueCodecs.forName("binary"));
+        assertSame(ValueCodecs.JSON, ValueCodecs.forName("unknown"));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.configs;
+
+import com.doitincloud.rdbcache.configs.MockLettuce.Reply;
+
+import com.lambdaworks.redis.RedisCommandExecutionException;
+import com.lambdaworks.redis.cluster.api.async.RedisClusterAsyncCommands;
+
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class LettuceAsyncTest {
+
+    @Test
+    public void awaitAllTest() throws Exception {
+
+        LettuceAsync lettuce = MockLettuce.mockLettuceAsync(mock(RedisClusterAsyncCommands.class));
+
+        List<Reply<String>> replies = new CopyOnWriteArrayList<>();
+        List<String> values = Arrays.asList("r0", "r1", "r2", "r3");
+        Thread thread = MockLettuce.replyInReverse(replies, values);
+        for (int i = 0; i < values.size(); i++) {
+            replies.add(new Reply<>());
+        }
+
+        lettuce.awaitAll(replies);
+
+        for (int i = 0; i < values.size(); i++) {
+            assertTrue(replies.get(i).isDone());
+            assertEquals(values.get(i), lettuce.await(replies.get(i)));
+        }
+        thread.join();
+    }
+
+    @Test
+    public void awaitErrorTest() {
+
+        LettuceAsync lettuce = MockLettuce.mockLettuceAsync(mock(RedisClusterAsyncCommands.class));
+
+        try {
+            lettuce.awaitAll(Arrays.asList(Reply.of("OK"), Reply.error("ERR no such key")));
+            fail("expected the error of the second reply");
+        } catch (RedisCommandExecutionException e) {
+            assertTrue(e.getMessage().contains("ERR no such key"));
+        }
+    }
+
+    @Test
+    public void fromTest() {
+
+        assertNull(LettuceAsync.from(mock(RedisConnectionFactory.class)));
+
+        LettuceConnectionFactory factory = new LettuceConnectionFactory();
+        factory.setShareNativeConnection(false);
+        assertNull(LettuceAsync.from(factory));
+    }
+
+    @Test
+    public void fromResetTest() {
+
+        RedisClusterAsyncCommands first = mock(RedisClusterAsyncCommands.class);
+        RedisClusterAsyncCommands second = mock(RedisClusterAsyncCommands.class);
+
+        LettuceConnection connection = mock(LettuceConnection.class);
+        when(connection.getNativeConnection()).thenReturn(first, second);
+
+        LettuceConnectionFactory factory = mock(LettuceConnectionFactory.class);
+        when(factory.getShareNativeConnection()).thenReturn(true);
+        when(factory.getConnection()).thenReturn(connection);
+
+        LettuceAsync lettuce = LettuceAsync.from(factory);
+
+        // the connection the factory resets to is picked up on the next use
+        assertSame(first, lettuce.getCommands());
+        assertSame(second, lettuce.getCommands());
+        verify(connection, times(2)).close();
+    }
+}
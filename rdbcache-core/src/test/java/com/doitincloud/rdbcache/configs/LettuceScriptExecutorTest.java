@@ -0,0 +1,153 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.configs;
+
+import com.doitincloud.rdbcache.configs.MockLettuce.Reply;
+
+import com.lambdaworks.redis.ScriptOutputType;
+import com.lambdaworks.redis.cluster.api.async.RedisClusterAsyncCommands;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class LettuceScriptExecutorTest {
+
+    private RedisClusterAsyncCommands<byte[], byte[]> commands;
+
+    private LettuceScriptExecutor<String> executor;
+
+    private DefaultRedisScript<Long> script;
+
+    // arguments of each eval call
+    private List<Object[]> evalCalls = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        commands = mock(RedisClusterAsyncCommands.class);
+        executor = new LettuceScriptExecutor<>(new StringRedisTemplate(), MockLettuce.mockLettuceAsync(commands));
+        script = new DefaultRedisScript<>("return redis.call('INCR', KEYS[1])", Long.class);
+    }
+
+    @Test
+    public void evalshaTest() throws Exception {
+
+        stubEvalsha(Reply.of(1L));
+        stubEval(Reply.of(2L));
+
+        assertEquals(Long.valueOf(1L), executor.executeAsync(script, Collections.singletonList("k1"), "a1").get());
+        assertEquals(0, evalCalls.size());
+    }
+
+    @Test
+    public void noScriptTest() throws Exception {
+
+        stubEvalsha(Reply.error("NOSCRIPT No matching script. Please use EVAL."));
+        stubEval(Reply.of(2L));
+
+        CompletableFuture<Long> future = executor.executeAsync(script, Collections.singletonList("k1"), "a1", "a2");
+        assertEquals(Long.valueOf(2L), future.get());
+
+        assertEquals(1, evalCalls.size());
+        Object[] args = evalCalls.get(0);
+        assertEquals(script.getScriptAsString(), args[0]);
+        assertEquals(ScriptOutputType.INTEGER, args[1]);
+        byte[][] keys = (byte[][]) args[2];
+        assertEquals(1, keys.length);
+        assertEquals("k1", new String(keys[0], StandardCharsets.UTF_8));
+        assertEquals(5, args.length);
+        assertEquals("a1", new String((byte[]) args[3], StandardCharsets.UTF_8));
+        assertEquals("a2", new String((byte[]) args[4], StandardCharsets.UTF_8));
+
+        // the blocking path takes the same fallback
+        evalCalls.clear();
+        byte[][] keysAndArgs = new byte[][] {"k1".getBytes(StandardCharsets.UTF_8)};
+        assertEquals(Long.valueOf(2L), executor.eval(null, script, ReturnType.INTEGER, 1, keysAndArgs, null));
+        assertEquals(1, evalCalls.size());
+    }
+
+    @Test
+    public void errorTest() {
+
+        stubEvalsha(Reply.error("ERR wrong number of arguments"));
+        stubEval(Reply.of(2L));
+
+        CompletableFuture<Long> future = executor.executeAsync(script, Collections.singletonList("k1"));
+        try {
+            future.get();
+            fail("expected the error of evalsha");
+        } catch (ExecutionException e) {
+            assertEquals("ERR wrong number of arguments", e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            fail(e.getMessage());
+        }
+
+        try {
+            byte[][] keysAndArgs = new byte[][] {"k1".getBytes(StandardCharsets.UTF_8)};
+            executor.eval(null, script, ReturnType.INTEGER, 1, keysAndArgs, null);
+            fail("expected the error of evalsha");
+        } catch (RedisSystemException e) {
+            assertEquals("ERR wrong number of arguments", e.getCause().getMessage());
+        }
+
+        assertEquals(0, evalCalls.size());
+    }
+
+    @Test
+    public void noScriptEvalErrorTest() {
+
+        stubEvalsha(Reply.error("NOSCRIPT No matching script. Please use EVAL."));
+        stubEval(Reply.error("ERR Error compiling script"));
+
+        try {
+            executor.executeAsync(script, Collections.singletonList("k1")).get();
+            fail("expected the error of eval");
+        } catch (ExecutionException e) {
+            assertEquals("ERR Error compiling script", e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            fail(e.getMessage());
+        }
+        assertEquals(1, evalCalls.size());
+    }
+
+    private void stubEvalsha(Reply<Object> reply) {
+        doReturn(reply).when(commands).evalsha(anyString(), any(ScriptOutputType.class),
+                any(byte[][].class), Mockito.<byte[]>anyVararg());
+    }
+
+    private void stubEval(Reply<Object> reply) {
+        doAnswer(invocation -> {
+            evalCalls.add(invocation.getArguments());
+            return reply;
+        }).when(commands).eval(anyString(), any(ScriptOutputType.class),
+                any(byte[][].class), Mockito.<byte[]>anyVararg());
+    }
+}
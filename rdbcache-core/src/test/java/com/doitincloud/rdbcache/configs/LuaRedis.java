@@ -0,0 +1,506 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.configs;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaString;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the redis lua scripts of rdbcache against an in memory key space,
+ * with the commands and the cmsgpack library the scripts use, and a clock
+ * the test moves forward.
+ */
+public class LuaRedis {
+
+    private final Map<String, Object> data = new HashMap<>();
+
+    private final Map<String, Long> expireAt = new HashMap<>();
+
+    private long now = 0L;
+
+    public static String loadScript(String path) {
+        try (InputStream in = LuaRedis.class.getClassLoader().getResourceAsStream(path)) {
+            if (in == null) {
+                throw new RuntimeException("script not found: " + path);
+            }
+            Scanner scanner = new Scanner(in, "UTF-8").useDelimiter("\\A");
+            return scanner.hasNext() ? scanner.next() : "";
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    /**
+     * run a script like EVAL does
+     *
+     * @param script lua source
+     * @param keys KEYS
+     * @param args ARGV
+     * @return Long, String, byte[] for binary strings, List or null, converted like redis does
+     */
+    public Object eval(String script, List<String> keys, List<?> args) {
+        Globals globals = JsePlatform.standardGlobals();
+        globals.set("KEYS", toTable(keys));
+        globals.set("ARGV", toTable(args));
+        LuaTable redis = new LuaTable();
+        redis.set("call", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs varargs) {
+                return command(varargs);
+            }
+        });
+        redis.set("replicate_commands", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs varargs) {
+                return LuaValue.TRUE;
+            }
+        });
+        globals.set("redis", redis);
+        globals.set("cmsgpack", cmsgpack());
+        globals.load("unpack = unpack or table.unpack").call();
+        return toJava(globals.load(script, "script").call());
+    }
+
+    public void advance(long millis) {
+        now += millis;
+    }
+
+    public boolean exists(String key) {
+        return get(key) != null;
+    }
+
+    public Set<String> keys(String pattern) {
+        Pattern regex = Pattern.compile(toRegex(pattern));
+        Set<String> keys = new TreeSet<>();
+        for (String key: new ArrayList<>(data.keySet())) {
+            if (get(key) != null && regex.matcher(key).matches()) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    public String getString(String key) {
+        byte[] value = (byte[]) get(key);
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    public byte[] getBytes(String key) {
+        return (byte[]) get(key);
+    }
+
+    public void setBytes(String key, byte[] value) {
+        data.put(key, value);
+        expireAt.remove(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Set<String> getSet(String key) {
+        Set<String> set = (Set<String>) get(key);
+        return set == null ? new TreeSet<>() : new TreeSet<>(set);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, String> getHash(String key) {
+        Map<String, byte[]> hash = (Map<String, byte[]>) get(key);
+        if (hash == null) {
+            return null;
+        }
+        Map<String, String> map = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> entry: hash.entrySet()) {
+            map.put(entry.getKey(), new String(entry.getValue(), StandardCharsets.UTF_8));
+        }
+        return map;
+    }
+
+    public void setHash(String key, Map<String, String> map) {
+        Map<String, byte[]> hash = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry: map.entrySet()) {
+            hash.put(entry.getKey(), entry.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+        data.put(key, hash);
+        expireAt.remove(key);
+    }
+
+    public long pttl(String key) {
+        if (get(key) == null) {
+            return -2L;
+        }
+        Long at = expireAt.get(key);
+        return at == null ? -1L : at - now;
+    }
+
+    public void pexpire(String key, long millis) {
+        if (get(key) != null) {
+            expireAt.put(key, now + millis);
+        }
+    }
+
+    private Object get(String key) {
+        Long at = expireAt.get(key);
+        if (at != null && at <= now) {
+            data.remove(key);
+            expireAt.remove(key);
+        }
+        return data.get(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Varargs command(Varargs varargs) {
+
+        String command = varargs.checkjstring(1).toUpperCase();
+        String key = varargs.narg() > 1 ? varargs.checkjstring(2) : null;
+
+        switch (command) {
+            case "EXISTS":
+                return LuaValue.valueOf(get(key) != null ? 1 : 0);
+            case "TYPE": {
+                Object value = get(key);
+                String type = value == null ? "none" : value instanceof byte[] ? "string" :
+                        value instanceof Set ? "set" : "hash";
+                LuaTable status = new LuaTable();
+                status.set("ok", type);
+                return status;
+            }
+            case "DEL": {
+                int count = 0;
+                for (int i = 2; i <= varargs.narg(); i++) {
+                    String delKey = varargs.checkjstring(i);
+                    if (get(delKey) != null) {
+                        data.remove(delKey);
+                        expireAt.remove(delKey);
+                        count++;
+                    }
+                }
+                return LuaValue.valueOf(count);
+            }
+            case "KEYS": {
+                LuaTable table = new LuaTable();
+                int i = 1;
+                for (String match: keys(key)) {
+                    table.set(i++, match);
+                }
+                return table;
+            }
+            case "SCAN": {
+                // the cursor is the position in the sorted key space, COUNT keys are looked at per call
+                String pattern = "*";
+                int count = 10;
+                for (int i = 3; i < varargs.narg(); i += 2) {
+                    String option = varargs.checkjstring(i).toUpperCase();
+                    if (option.equals("MATCH")) {
+                        pattern = varargs.checkjstring(i + 1);
+                    } else if (option.equals("COUNT")) {
+                        count = varargs.checkint(i + 1);
+                    }
+                }
+                List<String> all = new ArrayList<>(keys("*"));
+                Pattern regex = Pattern.compile(toRegex(pattern));
+                int cursor = Integer.parseInt(key);
+                int end = Math.min(cursor + count, all.size());
+                LuaTable matches = new LuaTable();
+                int j = 1;
+                for (String scanned: all.subList(Math.min(cursor, end), end)) {
+                    if (regex.matcher(scanned).matches()) {
+                        matches.set(j++, scanned);
+                    }
+                }
+                LuaTable table = new LuaTable();
+                table.set(1, String.valueOf(end >= all.size() ? 0 : end));
+                table.set(2, matches);
+                return table;
+            }
+            case "GET": {
+                Object value = get(key);
+                checkType(value, byte[].class);
+                return value == null ? LuaValue.FALSE : LuaString.valueOf((byte[]) value);
+            }
+            case "SET":
+                data.put(key, toBytes(varargs.checkstring(3)));
+                expireAt.remove(key);
+                return status("OK");
+            case "SETEX":
+                data.put(key, toBytes(varargs.checkstring(4)));
+                expireAt.put(key, now + varargs.checklong(3) * 1000L);
+                return status("OK");
+            case "TTL":
+            case "PTTL": {
+                long pttl = pttl(key);
+                if (pttl >= 0 && command.equals("TTL")) {
+                    pttl = (pttl + 500L) / 1000L;
+                }
+                return LuaValue.valueOf(pttl);
+            }
+            case "EXPIRE":
+            case "PEXPIRE": {
+                if (get(key) == null) {
+                    return LuaValue.valueOf(0);
+                }
+                long millis = varargs.checklong(3) * (command.equals("EXPIRE") ? 1000L : 1L);
+                expireAt.put(key, now + millis);
+                return LuaValue.valueOf(1);
+            }
+            case "SMEMBERS": {
+                Object value = get(key);
+                checkType(value, Set.class);
+                LuaTable table = new LuaTable();
+                if (value != null) {
+                    int i = 1;
+                    for (String member: (Set<String>) value) {
+                        table.set(i++, member);
+                    }
+                }
+                return table;
+            }
+            case "SADD":
+            case "SREM": {
+                Object value = get(key);
+                checkType(value, Set.class);
+                Set<String> set = (Set<String>) value;
+                if (set == null) {
+                    if (command.equals("SREM")) {
+                        return LuaValue.valueOf(0);
+                    }
+                    set = new LinkedHashSet<>();
+                    data.put(key, set);
+                }
+                int count = 0;
+                for (int i = 3; i <= varargs.narg(); i++) {
+                    String member = varargs.checkjstring(i);
+                    if (command.equals("SADD") ? set.add(member) : set.remove(member)) {
+                        count++;
+                    }
+                }
+                if (set.isEmpty()) {
+                    data.remove(key);
+                    expireAt.remove(key);
+                }
+                return LuaValue.valueOf(count);
+            }
+            case "HGETALL": {
+                Object value = get(key);
+                checkType(value, Map.class);
+                LuaTable table = new LuaTable();
+                if (value != null) {
+                    int i = 1;
+                    for (Map.Entry<String, byte[]> entry: ((Map<String, byte[]>) value).entrySet()) {
+                        table.set(i++, entry.getKey());
+                        table.set(i++, LuaString.valueOf(entry.getValue()));
+                    }
+                }
+                return table;
+            }
+            default:
+                throw new LuaError("unsupported command " + command);
+        }
+    }
+
+    // pack and unpack of the messagepack maps of strings that row blobs are made of,
+    // an empty table packs as an empty array like lua cmsgpack does
+    //
+    private static LuaTable cmsgpack() {
+        LuaTable cmsgpack = new LuaTable();
+        cmsgpack.set("pack", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs varargs) {
+                return LuaString.valueOf(pack(varargs.checktable(1)));
+            }
+        });
+        cmsgpack.set("unpack", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs varargs) {
+                return unpack(toBytes(varargs.checkstring(1)));
+            }
+        });
+        return cmsgpack;
+    }
+
+    private static byte[] pack(LuaTable table) {
+        List<LuaValue> fields = new ArrayList<>();
+        LuaValue field = LuaValue.NIL;
+        while (true) {
+            Varargs next = table.next(field);
+            if ((field = next.arg1()).isnil()) break;
+            fields.add(field);
+            fields.add(next.arg(2));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int size = fields.size() / 2;
+        if (size == 0) {
+            out.write(0x90);
+        } else if (size < 16) {
+            out.write(0x80 | size);
+        } else {
+            out.write(0xde);
+            out.write(size >>> 8);
+            out.write(size);
+        }
+        for (LuaValue value: fields) {
+            byte[] bytes = toBytes(value.checkstring());
+            int length = bytes.length;
+            if (length < 32) {
+                out.write(0xa0 | length);
+            } else if (length < 0x100) {
+                out.write(0xd9);
+                out.write(length);
+            } else if (length < 0x10000) {
+                out.write(0xda);
+                out.write(length >>> 8);
+                out.write(length);
+            } else {
+                out.write(0xdb);
+                for (int i = 3; i >= 0; i--) {
+                    out.write(length >>> (i * 8));
+                }
+            }
+            out.write(bytes, 0, length);
+        }
+        return out.toByteArray();
+    }
+
+    private static LuaTable unpack(byte[] bytes) {
+        int[] position = {0};
+        int head = bytes[position[0]++] & 0xff;
+        int size;
+        if ((head & 0xf0) == 0x80) {
+            size = head & 0x0f;
+        } else if (head == 0xde) {
+            size = readInt(bytes, position, 2);
+        } else if (head == 0x90) {
+            size = 0;
+        } else {
+            throw new LuaError("unsupported messagepack head " + head);
+        }
+        LuaTable table = new LuaTable();
+        for (int i = 0; i < size; i++) {
+            LuaString field = readString(bytes, position);
+            table.set(field, readString(bytes, position));
+        }
+        return table;
+    }
+
+    private static LuaString readString(byte[] bytes, int[] position) {
+        int head = bytes[position[0]++] & 0xff;
+        int length;
+        if ((head & 0xe0) == 0xa0) {
+            length = head & 0x1f;
+        } else if (head == 0xd9 || head == 0xc4) {
+            length = readInt(bytes, position, 1);
+        } else if (head == 0xda || head == 0xc5) {
+            length = readInt(bytes, position, 2);
+        } else if (head == 0xdb || head == 0xc6) {
+            length = readInt(bytes, position, 4);
+        } else {
+            throw new LuaError("unsupported messagepack string head " + head);
+        }
+        LuaString string = LuaString.valueOf(Arrays.copyOfRange(bytes, position[0], position[0] + length));
+        position[0] += length;
+        return string;
+    }
+
+    private static int readInt(byte[] bytes, int[] position, int size) {
+        int value = 0;
+        for (int i = 0; i < size; i++) {
+            value = (value << 8) | (bytes[position[0]++] & 0xff);
+        }
+        return value;
+    }
+
+    private static void checkType(Object value, Class<?> type) {
+        if (value != null && !type.isInstance(value)) {
+            throw new LuaError("WRONGTYPE Operation against a key holding the wrong kind of value");
+        }
+    }
+
+    private static LuaTable status(String status) {
+        LuaTable table = new LuaTable();
+        table.set("ok", status);
+        return table;
+    }
+
+    private static byte[] toBytes(LuaString string) {
+        byte[] bytes = new byte[string.length()];
+        string.copyInto(0, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private static LuaTable toTable(List<?> list) {
+        LuaTable table = new LuaTable();
+        for (int i = 0; i < list.size(); i++) {
+            Object value = list.get(i);
+            table.set(i + 1, value instanceof byte[] ? LuaString.valueOf((byte[]) value) :
+                    LuaValue.valueOf(value.toString()));
+        }
+        return table;
+    }
+
+    private static Object toJava(LuaValue value) {
+        if (value.isnil() || value == LuaValue.FALSE) {
+            return null;
+        }
+        if (value == LuaValue.TRUE) {
+            return 1L;
+        }
+        if (value.type() == LuaValue.TNUMBER) {
+            return value.tolong();
+        }
+        if (value.isstring()) {
+            byte[] bytes = toBytes(value.checkstring());
+            String string = new String(bytes, StandardCharsets.UTF_8);
+            return Arrays.equals(string.getBytes(StandardCharsets.UTF_8), bytes) ? string : bytes;
+        }
+        if (value.istable()) {
+            LuaValue ok = value.get("ok");
+            if (!ok.isnil()) {
+                return ok.tojstring();
+            }
+            List<Object> list = new ArrayList<>();
+            for (int i = 1; !value.get(i).isnil(); i++) {
+                list.add(toJava(value.get(i)));
+            }
+            return list;
+        }
+        throw new RuntimeException("unsupported lua result " + value.typename());
+    }
+
+    private static String toRegex(String pattern) {
+        StringBuilder sb = new StringBuilder();
+        for (char c: pattern.toCharArray()) {
+            if (c == '*') {
+                sb.append(".*");
+            } else if (c == '?') {
+                sb.append('.');
+            } else {
+                sb.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.configs;
+
+import com.lambdaworks.redis.RedisCommandExecutionException;
+import com.lambdaworks.redis.RedisFuture;
+import com.lambdaworks.redis.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * LettuceAsync over mocked async commands, with replies the test completes
+ */
+public class MockLettuce {
+
+    public static LettuceAsync mockLettuceAsync(RedisClusterAsyncCommands<byte[], byte[]> commands) {
+        return new LettuceAsync(commands, 1000L);
+    }
+
+    // completes the replies from the last one to the first one, once all of them are sent
+    //
+    public static <T> Thread replyInReverse(List<Reply<T>> replies, List<T> values) {
+        Thread thread = new Thread(() -> {
+            try {
+                while (replies.size() < values.size()) {
+                    Thread.sleep(1);
+                }
+                for (int i = values.size() - 1; i >= 0; i--) {
+                    replies.get(i).complete(values.get(i));
+                    Thread.sleep(1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    public static class Reply<T> extends CompletableFuture<T> implements RedisFuture<T> {
+
+        public static <T> Reply<T> of(T value) {
+            Reply<T> reply = new Reply<>();
+            reply.complete(value);
+            return reply;
+        }
+
+        public static <T> Reply<T> error(String message) {
+            Reply<T> reply = new Reply<>();
+            reply.completeExceptionally(new RedisCommandExecutionException(message));
+            return reply;
+        }
+
+        @Override
+        public String getError() {
+            if (!isCompletedExceptionally()) {
+                return null;
+            }
+            try {
+                get();
+            } catch (ExecutionException e) {
+                return e.getCause().getMessage();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }
+
+        @Override
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            try {
+                get(timeout, unit);
+            } catch (ExecutionException e) {
+                return true;
+            } catch (TimeoutException e) {
+                return false;
+            }
+            return true;
+        }
+    }
+}
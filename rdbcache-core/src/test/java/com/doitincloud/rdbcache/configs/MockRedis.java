@@ -16,16 +16,24 @@
 
 package com.doitincloud.rdbcache.configs;
 
+import com.doitincloud.commons.RowBlob;
 import com.doitincloud.commons.Utils;
+import com.doitincloud.commons.ValueCodecs;
 import com.doitincloud.rdbcache.models.KeyInfo;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.core.HashOperations;
 import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static org.mockito.Matchers.*;
@@ -37,6 +45,10 @@ public class MockRedis {
 
     private static Map<String, Object> data = new HashMap<>();
 
+    // results collected while inside executePipelined
+    //
+    private static ThreadLocal<List<Object>> pipelined = new ThreadLocal<>();
+
     public static Map<String, Object> getData() {
         return data;
     }
@@ -61,6 +73,63 @@ public class MockRedis {
         HashOperations hashOps = mock(HashOperations.class, Mockito.RETURNS_DEEP_STUBS);
         Mockito.when(template.opsForHash()).thenReturn(hashOps);
 
+        // mock StringRedisTemplate executePipelined
+        //
+        Mockito.doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            SessionCallback callback = (SessionCallback) args[0];
+            LOGGER.trace("StringRedisTemplate executePipelined");
+            List<Object> results = new ArrayList<>();
+            pipelined.set(results);
+            try {
+                callback.execute(template);
+            } finally {
+                pipelined.remove();
+            }
+            return results;
+        }).when(template).executePipelined(any(SessionCallback.class));
+
+        // mock StringRedisTemplate execute, for the MGET of row blobs
+        //
+        RedisConnection connection = mock(RedisConnection.class);
+        Mockito.doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            List<byte[]> values = new ArrayList<>();
+            for (Object arg: args) {
+                String key = new String((byte[]) arg, StandardCharsets.UTF_8);
+                LOGGER.trace("RedisConnection mGet " + key);
+                Object value = data.get(key);
+                values.add(value instanceof byte[] ? (byte[]) value : null);
+            }
+            return values;
+        }).when(connection).mGet(Mockito.<byte[]>anyVararg());
+
+        Mockito.doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            RedisCallback callback = (RedisCallback) args[0];
+            return callback.doInRedis(connection);
+        }).when(template).execute(any(RedisCallback.class));
+
+        // mock StringRedisTemplate execute script, merge-row-blob.lua is the only script run this way
+        //
+        Mockito.doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            String key = ((List<String>) args[3]).get(0);
+            byte[] update = (byte[]) args[4];
+            LOGGER.trace("StringRedisTemplate execute merge-row-blob " + key);
+            Object value = data.get(key);
+            Map<String, Object> row = new LinkedHashMap<>();
+            if (value instanceof byte[]) {
+                row.putAll(RowBlob.decode((byte[]) value));
+            } else if (value instanceof Map) {
+                row.putAll((Map<String, Object>) value);
+            }
+            row.putAll(RowBlob.decode(update));
+            data.put(key, RowBlob.encode(row, ValueCodecs.forName(PropCfg.getValueCodec())));
+            return 1L;
+        }).when(template).execute(any(RedisScript.class), any(RedisSerializer.class), Mockito.<RedisSerializer>any(),
+                anyList(), anyVararg());
+
         // mock HashOperations putAll
         //
         Mockito.doAnswer(invocation -> {
@@ -87,10 +156,15 @@ public class MockRedis {
             String key = (String) args[0];
             LOGGER.trace("StringRedisTemplate HashOperations entries " + key);
             Map<String, Object> map = (Map<String, Object>) data.get(key);
-            if (map == null) {
+            Map<String, Object> mapClone = null;
+            if (map != null) {
+                mapClone = new LinkedHashMap<>(map);
+            }
+            List<Object> results = pipelined.get();
+            if (results != null) {
+                results.add(mapClone);
                 return null;
             }
-            Map<String, Object> mapClone = new LinkedHashMap<>(map);
             return mapClone;
         }).when(hashOps).entries(anyString());
 
@@ -211,6 +285,10 @@ public class MockRedis {
            Map<String, Object> map = (Map<String, Object>) data.get(key);
            List<KeyInfo> resultList = new ArrayList<>();
            if (map == null) {
+               // like redis hmget, one null per key
+               for (String subKey: keys) {
+                   resultList.add(null);
+               }
                return resultList;
            }
            for (String subKey: keys) {
@@ -74,6 +74,40 @@ public class ParserTest {
         assertEquals("[1, 2, 3]", keyInfo.getParams().toString());
     }
 
+    @Test
+    public void prepareQueryClauseParamsSameShape() {
+
+        Context context = new Context();
+        KvPair pair = new KvPair("hash_key");
+
+        KeyInfo keyInfo1 = new KeyInfo();
+        keyInfo1.setTable("user_table");
+        String json1 = "{\"table\":\"user_table\",\"conditions\":{\"id\":{\">\":[\"1\"]}},\"limit\":2}";
+        keyInfo1.setQuery(Utils.toPojo(Utils.toMap(json1), QueryInfo.class));
+
+        KeyInfo keyInfo2 = new KeyInfo();
+        keyInfo2.setTable("user_table");
+        String json2 = "{\"table\":\"user_table\",\"conditions\":{\"id\":{\">\":[\"5\"]}},\"limit\":2}";
+        keyInfo2.setQuery(Utils.toPojo(Utils.toMap(json2), QueryInfo.class));
+
+        KeyInfo keyInfo3 = new KeyInfo();
+        keyInfo3.setTable("user_table");
+        String json3 = "{\"table\":\"user_table\",\"conditions\":{\"id\":{\">\":[\"1\", \"5\"]}},\"limit\":2}";
+        keyInfo3.setQuery(Utils.toPojo(Utils.toMap(json3), QueryInfo.class));
+
+        assertTrue(Parser.prepareQueryClauseParams(context, pair, keyInfo1));
+        assertTrue(Parser.prepareQueryClauseParams(context, pair, keyInfo2));
+        assertTrue(Parser.prepareQueryClauseParams(context, pair, keyInfo3));
+
+        assertEquals("(id > ?)", keyInfo1.getClause());
+        assertSame(keyInfo1.getClause(), keyInfo2.getClause());
+        assertEquals("[1]", keyInfo1.getParams().toString());
+        assertEquals("[5]", keyInfo2.getParams().toString());
+
+        assertEquals("(id > ? AND id > ?)", keyInfo3.getClause());
+        assertEquals("[1, 5]", keyInfo3.getParams().toString());
+    }
+
     @Test
     public void prepareStandardClauseParams() {
 
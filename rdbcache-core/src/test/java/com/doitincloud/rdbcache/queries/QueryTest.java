@@ -16,23 +16,33 @@
 
 package com.doitincloud.rdbcache.queries;
 
+import com.doitincloud.rdbcache.configs.AppCtx;
 import com.doitincloud.rdbcache.configs.Configurations;
+import com.doitincloud.rdbcache.configs.PropCfg;
 import com.doitincloud.rdbcache.supports.AnyKey;
 import com.doitincloud.rdbcache.supports.Context;
 import com.doitincloud.rdbcache.supports.KvPairs;
 import com.doitincloud.commons.Utils;
 import com.doitincloud.rdbcache.models.KeyInfo;
 import com.doitincloud.rdbcache.models.KvPair;
+import com.doitincloud.rdbcache.services.DbaseOps;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Mockito;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.*;
@@ -75,6 +85,46 @@ public class QueryTest {
         }
     }
 
+    @Test
+    public void keysetSelectTest() {
+
+        PropCfg propCfg = new PropCfg();
+        propCfg.setSelectPageSize(1);
+
+        try {
+            Context context = new Context(true, true);
+            KvPairs pairs = new KvPairs();
+            AnyKey anyKey = new AnyKey();
+
+            KeyInfo keyInfo = new KeyInfo();
+            keyInfo.setExpire("100");
+            keyInfo.setTable("employees");
+
+            String json = "{\"table\":\"employees\",\"conditions\":{\"emp_no\":{\"<\":[\"10076\"]}},\"after\":[\"10072\"]}";
+            QueryInfo queryInfo = Utils.toPojo(Utils.toMap(json), QueryInfo.class);
+            keyInfo.setQuery(queryInfo);
+            anyKey.setKeyInfo(keyInfo);
+            Query query = new Query(context, jdbcTemplate, pairs, anyKey);
+
+            assertTrue(query.ifSelectOk());
+            assertTrue(query.getSql().contains("order by emp_no"));
+
+            assertTrue(query.executeSelect());
+
+            //System.out.println(Utils.toJsonMap(pairs));
+            assertEquals(3, pairs.size());
+            assertEquals("10073", String.valueOf(pairs.get(0).getData().get("emp_no")));
+            assertEquals("10074", String.valueOf(pairs.get(1).getData().get("emp_no")));
+            assertEquals("10075", String.valueOf(pairs.get(2).getData().get("emp_no")));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e.getCause().getMessage());
+        } finally {
+            propCfg.setSelectPageSize(1024);
+        }
+    }
+
     @Test
     public void insertTest() {
 
@@ -240,4 +290,345 @@ public class QueryTest {
             e.printStackTrace();
             fail(e.getCause().getMessage());
         }
-    }}
\ No newline at end of file
+    }
+
+    @Test
+    public void batchUpdateTest() {
+        try {
+            Context context = new Context();
+            KvPairs pairs = new KvPairs();
+            AnyKey anyKey = new AnyKey();
+
+            Integer[] empNos = new Integer[]{10072, 10073, 10074};
+            for (Integer empNo: empNos) {
+                Map<String, Object> map = Utils.toMap("{\"last_name\" : \"Batched\"}");
+                pairs.add(new KvPair(empNo.toString(), "data", map));
+                KeyInfo keyInfo = new KeyInfo();
+                keyInfo.setExpire("100");
+                keyInfo.setTable("employees");
+                keyInfo.setClause("emp_no = ?");
+                keyInfo.setParams(Arrays.asList(empNo));
+                anyKey.add(keyInfo);
+            }
+
+            Query query = new Query(context, jdbcTemplate, pairs, anyKey);
+
+            assertTrue(query.ifUpdateOk());
+
+            assertTrue(query.executeUpdate());
+
+            for (Integer empNo: empNos) {
+                String lastName = jdbcTemplate.queryForObject(
+                        "select last_name from employees where emp_no = ?", String.class, empNo);
+                assertEquals("Batched", lastName);
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void batchInsertTest() {
+        try {
+            Context context = new Context();
+            KvPairs pairs = new KvPairs();
+            AnyKey anyKey = new AnyKey();
+
+            String[] names = new String[]{"Amy", "Ben", "Cid"};
+            for (String name: names) {
+                Map<String, Object> map = Utils.toMap("{\"email\" : \"" + name.toLowerCase() +
+                        "@example.com\", \"name\" : \"" + name + "\", \"dob\" : \"1980-01-01\"}");
+                pairs.add(new KvPair("*", "data", map));
+                KeyInfo keyInfo = new KeyInfo();
+                keyInfo.setExpire("100");
+                keyInfo.setTable("user_table2");
+                anyKey.add(keyInfo);
+            }
+
+            int rowCount = jdbcTemplate.queryForObject("select count(*) from user_table2", Integer.class);
+
+            List<String> sqls = new ArrayList<>();
+            Query query = new Query(context, new JdbcTemplate(recordStatements(jdbcTemplate.getDataSource(), sqls)),
+                    pairs, anyKey);
+
+            assertTrue(query.ifInsertOk());
+
+            assertTrue(query.executeInsert(false, false));
+
+            // one statement inserts the rows, one select finds their keys
+            assertEquals(2, sqls.size());
+            assertTrue(sqls.get(0).startsWith("insert into user_table2"));
+            assertTrue(sqls.get(1).startsWith("select * from user_table2"));
+
+            assertEquals(rowCount + names.length,
+                    jdbcTemplate.queryForObject("select count(*) from user_table2", Integer.class).intValue());
+
+            for (int i = 0; i < names.length; i++) {
+                Object id = pairs.get(i).getData().get("id");
+                assertNotNull(id);
+                String name = jdbcTemplate.queryForObject(
+                        "select name from user_table2 where id = ?", String.class, id);
+                assertEquals(names[i], name);
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e.getCause().getMessage());
+        }
+    }
+
+    // the existing row is updated, the new ones are inserted once, the keys of all
+    // are looked up by the unique email
+    //
+    @Test
+    public void batchInsertKeysMismatchTest() {
+        try {
+            Context context = new Context();
+
+            jdbcTemplate.update("insert into user_table2 (email, name, dob) values (?, ?, ?)",
+                    "dan@example.com", "Dan", "1980-01-01");
+            Object danId = jdbcTemplate.queryForObject(
+                    "select id from user_table2 where email = ?", Object.class, "dan@example.com");
+
+            KvPairs pairs = new KvPairs();
+            AnyKey anyKey = new AnyKey();
+
+            String[] names = new String[]{"Dan", "Eve", "Fay"};
+            for (String name: names) {
+                Map<String, Object> map = Utils.toMap("{\"email\" : \"" + name.toLowerCase() +
+                        "@example.com\", \"name\" : \"" + name + "\", \"dob\" : \"1990-01-01\"}");
+                pairs.add(new KvPair("*", "data", map));
+                KeyInfo keyInfo = new KeyInfo();
+                keyInfo.setExpire("100");
+                keyInfo.setTable("user_table2");
+                anyKey.add(keyInfo);
+            }
+
+            int rowCount = jdbcTemplate.queryForObject("select count(*) from user_table2", Integer.class);
+
+            Query query = new Query(context, jdbcTemplate, pairs, anyKey);
+
+            assertTrue(query.ifInsertOk());
+
+            assertTrue(query.executeInsert(false, false));
+
+            // dan is updated, eve and fay are inserted once
+            assertEquals(rowCount + 2,
+                    jdbcTemplate.queryForObject("select count(*) from user_table2", Integer.class).intValue());
+
+            assertEquals(String.valueOf(danId), pairs.get(0).getData().get("id"));
+
+            for (int i = 0; i < names.length; i++) {
+                Object id = pairs.get(i).getData().get("id");
+                assertNotNull(id);
+                Map<String, Object> row = jdbcTemplate.queryForMap(
+                        "select name, dob from user_table2 where id = ?", id);
+                assertEquals(names[i], row.get("name"));
+                assertEquals("1990-01-01", row.get("dob").toString());
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e.getCause().getMessage());
+        }
+    }
+
+    // mysql counts 2 for a row an upsert updated and 0 for one it left unchanged, the rows
+    // changed in total do not tell which rows are new. the keys of all the rows are looked
+    // up in one select by the unique email, not row by row
+    //
+    @Test
+    public void batchUpsertKeysTest() {
+        try {
+            Context context = new Context();
+
+            jdbcTemplate.update("insert into user_table2 (email, name, dob) values (?, ?, ?)",
+                    "gus@example.com", "Gus", "1980-01-01");
+
+            KvPairs pairs = new KvPairs();
+            AnyKey anyKey = new AnyKey();
+
+            String[] names = new String[]{"Gus", "Hal", "Ivy"};
+            for (String name: names) {
+                Map<String, Object> map = Utils.toMap("{\"email\" : \"" + name.toLowerCase() +
+                        "@example.com\", \"name\" : \"" + name + "\", \"dob\" : \"1990-01-01\"}");
+                pairs.add(new KvPair("*", "data", map));
+                KeyInfo keyInfo = new KeyInfo();
+                keyInfo.setExpire("100");
+                keyInfo.setTable("user_table2");
+                anyKey.add(keyInfo);
+            }
+
+            List<String> sqls = new ArrayList<>();
+            DataSource dataSource = recordStatements(jdbcTemplate.getDataSource(), sqls);
+            Query query = new Query(context, new JdbcTemplate(dataSource), pairs, anyKey);
+
+            assertTrue(query.ifInsertOk());
+
+            assertTrue(query.executeInsert(false, false));
+
+            assertEquals(2, sqls.size());
+
+            for (int i = 0; i < names.length; i++) {
+                Object id = jdbcTemplate.queryForObject(
+                        "select id from user_table2 where email = ?", Object.class, names[i].toLowerCase() + "@example.com");
+                assertEquals(String.valueOf(id), pairs.get(i).getData().get("id"));
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void multiSelectTest() {
+        try {
+            Context context = new Context();
+            KvPairs pairs = new KvPairs();
+            AnyKey anyKey = new AnyKey();
+
+            Integer[] empNos = new Integer[]{10077, 99999, 10075};
+            for (Integer empNo: empNos) {
+                pairs.add(new KvPair(empNo.toString()));
+                KeyInfo keyInfo = new KeyInfo();
+                keyInfo.setExpire("100");
+                keyInfo.setTable("employees");
+                keyInfo.setClause("emp_no = ?");
+                keyInfo.setParams(Arrays.asList(empNo));
+                anyKey.add(keyInfo);
+            }
+
+            Query query = new Query(context, jdbcTemplate, pairs, anyKey);
+
+            assertTrue(query.ifMultiSelectOk());
+
+            boolean[] founds = query.executeMultiSelect();
+
+            assertNotNull(founds);
+            assertTrue(founds[0]);
+            assertFalse(founds[1]);
+            assertTrue(founds[2]);
+
+            assertEquals("Azuma", pairs.get(0).getData().get("last_name"));
+            assertFalse(pairs.get(1).hasContent());
+            assertEquals("Dolinsky", pairs.get(2).getData().get("last_name"));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e.getCause().getMessage());
+        }
+    }
+
+    // the database matches a key that differs in text from the row, the multiple keys
+    // select does not find it, the single key select does
+    //
+    @Test
+    public void multiSelectTextMismatchTest() {
+        try {
+            Context context = new Context();
+            KvPairs pairs = new KvPairs();
+            AnyKey anyKey = new AnyKey();
+
+            String[] empNos = new String[]{"010077", "10075"};
+            for (String empNo: empNos) {
+                pairs.add(new KvPair(empNo));
+                KeyInfo keyInfo = new KeyInfo();
+                keyInfo.setExpire("100");
+                keyInfo.setTable("employees");
+                keyInfo.setClause("emp_no = ?");
+                keyInfo.setParams(Arrays.asList(empNo));
+                anyKey.add(keyInfo);
+            }
+
+            Query query = new Query(context, jdbcTemplate, pairs, anyKey);
+
+            assertTrue(query.ifMultiSelectOk());
+
+            boolean[] founds = query.executeMultiSelect();
+
+            assertNotNull(founds);
+            assertFalse(founds[0]);
+            assertTrue(founds[1]);
+
+            KvPairs onePairs = new KvPairs(pairs.get(0));
+            AnyKey oneAnyKey = new AnyKey(anyKey.get(0));
+            query = new Query(context, jdbcTemplate, onePairs, oneAnyKey);
+
+            assertTrue(query.ifSelectOk());
+            assertTrue(query.executeSelect());
+            assertEquals("Azuma", onePairs.get(0).getData().get("last_name"));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void fetchSizeTest() {
+
+        PropCfg propCfg = new PropCfg();
+        DbaseOps savedDbaseOps = AppCtx.getDbaseOps();
+        String savedUrl = PropCfg.getDatasourceUrl();
+
+        DbaseOps dbaseOps = Mockito.mock(DbaseOps.class);
+        Mockito.when(dbaseOps.getDatabaseType()).thenReturn("mysql");
+        AppCtx.setDbaseOps(dbaseOps);
+
+        try {
+            Query query = new Query(new Context(), jdbcTemplate, new KvPairs(), new AnyKey());
+
+            // mysql reads each page at once by default
+            propCfg.setDatasourceUrl("jdbc:mysql://localhost:3306/testdb");
+            assertEquals(0, query.getFetchSize());
+
+            propCfg.setEnableMysqlRowStreaming(true);
+            assertEquals(Integer.MIN_VALUE, query.getFetchSize());
+
+            // server side cursors take the fetch size as it is
+            propCfg.setDatasourceUrl("jdbc:mysql://localhost:3306/testdb?useCursorFetch=true");
+            assertEquals(256, query.getFetchSize());
+            propCfg.setEnableMysqlRowStreaming(false);
+            assertEquals(256, query.getFetchSize());
+
+            Mockito.when(dbaseOps.getDatabaseType()).thenReturn("h2");
+            assertEquals(256, query.getFetchSize());
+
+        } finally {
+            propCfg.setEnableMysqlRowStreaming(false);
+            propCfg.setDatasourceUrl(savedUrl);
+            AppCtx.setDbaseOps(savedDbaseOps);
+        }
+    }
+
+    // a data source that records the sql of the statements it prepares
+    //
+    private static DataSource recordStatements(DataSource dataSource, List<String> sqls) {
+        return (DataSource) Proxy.newProxyInstance(QueryTest.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+            Object result = invoke(dataSource, method, args);
+            if (!(result instanceof Connection)) {
+                return result;
+            }
+            Connection connection = (Connection) result;
+            return Proxy.newProxyInstance(QueryTest.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy2, method2, args2) -> {
+                if (method2.getName().equals("prepareStatement")) {
+                    sqls.add((String) args2[0]);
+                }
+                return invoke(connection, method2, args2);
+            });
+        });
+    }
+
+    private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.repositories.impls;
+
+import com.doitincloud.rdbcache.configs.MockLettuce;
+import com.doitincloud.rdbcache.configs.MockLettuce.Reply;
+import com.doitincloud.rdbcache.models.KeyInfo;
+import com.doitincloud.rdbcache.models.KvPair;
+import com.doitincloud.rdbcache.supports.Context;
+import com.doitincloud.rdbcache.supports.KvPairs;
+
+import com.lambdaworks.redis.cluster.api.async.RedisClusterAsyncCommands;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class LettuceKeyInfoRepoImplTest {
+
+    private Jackson2JsonRedisSerializer<KeyInfo> keyInfoSerializer = new Jackson2JsonRedisSerializer<>(KeyInfo.class);
+
+    private RedisClusterAsyncCommands<byte[], byte[]> commands;
+
+    private LettuceKeyInfoRepoImpl repo;
+
+    @Before
+    public void setUp() {
+        commands = mock(RedisClusterAsyncCommands.class);
+        repo = new LettuceKeyInfoRepoImpl();
+        repo.setLettuce(MockLettuce.mockLettuceAsync(commands));
+    }
+
+    @Test
+    public void redisMultiGetTest() {
+
+        List<String> keys = Arrays.asList("k0", "k1", "k2", "k3");
+        List<byte[]> values = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            values.add(i == 2 ? null : keyInfoSerializer.serialize(new KeyInfo("table_" + i, "id", i)));
+        }
+
+        List<Object[]> calls = new ArrayList<>();
+        doAnswer(invocation -> {
+            calls.add(invocation.getArguments());
+            return Reply.of(values);
+        }).when(commands).hmget(any(byte[].class), Mockito.<byte[]>anyVararg());
+
+        List<KeyInfo> keyInfos = repo.redisMultiGet("data", keys);
+
+        // one HMGET, fields in the order of the keys
+        assertEquals(1, calls.size());
+        Object[] args = calls.get(0);
+        assertEquals(repo.getHkeyPrefix() + "::data", string((byte[]) args[0]));
+        assertEquals(keys.size() + 1, args.length);
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(keys.get(i), string((byte[]) args[i + 1]));
+        }
+
+        assertEquals(keys.size(), keyInfos.size());
+        for (int i = 0; i < keys.size(); i++) {
+            if (i == 2) {
+                assertNull(keyInfos.get(i));
+            } else {
+                assertEquals("table_" + i, keyInfos.get(i).getTable());
+            }
+        }
+    }
+
+    @Test
+    public void redisPutAllTest() {
+
+        Map<String, KeyInfo> keyInfoMap = new LinkedHashMap<>();
+        for (int i = 0; i < 4; i++) {
+            keyInfoMap.put("k" + i, new KeyInfo("table_" + i, "id", i));
+        }
+
+        List<Map<byte[], byte[]>> sent = new ArrayList<>();
+        doAnswer(invocation -> {
+            sent.add(invocation.getArgument(1));
+            return Reply.of("OK");
+        }).when(commands).hmset(any(byte[].class), anyMap());
+
+        repo.redisPutAll("data", keyInfoMap);
+
+        assertEquals(1, sent.size());
+        List<String> fields = new ArrayList<>();
+        for (Map.Entry<byte[], byte[]> entry: sent.get(0).entrySet()) {
+            String field = string(entry.getKey());
+            fields.add(field);
+            assertEquals(keyInfoMap.get(field).getTable(), keyInfoSerializer.deserialize(entry.getValue()).getTable());
+        }
+        assertEquals(new ArrayList<>(keyInfoMap.keySet()), fields);
+    }
+
+    @Test
+    public void redisDeleteTest() throws Exception {
+
+        KvPairs pairs = new KvPairs();
+        for (int i = 0; i < 4; i++) {
+            pairs.add(new KvPair("k" + i, i % 2 == 0 ? "data" : "info"));
+        }
+
+        List<String> sent = new CopyOnWriteArrayList<>();
+        List<Reply<Long>> replies = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            Reply<Long> reply = new Reply<>();
+            sent.add(string((byte[]) invocation.getArgument(0)) + " " + string((byte[]) invocation.getArgument(1)));
+            replies.add(reply);
+            return reply;
+        }).when(commands).hdel(any(byte[].class), Mockito.<byte[]>anyVararg());
+
+        Thread thread = MockLettuce.replyInReverse(replies, Arrays.asList(1L, 1L, 1L, 1L));
+        repo.redisDelete(new Context(), pairs);
+
+        for (Reply<Long> reply: replies) {
+            assertTrue(reply.isDone());
+        }
+        thread.join();
+
+        String prefix = repo.getHkeyPrefix() + "::";
+        assertEquals(Arrays.asList(prefix + "data k0", prefix + "info k1", prefix + "data k2", prefix + "info k3"), sent);
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
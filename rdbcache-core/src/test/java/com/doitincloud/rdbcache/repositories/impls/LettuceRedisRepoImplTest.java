@@ -0,0 +1,143 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.repositories.impls;
+
+import com.doitincloud.rdbcache.configs.MockLettuce;
+import com.doitincloud.rdbcache.configs.MockLettuce.Reply;
+import com.doitincloud.rdbcache.configs.RedisValueSerializer;
+
+import com.lambdaworks.redis.cluster.api.async.RedisClusterAsyncCommands;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class LettuceRedisRepoImplTest {
+
+    private RedisValueSerializer valueSerializer = new RedisValueSerializer();
+
+    private RedisClusterAsyncCommands<byte[], byte[]> commands;
+
+    private LettuceRedisRepoImpl repo;
+
+    @Before
+    public void setUp() {
+        commands = mock(RedisClusterAsyncCommands.class);
+        repo = new LettuceRedisRepoImpl();
+        repo.setLettuce(MockLettuce.mockLettuceAsync(commands));
+    }
+
+    @Test
+    public void batchEntriesTest() throws Exception {
+
+        List<String> hashKeys = new ArrayList<>();
+        List<Map<byte[], byte[]>> values = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            hashKeys.add("hdata::data:k" + i);
+            Map<byte[], byte[]> entries = new LinkedHashMap<>();
+            if (i != 3) {
+                entries.put(bytes("id"), valueSerializer.serialize("v" + i));
+                entries.put(bytes("name"), valueSerializer.serialize("name " + i));
+            }
+            values.add(i == 3 ? null : entries);
+        }
+
+        List<String> sentKeys = new CopyOnWriteArrayList<>();
+        List<Reply<Map<byte[], byte[]>>> replies = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            Reply<Map<byte[], byte[]>> reply = new Reply<>();
+            sentKeys.add(string(invocation.getArgument(0)));
+            replies.add(reply);
+            return reply;
+        }).when(commands).hgetall(any(byte[].class));
+
+        Thread thread = MockLettuce.replyInReverse(replies, values);
+        List<Object> results = repo.batchEntries(hashKeys);
+        thread.join();
+
+        assertEquals(hashKeys, sentKeys);
+        assertEquals(hashKeys.size(), results.size());
+        for (int i = 0; i < hashKeys.size(); i++) {
+            Map<String, Object> map = (Map<String, Object>) results.get(i);
+            if (i == 3) {
+                assertEquals(0, map.size());
+                continue;
+            }
+            assertEquals(Arrays.asList("id", "name"), new ArrayList<>(map.keySet()));
+            assertEquals("v" + i, map.get("id"));
+            assertEquals("name " + i, map.get("name"));
+        }
+    }
+
+    @Test
+    public void batchPutAllTest() throws Exception {
+
+        Map<String, Map<String, Object>> maps = new LinkedHashMap<>();
+        for (int i = 0; i < 5; i++) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            if (i != 2) {
+                map.put("id", "v" + i);
+                map.put("name", "name " + i);
+            }
+            maps.put("hdata::data:k" + i, map);
+        }
+
+        List<String> sentKeys = new CopyOnWriteArrayList<>();
+        List<Map<String, Object>> sentMaps = new CopyOnWriteArrayList<>();
+        List<Reply<String>> replies = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            Map<byte[], byte[]> fields = invocation.getArgument(1);
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<byte[], byte[]> entry: fields.entrySet()) {
+                map.put(string(entry.getKey()), valueSerializer.deserialize(entry.getValue()));
+            }
+            Reply<String> reply = new Reply<>();
+            sentKeys.add(string(invocation.getArgument(0)));
+            sentMaps.add(map);
+            replies.add(reply);
+            return reply;
+        }).when(commands).hmset(any(byte[].class), anyMap());
+
+        // the empty row is not sent
+        Thread thread = MockLettuce.replyInReverse(replies, Arrays.asList("OK", "OK", "OK", "OK"));
+        repo.batchPutAll(maps);
+
+        for (Reply<String> reply: replies) {
+            assertTrue(reply.isDone());
+        }
+        thread.join();
+
+        assertEquals(Arrays.asList("hdata::data:k0", "hdata::data:k1", "hdata::data:k3", "hdata::data:k4"), sentKeys);
+        for (int i = 0; i < sentKeys.size(); i++) {
+            assertEquals(maps.get(sentKeys.get(i)), sentMaps.get(i));
+        }
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
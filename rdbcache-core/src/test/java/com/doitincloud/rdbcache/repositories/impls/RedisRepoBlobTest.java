@@ -0,0 +1,188 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.repositories.impls;
+
+import com.doitincloud.commons.RowBlob;
+import com.doitincloud.commons.ValueCodecs;
+import com.doitincloud.rdbcache.configs.AppCtx;
+import com.doitincloud.rdbcache.configs.LuaRedis;
+import com.doitincloud.rdbcache.configs.MockRedis;
+import com.doitincloud.rdbcache.models.KeyInfo;
+import com.doitincloud.rdbcache.models.KvPair;
+import com.doitincloud.rdbcache.supports.AnyKey;
+import com.doitincloud.rdbcache.supports.Context;
+import com.doitincloud.rdbcache.supports.KvPairs;
+import com.doitincloud.rdbcache.supports.RedisKeys;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class RedisRepoBlobTest {
+
+    private static String mergeRowBlobScript = LuaRedis.loadScript("scripts/merge-row-blob.lua");
+
+    private StringRedisTemplate savedTemplate;
+
+    private StringRedisTemplate template;
+
+    private RedisRepoImpl repo;
+
+    private List<String> hashKeys = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        savedTemplate = AppCtx.getStringRedisTemplate();
+        template = MockRedis.mockStringRedisTemplate();
+        AppCtx.setRedisTemplate(template);
+
+        repo = new RedisRepoImpl();
+        repo.handleApplicationReadyEvent(null);
+        repo.setEnableDataCache(false);
+        repo.setEnablePipeline(true);
+        repo.setBlobTables("blob_table");
+    }
+
+    @After
+    public void tearDown() {
+        for (String hashKey: hashKeys) {
+            MockRedis.getData().remove(hashKey);
+        }
+        AppCtx.setRedisTemplate(savedTemplate);
+    }
+
+    @Test
+    public void mergeIntoMissingRow() {
+
+        LuaRedis redis = new LuaRedis();
+
+        Map<String, Object> update = row(1, "a", null);
+        assertEquals(1L, redis.eval(mergeRowBlobScript, Collections.singletonList("k1"),
+                Collections.singletonList(RowBlob.encode(update, ValueCodecs.JSON))));
+
+        assertEquals(update, RowBlob.decode(redis.getBytes("k1")));
+        assertEquals(-1L, redis.pttl("k1"));
+    }
+
+    @Test
+    public void mergeIntoBlob() {
+
+        LuaRedis redis = new LuaRedis();
+        redis.setBytes("k1", RowBlob.encode(row(1, "a", "2000-01-01"), ValueCodecs.BINARY));
+        redis.pexpire("k1", 5000L);
+
+        Map<String, Object> update = new LinkedHashMap<>();
+        update.put("name", "b");
+        redis.eval(mergeRowBlobScript, Collections.singletonList("k1"),
+                Collections.singletonList(RowBlob.encode(update, ValueCodecs.JSON)));
+
+        assertEquals(row(1, "b", "2000-01-01"), RowBlob.decode(redis.getBytes("k1")));
+        assertEquals(5000L, redis.pttl("k1"));
+    }
+
+    @Test
+    public void mergeIntoHash() {
+
+        LuaRedis redis = new LuaRedis();
+        Map<String, String> hash = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry: row(1, "a", "2000-01-01").entrySet()) {
+            hash.put(entry.getKey(), new String(ValueCodecs.JSON.encode(entry.getValue()), StandardCharsets.UTF_8));
+        }
+        redis.setHash("k1", hash);
+        redis.pexpire("k1", 3000L);
+
+        Map<String, Object> update = new LinkedHashMap<>();
+        update.put("name", "c");
+        redis.eval(mergeRowBlobScript, Collections.singletonList("k1"),
+                Collections.singletonList(RowBlob.encode(update, ValueCodecs.BINARY)));
+
+        assertNotNull(redis.getBytes("k1"));
+        assertEquals(row(1, "c", "2000-01-01"), RowBlob.decode(redis.getBytes("k1")));
+        assertEquals(3000L, redis.pttl("k1"));
+    }
+
+    @Test
+    public void saveAndFindRouting() {
+
+        Context context = new Context(false, "blob_test");
+
+        KvPairs pairs = new KvPairs();
+        AnyKey anyKey = new AnyKey();
+        for (int i = 1; i <= 4; i++) {
+            pairs.add(new KvPair("blob_test_" + i, "data", row(i, "name " + i, null)));
+            anyKey.add(new KeyInfo(i <= 2 ? "blob_table" : "hash_table", "id", i));
+            hashKeys.add(hashKey("blob_test_" + i));
+        }
+
+        assertTrue(repo.save(context, pairs, anyKey));
+
+        Map<String, Object> data = MockRedis.getData();
+        assertTrue(data.get(hashKey("blob_test_1")) instanceof byte[]);
+        assertTrue(data.get(hashKey("blob_test_2")) instanceof byte[]);
+        assertTrue(data.get(hashKey("blob_test_3")) instanceof Map);
+        assertTrue(data.get(hashKey("blob_test_4")) instanceof Map);
+
+        // rows of a blob table still stored as hashes
+        for (int i = 5; i <= 6; i++) {
+            data.put(hashKey("blob_test_" + i), row(i, "name " + i, null));
+            hashKeys.add(hashKey("blob_test_" + i));
+        }
+
+        KvPairs found = new KvPairs();
+        AnyKey foundAnyKey = new AnyKey();
+        for (int i = 1; i <= 6; i++) {
+            found.add(new KvPair("blob_test_" + i, "data"));
+            foundAnyKey.add(new KeyInfo(i <= 2 || i >= 5 ? "blob_table" : "hash_table", "id", i));
+        }
+
+        assertTrue(repo.find(context, found, foundAnyKey));
+
+        for (int i = 1; i <= 6; i++) {
+            assertEquals(row(i, "name " + i, null), found.get(i - 1).getData());
+        }
+
+        // one MGET for the blob table, the two hash rows it misses in one pipeline,
+        // the hash table in one pipeline, and the HMSETs of save in one pipeline
+        verify(template, times(1)).execute(any(RedisCallback.class));
+        verify(template, times(3)).executePipelined(any(SessionCallback.class));
+    }
+
+    private String hashKey(String id) {
+        return repo.getHdataPrefix() + "::" + RedisKeys.tag("data", id);
+    }
+
+    private static Map<String, Object> row(int id, String name, String dob) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", id);
+        map.put("name", name);
+        if (dob != null) {
+            map.put("dob", dob);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.doitincloud.rdbcache.repositories.impls;
+
+import com.doitincloud.rdbcache.configs.AppCtx;
+import com.doitincloud.rdbcache.configs.MockRedis;
+import com.doitincloud.rdbcache.models.KeyInfo;
+import com.doitincloud.rdbcache.models.KvIdType;
+import com.doitincloud.rdbcache.models.KvPair;
+import com.doitincloud.rdbcache.services.CacheOps;
+import com.doitincloud.rdbcache.services.DbaseOps;
+import com.doitincloud.rdbcache.supports.AnyKey;
+import com.doitincloud.rdbcache.supports.Context;
+import com.doitincloud.rdbcache.supports.KvPairs;
+import com.doitincloud.rdbcache.supports.RedisKeys;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class RedisRepoImplTest {
+
+    private StringRedisTemplate savedTemplate;
+
+    private CacheOps savedCacheOps;
+
+    private DbaseOps savedDbaseOps;
+
+    private StringRedisTemplate template;
+
+    private CacheOps cacheOps;
+
+    private List<List<String>> entriesBatches = new ArrayList<>();
+
+    private List<Map<String, Map<String, Object>>> putAllBatches = new ArrayList<>();
+
+    private boolean failPutAllBatch = false;
+
+    private RedisRepoImpl repo;
+
+    private List<String> hashKeys = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        savedTemplate = AppCtx.getStringRedisTemplate();
+        savedCacheOps = AppCtx.getCacheOps();
+        savedDbaseOps = AppCtx.getDbaseOps();
+
+        template = MockRedis.mockStringRedisTemplate();
+        AppCtx.setRedisTemplate(template);
+        cacheOps = mock(CacheOps.class);
+        AppCtx.setCacheOps(cacheOps);
+        AppCtx.setDbaseOps(mock(DbaseOps.class));
+
+        repo = new RedisRepoImpl() {
+            @Override
+            protected List<Object> batchEntries(List<String> hashKeys) {
+                entriesBatches.add(new ArrayList<>(hashKeys));
+                return super.batchEntries(hashKeys);
+            }
+            @Override
+            protected void batchPutAll(Map<String, Map<String, Object>> maps) {
+                putAllBatches.add(new LinkedHashMap<>(maps));
+                if (failPutAllBatch) {
+                    throw new RedisSystemException("pipeline failed", new RuntimeException("connection reset"));
+                }
+                super.batchPutAll(maps);
+            }
+        };
+        repo.handleApplicationReadyEvent(null);
+        repo.setEnableDataCache(true);
+        repo.setEnablePipeline(true);
+    }
+
+    @After
+    public void tearDown() {
+        for (String hashKey: hashKeys) {
+            MockRedis.getData().remove(hashKey);
+        }
+        AppCtx.setRedisTemplate(savedTemplate);
+        AppCtx.setCacheOps(savedCacheOps);
+        AppCtx.setDbaseOps(savedDbaseOps);
+    }
+
+    @Test
+    public void findPipelinesCacheMissesOnly() {
+
+        Context context = new Context(false, "redis_repo_test");
+
+        // k1 and k4 are in the local cache, k3 is nowhere
+        when(cacheOps.getData(any(KvIdType.class))).thenAnswer(invocation -> {
+            KvIdType idType = invocation.getArgument(0);
+            if (idType.getId().equals("k1") || idType.getId().equals("k4")) {
+                return row(idType.getId(), "cached");
+            }
+            return null;
+        });
+        for (String id: Arrays.asList("k2", "k5")) {
+            MockRedis.getData().put(hashKey(id), row(id, "redis"));
+        }
+
+        KvPairs pairs = new KvPairs();
+        AnyKey anyKey = new AnyKey();
+        for (String id: Arrays.asList("k1", "k2", "k3", "k4", "k5")) {
+            pairs.add(new KvPair(id));
+            anyKey.add(new KeyInfo("user_table", "id", id));
+            hashKeys.add(hashKey(id));
+        }
+
+        assertFalse(repo.find(context, pairs, anyKey));
+
+        assertEquals(1, entriesBatches.size());
+        assertEquals(Arrays.asList(hashKey("k2"), hashKey("k3"), hashKey("k5")), entriesBatches.get(0));
+
+        assertEquals(row("k1", "cached"), pairs.get(0).getData());
+        assertEquals(row("k2", "redis"), pairs.get(1).getData());
+        assertTrue(pairs.get(2).getData() == null || pairs.get(2).getData().size() == 0);
+        assertEquals(row("k4", "cached"), pairs.get(3).getData());
+        assertEquals(row("k5", "redis"), pairs.get(4).getData());
+
+        // only what came from redis goes into the local cache
+        verify(cacheOps).putData(same(pairs.get(1)), any(KeyInfo.class));
+        verify(cacheOps).putData(same(pairs.get(4)), any(KeyInfo.class));
+        verify(cacheOps, times(2)).putData(any(KvPair.class), any(KeyInfo.class));
+    }
+
+    @Test
+    public void findAllCachedSkipsRedis() {
+
+        Context context = new Context(false, "redis_repo_test");
+
+        when(cacheOps.getData(any(KvIdType.class))).thenAnswer(invocation ->
+                row(((KvIdType) invocation.getArgument(0)).getId(), "cached"));
+
+        KvPairs pairs = new KvPairs();
+        AnyKey anyKey = new AnyKey();
+        for (String id: Arrays.asList("k1", "k2", "k3")) {
+            pairs.add(new KvPair(id));
+            anyKey.add(new KeyInfo("user_table", "id", id));
+        }
+
+        assertTrue(repo.find(context, pairs, anyKey));
+
+        assertEquals(0, entriesBatches.size());
+        verify(template, never()).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    public void saveFallsBackPerKeyWhenPipelineFails() {
+
+        Context context = new Context(false, "redis_repo_test");
+        context.setSync(false);
+
+        failPutAllBatch = true;
+        HashOperations hashOps = template.opsForHash();
+        doThrow(new RedisSystemException("write failed", new RuntimeException("OOM command not allowed")))
+                .when(hashOps).putAll(eq(hashKey("k2")), anyMap());
+
+        KvPairs pairs = new KvPairs();
+        AnyKey anyKey = new AnyKey();
+        for (String id: Arrays.asList("k1", "k2", "k3")) {
+            pairs.add(new KvPair(id, "data", row(id, "saved")));
+            anyKey.add(new KeyInfo("user_table", "id", id));
+            hashKeys.add(hashKey(id));
+        }
+
+        assertFalse(repo.save(context, pairs, anyKey));
+
+        assertEquals(1, putAllBatches.size());
+        assertEquals(Arrays.asList(hashKey("k1"), hashKey("k2"), hashKey("k3")),
+                new ArrayList<>(putAllBatches.get(0).keySet()));
+
+        Map<String, Object> data = MockRedis.getData();
+        assertEquals(row("k1", "saved"), data.get(hashKey("k1")));
+        assertNull(data.get(hashKey("k2")));
+        assertEquals(row("k3", "saved"), data.get(hashKey("k3")));
+
+        // the failed key is rolled back from the local cache, the others stay
+        verify(cacheOps).removeData(pairs.get(1).getIdType());
+        verify(cacheOps, times(1)).removeData(any(KvIdType.class));
+    }
+
+    @Test
+    public void savePipelinesAllPairs() {
+
+        Context context = new Context(false, "redis_repo_test");
+
+        KvPairs pairs = new KvPairs();
+        AnyKey anyKey = new AnyKey();
+        for (String id: Arrays.asList("k1", "k2", "k3")) {
+            pairs.add(new KvPair(id, "data", row(id, "saved")));
+            anyKey.add(new KeyInfo("user_table", "id", id));
+            hashKeys.add(hashKey(id));
+        }
+
+        assertTrue(repo.save(context, pairs, anyKey));
+
+        assertEquals(1, putAllBatches.size());
+        for (String id: Arrays.asList("k1", "k2", "k3")) {
+            assertEquals(row(id, "saved"), MockRedis.getData().get(hashKey(id)));
+        }
+        HashOperations hashOps = template.opsForHash();
+        verify(hashOps, times(3)).putAll(anyString(), anyMap());
+        verify(cacheOps, never()).removeData(any(KvIdType.class));
+    }
+
+    private String hashKey(String id) {
+        return repo.getHdataPrefix() + "::" + RedisKeys.tag("data", id);
+    }
+
+    private static Map<String, Object> row(String id, String name) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", id);
+        map.put("name", name);
+        return map;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.services;
+
+import com.doitincloud.rdbcache.configs.AppCtx;
+import com.doitincloud.rdbcache.models.KeyInfo;
+import com.doitincloud.rdbcache.models.KvPair;
+import com.doitincloud.rdbcache.repositories.KeyInfoRepo;
+import com.doitincloud.rdbcache.supports.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ExpireOpsTest {
+
+    private DbaseOps savedDbaseOps;
+
+    private DbaseOps dbaseOps;
+
+    private KeyInfoRepo savedKeyInfoRepo;
+
+    private KeyInfoRepo keyInfoRepo;
+
+    @Before
+    public void setUp() {
+        savedDbaseOps = AppCtx.getDbaseOps();
+        dbaseOps = Mockito.mock(DbaseOps.class);
+        AppCtx.setDbaseOps(dbaseOps);
+
+        savedKeyInfoRepo = AppCtx.getKeyInfoRepo();
+        keyInfoRepo = Mockito.mock(KeyInfoRepo.class);
+        AppCtx.setKeyInfoRepo(keyInfoRepo);
+    }
+
+    @After
+    public void tearDown() {
+        AppCtx.setDbaseOps(savedDbaseOps);
+        AppCtx.setKeyInfoRepo(savedKeyInfoRepo);
+    }
+
+    // the application ready event never comes, the call gives up after the timeout,
+    // the calls after it do not wait
+    //
+    @Test
+    public void notReadyTimeout() {
+
+        ExpireOps ops = new ExpireOps();
+        ops.setReadyTimeout(200L);
+
+        Context context = new Context(false, "notReadyTimeout");
+        KvPair pair = new KvPair("key1", "data");
+        KeyInfo keyInfo = new KeyInfo();
+        keyInfo.setExpire("30");
+        keyInfo.setIsNew(true);
+
+        long start = System.currentTimeMillis();
+        ops.setExpireKey(context, pair, keyInfo);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue("waited " + elapsed, elapsed >= 200L && elapsed < 5000L);
+
+        start = System.currentTimeMillis();
+        ops.setExpireKey(context, pair, keyInfo);
+        elapsed = System.currentTimeMillis() - start;
+
+        assertTrue("waited " + elapsed, elapsed < 150L);
+
+        verify(dbaseOps, times(2)).logTraceMessage(eq(context.getTraceId()), anyString(), any());
+        verifyZeroInteractions(keyInfoRepo);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.services;
+
+import com.doitincloud.rdbcache.configs.LuaRedis;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ExpireScriptsTest {
+
+    // set-expire-key.lua before the index set, it scans the key space with KEYS
+    private static String keysScanScript = String.join("\n",
+            "local res = redis.call('KEYS', KEYS[1] .. \"::*\")",
+            "local expValue = tonumber(ARGV[2])",
+            "if next(res) ~= nil then",
+            "    if expValue > 0 and string.sub(ARGV[2], 1, 1) ~= '+' then",
+            "        return 0",
+            "    end",
+            "    redis.call('DEL', unpack(res))",
+            "end",
+            "if expValue == 0 then",
+            "    return 0",
+            "end",
+            "if expValue < 0 then",
+            "    expValue = -expValue",
+            "end",
+            "redis.call('SETEX', KEYS[1] .. \"::\" .. ARGV[1], expValue, ARGV[2])",
+            "return 1");
+
+    private static String setExpireKeyScript = LuaRedis.loadScript("scripts/set-expire-key.lua");
+
+    private static String setExpireKeysScript = LuaRedis.loadScript("scripts/set-expire-keys.lua");
+
+    private static String indexExpireKeysScript = LuaRedis.loadScript("scripts/index-expire-keys.lua");
+
+    private static String key1 = "rdcevent::{data:k1}";
+
+    private static String key1NoOps = key1 + "::qk1/30";
+
+    private static String key10 = "rdcevent::{data:k10}";
+
+    private static String key2 = "rdcevent::{data:k2}";
+
+    @Test
+    public void setExpireKeyTest() {
+
+        LuaRedis scanRedis = new LuaRedis();
+        LuaRedis indexRedis = new LuaRedis();
+
+        // key, index key, trace id, expire, milliseconds to wait before
+        List<String[]> steps = Arrays.asList(
+                new String[] {key1, key1, "t01", "30", "0"},
+                new String[] {key1, key1, "t02", "30", "1000"},
+                new String[] {key1, key1, "t03", "+60", "1000"},
+                new String[] {key1NoOps, key1, "t04", "30", "0"},
+                new String[] {key1NoOps, key1, "t05", "30", "0"},
+                new String[] {key1, key1, "t06", "-10", "1000"},
+                new String[] {key10, key10, "t07", "30", "0"},
+                new String[] {key1, key1, "t08", "20", "11000"},
+                new String[] {key1, key1, "t09", "+5", "0"},
+                new String[] {key1, key1, "t10", "20", "6000"},
+                new String[] {key1, key1, "t11", "0", "0"},
+                new String[] {key1, key1, "t12", "0", "0"},
+                new String[] {key10, key10, "t13", "-30", "0"}
+        );
+
+        List<Long> expected = Arrays.asList(1L, 0L, 1L, 1L, 0L, 1L, 1L, 1L, 1L, 1L, 0L, 0L, 1L);
+
+        for (int i = 0; i < steps.size(); i++) {
+
+            String[] step = steps.get(i);
+            scanRedis.advance(Long.valueOf(step[4]));
+            indexRedis.advance(Long.valueOf(step[4]));
+
+            Object scanResult = scanRedis.eval(keysScanScript,
+                    Arrays.asList(step[0]), Arrays.asList(step[2], step[3]));
+            Object indexResult = indexRedis.eval(setExpireKeyScript,
+                    Arrays.asList(step[0], "index_" + step[1]), Arrays.asList(step[2], step[3]));
+
+            String message = "step " + step[2];
+            assertEquals(message, expected.get(i), scanResult);
+            assertEquals(message, scanResult, indexResult);
+
+            assertSameEvents(message, scanRedis, indexRedis);
+            assertIndexed(message, indexRedis, step[1]);
+        }
+    }
+
+    @Test
+    public void setExpireKeysTest() {
+
+        LuaRedis batchRedis = new LuaRedis();
+        LuaRedis singleRedis = new LuaRedis();
+
+        String[] keys = {key1, key1NoOps, key10, key2};
+        String[] indexKeys = {key1, key1, key10, key2};
+
+        // expires of keys in one call, milliseconds to wait before
+        List<String[]> steps = Arrays.asList(
+                new String[] {"30", "30", "0", "-5", "0"},
+                new String[] {"30", "+60", "30", "5", "1000"},
+                new String[] {"+20", "30", "-10", "+15", "6000"},
+                new String[] {"20", "0", "30", "30", "11000"},
+                new String[] {"0", "0", "+40", "0", "0"}
+        );
+
+        for (int i = 0; i < steps.size(); i++) {
+
+            String[] step = steps.get(i);
+            String traceId = "t0" + i;
+            batchRedis.advance(Long.valueOf(step[keys.length]));
+            singleRedis.advance(Long.valueOf(step[keys.length]));
+
+            List<String> scriptKeys = new ArrayList<>();
+            List<String> args = new ArrayList<>();
+            args.add(traceId);
+            List<Object> singleResults = new ArrayList<>();
+
+            for (int j = 0; j < keys.length; j++) {
+                scriptKeys.add(keys[j]);
+                scriptKeys.add("index_" + indexKeys[j]);
+                args.add(step[j]);
+                singleResults.add(singleRedis.eval(setExpireKeyScript,
+                        Arrays.asList(keys[j], "index_" + indexKeys[j]), Arrays.asList(traceId, step[j])));
+            }
+
+            Object batchResults = batchRedis.eval(setExpireKeysScript, scriptKeys, args);
+
+            String message = "step " + traceId;
+            assertEquals(message, singleResults, batchResults);
+
+            assertSameEvents(message, singleRedis, batchRedis);
+            for (String indexKey: indexKeys) {
+                assertEquals(message, singleRedis.getSet("index_" + indexKey), batchRedis.getSet("index_" + indexKey));
+                assertIndexed(message, batchRedis, indexKey);
+            }
+        }
+    }
+
+    @Test
+    public void indexExpireKeysTest() {
+
+        LuaRedis redis = new LuaRedis();
+
+        // event keys set before the index sets existed
+        String[] keys = {key1, key1NoOps, key10, key2};
+        for (int i = 0; i < keys.length; i++) {
+            redis.eval(keysScanScript, Arrays.asList(keys[i]), Arrays.asList("t0" + i, "30"));
+            redis.advance(1000L);
+        }
+        redis.eval(keysScanScript, Arrays.asList("rdcevent::{data:k3}"), Arrays.asList("t04", "0"));
+        redis.setBytes("rdcevent::{data:k4}::t05", "30".getBytes());
+        redis.setBytes("other::{data:k5}::t06", "30".getBytes());
+
+        String cursor = "0";
+        long indexed = 0;
+        int calls = 0;
+        do {
+            List<?> result = (List<?>) redis.eval(indexExpireKeysScript,
+                    new ArrayList<>(), Arrays.asList("rdcevent", cursor, "2"));
+            cursor = String.valueOf(result.get(0));
+            indexed += (Long) result.get(1);
+            calls++;
+        } while (!"0".equals(cursor));
+
+        assertTrue(calls > 1);
+        // the event key without a ttl is left alone
+        assertEquals(4L, indexed);
+        assertFalse(redis.exists("index_rdcevent::{data:k4}"));
+        for (String key: new String[] {key1, key10, key2}) {
+            assertIndexed(key, redis, key);
+        }
+
+        // the indexed script now finds the events set by the old one
+        Object result = redis.eval(setExpireKeyScript,
+                Arrays.asList(key10, "index_" + key10), Arrays.asList("t07", "30"));
+        assertEquals(0L, result);
+        result = redis.eval(setExpireKeyScript,
+                Arrays.asList(key1, "index_" + key1), Arrays.asList("t08", "+30"));
+        assertEquals(1L, result);
+        assertEquals(1, redis.keys(key1 + "::*").size());
+    }
+
+    // the same event keys are alive with the same time to live
+    private static void assertSameEvents(String message, LuaRedis expected, LuaRedis actual) {
+        Set<String> events = expected.keys("rdcevent::*");
+        assertEquals(message, events, actual.keys("rdcevent::*"));
+        for (String event: events) {
+            assertEquals(message + " " + event, expected.getString(event), actual.getString(event));
+            assertEquals(message + " " + event, expected.pttl(event), actual.pttl(event));
+        }
+    }
+
+    // every alive event of a data key is in its index, and the index outlives it
+    private static void assertIndexed(String message, LuaRedis redis, String key) {
+        String indexKey = "index_" + key;
+        Set<String> members = redis.getSet(indexKey);
+        for (String event: redis.keys(key + "::*")) {
+            assertTrue(message + " " + event, members.contains(event));
+            assertTrue(message + " " + event, redis.pttl(indexKey) > redis.pttl(event));
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.services;
+
+import com.doitincloud.rdbcache.configs.AppCtx;
+import com.doitincloud.rdbcache.models.KeyInfo;
+import com.doitincloud.rdbcache.models.KvPair;
+import com.doitincloud.rdbcache.repositories.DbaseRepo;
+import com.doitincloud.rdbcache.supports.AnyKey;
+import com.doitincloud.rdbcache.supports.Context;
+import com.doitincloud.rdbcache.supports.KvPairs;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class WriteBehindOpsTest {
+
+    private DbaseRepo savedDbaseRepo;
+
+    private DbaseRepo dbaseRepo;
+
+    private ExpireOps savedExpireOps;
+
+    private ExpireOps expireOps;
+
+    private WriteBehindOps ops;
+
+    @Before
+    public void setUp() {
+        savedDbaseRepo = AppCtx.getDbaseRepo();
+        dbaseRepo = Mockito.mock(DbaseRepo.class);
+        when(dbaseRepo.save(any(Context.class), any(KvPairs.class), any(AnyKey.class))).thenReturn(true);
+        when(dbaseRepo.update(any(Context.class), any(KvPairs.class), any(AnyKey.class))).thenReturn(true);
+        AppCtx.setDbaseRepo(dbaseRepo);
+
+        savedExpireOps = AppCtx.getExpireOps();
+        expireOps = Mockito.mock(ExpireOps.class);
+        AppCtx.setExpireOps(expireOps);
+
+        ops = new WriteBehindOps();
+        ops.setFlushIntervalMs(60000L);
+        ops.setBatchSize(100);
+        ops.setMaxRetries(1);
+    }
+
+    @After
+    public void tearDown() {
+        // wait for the writer to drain, so that it does not write to the next test's repo
+        if (ops.isAlive()) {
+            ops.shutdown();
+        }
+        AppCtx.setDbaseRepo(savedDbaseRepo);
+        AppCtx.setExpireOps(savedExpireOps);
+    }
+
+    @Test
+    public void coalesce() {
+
+        ops.addUpdate(null, newPair("1", "f1", "a"), newKeyInfo());
+        ops.addUpdate(null, newPair("1", "f2", "b"), newKeyInfo());
+        ops.addUpdate(null, newPair("1", "f1", "c"), newKeyInfo());
+        ops.addUpdate(null, newPair("2", "f1", "d"), newKeyInfo());
+
+        assertEquals(2, ops.getPendingSize());
+
+        ops.flush();
+
+        ArgumentCaptor<KvPairs> captor = ArgumentCaptor.forClass(KvPairs.class);
+        verify(dbaseRepo, times(1)).update(any(Context.class), captor.capture(), any(AnyKey.class));
+        verify(dbaseRepo, never()).save(any(Context.class), any(KvPairs.class), any(AnyKey.class));
+
+        KvPairs pairs = captor.getValue();
+        assertEquals(2, pairs.size());
+        assertEquals("1", pairs.get(0).getId());
+        assertEquals("c", pairs.get(0).getData().get("f1"));
+        assertEquals("b", pairs.get(0).getData().get("f2"));
+        assertEquals("d", pairs.get(1).getData().get("f1"));
+
+        Map<String, Object> metrics = ops.getMetrics();
+        assertEquals(0, metrics.get("pending"));
+        assertEquals(4L, metrics.get("queued"));
+        assertEquals(2L, metrics.get("coalesced"));
+        assertEquals(2L, metrics.get("flushed"));
+    }
+
+    @Test
+    public void setExpireKeyAfterFlush() {
+
+        when(dbaseRepo.save(any(Context.class), any(KvPairs.class), any(AnyKey.class)))
+                .thenReturn(false).thenReturn(true);
+
+        KeyInfo keyInfo = newKeyInfo();
+        keyInfo.setIsNew(true);
+        ops.addSave(null, newPair("1", "f1", "a"), keyInfo);
+
+        // the pending write keeps its own copy of the key info
+        keyInfo.setTable("other_table");
+
+        ops.flush();
+        verify(expireOps, never()).setExpireKey(any(Context.class), any(KvPairs.class), any(AnyKey.class));
+
+        // a newer key info of the key, not new any more, keeps it new until it is saved
+        ops.addSave(null, newPair("1", "f2", "b"), newKeyInfo());
+        ops.flush();
+
+        ArgumentCaptor<AnyKey> captor = ArgumentCaptor.forClass(AnyKey.class);
+        InOrder inOrder = inOrder(dbaseRepo, expireOps);
+        inOrder.verify(dbaseRepo, times(2)).save(any(Context.class), any(KvPairs.class), any(AnyKey.class));
+        inOrder.verify(expireOps, times(1)).setExpireKey(any(Context.class), any(KvPairs.class), captor.capture());
+
+        KeyInfo flushed = captor.getValue().getAny(0);
+        assertNotSame(keyInfo, flushed);
+        assertEquals("user_table", flushed.getTable());
+        assertTrue(flushed.getIsNew());
+    }
+
+    @Test
+    public void coalesceSaveOverUpdate() {
+
+        ops.addUpdate(null, newPair("1", "f1", "a"), newKeyInfo());
+        ops.addSave(null, newPair("1", "f2", "b"), newKeyInfo());
+
+        ops.flush();
+
+        verify(dbaseRepo, never()).update(any(Context.class), any(KvPairs.class), any(AnyKey.class));
+        verify(dbaseRepo, times(1)).save(any(Context.class), any(KvPairs.class), any(AnyKey.class));
+    }
+
+    @Test
+    public void flushOnBatchSize() throws Exception {
+
+        ops.setBatchSize(3);
+        ops.start();
+        waitFor(() -> ops.isRunning());
+
+        ops.addSave(null, newPair("1", "f1", "a"), newKeyInfo());
+        ops.addSave(null, newPair("2", "f1", "b"), newKeyInfo());
+        ops.addSave(null, newPair("3", "f1", "c"), newKeyInfo());
+
+        waitFor(() -> ((Long) ops.getMetrics().get("flushed")) == 3L);
+        assertEquals(0, ops.getPendingSize());
+    }
+
+    @Test
+    public void flushOnInterval() throws Exception {
+
+        ops.setFlushIntervalMs(50L);
+        ops.start();
+        waitFor(() -> ops.isRunning());
+
+        ops.addSave(null, newPair("1", "f1", "a"), newKeyInfo());
+
+        waitFor(() -> ((Long) ops.getMetrics().get("flushed")) == 1L);
+        assertEquals(0, ops.getPendingSize());
+    }
+
+    @Test
+    public void flushOnShutdown() throws Exception {
+
+        ops.start();
+        waitFor(() -> ops.isRunning());
+
+        ops.addSave(null, newPair("1", "f1", "a"), newKeyInfo());
+        ops.addUpdate(null, newPair("2", "f1", "b"), newKeyInfo());
+        assertEquals(0L, ops.getMetrics().get("flushed"));
+
+        ops.shutdown();
+        ops.join(10000L);
+
+        assertFalse(ops.isRunning());
+        assertEquals(0, ops.getPendingSize());
+        assertEquals(2L, ops.getMetrics().get("flushed"));
+    }
+
+    @Test
+    public void retryFailedFlush() {
+
+        when(dbaseRepo.update(any(Context.class), any(KvPairs.class), any(AnyKey.class)))
+                .thenReturn(false).thenReturn(true);
+
+        ops.addUpdate(null, newPair("1", "f1", "a"), newKeyInfo());
+        ops.flush();
+
+        assertEquals(1, ops.getPendingSize());
+        assertEquals(1L, ops.getMetrics().get("failed"));
+
+        // a newer write to the same key goes over the failed one
+        ops.addUpdate(null, newPair("1", "f2", "b"), newKeyInfo());
+        ops.flush();
+
+        ArgumentCaptor<KvPairs> captor = ArgumentCaptor.forClass(KvPairs.class);
+        verify(dbaseRepo, times(2)).update(any(Context.class), captor.capture(), any(AnyKey.class));
+        KvPairs pairs = captor.getValue();
+        assertEquals(1, pairs.size());
+        assertEquals("a", pairs.get(0).getData().get("f1"));
+        assertEquals("b", pairs.get(0).getData().get("f2"));
+
+        assertEquals(0, ops.getPendingSize());
+        assertEquals(1L, ops.getMetrics().get("flushed"));
+        assertEquals(0L, ops.getMetrics().get("dropped"));
+    }
+
+    @Test
+    public void dropAfterMaxRetries() {
+
+        when(dbaseRepo.save(any(Context.class), any(KvPairs.class), any(AnyKey.class)))
+                .thenThrow(new RuntimeException("database down"));
+
+        ops.setFlushIntervalMs(10L);
+        ops.addSave(null, newPair("1", "f1", "a"), newKeyInfo());
+
+        // shutdown keeps flushing until the write is written or dropped
+        ops.shutdown();
+
+        verify(dbaseRepo, times(2)).save(any(Context.class), any(KvPairs.class), any(AnyKey.class));
+        assertEquals(0, ops.getPendingSize());
+        assertEquals(2L, ops.getMetrics().get("failed"));
+        assertEquals(1L, ops.getMetrics().get("dropped"));
+        assertEquals(0L, ops.getMetrics().get("flushed"));
+        verify(expireOps, never()).setExpireKey(any(Context.class), any(KvPairs.class), any(AnyKey.class));
+    }
+
+    @Test
+    public void retryOnShutdownAfterDelay() throws Exception {
+
+        when(dbaseRepo.save(any(Context.class), any(KvPairs.class), any(AnyKey.class)))
+                .thenReturn(false).thenReturn(true);
+
+        ops.start();
+        waitFor(() -> ops.isRunning());
+
+        ops.setFlushIntervalMs(200L);
+        ops.addSave(null, newPair("1", "f1", "a"), newKeyInfo());
+
+        long start = System.currentTimeMillis();
+        ops.shutdown();
+
+        // shutdown returns once the writer has drained and exited
+        assertFalse(ops.isAlive());
+        assertTrue(System.currentTimeMillis() - start >= 200L);
+        assertEquals(0, ops.getPendingSize());
+        assertEquals(1L, ops.getMetrics().get("failed"));
+        assertEquals(1L, ops.getMetrics().get("flushed"));
+    }
+
+    @Test
+    public void waitForRoomWhenFull() throws Exception {
+
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch database = new CountDownLatch(1);
+        when(dbaseRepo.save(any(Context.class), any(KvPairs.class), any(AnyKey.class))).thenAnswer(invocation -> {
+            saving.countDown();
+            database.await();
+            return true;
+        });
+
+        ops.setMaxPending(2);
+        ops.start();
+        waitFor(() -> ops.isRunning());
+
+        ops.addSave(null, newPair("1", "f1", "a"), newKeyInfo());
+        ops.addSave(null, newPair("2", "f1", "b"), newKeyInfo());
+
+        Thread adder = new Thread(() -> ops.addSave(null, newPair("3", "f1", "c"), newKeyInfo()));
+        adder.start();
+
+        // the waiting write wakes up the writer, its flush is held by the database
+        assertTrue(saving.await(10L, TimeUnit.SECONDS));
+        adder.join(200L);
+        assertTrue(adder.isAlive());
+        assertEquals(1L, ops.getMetrics().get("waited"));
+
+        database.countDown();
+        adder.join(10000L);
+
+        assertFalse(adder.isAlive());
+        assertEquals(2L, ops.getMetrics().get("flushed"));
+        assertEquals(1, ops.getPendingSize());
+    }
+
+    private static KvPair newPair(String id, String field, Object value) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put(field, value);
+        return new KvPair(id, "data", data);
+    }
+
+    private static KeyInfo newKeyInfo() {
+        KeyInfo keyInfo = new KeyInfo();
+        keyInfo.setTable("user_table");
+        return keyInfo;
+    }
+
+    private interface Condition {
+        boolean isMet();
+    }
+
+    private static void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (!condition.isMet()) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(10L);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.supports;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.doitincloud.rdbcache.configs.PropCfg;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.Assert.*;
+
+public class AccessLogInterceptorTest {
+
+    private Double savedRate;
+
+    private ListAppender<ILoggingEvent> appender;
+
+    private AccessLogInterceptor interceptor = new AccessLogInterceptor();
+
+    @Before
+    public void setUp() {
+        savedRate = PropCfg.getAccessLogSampleRate();
+        new PropCfg().setAccessLogSampleRate(1.0);
+        appender = new ListAppender<>();
+        appender.start();
+        ((Logger) LoggerFactory.getLogger("rdbcache.access")).addAppender(appender);
+    }
+
+    @After
+    public void tearDown() {
+        ((Logger) LoggerFactory.getLogger("rdbcache.access")).detachAppender(appender);
+        new PropCfg().setAccessLogSampleRate(savedRate);
+    }
+
+    @Test
+    public void logException() {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/rdbcache/v1/get/k1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Context context = new Context(true, "get_get");
+        AccessLog.sample(context, request);
+
+        // resolved to 404 by its response status
+        response.setStatus(404);
+        interceptor.afterCompletion(request, response, null, null);
+
+        assertEquals(1, appender.list.size());
+        String line = appender.list.get(0).getFormattedMessage();
+        assertTrue(line, line.startsWith("404 get_get /rdbcache/v1/get/k1 "));
+
+        // not resolved, answered 500
+        request = new MockHttpServletRequest("GET", "/rdbcache/v1/get/k2");
+        AccessLog.sample(new Context(true, "get_get"), request);
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), null, new RuntimeException());
+
+        assertEquals(2, appender.list.size());
+        assertTrue(appender.list.get(1).getFormattedMessage().startsWith("500 get_get "));
+    }
+
+    @Test
+    public void logOnce() {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/rdbcache/v1/get/k1");
+
+        Context context = new Context(true, "get_get");
+        AccessLog.sample(context, request);
+
+        // logged by the response
+        AccessLog.log(context, 200);
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().startsWith("200 get_get "));
+    }
+
+    @Test
+    public void logWithoutContext() {
+
+        // e.g. a full pool before the handler made its context
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/rdbcache/v1/get/k1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(503);
+        interceptor.afterCompletion(request, response, null, null);
+
+        // a request without a context that succeeded is not logged here
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+
+        assertEquals(1, appender.list.size());
+        assertEquals("503 - /rdbcache/v1/get/k1 -ms -", appender.list.get(0).getFormattedMessage());
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.doitincloud.rdbcache.supports;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ContextTest {
+
+    @Test
+    public void actionFromCaller() {
+
+        Context context = new Context(true, "get_get");
+        assertTrue(context.getAction().startsWith("get_get"));
+        assertTrue(context.isSendValue());
+        assertFalse(context.isBatch());
+        assertNotNull(context.getTraceId());
+        assertNotNull(context.getMonitor());
+
+        context = new Context(false, true, "pull_post");
+        assertTrue(context.getAction().startsWith("pull_post"));
+        assertTrue(context.isBatch());
+
+        context = new Context("trace-id", "onExpireEvent");
+        assertTrue(context.getAction().startsWith("onExpireEvent"));
+        assertEquals("trace-id", context.getTraceId());
+    }
+
+    @Test
+    public void actionFromStack() {
+
+        Context context = new Context();
+        assertTrue(context.getAction().startsWith("actionFromStack"));
+        assertTrue(context.getMonitor().getStopWatches().get(0).getType().endsWith("ContextTest"));
+    }
+}
@@ -180,4 +180,27 @@ public class KvPairsTest {
             assertEquals("key" + i, keys.get(i));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void takeFirst() {
+
+        KvPairs pairs = new KvPairs();
+        for (int i = 0; i < 5; i++) {
+            pairs.add(new KvPair("key" + i, "data", "value" + i));
+        }
+
+        KvPairs head = pairs.takeFirst(2);
+        assertEquals(2, head.size());
+        assertEquals("key0", head.get(0).getId());
+        assertEquals("key1", head.get(1).getId());
+        assertEquals(3, pairs.size());
+        assertEquals("key2", pairs.get(0).getId());
+
+        head = pairs.takeFirst(10);
+        assertEquals(3, head.size());
+        assertEquals(0, pairs.size());
+
+        head = pairs.takeFirst(2);
+        assertEquals(0, head.size());
+    }
+}
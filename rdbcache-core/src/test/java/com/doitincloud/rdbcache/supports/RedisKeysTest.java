@@ -0,0 +1,37 @@
+package com.doitincloud.rdbcache.supports;
+
+import com.doitincloud.rdbcache.configs.PropCfg;
+
+import org.junit.Test;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+
+import static org.junit.Assert.*;
+
+public class RedisKeysTest {
+
+    @Test
+    public void tag() {
+
+        PropCfg propCfg = new PropCfg();
+        try {
+            propCfg.setRedisClusterNodes("");
+            assertFalse(RedisKeys.isCluster());
+            assertEquals("user_table:12", RedisKeys.tag("user_table", "12"));
+
+            propCfg.setRedisClusterNodes("127.0.0.1:7000,127.0.0.1:7001");
+            assertTrue(RedisKeys.isCluster());
+            String tag = RedisKeys.tag("user_table", "12");
+            assertEquals("{user_table:12}", tag);
+            assertEquals("user_table:12", RedisKeys.untag(tag));
+            assertEquals("user_table:12", RedisKeys.untag("user_table:12"));
+
+            // data, index and event keys of a pair share one slot
+            int slot = ClusterSlotHashUtil.calculateSlot("rdchdata::" + tag);
+            assertEquals(slot, ClusterSlotHashUtil.calculateSlot("rdcevent::" + tag));
+            assertEquals(slot, ClusterSlotHashUtil.calculateSlot("index_rdcevent::" + tag));
+            assertEquals(slot, ClusterSlotHashUtil.calculateSlot("rdcevent::" + tag + "::NOOPS/300"));
+        } finally {
+            propCfg.setRedisClusterNodes("");
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.doitincloud.rdbcache.supports;
+
+import com.doitincloud.rdbcache.exceptions.ServiceUnavailableException;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TaskExecutorTest {
+
+    @Test
+    public void callerRuns() throws Exception {
+
+        TaskExecutor executor = new TaskExecutor("test", 1, 1, TaskExecutor.Policy.CALLER_RUNS);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            executor.submit(() -> await(latch));
+            executor.submit(() -> {});
+
+            Thread caller = Thread.currentThread();
+            Thread[] ranIn = new Thread[1];
+            executor.submit(() -> { ranIn[0] = Thread.currentThread(); });
+
+            assertTrue(caller == ranIn[0]);
+            assertEquals(1L, executor.getCallerRunsCount());
+        } finally {
+            latch.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void reject() throws Exception {
+
+        TaskExecutor executor = new TaskExecutor("test", 1, 1, TaskExecutor.Policy.REJECT);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            executor.submit(() -> await(latch));
+            executor.submit(() -> {});
+            try {
+                executor.submit(() -> {});
+                fail("expect ServiceUnavailableException");
+            } catch (ServiceUnavailableException e) {
+                assertEquals(1L, executor.getRejectedCount());
+            }
+        } finally {
+            latch.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void spill() throws Exception {
+
+        TaskExecutor executor = new TaskExecutor("test", 1, 1, 100, TaskExecutor.Policy.SPILL);
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger counter = new AtomicInteger();
+        try {
+            executor.submit(() -> await(latch));
+            for (int i = 0; i < 10; i++) {
+                executor.submit(() -> { counter.incrementAndGet(); });
+            }
+
+            assertEquals(9, executor.getSpillDepth());
+            assertEquals(9L, executor.getSpilledCount());
+
+            Map<String, Object> metrics = executor.getMetrics();
+            assertEquals(1, metrics.get("queue_depth"));
+            assertEquals(9, metrics.get("spill_depth"));
+
+            latch.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+            assertEquals(10, counter.get());
+            assertEquals(0, executor.getSpillDepth());
+        } finally {
+            latch.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void spillFull() throws Exception {
+
+        TaskExecutor executor = new TaskExecutor("test", 1, 1, 2, TaskExecutor.Policy.SPILL);
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger counter = new AtomicInteger();
+        try {
+            executor.submit(() -> await(latch));
+            executor.submit(() -> { counter.incrementAndGet(); });
+            executor.submit(() -> { counter.incrementAndGet(); });
+            executor.submit(() -> { counter.incrementAndGet(); });
+
+            assertEquals(2, executor.getSpillDepth());
+            assertEquals(2L, executor.getSpilledCount());
+
+            // both queues are full, the task runs in the caller
+            Thread caller = Thread.currentThread();
+            Thread[] ranIn = new Thread[1];
+            executor.submit(() -> { ranIn[0] = Thread.currentThread(); counter.incrementAndGet(); });
+
+            assertTrue(caller == ranIn[0]);
+            assertEquals(1L, executor.getCallerRunsCount());
+            assertEquals(2, executor.getSpillDepth());
+
+            latch.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+            assertEquals(4, counter.get());
+        } finally {
+            latch.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void tryExecute() throws Exception {
+
+        TaskExecutor executor = new TaskExecutor("test", 1, 1, TaskExecutor.Policy.CALLER_RUNS);
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger counter = new AtomicInteger();
+        try {
+            assertTrue(executor.tryExecute(() -> await(latch)));
+            assertTrue(executor.tryExecute(() -> { counter.incrementAndGet(); }));
+
+            // full, refused instead of run by the caller
+            assertFalse(executor.tryExecute(() -> { counter.incrementAndGet(); }));
+            assertEquals(0L, executor.getCallerRunsCount());
+
+            // the policy still applies to execute
+            executor.execute(() -> { counter.incrementAndGet(); });
+            assertEquals(1L, executor.getCallerRunsCount());
+
+            latch.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(2, counter.get());
+        } finally {
+            latch.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.supports;
+
+import com.doitincloud.rdbcache.configs.PropCfg;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TaskPoolsTest {
+
+    @Test
+    public void virtualThreadsFallback() throws Exception {
+
+        new PropCfg().setEnableVirtualThreads(true);
+        TaskExecutor executor = TaskPools.newPool("test", 2);
+        try {
+            Thread[] ranIn = new Thread[1];
+            executor.submit(() -> { ranIn[0] = Thread.currentThread(); }).get(10, TimeUnit.SECONDS);
+
+            ThreadFactory factory = VirtualThreads.newThreadFactory("test-");
+
+            if (VirtualThreads.isSupported()) {
+                // java 21 or later
+                assertNotNull(factory);
+                assertEquals(PropCfg.getVirtualPoolSize().intValue(), executor.getMaximumPoolSize());
+                assertTrue(isVirtual(ranIn[0]));
+
+                // tomcat requests get a new virtual thread each, not a pooled one
+                ExecutorService perTask = VirtualThreads.newThreadPerTaskExecutor(factory);
+                Thread[] first = new Thread[1];
+                perTask.submit(() -> { first[0] = Thread.currentThread(); }).get(10, TimeUnit.SECONDS);
+                perTask.submit(() -> { ranIn[0] = Thread.currentThread(); }).get(10, TimeUnit.SECONDS);
+                perTask.shutdown();
+                assertTrue(isVirtual(first[0]));
+                assertNotSame(first[0], ranIn[0]);
+            } else {
+                // below java 21, Thread.ofVirtual does not exist
+                assertNull(factory);
+                assertNull(VirtualThreads.newThreadPerTaskExecutor(factory));
+                assertEquals(2, executor.getMaximumPoolSize());
+                assertFalse(isVirtual(ranIn[0]));
+                assertTrue(ranIn[0].getName().startsWith("rdbcache-test-"));
+            }
+        } finally {
+            executor.shutdown();
+            new PropCfg().setEnableVirtualThreads(false);
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        try {
+            Method method = Thread.class.getMethod("isVirtual");
+            return (Boolean) method.invoke(thread);
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
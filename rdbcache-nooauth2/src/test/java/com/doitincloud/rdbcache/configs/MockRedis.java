@@ -23,34 +23,56 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.core.HashOperations;
 import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
 
 public class MockRedis {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MockRedis.class);
 
-    private static Map<String, Object> data = new HashMap<>();
+    // hash values are guarded by synchronizing on the hash itself, so the
+    // stand-in stays consistent when driven by the concurrent load runner
+    //
+    private static Map<String, Object> data = new ConcurrentHashMap<>();
+
+    // results collected while inside executePipelined
+    //
+    private static ThreadLocal<List<Object>> pipelined = new ThreadLocal<>();
 
     public static Map<String, Object> getData() {
         return data;
     }
 
+    // stub only mocks do not record invocations, otherwise memory grows with every call
+    //
+    private static <T> T mockStub(Class<T> classToMock) {
+        return mock(classToMock, withSettings().stubOnly().defaultAnswer(Mockito.RETURNS_DEEP_STUBS));
+    }
+
+    private static Map<String, Object> getHash(String key) {
+        return (Map<String, Object>) data.computeIfAbsent(key, k -> new LinkedHashMap<>());
+    }
+
     public static StringRedisTemplate mockStringRedisTemplate() {
 
-        StringRedisTemplate template = mock(StringRedisTemplate.class, Mockito.RETURNS_DEEP_STUBS);
+        StringRedisTemplate template = mockStub(StringRedisTemplate.class);
 
         // mock StringRedisTemplate delete
         //
         Mockito.doAnswer(invocation -> {
             Object[] args = invocation.getArguments();
             Set<String> keys = (Set<String>) args[0];
-            LOGGER.trace("StringRedisTemplate delete " + keys);
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("StringRedisTemplate delete " + keys);
+            }
             for (String key : keys) {
                 data.remove(key);
             }
@@ -58,23 +80,39 @@ public class MockRedis {
 
         }).when(template).delete(anySet());
 
-        HashOperations hashOps = mock(HashOperations.class, Mockito.RETURNS_DEEP_STUBS);
+        HashOperations hashOps = mockStub(HashOperations.class);
         Mockito.when(template.opsForHash()).thenReturn(hashOps);
 
+        // mock StringRedisTemplate executePipelined
+        //
+        Mockito.doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            SessionCallback callback = (SessionCallback) args[0];
+            LOGGER.trace("StringRedisTemplate executePipelined");
+            List<Object> results = new ArrayList<>();
+            pipelined.set(results);
+            try {
+                callback.execute(template);
+            } finally {
+                pipelined.remove();
+            }
+            return results;
+        }).when(template).executePipelined(any(SessionCallback.class));
+
         // mock HashOperations putAll
         //
         Mockito.doAnswer(invocation -> {
             Object[] args = invocation.getArguments();
             String key = (String) args[0];
             Map<String, Object> map = (Map<String, Object>) args[1];
-            LOGGER.trace("StringRedisTemplate HashOperations putAll " + key + " " + map.keySet());
-            Map<String, Object> wholeMap = (Map<String, Object>) data.get(key);
-            if (wholeMap == null) {
-                wholeMap = new LinkedHashMap<>();
-                data.put(key, wholeMap);
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("StringRedisTemplate HashOperations putAll " + key + " " + map.keySet());
             }
-            for (Map.Entry<String, Object> entry : map.entrySet()) {
-                wholeMap.put(entry.getKey(), entry.getValue());
+            Map<String, Object> wholeMap = getHash(key);
+            synchronized (wholeMap) {
+                for (Map.Entry<String, Object> entry : map.entrySet()) {
+                    wholeMap.put(entry.getKey(), entry.getValue());
+                }
             }
             return null;
         }).when(hashOps).putAll(anyString(), anyMap());
@@ -85,18 +123,27 @@ public class MockRedis {
         Mockito.doAnswer(invocation -> {
             Object[] args = invocation.getArguments();
             String key = (String) args[0];
-            LOGGER.trace("StringRedisTemplate HashOperations entries " + key);
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("StringRedisTemplate HashOperations entries " + key);
+            }
             Map<String, Object> map = (Map<String, Object>) data.get(key);
-            if (map == null) {
+            Map<String, Object> mapClone = null;
+            if (map != null) {
+                synchronized (map) {
+                    mapClone = new LinkedHashMap<>(map);
+                }
+            }
+            List<Object> results = pipelined.get();
+            if (results != null) {
+                results.add(mapClone);
                 return null;
             }
-            Map<String, Object> mapClone = new LinkedHashMap<>(map);
             return mapClone;
         }).when(hashOps).entries(anyString());
 
         // opsForValue only use in ExpireOps for lua scripts, set it to null to bypass the real operations
         //
-        ValueOperations valueOps =  mock(ValueOperations.class, Mockito.RETURNS_DEEP_STUBS);
+        ValueOperations valueOps =  mockStub(ValueOperations.class);
         Mockito.when(template.opsForValue()).thenReturn(valueOps);
 
         // mock ValueOperations set
@@ -106,7 +153,9 @@ public class MockRedis {
             String key = (String) args[0];
             String expire = (String) args[1];
             Integer expValue = (Integer) args[2];
-            LOGGER.trace("StringRedisTemplate ValueOperations set " + key + " " + expire + " " + expValue);
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("StringRedisTemplate ValueOperations set " + key + " " + expire + " " + expValue);
+            }
             data.put(key, Arrays.asList(expire, expValue));
             return null;
         }).when(valueOps).set(anyString(), anyString(), anyInt());
@@ -119,13 +168,15 @@ public class MockRedis {
             if ("__is_mock_test__".equals(key)) {
                 return "__TRUE__";
             }
-            LOGGER.trace("StringRedisTemplate ValueOperations get " + key );
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("StringRedisTemplate ValueOperations get " + key );
+            }
             return data.get(key);
         }).when(valueOps).get(anyString());
 
         // mock (ListOperations leftPop
         //
-        ListOperations listOps = mock(ListOperations.class, Mockito.RETURNS_DEEP_STUBS);
+        ListOperations listOps = mockStub(ListOperations.class);
         Mockito.when(template.opsForList()).thenReturn(listOps);
 
         Mockito.when(listOps.leftPop(anyString(), anyLong(), anyObject())).thenAnswer(invocation -> {
@@ -142,9 +193,9 @@ public class MockRedis {
 
    public static RedisKeyInfoTemplate mockKeyInfoRedisTemplate() {
 
-       RedisKeyInfoTemplate template = mock(RedisKeyInfoTemplate.class, Mockito.RETURNS_DEEP_STUBS);
+       RedisKeyInfoTemplate template = mockStub(RedisKeyInfoTemplate.class);
 
-       HashOperations keyInfoOps = mock(HashOperations.class, Mockito.RETURNS_DEEP_STUBS);
+       HashOperations keyInfoOps = mockStub(HashOperations.class);
 
        Mockito.when(template.opsForHash()).thenReturn(keyInfoOps);
 
@@ -154,12 +205,17 @@ public class MockRedis {
            Object[] args = invocation.getArguments();
            String key = (String) args[0];
            String subKey = (String) args[1];
-           LOGGER.trace("RedisKeyInfoTemplate HashOperations get " + key + " " + subKey);
+           if (LOGGER.isTraceEnabled()) {
+               LOGGER.trace("RedisKeyInfoTemplate HashOperations get " + key + " " + subKey);
+           }
            Map<String, Object> map = (Map<String, Object>) data.get(key);
            if (map == null) {
                return null;
            }
-           Map<String, Object> subMap =  (Map<String, Object>) map.get(subKey);
+           Map<String, Object> subMap;
+           synchronized (map) {
+               subMap = (Map<String, Object>) map.get(subKey);
+           }
            return Utils.toPojo(subMap, KeyInfo.class);
        }).when(keyInfoOps).get(anyString(), anyString());
 
@@ -169,15 +225,15 @@ public class MockRedis {
            Object[] args = invocation.getArguments();
            String key = (String) args[0];
            String subKey = (String) args[1];
-           LOGGER.trace("RedisKeyInfoTemplate HashOperations put " + key + " " + subKey);
+           if (LOGGER.isTraceEnabled()) {
+               LOGGER.trace("RedisKeyInfoTemplate HashOperations put " + key + " " + subKey);
+           }
            KeyInfo keyInfo = (KeyInfo) args[2];
            Map<String, Object> subMap = Utils.toMap(keyInfo);
-           Map<String, Object> map = (Map<String, Object>) data.get(key);
-           if (map == null) {
-               map = new LinkedHashMap<>();
-               data.put(key, map);
+           Map<String, Object> map = getHash(key);
+           synchronized (map) {
+               map.put(subKey, subMap);
            }
-           map.put(subKey, subMap);
            return null;
        }).when(keyInfoOps).put(anyString(), anyString(), any(KeyInfo.class));
 
@@ -187,16 +243,16 @@ public class MockRedis {
            Object[] args = invocation.getArguments();
            String key = (String) args[0];
            Map<String, Object> subMaps = (Map<String, Object>) args[1];
-           LOGGER.trace("RedisKeyInfoTemplate HashOperations putAll " + key + " " + subMaps.keySet());
-           Map<String, Object> map = (Map<String, Object>) data.get(key);
-           if (map == null) {
-               map = new LinkedHashMap<>();
-               data.put(key, map);
+           if (LOGGER.isTraceEnabled()) {
+               LOGGER.trace("RedisKeyInfoTemplate HashOperations putAll " + key + " " + subMaps.keySet());
            }
-           for (Map.Entry<String, Object> entry : subMaps.entrySet()) {
-               String subKey = entry.getKey();
-               KeyInfo keyInfo = (KeyInfo) entry.getValue();
-               map.put(subKey, Utils.toMap(keyInfo));
+           Map<String, Object> map = getHash(key);
+           synchronized (map) {
+               for (Map.Entry<String, Object> entry : subMaps.entrySet()) {
+                   String subKey = entry.getKey();
+                   KeyInfo keyInfo = (KeyInfo) entry.getValue();
+                   map.put(subKey, Utils.toMap(keyInfo));
+               }
            }
            return null;
        }).when(keyInfoOps).putAll(anyString(), anyMap());
@@ -207,14 +263,23 @@ public class MockRedis {
            Object[] args = invocation.getArguments();
            String key = (String) args[0];
            List<String> keys = (List<String>) args[1];
-           LOGGER.trace("RedisKeyInfoTemplate HashOperations multiGet " + key);
+           if (LOGGER.isTraceEnabled()) {
+               LOGGER.trace("RedisKeyInfoTemplate HashOperations multiGet " + key);
+           }
            Map<String, Object> map = (Map<String, Object>) data.get(key);
            List<KeyInfo> resultList = new ArrayList<>();
            if (map == null) {
+               // like redis hmget, one null per key
+               for (String subKey: keys) {
+                   resultList.add(null);
+               }
                return resultList;
            }
            for (String subKey: keys) {
-               Map<String, Object> subMap = (Map<String, Object>) map.get(subKey);
+               Map<String, Object> subMap;
+               synchronized (map) {
+                   subMap = (Map<String, Object>) map.get(subKey);
+               }
                if (subMap != null) {
                    KeyInfo keyInfo = Utils.toPojo(subMap, KeyInfo.class);
                    resultList.add(keyInfo);
@@ -231,12 +296,16 @@ public class MockRedis {
            Object[] args = invocation.getArguments();
            String key = (String) args[0];
            String subKey = (String) args[1];
-           LOGGER.trace("RedisKeyInfoTemplate HashOperations delete " + key + " " + subKey);
+           if (LOGGER.isTraceEnabled()) {
+               LOGGER.trace("RedisKeyInfoTemplate HashOperations delete " + key + " " + subKey);
+           }
            Map<String, Object> map = (Map<String, Object>) data.get(key);
            if (map == null) {
                return null;
            }
-           map.remove(subKey);
+           synchronized (map) {
+               map.remove(subKey);
+           }
            return null;
        }).when(keyInfoOps).delete(anyString(), anyString());
 
@@ -251,9 +320,13 @@ public class MockRedis {
                return null;
            }
            List<String> keys = (List<String>) args[1];
-           LOGGER.trace("RedisKeyInfoTemplate HashOperations delete " + key + " " + keys);
-           for (String subKey: keys) {
-               map.remove(subKey);
+           if (LOGGER.isTraceEnabled()) {
+               LOGGER.trace("RedisKeyInfoTemplate HashOperations delete " + key + " " + keys);
+           }
+           synchronized (map) {
+               for (String subKey: keys) {
+                   map.remove(subKey);
+               }
            }
            return null;
        }).when(keyInfoOps).delete(anyString(), anyList());
@@ -23,6 +23,7 @@ import com.doitincloud.rdbcache.models.KvIdType;
 import com.doitincloud.rdbcache.models.KvPair;
 import com.doitincloud.rdbcache.repositories.DbaseRepo;
 import com.doitincloud.rdbcache.services.CacheOps;
+import com.doitincloud.rdbcache.services.WriteBehindOps;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -455,6 +456,13 @@ public class RdbcacheApisTest {
 
             }
 
+            // allow time to synchronize data
+            try {
+                Thread.sleep(250);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+
             {
                 RequestBuilder requestBuilder = MockMvcRequestBuilders.
                         get("/rdbcache/v1/get/" + key+"/user_table").
@@ -1024,6 +1032,50 @@ public class RdbcacheApisTest {
         }
     }
 
+    @Test
+    public void pull_post4() {
+
+        try {
+
+            // keys of the default table, in database but none of them in redis
+            //
+            String[] keys = {"pull_kv_key1", "pull_kv_key2", "pull_kv_key3"};
+
+            for (String key: keys) {
+                jdbcTemplate.update("insert into rdbcache_kv_pair (id, type, value) values (?, 'data', ?)",
+                        key, "value_of_" + key);
+                jdbcTemplate.update("insert into rdbcache_kv_pair (id, type, value) values (?, 'keyInfo', ?)",
+                        key, "{\"expire\":\"180\",\"clause\":\"\",\"query_key\":\"\",\"is_new\":false}");
+            }
+
+            {
+                RequestBuilder requestBuilder = MockMvcRequestBuilders.
+                        post("/rdbcache/v1/pull").
+                        contentType(MediaType.APPLICATION_JSON).content(Utils.toJson(Arrays.asList(keys))).
+                        accept(MediaType.APPLICATION_JSON);
+
+                ResultActions actions = mockMvc.perform(requestBuilder);
+                MvcResult result = actions.andReturn();
+                MockHttpServletResponse response = result.getResponse();
+
+                assertEquals(200, response.getStatus());
+                String body = response.getContentAsString();
+                //System.out.println(body);
+
+                Map<String, Object> map = Utils.toMap(body);
+                Map<String, Object> data = (Map<String, Object>) map.get("data");
+                assertNotNull(data);
+                assertEquals(keys.length, data.size());
+                for (String key: keys) {
+                    assertEquals("value_of_" + key, data.get(key));
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("caught an exception");
+        }
+    }
+
     @Test
     public void select_get1() {
 
@@ -1771,5 +1823,209 @@ public class RdbcacheApisTest {
             fail("caught an exception");
         }
     }
-}
 
+    @Test
+    public void select_get_stream1() {
+
+        PropCfg propCfg = new PropCfg();
+        propCfg.setEnableStreamResponse(true);
+        propCfg.setStreamChunkSize(2);
+
+        try {
+
+            {
+                RequestBuilder requestBuilder = MockMvcRequestBuilders.
+                        get("/rdbcache/v1/select/user_table?limit=3").
+                        accept(MediaType.APPLICATION_JSON);
+
+                ResultActions actions = mockMvc.perform(requestBuilder);
+                MvcResult result = actions.andReturn();
+                MockHttpServletResponse response = result.getResponse();
+
+                assertEquals(200, response.getStatus());
+                String body = response.getContentAsString();
+                //System.out.println(body);
+
+                Map<String, Object> map = Utils.toMap(body);
+                assertTrue(map.containsKey("timestamp"));
+                Map<String, Object>  data = (Map<String, Object>) map.get("data");
+                assertNotNull(data);
+                assertEquals(3, data.size());
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("caught an exception");
+        } finally {
+            propCfg.setEnableStreamResponse(false);
+            propCfg.setStreamChunkSize(256);
+        }
+    }
+
+    @Test
+    public void pull_post_stream1() {
+
+        try {
+
+            Map<String, Object>  data1 = null, data2 = null;
+            {
+                RequestBuilder requestBuilder = MockMvcRequestBuilders.
+                        get("/rdbcache/v1/select/user_table?limit=3").
+                        accept(MediaType.APPLICATION_JSON);
+
+                ResultActions actions = mockMvc.perform(requestBuilder);
+                MvcResult result = actions.andReturn();
+                MockHttpServletResponse response = result.getResponse();
+
+                assertEquals(200, response.getStatus());
+                String body = response.getContentAsString();
+                //System.out.println(body);
+
+                Map<String, Object> map = Utils.toMap(body);
+                data1 = (Map<String, Object>) map.get("data");
+                assertNotNull(data1);
+                assertEquals(3, data1.size());
+            }
+
+            PropCfg propCfg = new PropCfg();
+            propCfg.setEnableStreamResponse(true);
+            propCfg.setStreamChunkSize(2);
+
+            try {
+                Set<String> keys = data1.keySet();
+
+                RequestBuilder requestBuilder = MockMvcRequestBuilders.
+                        post("/rdbcache/v1/pull/user_table").
+                        contentType(MediaType.APPLICATION_JSON).content(Utils.toJsonMap(keys)).
+                        accept(MediaType.APPLICATION_JSON);
+
+                ResultActions actions = mockMvc.perform(requestBuilder);
+                MvcResult result = actions.andReturn();
+                MockHttpServletResponse response = result.getResponse();
+
+                assertEquals(200, response.getStatus());
+                String body = response.getContentAsString();
+                //System.out.println(body);
+
+                Map<String, Object> map = Utils.toMap(body);
+                data2 = (Map<String, Object>) map.get("data");
+                assertNotNull(data2);
+                assertEquals(data1, data2);
+
+            } finally {
+                propCfg.setEnableStreamResponse(false);
+                propCfg.setStreamChunkSize(256);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("caught an exception");
+        }
+    }
+
+    @Test
+    public void set_put_write_behind1() {
+
+        PropCfg propCfg = new PropCfg();
+
+        // flushed only when the test asks for it
+        WriteBehindOps ops = new WriteBehindOps();
+        ops.setFlushIntervalMs(60000L);
+        ops.setBatchSize(100);
+        ops.start();
+
+        try {
+            String key = null;
+            {
+                RequestBuilder requestBuilder = MockMvcRequestBuilders.
+                        get("/rdbcache/v1/get/*/user_table?id=2").
+                        accept(MediaType.APPLICATION_JSON);
+
+                ResultActions actions = mockMvc.perform(requestBuilder);
+                MvcResult result = actions.andReturn();
+                MockHttpServletResponse response = result.getResponse();
+
+                assertEquals(200, response.getStatus());
+                String body = response.getContentAsString();
+                Map<String, Object> map = Utils.toMap(body);
+
+                key = (String) map.get("key");
+                assertNotNull(key);
+            }
+
+            // allow time to synchronize data
+            try {
+                Thread.sleep(250);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+
+            for (int i = 0; i < 50 && !ops.isRunning(); i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(ops.isRunning());
+
+            AppCtx.setWriteBehindOps(ops);
+            propCfg.setEnableWriteBehind(true);
+
+            String[] names = {"Kevin 1", "Kevin 2", "Kevin 3"};
+            for (String name: names) {
+                RequestBuilder requestBuilder = MockMvcRequestBuilders.
+                        put("/rdbcache/v1/put/" + key + "/user_table").
+                        contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"" + name + "\"}").
+                        accept(MediaType.APPLICATION_JSON);
+
+                ResultActions actions = mockMvc.perform(requestBuilder);
+                MvcResult result = actions.andReturn();
+                MockHttpServletResponse response = result.getResponse();
+
+                assertEquals(200, response.getStatus());
+            }
+
+            {
+                String json = "{\"id\":2,\"email\":\"kevin2@example.com\",\"name\":\"Kevin 3\",\"dob\":\"1980-07-21\"}";
+
+                RequestBuilder requestBuilder = MockMvcRequestBuilders.
+                        post("/rdbcache/v1/set/" + key + "/user_table").
+                        contentType(MediaType.APPLICATION_JSON).content(json).
+                        accept(MediaType.APPLICATION_JSON);
+
+                ResultActions actions = mockMvc.perform(requestBuilder);
+                MvcResult result = actions.andReturn();
+                MockHttpServletResponse response = result.getResponse();
+
+                assertEquals(200, response.getStatus());
+            }
+
+            for (int i = 0; i < 500 && (Long) ops.getMetrics().get("queued") < 4L; i++) {
+                Thread.sleep(10);
+            }
+
+            Map<String, Object> metrics = ops.getMetrics();
+            assertEquals(4L, metrics.get("queued"));
+            assertEquals(3L, metrics.get("coalesced"));
+            assertEquals(1, metrics.get("pending"));
+
+            // nothing is written to database before the flush
+            Map<String, Object> row = jdbcTemplate.queryForMap("select * from user_table where id = 2");
+            assertEquals("Kevin B.", row.get("name"));
+
+            ops.flush();
+
+            metrics = ops.getMetrics();
+            assertEquals(0, metrics.get("pending"));
+            assertEquals(1L, metrics.get("flushed"));
+
+            row = jdbcTemplate.queryForMap("select * from user_table where id = 2");
+            assertEquals("Kevin 3", row.get("name"));
+            assertEquals("kevin2@example.com", row.get("email"));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("caught an exception");
+        } finally {
+            propCfg.setEnableWriteBehind(false);
+            AppCtx.setWriteBehindOps(null);
+            ops.interrupt();
+        }
+    }
+}
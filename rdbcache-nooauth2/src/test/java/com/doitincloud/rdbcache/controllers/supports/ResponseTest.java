@@ -0,0 +1,94 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.controllers.supports;
+
+import com.doitincloud.commons.Utils;
+
+import com.doitincloud.rdbcache.models.KvPair;
+import com.doitincloud.rdbcache.supports.AnyKey;
+import com.doitincloud.rdbcache.supports.Context;
+import com.doitincloud.rdbcache.supports.KvPairs;
+
+import org.junit.Test;
+
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ResponseTest {
+
+    @Test
+    public void streamNothingFound() throws Exception {
+
+        for (boolean sendValue: new boolean[] {true, false}) {
+
+            Context context = new Context(sendValue, true, "select_get");
+            Object sent = Response.send(context, new KvPairs()).getBody().get("data");
+
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            assertNull(Response.stream(context, response, sink -> sink.accept(new KvPairs(), new AnyKey())));
+            assertEquals(200, response.getStatus());
+
+            Map<String, Object> map = Utils.toMap(response.getContentAsString());
+            assertTrue(map.containsKey("timestamp"));
+            assertEquals(new LinkedHashMap<>(), map.get("data"));
+            assertEquals(sent, map.get("data"));
+        }
+    }
+
+    @Test
+    public void streamChunks() throws Exception {
+
+        for (boolean sendValue: new boolean[] {true, false}) {
+
+            Context context = new Context(sendValue, true, "select_get");
+            KvPairs pairs = new KvPairs();
+            for (int i = 0; i < 3; i++) {
+                Map<String, Object> data = new LinkedHashMap<>();
+                data.put("id", i);
+                pairs.add(new KvPair("key" + i, "data", data));
+            }
+            Object sent = Response.send(context, pairs).getBody().get("data");
+
+            KvPairs chunk1 = new KvPairs();
+            chunk1.add(pairs.get(0));
+            chunk1.add(pairs.get(1));
+            KvPairs chunk2 = new KvPairs(pairs.get(2));
+
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            Response.stream(context, response, sink -> {
+                sink.accept(chunk1, new AnyKey());
+                sink.accept(new KvPairs(), new AnyKey());
+                sink.accept(chunk2, new AnyKey());
+            });
+
+            Map<String, Object> map = Utils.toMap(response.getContentAsString());
+            if (sendValue) {
+                assertEquals(3, ((Map<String, Object>) map.get("data")).size());
+            } else {
+                List<String> keys = Arrays.asList("key0", "key1", "key2");
+                assertEquals(keys, map.get("data"));
+            }
+            assertEquals(Utils.toJson(sent), Utils.toJson(map.get("data")));
+        }
+    }
+}
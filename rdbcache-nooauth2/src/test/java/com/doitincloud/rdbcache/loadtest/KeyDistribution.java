@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * KeyDistribution picks key indexes in [0, size) for the load runner
+ */
+public abstract class KeyDistribution {
+
+    protected final int size;
+
+    protected KeyDistribution(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        this.size = size;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public abstract int next();
+
+    public static KeyDistribution create(String name, int size, double theta) {
+        switch (name.toLowerCase()) {
+            case "uniform":
+                return new Uniform(size);
+            case "zipfian":
+                return new Zipfian(size, theta);
+            default:
+                throw new IllegalArgumentException("unknown distribution: " + name);
+        }
+    }
+
+    public static class Uniform extends KeyDistribution {
+
+        public Uniform(int size) {
+            super(size);
+        }
+
+        @Override
+        public int next() {
+            return ThreadLocalRandom.current().nextInt(size);
+        }
+    }
+
+    /**
+     * Zipfian, after Gray et al. "Quickly Generating Billion-Record Synthetic Databases".
+     * Index 0 is the hottest key; theta close to 1 gives a more skewed distribution.
+     */
+    public static class Zipfian extends KeyDistribution {
+
+        private final double theta;
+
+        private final double zetan;
+
+        private final double alpha;
+
+        private final double eta;
+
+        public Zipfian(int size, double theta) {
+            super(size);
+            if (theta <= 0.0 || theta >= 1.0) {
+                throw new IllegalArgumentException("theta must be in (0, 1)");
+            }
+            this.theta = theta;
+            zetan = zeta(size, theta);
+            alpha = 1.0 / (1.0 - theta);
+            double zeta2 = zeta(2, theta);
+            eta = (1.0 - Math.pow(2.0 / size, 1.0 - theta)) / (1.0 - zeta2 / zetan);
+        }
+
+        @Override
+        public int next() {
+            double u = ThreadLocalRandom.current().nextDouble();
+            double uz = u * zetan;
+            if (uz < 1.0) {
+                return 0;
+            }
+            if (size > 1 && uz < 1.0 + Math.pow(0.5, theta)) {
+                return 1;
+            }
+            int index = (int) (size * Math.pow(eta * u - eta + 1.0, alpha));
+            return Math.min(index, size - 1);
+        }
+
+        private static double zeta(int n, double theta) {
+            double sum = 0.0;
+            for (int i = 1; i <= n; i++) {
+                sum += 1.0 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.loadtest;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram records latencies in microseconds
+ *
+ * Buckets are log-linear: each power of 2 range is split into 16 sub buckets,
+ * so percentiles are accurate to about 6%. Recording is lock free.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_COUNT);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        counts.incrementAndGet(indexOf(micros));
+        count.increment();
+        sum.add(micros);
+        max.accumulateAndGet(micros, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @param percent double, from 0 to 100
+     * @return long, upper bound in microseconds of the bucket holding the percentile
+     */
+    public long getPercentile(double percent) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percent / 100.0 * n));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= target) {
+                if (i + 1 == counts.length()) {
+                    return max.get();
+                }
+                return Math.min(lowerBound(i + 1) - 1, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * print counts per power of 2 range
+     *
+     * @param out PrintStream
+     */
+    public void print(PrintStream out) {
+        long n = count.sum();
+        if (n == 0) {
+            return;
+        }
+        long[] ranges = new long[64];
+        int first = -1, last = -1;
+        for (int i = 0; i < counts.length(); i++) {
+            long c = counts.get(i);
+            if (c == 0) {
+                continue;
+            }
+            int bits = 64 - Long.numberOfLeadingZeros(lowerBound(i));
+            ranges[bits] += c;
+            if (first < 0) {
+                first = bits;
+            }
+            last = bits;
+        }
+        for (int bits = first; bits <= last; bits++) {
+            long from = bits == 0 ? 0 : 1L << (bits - 1);
+            long to = 1L << bits;
+            int width = (int) Math.round(ranges[bits] * 50.0 / n);
+            StringBuilder bar = new StringBuilder();
+            for (int i = 0; i < width; i++) {
+                bar.append('#');
+            }
+            out.println(String.format("    [%8d, %8d) us %10d %6.2f%% %s",
+                    from, to, ranges[bits], ranges[bits] * 100.0 / n, bar));
+        }
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) ((value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1));
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_COUNT + SUB_BITS - 1;
+        int sub = index % SUB_COUNT;
+        return ((long) (SUB_COUNT + sub)) << (exponent - SUB_BITS);
+    }
+}
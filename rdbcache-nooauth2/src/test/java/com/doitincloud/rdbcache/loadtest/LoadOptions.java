@@ -0,0 +1,183 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.loadtest;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LoadOptions, parsed from --name=value arguments
+ */
+public class LoadOptions {
+
+    private int threads = 16;
+
+    private int duration = 30;
+
+    private int warmup = 5;
+
+    private int keys = 1000;
+
+    private String distribution = "zipfian";
+
+    private double theta = 0.99;
+
+    private int batch = 10;
+
+    private int selectLimit = 10;
+
+    private int port = 0;
+
+    private boolean histogram = true;
+
+    private List<String> properties = new ArrayList<>();
+
+    private Map<Endpoint, Integer> mix = parseMix("get:40,set:10,put:10,pull:15,push:10,select:15");
+
+    public static final String USAGE =
+            "options:\n" +
+            "  --threads=16           concurrent clients\n" +
+            "  --duration=30          measured seconds\n" +
+            "  --warmup=5             seconds to run before measuring\n" +
+            "  --keys=1000            number of keys preloaded and used\n" +
+            "  --distribution=zipfian uniform or zipfian\n" +
+            "  --theta=0.99           zipfian skew, in (0, 1)\n" +
+            "  --batch=10             keys per pull and push request\n" +
+            "  --select-limit=10      limit of each select request\n" +
+            "  --mix=get:40,set:10,put:10,pull:15,push:10,select:15\n" +
+            "                         relative weights of endpoints\n" +
+            "  --port=0               server port, 0 for a random port\n" +
+            "  --histogram=true       print latency histograms\n" +
+            "  --rdbcache.*=, --server.*=, --spring.*=\n" +
+            "                         passed to the server as properties\n";
+
+    public static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg: args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("invalid option: " + arg + "\n" + USAGE);
+            }
+            int index = arg.indexOf('=');
+            String name = arg.substring(2, index);
+            String value = arg.substring(index + 1);
+            if (name.startsWith("rdbcache.") || name.startsWith("server.") || name.startsWith("spring.")) {
+                options.properties.add(name + "=" + value);
+                continue;
+            }
+            switch (name) {
+                case "threads": options.threads = Integer.parseInt(value); break;
+                case "duration": options.duration = Integer.parseInt(value); break;
+                case "warmup": options.warmup = Integer.parseInt(value); break;
+                case "keys": options.keys = Integer.parseInt(value); break;
+                case "distribution": options.distribution = value; break;
+                case "theta": options.theta = Double.parseDouble(value); break;
+                case "batch": options.batch = Integer.parseInt(value); break;
+                case "select-limit": options.selectLimit = Integer.parseInt(value); break;
+                case "mix": options.mix = parseMix(value); break;
+                case "port": options.port = Integer.parseInt(value); break;
+                case "histogram": options.histogram = Boolean.parseBoolean(value); break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + arg + "\n" + USAGE);
+            }
+        }
+        if (options.threads <= 0 || options.duration <= 0 || options.warmup < 0 ||
+                options.keys <= 0 || options.batch <= 0 || options.selectLimit <= 0) {
+            throw new IllegalArgumentException("invalid option value\n" + USAGE);
+        }
+        if (options.batch > options.keys) {
+            options.batch = options.keys;
+        }
+        return options;
+    }
+
+    static Map<Endpoint, Integer> parseMix(String value) {
+        Map<Endpoint, Integer> mix = new EnumMap<>(Endpoint.class);
+        for (String item: value.split(",")) {
+            String[] parts = item.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("invalid mix item: " + item);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("invalid mix weight: " + item);
+            }
+            if (weight > 0) {
+                mix.put(Endpoint.fromName(parts[0]), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("empty mix: " + value);
+        }
+        return mix;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public int getWarmup() {
+        return warmup;
+    }
+
+    public int getKeys() {
+        return keys;
+    }
+
+    public String getDistribution() {
+        return distribution;
+    }
+
+    public double getTheta() {
+        return theta;
+    }
+
+    public int getBatch() {
+        return batch;
+    }
+
+    public int getSelectLimit() {
+        return selectLimit;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public boolean isHistogram() {
+        return histogram;
+    }
+
+    public List<String> getProperties() {
+        return properties;
+    }
+
+    public Map<Endpoint, Integer> getMix() {
+        return mix;
+    }
+
+    public String print() {
+        return "threads=" + threads + " duration=" + duration + "s warmup=" + warmup + "s keys=" + keys +
+                " distribution=" + distribution + ("zipfian".equals(distribution) ? "(" + theta + ")" : "") +
+                " batch=" + batch + " select-limit=" + selectLimit + " mix=" + mix + (properties.isEmpty() ? "" : " properties=" + properties);
+    }
+}
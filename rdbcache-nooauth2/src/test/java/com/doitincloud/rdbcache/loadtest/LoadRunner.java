@@ -0,0 +1,318 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LoadRunner boots rdbcache-nooauth2 against MockRedis and H2, then drives
+ * the get, set, put, pull, push and select endpoints over http with concurrent
+ * clients. It reports throughput and latency percentiles/histograms per endpoint.
+ *
+ * mvn -pl rdbcache-nooauth2 test-compile exec:java -Dexec.args="--threads=32 --distribution=uniform"
+ */
+public class LoadRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadRunner.class);
+
+    private static final String KEY_PREFIX = "lt_key_";
+
+    private final LoadOptions options;
+
+    private final String baseUrl;
+
+    private final KeyDistribution distribution;
+
+    private final Endpoint[] endpoints;
+
+    private final int[] weights;
+
+    private final int totalWeight;
+
+    private final Map<Endpoint, LatencyHistogram> latencies = new EnumMap<>(Endpoint.class);
+
+    private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private volatile boolean recording = false;
+
+    private volatile boolean running = true;
+
+    public static void main(String[] args) throws Exception {
+
+        LoadOptions options = LoadOptions.parse(args);
+
+        // allow each client thread to keep its own connection alive
+        System.setProperty("http.maxConnections", Integer.toString(options.getThreads()));
+
+        List<String> properties = new ArrayList<>();
+        properties.add("server.port=" + options.getPort());
+        properties.addAll(options.getProperties());
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(LoadTestApplication.class)
+                .properties(properties.toArray(new String[0]))
+                .run();
+        int exitCode = 0;
+        try {
+            String port = context.getEnvironment().getProperty("local.server.port");
+            LoadRunner runner = new LoadRunner(options, "http://localhost:" + port);
+            runner.run(System.out);
+        } catch (Exception e) {
+            e.printStackTrace();
+            exitCode = 1;
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    public LoadRunner(LoadOptions options, String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        distribution = KeyDistribution.create(options.getDistribution(), options.getKeys(), options.getTheta());
+        Map<Endpoint, Integer> mix = options.getMix();
+        endpoints = mix.keySet().toArray(new Endpoint[0]);
+        weights = new int[endpoints.length];
+        int total = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            total += mix.get(endpoints[i]);
+            weights[i] = total;
+        }
+        totalWeight = total;
+        for (Endpoint endpoint: Endpoint.values()) {
+            latencies.put(endpoint, new LatencyHistogram());
+            errors.put(endpoint, new LongAdder());
+        }
+    }
+
+    public void run(PrintStream out) throws Exception {
+
+        out.println("load test: " + options.print());
+
+        ExecutorService executor = Executors.newFixedThreadPool(options.getThreads());
+        try {
+            preload(executor);
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < options.getThreads(); i++) {
+                futures.add(executor.submit(this::drive));
+            }
+
+            Thread.sleep(options.getWarmup() * 1000L);
+            recording = true;
+            long start = System.nanoTime();
+            Thread.sleep(options.getDuration() * 1000L);
+            recording = false;
+            long elapsed = System.nanoTime() - start;
+            running = false;
+
+            for (Future<?> future: futures) {
+                future.get();
+            }
+
+            // let asynchronous redis and database updates finish before shutting down
+            Thread.sleep(1000L);
+            report(out, elapsed / 1.0e9);
+        } finally {
+            running = false;
+            executor.shutdownNow();
+        }
+    }
+
+    // make sure all keys exist, push and put require existing keys
+    //
+    private void preload(ExecutorService executor) throws Exception {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        int threads = options.getThreads();
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            tasks.add(() -> {
+                int failed = 0;
+                for (int i = offset; i < options.getKeys(); i += threads) {
+                    String key = KEY_PREFIX + i;
+                    if (send("POST", "/rdbcache/v1/set/" + key + "/sync", valueOf(key)) != 200) {
+                        failed++;
+                    }
+                }
+                return failed;
+            });
+        }
+        int failed = 0;
+        for (Future<Integer> future: executor.invokeAll(tasks)) {
+            failed += future.get();
+        }
+        if (failed > 0) {
+            throw new IllegalStateException("failed to preload " + failed + " keys");
+        }
+    }
+
+    private void drive() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            int pick = random.nextInt(totalWeight);
+            int index = 0;
+            while (weights[index] <= pick) {
+                index++;
+            }
+            Endpoint endpoint = endpoints[index];
+            long start = System.nanoTime();
+            int status;
+            try {
+                status = call(endpoint);
+            } catch (IOException e) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug(endpoint.getName() + " " + e.getMessage());
+                }
+                status = -1;
+            }
+            long micros = (System.nanoTime() - start) / 1000L;
+            if (recording) {
+                latencies.get(endpoint).record(micros);
+                if (status != 200) {
+                    errors.get(endpoint).increment();
+                }
+            }
+        }
+    }
+
+    private int call(Endpoint endpoint) throws IOException {
+        switch (endpoint) {
+            case GET:
+                return send("GET", "/rdbcache/v1/get/" + nextKey(), null);
+            case SET: {
+                String key = nextKey();
+                return send("POST", "/rdbcache/v1/set/" + key, valueOf(key));
+            }
+            case PUT:
+                return send("POST", "/rdbcache/v1/put/" + nextKey(), "{\"seq\":" + sequence.incrementAndGet() + "}");
+            case PULL: {
+                StringBuilder body = new StringBuilder("[");
+                for (String key: nextKeys()) {
+                    if (body.length() > 1) body.append(',');
+                    body.append('"').append(key).append('"');
+                }
+                return send("POST", "/rdbcache/v1/pull", body.append(']').toString());
+            }
+            case PUSH: {
+                StringBuilder body = new StringBuilder("{");
+                for (String key: nextKeys()) {
+                    if (body.length() > 1) body.append(',');
+                    body.append('"').append(key).append("\":{\"seq\":").append(sequence.incrementAndGet()).append('}');
+                }
+                return send("POST", "/rdbcache/v1/push", body.append('}').toString());
+            }
+            case SELECT:
+                return send("GET", "/rdbcache/v1/select/employees?limit=" + options.getSelectLimit(), null);
+            default:
+                throw new IllegalArgumentException("unknown endpoint: " + endpoint);
+        }
+    }
+
+    private String nextKey() {
+        return KEY_PREFIX + distribution.next();
+    }
+
+    // distinct keys for a batch, skewed keys collide often under zipfian
+    //
+    private Set<String> nextKeys() {
+        Set<String> keys = new LinkedHashSet<>();
+        int batch = options.getBatch();
+        for (int i = 0; keys.size() < batch && i < batch * 4; i++) {
+            keys.add(nextKey());
+        }
+        for (int i = 0; keys.size() < batch; i++) {
+            keys.add(KEY_PREFIX + i);
+        }
+        return keys;
+    }
+
+    private String valueOf(String key) {
+        return "{\"name\":\"" + key + "\",\"seq\":" + sequence.incrementAndGet() + "}";
+    }
+
+    private int send(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream input = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (input != null) {
+            // read to the end so the connection goes back to the keep alive cache
+            byte[] buffer = new byte[4096];
+            try {
+                while (input.read(buffer) >= 0) {}
+            } finally {
+                input.close();
+            }
+        }
+        return status;
+    }
+
+    private void report(PrintStream out, double seconds) {
+
+        String format = "%-8s %10s %8s %10s %10s %9s %9s %9s %9s %9s%n";
+        out.println();
+        out.printf(format, "endpoint", "requests", "errors", "req/s", "mean(us)",
+                "p50(us)", "p90(us)", "p99(us)", "p99.9(us)", "max(us)");
+
+        long totalRequests = 0, totalErrors = 0;
+        for (Endpoint endpoint: endpoints) {
+            LatencyHistogram latency = latencies.get(endpoint);
+            long requests = latency.getCount();
+            long failed = errors.get(endpoint).sum();
+            totalRequests += requests;
+            totalErrors += failed;
+            out.printf(format, endpoint.getName(), requests, failed,
+                    String.format("%.1f", requests / seconds),
+                    String.format("%.1f", latency.getMean()),
+                    latency.getPercentile(50.0), latency.getPercentile(90.0),
+                    latency.getPercentile(99.0), latency.getPercentile(99.9), latency.getMax());
+        }
+        out.printf(format, "total", totalRequests, totalErrors,
+                String.format("%.1f", totalRequests / seconds), "", "", "", "", "", "");
+
+        if (options.isHistogram()) {
+            for (Endpoint endpoint: endpoints) {
+                out.println();
+                out.println(endpoint.getName() + " latency histogram:");
+                latencies.get(endpoint).print(out);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *  Copyright 2017-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.doitincloud.rdbcache.loadtest;
+
+import com.doitincloud.rdbcache.controllers.supports.Request;
+import com.doitincloud.rdbcache.controllers.supports.Response;
+import com.doitincloud.rdbcache.supports.Context;
+import com.doitincloud.rdbcache.supports.KvPairs;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * RequestPathRunner times the per request work around a handler on one thread:
+ * new Context, Request.process and Response.send, with the test logging config.
+ * It produced the before/after numbers for the sampled access log.
+ *
+ * mvn -pl rdbcache-nooauth2 test-compile exec:java -Dexec.mainClass=com.doitincloud.rdbcache.loadtest.RequestPathRunner -Dexec.args="--rounds=5 --iterations=200000"
+ */
+public class RequestPathRunner {
+
+    public static void main(String[] args) throws Exception {
+
+        int rounds = 5;
+        int iterations = 200000;
+
+        for (String arg: args) {
+            if (arg.startsWith("--rounds=")) {
+                rounds = Integer.parseInt(arg.substring("--rounds=".length()));
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(arg.substring("--iterations=".length()));
+            } else {
+                throw new IllegalArgumentException("unknown option: " + arg);
+            }
+        }
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/rdbcache/v1/get/my-key");
+
+        long[] results = new long[rounds];
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                Context context = new Context(true, "get_get");
+                Request.process(context, request);
+                Response.send(context, new KvPairs("my-key", "{}"));
+            }
+            long ns = System.nanoTime() - start;
+            results[round] = iterations * 1000000000L / ns;
+        }
+
+        // printed at the end, so that the summary is not buried in the log output
+        for (int round = 0; round < rounds; round++) {
+            System.out.println("round " + round + ": " + results[round] + " req/s");
+        }
+    }
+}
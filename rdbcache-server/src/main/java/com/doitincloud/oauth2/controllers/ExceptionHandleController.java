@@ -16,6 +16,7 @@
 
 package com.doitincloud.oauth2.controllers;
 
+import com.doitincloud.rdbcache.exceptions.ServiceUnavailableException;
 import org.springframework.beans.ConversionNotSupportedException;
 import org.springframework.beans.TypeMismatchException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -164,6 +165,13 @@ public class ExceptionHandleController extends ResponseEntityExceptionHandler {
         return buildResponseEntity(HttpStatus.BAD_REQUEST, ex);
     }
 
+    @ExceptionHandler({
+            ServiceUnavailableException.class
+    })
+    public @ResponseBody ResponseEntity<Object> handleServiceUnavailableException(HttpServletRequest req, final Exception ex) {
+        return buildResponseEntity(HttpStatus.SERVICE_UNAVAILABLE, ex);
+    }
+
     @ExceptionHandler({ RuntimeException.class, Exception.class})
     public @ResponseBody ResponseEntity<Object> handleAll(HttpServletRequest req, final Exception ex) {
         ex.printStackTrace();
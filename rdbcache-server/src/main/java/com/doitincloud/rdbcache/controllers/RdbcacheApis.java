@@ -17,6 +17,7 @@
 package com.doitincloud.rdbcache.controllers;
 
 import com.doitincloud.rdbcache.configs.AppCtx;
+import com.doitincloud.rdbcache.configs.PropCfg;
 
 import com.doitincloud.rdbcache.controllers.supports.Request;
 import com.doitincloud.rdbcache.controllers.supports.Response;
@@ -31,6 +32,7 @@ import com.doitincloud.rdbcache.queries.QueryInfo;
 import com.doitincloud.rdbcache.supports.AnyKey;
 import com.doitincloud.rdbcache.supports.Context;
 import com.doitincloud.rdbcache.supports.KvPairs;
+import com.doitincloud.rdbcache.supports.TaskPools;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
@@ -45,6 +47,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import java.util.*;
 
@@ -92,11 +95,13 @@ public class RdbcacheApis {
             @PathVariable Optional<String> opt2,
             @PathVariable Optional<String> opt3) {
 
-        Context context = new Context(true);
+        Context context = new Context(true, "get_get");
         KvPairs pairs = new KvPairs(key);
         AnyKey anyKey = Request.process(context, request, pairs, opt1, opt2, opt3);
 
-        LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
         if (key.equals("*")) {
             if (AppCtx.getDbaseRepo().find(context, pairs, anyKey)) {
@@ -152,11 +157,13 @@ public class RdbcacheApis {
             @PathVariable Optional<String> opt2,
             @PathVariable Optional<String> opt3) {
 
-        Context context = new Context();
+        Context context = new Context(false, "set_get");
         KvPairs pairs = new KvPairs(key, value);
         AnyKey anyKey = Request.process(context, request, pairs, opt1, opt2, opt3);
 
-        LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
         AppCtx.getAsyncOps().doSaveToRedisAndDbase(context, pairs, anyKey);
 
@@ -195,11 +202,13 @@ public class RdbcacheApis {
             throw new BadRequestException("missing request body");
         }
 
-        Context context = new Context();
+        Context context = new Context(false, "set_post");
         KvPairs pairs = new KvPairs(key, value);
         AnyKey anyKey = Request.process(context, request, pairs, opt1, opt2, opt3);
 
-        LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
         AppCtx.getAsyncOps().doSaveToRedisAndDbase(context, pairs, anyKey);
 
@@ -238,11 +247,13 @@ public class RdbcacheApis {
             throw new BadRequestException("missing request body");
         }
 
-        Context context = new Context();
+        Context context = new Context(false, "put_post");
         KvPairs pairs = new KvPairs(key, value);
         AnyKey anyKey = Request.process(context, request, pairs, opt1, opt2, opt3);
 
-        LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
         KeyInfo keyInfo = anyKey.getKeyInfo();
 
@@ -287,11 +298,13 @@ public class RdbcacheApis {
             @PathVariable Optional<String> opt2,
             @PathVariable Optional<String> opt3) {
 
-        Context context = new Context(true);
+        Context context = new Context(true, "getset_get");
         KvPairs pairs = new KvPairs(key, value);
         AnyKey anyKey = Request.process(context, request, pairs, opt1, opt2, opt3);
 
-        LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
         KvPairs pairsClone = pairs.clone();
         KvPair pair = pairs.getPair();
@@ -350,11 +363,13 @@ public class RdbcacheApis {
             throw new BadRequestException("missing request body");
         }
 
-        Context context = new Context(true);
+        Context context = new Context(true, "getset_post");
         KvPairs pairs = new KvPairs(key, value);
         AnyKey anyKey = Request.process(context, request, pairs, opt1, opt2);
 
-        LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
         KvPairs pairsClone = pairs.clone();
         KvPair pair = pairs.getPair();
@@ -390,6 +405,7 @@ public class RdbcacheApis {
      * Once data found, it returns immediately. It queries redis first, then database. 
      *
      * @param request HttpServletRequest
+     * @param response HttpServletResponse
      * @param opt1 String, can be expire or table or "sync" or "async"
      * @param opt2 String, can be expire or table or "sync" or "async", but not otp1
      * @param opt3 String, can be expire or table or "sync" or "async", but not otp1 and opt2
@@ -404,6 +420,7 @@ public class RdbcacheApis {
     }, method = RequestMethod.POST)
     public ResponseEntity<?> pull_post(
             HttpServletRequest request,
+            HttpServletResponse response,
             @PathVariable Optional<String> opt1,
             @PathVariable Optional<String> opt2,
             @PathVariable Optional<String> opt3,
@@ -422,7 +439,7 @@ public class RdbcacheApis {
             throw  new BadRequestException("query string is not supported");
         }
 
-        Context context = new Context(true, true);
+        Context context = new Context(true, true, "pull_post");
         KvPairs pairs = new KvPairs(keys);
         AnyKey anyKey = Request.process(context, request, pairs, opt1, opt2, opt3);
 
@@ -438,32 +455,23 @@ public class RdbcacheApis {
             }
         }
 
-        LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
-
-        if (!AppCtx.getRedisRepo().find(context, pairs, anyKey)) {
-
-            KvPairs dbPairs = new KvPairs();
-
-            for (int i = 0; i < pairs.size(); i++) {
-
-                KvPair pair = pairs.get(i);
-                if (!pair.hasContent()) {
-
-                    KeyInfo keyInfo = anyKey.get(i);
-                    KvPairs pairsNew = new KvPairs(pair);
-                    AnyKey anyKeyNew = new AnyKey(keyInfo);
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
-                    if (AppCtx.getDbaseRepo().find(context, pairsNew, anyKeyNew)) {
-                        dbPairs.add(pair);
-                    }
+        if (PropCfg.getEnableStreamResponse()) {
+            return Response.stream(context, response, sink -> {
+                while (pairs.size() > 0) {
+                    KvPairs chunkPairs = pairs.takeFirst(PropCfg.getStreamChunkSize());
+                    AnyKey chunkAnyKey = anyKey.takeFirst(chunkPairs.size());
+                    pull(context, chunkPairs, chunkAnyKey);
+                    sink.accept(chunkPairs, chunkAnyKey);
                 }
-            }
-
-            if (dbPairs.size() > 0) {
-                AppCtx.getAsyncOps().doSaveToRedis(context, dbPairs, anyKey);
-            }
+            });
         }
 
+        pull(context, pairs, anyKey);
+
         return Response.send(context, pairs);
     }
 
@@ -507,7 +515,7 @@ public class RdbcacheApis {
             throw new BadRequestException("query string is not supported");
         }
 
-        Context context = new Context(false, true);
+        Context context = new Context(false, true, "push_post");
         KvPairs pairs = new KvPairs(map);
         AnyKey anyKey = Request.process(context, request, pairs, opt1, opt2, opt3);
 
@@ -523,7 +531,9 @@ public class RdbcacheApis {
             }
         }
 
-        LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
         AppCtx.getAsyncOps().doPushOperations(context, pairs, anyKey);
 
@@ -561,7 +571,7 @@ public class RdbcacheApis {
             throw new BadRequestException("no * allowed as key");
         }
 
-        Context context = new Context();
+        Context context = new Context(false, "delkey_get");
         KvPairs pairs = new KvPairs(key);
         AnyKey anyKey = Request.process(context, request, pairs, opt1, opt2);
 
@@ -569,7 +579,9 @@ public class RdbcacheApis {
             throw new NotFoundException("key not found for " + key);
         }
 
-        LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
         AppCtx.getAsyncOps().doDeleteFromRedis(context, pairs, anyKey);
 
@@ -607,7 +619,7 @@ public class RdbcacheApis {
             throw new BadRequestException("no * allowed as key");
         }
 
-        Context context = new Context();
+        Context context = new Context(false, "delkey_post");
         KvPairs pairs = new KvPairs(keys);
         AnyKey anyKey = Request.process(context, request, pairs, opt1, opt2);
 
@@ -623,7 +635,9 @@ public class RdbcacheApis {
             }
         }
 
-        LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
         AppCtx.getAsyncOps().doDeleteFromRedis(context, pairs, anyKey);
 
@@ -661,7 +675,7 @@ public class RdbcacheApis {
             throw new BadRequestException("no * allowed as key");
         }
 
-        Context context = new Context();
+        Context context = new Context(false, "delall_get");
         KvPairs pairs = new KvPairs(key);
         AnyKey anyKey = Request.process(context, request, pairs, opt1, opt2);
 
@@ -669,7 +683,9 @@ public class RdbcacheApis {
             throw new NotFoundException("key not found for " + key);
         }
 
-        LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
         AppCtx.getAsyncOps().doDeleteFromRedisAndDbase(context, pairs, anyKey);
 
@@ -707,7 +723,7 @@ public class RdbcacheApis {
             throw new BadRequestException("no * allowed as key");
         }
 
-        Context context = new Context();
+        Context context = new Context(false, "delall_post");
         KvPairs pairs = new KvPairs(keys);
         AnyKey anyKey = Request.process(context, request, pairs, opt1, opt2);
 
@@ -735,6 +751,7 @@ public class RdbcacheApis {
      * It queries database and return immediately, and asynchronously saves the data to redis
      *
      * @param request HttpServletRequest
+     * @param response HttpServletResponse
      * @param opt1 String, can be expire or table or "sync" or "async"
      * @param opt2 String, can be expire or table or "sync" or "async", but not otp1
      * @param opt3 String, can be expire or table or "sync" or "async", but not otp1 and opt2
@@ -749,6 +766,7 @@ public class RdbcacheApis {
         }, method = RequestMethod.GET)
     public ResponseEntity<?> select_get(
             HttpServletRequest request,
+            HttpServletResponse response,
             @PathVariable Optional<String> opt1,
             @PathVariable Optional<String> opt2,
             @PathVariable Optional<String> opt3) {
@@ -757,11 +775,13 @@ public class RdbcacheApis {
             throw  new BadRequestException("query string is needed, try add ?limit=256 to url");
         }
 
-        Context context = new Context(true, true);
+        Context context = new Context(true, true, "select_get");
         KvPairs pairs = new KvPairs();
         AnyKey anyKey = Request.process(context, request, pairs, opt1, opt2, opt3);
 
-        LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
         KeyInfo keyInfo = anyKey.getKeyInfo();
         if (keyInfo.getQuery() == null && pairs.size() == 0) {
@@ -773,6 +793,17 @@ public class RdbcacheApis {
             context.logTraceMessage(msg);
         }
 
+        if (PropCfg.getEnableStreamResponse()) {
+            return Response.stream(context, response, sink -> {
+                if (!AppCtx.getDbaseRepo().find(context, pairs, anyKey, (chunkPairs, chunkAnyKey) -> {
+                        AppCtx.getAsyncOps().doSaveToRedis(context, chunkPairs, chunkAnyKey);
+                        sink.accept(chunkPairs, chunkAnyKey);
+                    })) {
+                    LOGGER.debug("no record(s) found from database");
+                }
+            });
+        }
+
         if (!AppCtx.getDbaseRepo().find(context, pairs, anyKey)) {
 
             LOGGER.debug("no record(s) found from database");
@@ -793,6 +824,7 @@ public class RdbcacheApis {
      * It queries database and return immediately, and asynchronously saves the data to redis
      *
      * @param request HttpServletRequest
+     * @param response HttpServletResponse
      * @param opt1 String, can be expire or table or "sync" or "async"
      * @param opt2 String, can be expire or table or "sync" or "async", but not otp1
      * @param opt3 String, can be expire or table or "sync" or "async", but not otp1 and opt2
@@ -808,6 +840,7 @@ public class RdbcacheApis {
         }, method = RequestMethod.POST)
     public ResponseEntity<?> select_post(
             HttpServletRequest request,
+            HttpServletResponse response,
             @PathVariable Optional<String> opt1,
             @PathVariable Optional<String> opt2,
             @PathVariable Optional<String> opt3,
@@ -817,11 +850,13 @@ public class RdbcacheApis {
             throw  new BadRequestException("query string is needed");
         }
 
-        Context context = new Context(true, true);
+        Context context = new Context(true, true, "select_post");
         KvPairs pairs = new KvPairs(keys);
         AnyKey anyKey = Request.process(context, request, pairs, opt1, opt2, opt3);
 
-        LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
         KeyInfo keyInfo = anyKey.getKeyInfo();
         if (keyInfo.getQuery() == null && pairs.size() == 0) {
@@ -833,6 +868,17 @@ public class RdbcacheApis {
             context.logTraceMessage(msg);
         }
 
+        if (PropCfg.getEnableStreamResponse()) {
+            return Response.stream(context, response, sink -> {
+                if (!AppCtx.getDbaseRepo().find(context, pairs, anyKey, (chunkPairs, chunkAnyKey) -> {
+                        AppCtx.getAsyncOps().doSaveToRedis(context, chunkPairs, chunkAnyKey);
+                        sink.accept(chunkPairs, chunkAnyKey);
+                    })) {
+                    LOGGER.debug("no record(s) found from database");
+                }
+            });
+        }
+
         if (!AppCtx.getDbaseRepo().find(context, pairs, anyKey)) {
 
             LOGGER.debug("no record(s) found from database");
@@ -879,11 +925,13 @@ public class RdbcacheApis {
             throw new BadRequestException("missing request body");
         }
 
-        Context context = new Context(false, true);
+        Context context = new Context(false, true, "save_post");
         KvPairs pairs = new KvPairs(list);
         AnyKey anyKey = Request.process(context, request, pairs, opt1, opt2);
 
-        LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(anyKey.print() + " pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
         AppCtx.getAsyncOps().doSaveAllToRedisAndSaveAllTodDbase(context, pairs, anyKey);
 
@@ -918,11 +966,13 @@ public class RdbcacheApis {
             throw  new BadRequestException("no query string is allowed");
         }
 
-        Context context = new Context(true);
+        Context context = new Context(true, "trace_get");
         KvPairs pairs = new KvPairs();
         Request.process(context, request, pairs);
 
-        LOGGER.trace("pairs(" + pairs.size() +"): " + pairs.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
         KvPair pair = AppCtx.getKvPairRepo().findById(new KvIdType(traceId, "trace"));
         if (pair != null) {
@@ -962,11 +1012,13 @@ public class RdbcacheApis {
             throw  new BadRequestException("no query string is needed");
         }
 
-        Context context = new Context( true, true);
+        Context context = new Context(true, true, "trace_post");
         KvPairs pairs = new KvPairs();
         Request.process(context, request, pairs);
 
-        LOGGER.trace("pairs(" + pairs.size() +"): " + pairs.printKey());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("pairs(" + pairs.size() +"): " + pairs.printKey());
+        }
 
         for (String referenced_id: traceIds) {
             KvPair pair = AppCtx.getKvPairRepo().findById(new KvIdType(referenced_id, "trace"));
@@ -1001,7 +1053,7 @@ public class RdbcacheApis {
         if (request.getParameterMap().size() != 0) {
             throw  new BadRequestException("query string is not supported");
         }
-        Context context = new Context();
+        Context context = new Context(false, "flushcache_get");
         Request.process(context, request);
 
         if (!opt.isPresent()) {
@@ -1028,4 +1080,121 @@ public class RdbcacheApis {
 
         return Response.send(context, data);
     }
-}
\ No newline at end of file
+
+    /**
+     * taskpools_get get operational
+     *
+     * get queue depth, active threads and backpressure counters of the task pools
+     *
+     * @param request HttpServletRequest
+     * @return ResponseEntity
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/task-pools"
+    }, method = RequestMethod.GET)
+    public ResponseEntity<?> taskpools_get(
+            HttpServletRequest request) {
+
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("query string is not supported");
+        }
+        Context context = new Context(false, "taskpools_get");
+        Request.process(context, request);
+
+        Map<String, Object> data = TaskPools.getMetrics();
+
+        return Response.send(context, data);
+    }
+
+    /**
+     * cachemetrics_get get operational
+     *
+     * get size, hit ratio, eviction and admission counters of the local cache
+     *
+     * @param request HttpServletRequest
+     * @return ResponseEntity
+     */
+    //@PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequestMapping(value = {
+            "/rdbcache/v1/cache-metrics"
+    }, method = RequestMethod.GET)
+    public ResponseEntity<?> cachemetrics_get(
+            HttpServletRequest request) {
+
+        if (request.getParameterMap().size() != 0) {
+            throw  new BadRequestException("query string is not supported");
+        }
+        Context context = new Context(false, "cachemetrics_get");
+        Request.process(context, request);
+
+        Map<String, Object> data = AppCtx.getCacheOps().getMetrics();
+
+        return Response.send(context, data);
+    }
+
+    // redis first, then database for the misses, found rows are saved back to redis
+    //
+    private void pull(Context context, KvPairs pairs, AnyKey anyKey) {
+
+        if (!AppCtx.getRedisRepo().find(context, pairs, anyKey)) {
+
+            // misses of the same table are looked up in one go, so that they share a select,
+            // misses of the default table are looked up one by one
+            //
+            Map<String, KvPairs> tablePairs = new LinkedHashMap<>();
+            Map<String, AnyKey> tableAnyKeys = new LinkedHashMap<>();
+
+            KvPairs dbPairs = new KvPairs();
+            AnyKey dbAnyKey = new AnyKey();
+
+            for (int i = 0; i < pairs.size(); i++) {
+
+                KvPair pair = pairs.get(i);
+                if (pair.hasContent()) {
+                    continue;
+                }
+
+                KeyInfo keyInfo = anyKey.get(i);
+                String table = keyInfo.getTable();
+
+                if (table == null) {
+                    if (AppCtx.getDbaseRepo().find(context, pair, keyInfo)) {
+                        dbPairs.add(pair);
+                        dbAnyKey.add(keyInfo);
+                    }
+                    continue;
+                }
+
+                KvPairs pairsNew = tablePairs.get(table);
+                if (pairsNew == null) {
+                    pairsNew = new KvPairs();
+                    tablePairs.put(table, pairsNew);
+                    tableAnyKeys.put(table, new AnyKey());
+                }
+                pairsNew.add(pair);
+                tableAnyKeys.get(table).add(keyInfo);
+            }
+
+            for (Map.Entry<String, KvPairs> entry: tablePairs.entrySet()) {
+
+                KvPairs pairsNew = entry.getValue();
+                AnyKey anyKeyNew = tableAnyKeys.get(entry.getKey());
+
+                AppCtx.getDbaseRepo().find(context, pairsNew, anyKeyNew);
+
+                for (int i = 0; i < pairsNew.size(); i++) {
+                    KvPair pair = pairsNew.get(i);
+                    if (pair.hasContent()) {
+                        dbPairs.add(pair);
+                        dbAnyKey.add(anyKeyNew.get(i));
+                    }
+                }
+            }
+
+            if (dbPairs.size() > 0) {
+                AppCtx.getAsyncOps().doSaveToRedis(context, dbPairs, dbAnyKey);
+            }
+        }
+    }
+}